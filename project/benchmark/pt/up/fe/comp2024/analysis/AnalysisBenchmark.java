@@ -0,0 +1,52 @@
+package pt.up.fe.comp2024.analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.benchmark.BenchmarkInputs;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of {@link JmmAnalysisImpl#semanticAnalysis}, which builds the symbol table and runs the analysis passes. The
+ * passes only read the AST, so the same one is analysed in every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalysisBenchmark {
+
+    @Param({BenchmarkInputs.CORPUS, "synthetic-100", "synthetic-1000", "synthetic-4000"})
+    public String input;
+
+    private List<JmmParserResult> parserResults;
+
+    @Setup
+    public void setup() {
+        parserResults = BenchmarkInputs.load(input).stream()
+                .map(code -> BenchmarkInputs.parse(code, BenchmarkInputs.config()))
+                .toList();
+    }
+
+    @Benchmark
+    public void semanticAnalysis(Blackhole blackhole) {
+        for (var parserResult : parserResults) {
+            blackhole.consume(new JmmAnalysisImpl(new CompilerContext()).semanticAnalysis(parserResult));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package pt.up.fe.comp2024.analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.benchmark.BenchmarkInputs;
+import pt.up.fe.comp2024.benchmark.SyntheticPrograms;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Semantic analysis of a class with more and more methods of the same size, checking the methods one after the other
+ * ('sequential') and in parallel ('-l', 'parallel').
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelAnalysisBenchmark {
+
+    @Param({"4", "16", "64"})
+    public int methods;
+
+    private JmmParserResult sequentialInput;
+    private JmmParserResult parallelInput;
+
+    @Setup
+    public void setup() {
+        var code = SyntheticPrograms.generate(new SyntheticPrograms.Shape().methods(methods).statements(200), 0);
+
+        sequentialInput = BenchmarkInputs.parse(code, BenchmarkInputs.config());
+
+        var parallelConfig = BenchmarkInputs.config();
+        parallelConfig.put("parallelAnalysis", "true");
+        parallelInput = BenchmarkInputs.parse(code, parallelConfig);
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) {
+        blackhole.consume(new JmmAnalysisImpl(new CompilerContext()).semanticAnalysis(sequentialInput));
+    }
+
+    @Benchmark
+    public void parallel(Blackhole blackhole) {
+        blackhole.consume(new JmmAnalysisImpl(new CompilerContext()).semanticAnalysis(parallelInput));
+    }
+}
@@ -0,0 +1,59 @@
+package pt.up.fe.comp2024.backend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.benchmark.BenchmarkInputs;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of {@link JasminGenerator#build}, compared with the class file backend ({@link ClassFileGenerator}). Run with
+ * '-prof gc' to also compare the allocation. That the generated code did not change is checked by JasminGoldenTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JasminGeneratorBenchmark {
+
+    @Param({BenchmarkInputs.CORPUS, "synthetic-100", "synthetic-1000", "synthetic-4000"})
+    public String input;
+
+    private List<OllirResult> ollirResults;
+
+    @Setup
+    public void setup() {
+        ollirResults = BenchmarkInputs.load(input).stream()
+                .map(code -> BenchmarkInputs.toOllir(code, BenchmarkInputs.config()))
+                .toList();
+    }
+
+    @Benchmark
+    public void build(Blackhole blackhole) {
+        for (var ollirResult : ollirResults) {
+            blackhole.consume(new JasminGenerator(ollirResult, new CompilerContext()).build());
+        }
+    }
+
+    @Benchmark
+    public void buildClassFile(Blackhole blackhole) {
+        for (var ollirResult : ollirResults) {
+            blackhole.consume(new ClassFileGenerator(ollirResult).build());
+        }
+    }
+}
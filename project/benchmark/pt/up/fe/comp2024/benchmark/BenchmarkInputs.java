@@ -0,0 +1,144 @@
+package pt.up.fe.comp2024.benchmark;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.backend.JasminGenerator;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Programs given to the benchmarks, selected by the 'input' parameter:
+ * <ul>
+ * <li>'corpus': every program of the test corpus (the 'test' folder, or the folder in the system property
+ * 'jmm.corpus') that goes through all the stages without errors, so failure tests are left out;</li>
+ * <li>'synthetic-N': a generated program with N statements, see {@link SyntheticPrograms};</li>
+ * <li>a path to a .jmm file.</li>
+ * </ul>
+ * Also has the stages before the one being measured, so each benchmark can prepare its input.
+ */
+public class BenchmarkInputs {
+
+    public static final String CORPUS = "corpus";
+    public static final String SYNTHETIC = "synthetic-";
+
+    private BenchmarkInputs() {
+    }
+
+    /**
+     * @return the source code of the programs of the given input
+     */
+    public static List<String> load(String input) {
+        if (input.equals(CORPUS)) {
+            return loadCorpus();
+        }
+
+        if (input.startsWith(SYNTHETIC)) {
+            return List.of(SyntheticPrograms.generate(Integer.parseInt(input.substring(SYNTHETIC.length()))));
+        }
+
+        try {
+            return List.of(Files.readString(Path.of(input)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read benchmark input '" + input + "'", e);
+        }
+    }
+
+    public static Map<String, String> config(boolean optimize, int registers) {
+        var config = new HashMap<String, String>();
+        config.put("optimize", String.valueOf(optimize));
+        config.put("registerAllocation", String.valueOf(registers));
+        return config;
+    }
+
+    public static Map<String, String> config() {
+        return config(false, -1);
+    }
+
+    public static JmmParserResult parse(String code, Map<String, String> config) {
+        var parserResult = new JmmParserImpl(new CompilerContext()).parse(code, config);
+        check(parserResult.getReports(), "parsing");
+        return parserResult;
+    }
+
+    public static JmmSemanticsResult analyse(String code, Map<String, String> config) {
+        var semanticsResult = new JmmAnalysisImpl(new CompilerContext()).semanticAnalysis(parse(code, config));
+        check(semanticsResult.getReports(), "semantic analysis");
+        return semanticsResult;
+    }
+
+    /**
+     * @return the OLLIR of the program, after the AST optimizations when the config enables them
+     */
+    public static OllirResult toOllir(String code, Map<String, String> config) {
+        var optimization = new JmmOptimizationImpl(new CompilerContext());
+        var ollirResult = optimization.toOllir(optimization.optimize(analyse(code, config)));
+        check(ollirResult.getReports(), "OLLIR generation");
+        return ollirResult;
+    }
+
+    private static void check(List<Report> reports, String stage) {
+        if (ReportUtils.anyError(reports)) {
+            throw new RuntimeException("Benchmark input failed " + stage + ": " + reports);
+        }
+    }
+
+    private static List<String> loadCorpus() {
+        var folder = new File(System.getProperty("jmm.corpus", "test"));
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(folder.toPath())) {
+            files = walk.filter(path -> path.toString().endsWith(".jmm")).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list the corpus in '" + folder.getAbsolutePath() + "'", e);
+        }
+
+        var programs = new ArrayList<String>();
+        for (var file : files) {
+            try {
+                var code = Files.readString(file);
+                if (compiles(code)) {
+                    programs.add(code);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        if (programs.isEmpty()) {
+            throw new RuntimeException("No valid programs in the corpus '" + folder.getAbsolutePath() + "'");
+        }
+        return programs;
+    }
+
+    private static boolean compiles(String code) {
+        try {
+            var config = config(true, 0);
+            var optimization = new JmmOptimizationImpl(new CompilerContext());
+            var ollirResult = optimization.optimize(toOllir(code, config));
+            if (ReportUtils.anyError(ollirResult.getReports())) {
+                return false;
+            }
+
+            new JasminGenerator(toOllir(code, config()), new CompilerContext()).build();
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package pt.up.fe.comp2024.benchmark;
+
+import pt.up.fe.comp2024.driver.CompilationPipeline;
+import pt.up.fe.comp2024.metrics.StageMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles synthetic programs of increasing size and reports the time and memory of every stage against the size, to
+ * find the stages that grow faster than the input.
+ * <p>
+ * Run with 'gradle scaling --args="parameter value..."', where the parameter is one of statements, methods, nesting,
+ * chainLength or locals, and the values are the sizes to compile (by default, statements from 125 to 4000). The other
+ * parameters keep the defaults of {@link SyntheticPrograms.Shape}. Writes build/reports/scaling/parameter.csv with one
+ * row per size and stage, and prints the growth exponent of each top-level stage: about 1 is linear, 2 is quadratic.
+ */
+public class ScalingReport {
+
+    private static final int REPEATS = 5;
+    private static final long SEED = 0;
+    private static final double SUPER_LINEAR = 1.3;
+
+    /**
+     * Best of the repeats for one stage and size.
+     */
+    private record Measure(int size, String stage, long wallNanos, long allocatedBytes, long sourceBytes) {
+    }
+
+    public static void main(String[] args) {
+        var parameter = args.length > 0 ? args[0] : "statements";
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            sizes.add(Integer.parseInt(args[i]));
+        }
+        if (sizes.isEmpty()) {
+            sizes = SyntheticPrograms.doubling(125, 4000);
+        }
+
+        var config = BenchmarkInputs.config(true, 0);
+        var pipeline = new CompilationPipeline();
+        var measures = new ArrayList<Measure>();
+
+        for (int size : sizes) {
+            var shape = shape(parameter, size);
+            var code = SyntheticPrograms.generate(shape, SEED);
+
+            // Best of the repeats, the first one also warms up the compiler for this size
+            Map<String, StageMetrics> best = new LinkedHashMap<>();
+            String failure = null;
+            for (int i = 0; i <= REPEATS && failure == null; i++) {
+                try {
+                    var outcome = pipeline.compile(code, config);
+                    if (!outcome.isSuccess()) {
+                        failure = outcome.getReports().toString();
+                        break;
+                    }
+                    if (i == 0) {
+                        continue;
+                    }
+                    for (var stage : outcome.getMetrics().getStages()) {
+                        best.merge(stage.getName(), stage, ScalingReport::faster);
+                    }
+                } catch (StackOverflowError e) {
+                    failure = "stack overflow";
+                }
+            }
+
+            if (failure != null) {
+                System.out.printf("%s=%d: compilation failed (%s)%n", parameter, size, failure);
+                continue;
+            }
+
+            System.out.printf("%s=%d (%d bytes of source)%n", parameter, size, code.length());
+            for (var stage : best.values()) {
+                measures.add(new Measure(size, stage.getName(), stage.getWallNanos(), stage.getAllocatedBytes(),
+                        code.length()));
+                if (!stage.getName().contains(".")) {
+                    System.out.printf("    %-20s %10.2f ms %10.1f MB%n", stage.getName(), stage.getWallNanos() / 1e6,
+                            stage.getAllocatedBytes() / 1e6);
+                }
+            }
+        }
+
+        writeCsv(new File("build/reports/scaling/" + parameter + ".csv"), parameter, measures);
+        printGrowth(measures);
+    }
+
+    private static SyntheticPrograms.Shape shape(String parameter, int size) {
+        var shape = new SyntheticPrograms.Shape();
+        return switch (parameter) {
+            case "statements" -> shape.statements(size);
+            case "methods" -> shape.methods(size);
+            case "nesting" -> shape.nesting(size);
+            case "chainLength" -> shape.chainLength(size);
+            case "locals" -> shape.locals(size);
+            default -> throw new IllegalArgumentException("Unknown parameter '" + parameter
+                    + "', expected statements, methods, nesting, chainLength or locals");
+        };
+    }
+
+    private static StageMetrics faster(StageMetrics a, StageMetrics b) {
+        return a.getWallNanos() <= b.getWallNanos() ? a : b;
+    }
+
+    private static void writeCsv(File file, String parameter, List<Measure> measures) {
+        var csv = new StringBuilder(parameter).append(",sourceBytes,stage,wallMs,allocatedMB\n");
+        for (var measure : measures) {
+            csv.append(measure.size()).append(',')
+                    .append(measure.sourceBytes()).append(',')
+                    .append(measure.stage()).append(',')
+                    .append(String.format("%.3f", measure.wallNanos() / 1e6)).append(',')
+                    .append(String.format("%.3f", measure.allocatedBytes() / 1e6)).append('\n');
+        }
+
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.writeString(file.toPath(), csv);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write '" + file + "'", e);
+        }
+        System.out.println("Results written to " + file.getAbsolutePath());
+    }
+
+    /**
+     * Prints the slope of log(time) and log(allocation) against log(source size) between the smallest and the largest
+     * size, for the top-level stages.
+     */
+    private static void printGrowth(List<Measure> measures) {
+        Map<String, List<Measure>> byStage = new LinkedHashMap<>();
+        for (var measure : measures) {
+            if (!measure.stage().contains(".")) {
+                byStage.computeIfAbsent(measure.stage(), stage -> new ArrayList<>()).add(measure);
+            }
+        }
+
+        System.out.println("Growth exponent (time, allocation) against the source size:");
+        byStage.forEach((stage, stageMeasures) -> {
+            if (stageMeasures.size() < 2) {
+                return;
+            }
+
+            var first = stageMeasures.get(0);
+            var last = stageMeasures.get(stageMeasures.size() - 1);
+            double sizeRatio = Math.log((double) last.sourceBytes() / first.sourceBytes());
+            double time = Math.log((double) last.wallNanos() / first.wallNanos()) / sizeRatio;
+            double allocation = Math.log((double) last.allocatedBytes() / first.allocatedBytes()) / sizeRatio;
+            System.out.printf("    %-20s %5.2f %5.2f%s%n", stage, time, allocation,
+                    Math.max(time, allocation) > SUPER_LINEAR ? "  super-linear" : "");
+        });
+    }
+}
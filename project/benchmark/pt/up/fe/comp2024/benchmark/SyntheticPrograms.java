@@ -0,0 +1,351 @@
+package pt.up.fe.comp2024.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates valid programs of a given shape, to see how the stages scale beyond the small programs of the corpus.
+ * <p>
+ * The same shape and seed always give the same program. Generated programs also run to completion: loops have fixed
+ * trip counts, methods only call the ones declared before them, and arrays are only indexed with constants below
+ * their length.
+ */
+public class SyntheticPrograms {
+
+    private static final String CLASS_NAME = "Synthetic";
+    private static final int ARRAY_LENGTH = 16;
+    private static final int LOOP_TRIPS = 3;
+
+    /**
+     * Tunable parameters of a generated program.
+     */
+    public static class Shape {
+
+        private int methods = 1;
+        private int statements = 100;
+        private int nesting = 2;
+        private int chainLength = 3;
+        private int locals = 5;
+        private boolean arrays = true;
+        private boolean varargs = true;
+
+        /**
+         * Number of methods besides main (and the varargs helper).
+         */
+        public Shape methods(int methods) {
+            this.methods = Math.max(1, methods);
+            return this;
+        }
+
+        /**
+         * Number of top-level statements in each method; an if or while counts as one, whatever it contains.
+         */
+        public Shape statements(int statements) {
+            this.statements = Math.max(0, statements);
+            return this;
+        }
+
+        /**
+         * Maximum depth of nested if and while statements.
+         */
+        public Shape nesting(int nesting) {
+            this.nesting = Math.max(0, nesting);
+            return this;
+        }
+
+        /**
+         * Number of operands of the arithmetic expressions.
+         */
+        public Shape chainLength(int chainLength) {
+            this.chainLength = Math.max(1, chainLength);
+            return this;
+        }
+
+        /**
+         * Number of int locals in each method.
+         */
+        public Shape locals(int locals) {
+            this.locals = Math.max(1, locals);
+            return this;
+        }
+
+        /**
+         * Whether methods use an int array local, array parameters, indexing and length.
+         */
+        public Shape arrays(boolean arrays) {
+            this.arrays = arrays;
+            return this;
+        }
+
+        /**
+         * Whether methods call a varargs helper.
+         */
+        public Shape varargs(boolean varargs) {
+            this.varargs = varargs;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "methods=" + methods + ", statements=" + statements + ", nesting=" + nesting + ", chainLength="
+                    + chainLength + ", locals=" + locals + ", arrays=" + arrays + ", varargs=" + varargs;
+        }
+    }
+
+    private final Shape shape;
+    private final Random random;
+    private final StringBuilder code = new StringBuilder();
+
+    private int currentMethod;
+
+    private SyntheticPrograms(Shape shape, long seed) {
+        this.shape = shape;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @return a program with one method with the given number of statements and the default shape otherwise
+     */
+    public static String generate(int statements) {
+        return generate(new Shape().statements(statements), 0);
+    }
+
+    public static String generate(Shape shape, long seed) {
+        return new SyntheticPrograms(shape, seed).generateProgram();
+    }
+
+    private String generateProgram() {
+        code.append("import io;\n\n");
+        code.append("class ").append(CLASS_NAME).append(" {\n");
+        code.append("    int total;\n");
+
+        if (shape.varargs) {
+            generateVarargsHelper();
+        }
+
+        for (currentMethod = 0; currentMethod < shape.methods; currentMethod++) {
+            generateMethod();
+        }
+
+        generateMain();
+        code.append("}\n");
+        return code.toString();
+    }
+
+    private void generateVarargsHelper() {
+        code.append("\n    public int sum(int... xs) {\n");
+        code.append("        int s;\n        int i;\n");
+        code.append("        s = 0;\n        i = 0;\n");
+        code.append("        while (i < xs.length) {\n");
+        code.append("            s = s + xs[i];\n");
+        code.append("            i = i + 1;\n");
+        code.append("        }\n");
+        code.append("        return s;\n");
+        code.append("    }\n");
+    }
+
+    private void generateMethod() {
+        code.append("\n    public int m").append(currentMethod).append("(").append(parameters()).append(") {\n");
+
+        // Locals, loop counters for each nesting level and the array
+        for (int i = 0; i < shape.locals; i++) {
+            code.append("        int v").append(i).append(";\n");
+        }
+        for (int depth = 0; depth < shape.nesting; depth++) {
+            code.append("        int k").append(depth).append(";\n");
+        }
+        code.append("        boolean flag;\n");
+        if (shape.arrays) {
+            code.append("        int[] arr;\n");
+        }
+
+        for (int i = 0; i < shape.locals; i++) {
+            code.append("        v").append(i).append(" = ").append(i == 0 ? "n" : String.valueOf(i)).append(";\n");
+        }
+        code.append("        flag = true;\n");
+        if (shape.arrays) {
+            code.append("        arr = new int[").append(ARRAY_LENGTH).append("];\n");
+        }
+
+        for (int i = 0; i < shape.statements; i++) {
+            generateStatement(0, "        ");
+        }
+
+        code.append("        return v0 + total;\n");
+        code.append("    }\n");
+    }
+
+    private String parameters() {
+        return shape.arrays ? "int n, int[] values" : "int n";
+    }
+
+    private void generateStatement(int depth, String indent) {
+        int kinds = depth < shape.nesting ? 9 : 7;
+        switch (random.nextInt(kinds)) {
+            case 0, 1 -> code.append(indent).append(local()).append(" = ").append(intExpr(shape.chainLength))
+                    .append(";\n");
+            case 2 -> code.append(indent).append("flag = ").append(boolExpr()).append(";\n");
+            case 3 -> {
+                if (shape.arrays) {
+                    code.append(indent).append("arr[").append(random.nextInt(ARRAY_LENGTH)).append("] = ")
+                            .append(intExpr(shape.chainLength)).append(";\n");
+                } else {
+                    code.append(indent).append("total = total + ").append(local()).append(";\n");
+                }
+            }
+            case 4 -> code.append(indent).append("total = total + ").append(local()).append(";\n");
+            case 5 -> code.append(indent).append("io.println(").append(intExpr(shape.chainLength)).append(");\n");
+            case 6 -> code.append(indent).append(local()).append(" = ").append(call()).append(";\n");
+            case 7 -> generateIf(depth, indent);
+            default -> generateWhile(depth, indent);
+        }
+    }
+
+    private void generateIf(int depth, String indent) {
+        code.append(indent).append("if (").append(boolExpr()).append(") {\n");
+        generateBlock(depth + 1, indent + "    ");
+        code.append(indent).append("} else {\n");
+        generateBlock(depth + 1, indent + "    ");
+        code.append(indent).append("}\n");
+    }
+
+    private void generateWhile(int depth, String indent) {
+        // Each level has its own counter, which the body never assigns, so the loop always ends
+        var counter = "k" + depth;
+        code.append(indent).append(counter).append(" = 0;\n");
+        code.append(indent).append("while (").append(counter).append(" < ").append(LOOP_TRIPS).append(") {\n");
+        generateBlock(depth + 1, indent + "    ");
+        code.append(indent).append("    ").append(counter).append(" = ").append(counter).append(" + 1;\n");
+        code.append(indent).append("}\n");
+    }
+
+    private void generateBlock(int depth, String indent) {
+        int statements = 1 + random.nextInt(3);
+        for (int i = 0; i < statements; i++) {
+            generateStatement(depth, indent);
+        }
+    }
+
+    private String call() {
+        if (shape.varargs && (currentMethod == 0 || random.nextBoolean())) {
+            var args = new ArrayList<String>();
+            int count = random.nextInt(4);
+            for (int i = 0; i < count; i++) {
+                args.add(intExpr(1));
+            }
+            return "this.sum(" + String.join(", ", args) + ")";
+        }
+
+        if (currentMethod == 0) {
+            return intExpr(shape.chainLength);
+        }
+
+        // Only methods declared before, so there is no recursion
+        return "this.m" + random.nextInt(currentMethod) + "(" + arguments(intExpr(1)) + ")";
+    }
+
+    private String arguments(String n) {
+        return shape.arrays ? n + ", arr" : n;
+    }
+
+    private String intExpr(int operands) {
+        var expr = new StringBuilder(operand());
+        for (int i = 1; i < operands; i++) {
+            switch (random.nextInt(4)) {
+                case 0 -> expr.append(" + ").append(operand());
+                case 1 -> expr.append(" - ").append(operand());
+                case 2 -> expr.append(" * ").append(operand());
+                default -> expr.append(" / ").append(1 + random.nextInt(9));
+            }
+        }
+        return expr.toString();
+    }
+
+    private String operand() {
+        int kinds = shape.arrays ? 6 : 4;
+        return switch (random.nextInt(kinds)) {
+            case 0, 1 -> local();
+            case 2 -> String.valueOf(random.nextInt(100));
+            case 3 -> "(" + local() + " + " + random.nextInt(10) + ")";
+            case 4 -> "arr[" + random.nextInt(ARRAY_LENGTH) + "]";
+            default -> random.nextBoolean() ? "arr.length" : "values.length";
+        };
+    }
+
+    private String boolExpr() {
+        return switch (random.nextInt(4)) {
+            case 0 -> local() + " < " + intExpr(Math.max(1, shape.chainLength / 2));
+            case 1 -> "!flag";
+            case 2 -> local() + " < " + local() + " && flag";
+            default -> "!(" + local() + " < " + random.nextInt(100) + ")";
+        };
+    }
+
+    private String local() {
+        return "v" + random.nextInt(shape.locals);
+    }
+
+    private void generateMain() {
+        code.append("\n    public static void main(String[] args) {\n");
+        code.append("        ").append(CLASS_NAME).append(" program;\n");
+        if (shape.arrays) {
+            code.append("        int[] arr;\n");
+        }
+        code.append("        program = new ").append(CLASS_NAME).append("();\n");
+        if (shape.arrays) {
+            code.append("        arr = new int[").append(ARRAY_LENGTH).append("];\n");
+        }
+        code.append("        io.println(program.m").append(shape.methods - 1).append("(")
+                .append(arguments("1")).append("));\n");
+        code.append("    }\n");
+    }
+
+    /**
+     * @return a program with one assignment of an arithmetic expression with the given number of operands, cycling
+     * through the four operators
+     */
+    public static String operatorChain(int operands) {
+        var expr = new StringBuilder("a");
+        var operators = new String[]{" + ", " * ", " - ", " / "};
+        for (int i = 1; i < operands; i++) {
+            expr.append(operators[i % operators.length]).append(i % 2 == 0 ? "a" : "1");
+        }
+        return chainProgram("int", expr);
+    }
+
+    /**
+     * @return a program with one assignment of a chain of the given number of method calls, 'this.id(a).id(a)...'
+     */
+    public static String callChain(int calls) {
+        var expr = new StringBuilder("this");
+        for (int i = 0; i < calls; i++) {
+            expr.append(".id(a)");
+        }
+        return chainProgram(CLASS_NAME, expr);
+    }
+
+    private static String chainProgram(String type, CharSequence expr) {
+        return "class " + CLASS_NAME + " {\n"
+                + "    public " + CLASS_NAME + " id(int a) {\n"
+                + "        return this;\n"
+                + "    }\n\n"
+                + "    public " + type + " chain(int a) {\n"
+                + "        " + type + " x;\n"
+                + "        x = " + expr + ";\n"
+                + "        return x;\n"
+                + "    }\n"
+                + "}\n";
+    }
+
+    /**
+     * @return the statement counts of a sweep, from start doubling until end
+     */
+    public static List<Integer> doubling(int start, int end) {
+        var sizes = new ArrayList<Integer>();
+        for (int size = start; size <= end; size *= 2) {
+            sizes.add(size);
+        }
+        return sizes;
+    }
+}
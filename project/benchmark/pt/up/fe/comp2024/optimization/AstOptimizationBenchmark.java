@@ -0,0 +1,63 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.benchmark.BenchmarkInputs;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of {@link ASTOptimization#optimize}, constant propagation, folding and branch pruning.
+ * <p>
+ * The optimization changes the AST, so every call gets a freshly analysed one, which is not part of the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AstOptimizationBenchmark {
+
+    @Param({BenchmarkInputs.CORPUS, "synthetic-100", "synthetic-1000", "synthetic-4000"})
+    public String input;
+
+    private List<String> programs;
+    private List<JmmSemanticsResult> semanticsResults;
+
+    @Setup
+    public void setup() {
+        programs = BenchmarkInputs.load(input);
+    }
+
+    @Setup(Level.Invocation)
+    public void analyse() {
+        semanticsResults = programs.stream()
+                .map(code -> BenchmarkInputs.analyse(code, BenchmarkInputs.config(true, -1)))
+                .toList();
+    }
+
+    @Benchmark
+    public void optimize(Blackhole blackhole) {
+        for (var semanticsResult : semanticsResults) {
+            var optimizer = new ASTOptimization(semanticsResult.getRootNode(), semanticsResult.getSymbolTable(),
+                    new CompilerContext());
+            optimizer.optimize();
+            blackhole.consume(optimizer.getConstants());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.benchmark.BenchmarkInputs;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of {@link JmmOptimizationImpl#toOllir}, which generates the OLLIR code and parses it into a class unit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OllirGenerationBenchmark {
+
+    @Param({BenchmarkInputs.CORPUS, "synthetic-100", "synthetic-1000", "synthetic-4000"})
+    public String input;
+
+    private List<JmmSemanticsResult> semanticsResults;
+
+    @Setup
+    public void setup() {
+        semanticsResults = BenchmarkInputs.load(input).stream()
+                .map(code -> BenchmarkInputs.analyse(code, BenchmarkInputs.config()))
+                .toList();
+    }
+
+    @Benchmark
+    public void toOllir(Blackhole blackhole) {
+        for (var semanticsResult : semanticsResults) {
+            blackhole.consume(new JmmOptimizationImpl(new CompilerContext()).toOllir(semanticsResult));
+        }
+    }
+}
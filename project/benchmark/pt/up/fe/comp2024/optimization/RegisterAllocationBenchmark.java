@@ -0,0 +1,67 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.benchmark.BenchmarkInputs;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of {@link JmmOptimizationImpl#optimize(OllirResult)}, liveness analysis and graph coloring, for the values of
+ * '-r' in 'registers'. With a small limit, the allocation stops at the first method that does not fit.
+ * <p>
+ * The allocation changes the class unit, so every call gets a freshly parsed one, which is not part of the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegisterAllocationBenchmark {
+
+    @Param({BenchmarkInputs.CORPUS, "synthetic-100", "synthetic-1000", "synthetic-4000"})
+    public String input;
+
+    @Param({"0", "4", "255"})
+    public int registers;
+
+    private Map<String, String> config;
+    private List<String> ollirCodes;
+    private List<OllirResult> ollirResults;
+
+    @Setup
+    public void setup() {
+        config = BenchmarkInputs.config(false, registers);
+        ollirCodes = BenchmarkInputs.load(input).stream()
+                .map(code -> BenchmarkInputs.toOllir(code, config).getOllirCode())
+                .toList();
+    }
+
+    @Setup(Level.Invocation)
+    public void parseOllir() {
+        ollirResults = ollirCodes.stream().map(ollirCode -> new OllirResult(ollirCode, config)).toList();
+    }
+
+    @Benchmark
+    public void allocateRegisters(Blackhole blackhole) {
+        for (var ollirResult : ollirResults) {
+            blackhole.consume(new JmmOptimizationImpl(new CompilerContext()).optimize(ollirResult));
+        }
+    }
+}
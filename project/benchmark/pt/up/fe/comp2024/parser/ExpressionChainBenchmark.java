@@ -0,0 +1,66 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.benchmark.BenchmarkInputs;
+import pt.up.fe.comp2024.benchmark.SyntheticPrograms;
+import pt.up.fe.comp2024.grammar.JavammLexer;
+import pt.up.fe.comp2024.grammar.JavammParser;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of a single expression with a long chain of binary operators ('operators') or of method calls ('calls'),
+ * from the source code to the AST ('parse') and to the ANTLR tree alone ('parseTree').
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionChainBenchmark {
+
+    @Param({"operators", "calls"})
+    public String chain;
+
+    @Param({"1000", "10000"})
+    public int length;
+
+    private String code;
+    private Map<String, String> config;
+
+    @Setup
+    public void setup() {
+        code = chain.equals("calls") ? SyntheticPrograms.callChain(length) : SyntheticPrograms.operatorChain(length);
+        config = BenchmarkInputs.config();
+
+        // Fails early if the chain does not parse
+        BenchmarkInputs.parse(code, config);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        blackhole.consume(new JmmParserImpl(new CompilerContext()).parse(code, config));
+    }
+
+    @Benchmark
+    public void parseTree(Blackhole blackhole) {
+        var parser = new JavammParser(new CommonTokenStream(new JavammLexer(new ANTLRInputStream(code))));
+        blackhole.consume(parser.program());
+    }
+}
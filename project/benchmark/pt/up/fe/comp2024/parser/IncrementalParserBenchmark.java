@@ -0,0 +1,74 @@
+package pt.up.fe.comp2024.parser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.benchmark.BenchmarkInputs;
+import pt.up.fe.comp2024.benchmark.SyntheticPrograms;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to parse a file again after typing inside one of its methods, with the {@link IncrementalParser} ('edit') and
+ * from scratch ('parse'), for files with more and more methods of the same size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IncrementalParserBenchmark {
+
+    private static final String TYPED = "1 + ";
+
+    @Param({"10", "100"})
+    public int methods;
+
+    private String code;
+    private Map<String, String> config;
+    private IncrementalParser incremental;
+    private int editOffset;
+    private boolean typed;
+
+    @Setup
+    public void setup() {
+        code = SyntheticPrograms.generate(new SyntheticPrograms.Shape().methods(methods).statements(50), 0);
+        config = BenchmarkInputs.config();
+        incremental = new IncrementalParser(config);
+        incremental.parse(code);
+
+        // Right after the first assignment of the method in the middle
+        var middle = code.indexOf("public int m" + methods / 2 + "(");
+        editOffset = code.indexOf(" = ", middle) + " = ".length();
+    }
+
+    /**
+     * Types and deletes the same text in turns, so the file does not grow.
+     */
+    @Benchmark
+    public void edit(Blackhole blackhole) {
+        if (typed) {
+            blackhole.consume(incremental.edit(editOffset, editOffset + TYPED.length(), ""));
+        } else {
+            blackhole.consume(incremental.edit(editOffset, editOffset, TYPED));
+        }
+        typed = !typed;
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        blackhole.consume(new JmmParserImpl(new CompilerContext()).parse(code, config));
+    }
+}
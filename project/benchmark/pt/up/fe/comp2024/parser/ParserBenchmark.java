@@ -0,0 +1,98 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.benchmark.BenchmarkInputs;
+import pt.up.fe.comp2024.grammar.JavammLexer;
+import pt.up.fe.comp2024.grammar.JavammParser;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of {@link JmmParserImpl#parse}, from the source code to the AST, which first tries SLL prediction, compared
+ * with parsing with full LL prediction only.
+ * <p>
+ * Most of that time is the conversion of the ANTLR tree to the AST, the same in both modes, so the 'parseTree'
+ * benchmarks compare the prediction modes on the ANTLR parse alone, with a new lexer and parser each time as before
+ * the {@link ParserPool}. 'parseColdCache' empties the shared DFA before every program, to see what the warm cache
+ * is worth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({BenchmarkInputs.CORPUS, "synthetic-100", "synthetic-1000", "synthetic-4000"})
+    public String input;
+
+    private List<String> programs;
+    private Map<String, String> config;
+
+    @Setup
+    public void setup() {
+        programs = BenchmarkInputs.load(input);
+        config = BenchmarkInputs.config();
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (var code : programs) {
+            blackhole.consume(new JmmParserImpl(new CompilerContext()).parse(code, config));
+        }
+    }
+
+    @Benchmark
+    public void parseLl(Blackhole blackhole) {
+        for (var code : programs) {
+            blackhole.consume(new JmmParserImpl(new CompilerContext()).parseLl(new ANTLRInputStream(code), "program", config));
+        }
+    }
+
+    @Benchmark
+    public void parseColdCache(Blackhole blackhole) {
+        for (var code : programs) {
+            ParserPool.clearCaches();
+            blackhole.consume(new JmmParserImpl(new CompilerContext()).parse(code, config));
+        }
+    }
+
+    @Benchmark
+    public void parseTreeSll(Blackhole blackhole) {
+        for (var code : programs) {
+            blackhole.consume(parseTree(code, PredictionMode.SLL));
+        }
+    }
+
+    @Benchmark
+    public void parseTreeLl(Blackhole blackhole) {
+        for (var code : programs) {
+            blackhole.consume(parseTree(code, PredictionMode.LL));
+        }
+    }
+
+    private static ParseTree parseTree(String code, PredictionMode mode) {
+        var parser = new JavammParser(new CommonTokenStream(new JavammLexer(new ANTLRInputStream(code))));
+        parser.getInterpreter().setPredictionMode(mode);
+        return parser.program();
+    }
+}
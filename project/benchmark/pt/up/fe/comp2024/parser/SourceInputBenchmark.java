@@ -0,0 +1,102 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.benchmark.BenchmarkInputs;
+import pt.up.fe.comp2024.grammar.JavammLexer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and parsing source files through a String ('read') or through a memory mapping ({@link MappedCharStream},
+ * 'mapped'), up to the AST ('parse') and up to the tokens alone ('lex'), where the input path weighs the most.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SourceInputBenchmark {
+
+    @Param({BenchmarkInputs.CORPUS, "synthetic-4000"})
+    public String input;
+
+    private Path folder;
+    private List<Path> files;
+    private Map<String, String> config;
+
+    @Setup
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("jmm-input");
+        files = new ArrayList<>();
+        var programs = BenchmarkInputs.load(input);
+        for (int i = 0; i < programs.size(); i++) {
+            files.add(Files.writeString(folder.resolve("program" + i + ".jmm"), programs.get(i)));
+        }
+        config = BenchmarkInputs.config();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (var file : files) {
+            Files.delete(file);
+        }
+        Files.delete(folder);
+    }
+
+    @Benchmark
+    public void parseRead(Blackhole blackhole) throws IOException {
+        for (var file : files) {
+            blackhole.consume(new JmmParserImpl(new CompilerContext()).parse(Files.readString(file), config));
+        }
+    }
+
+    @Benchmark
+    public void parseMapped(Blackhole blackhole) {
+        for (var file : files) {
+            blackhole.consume(new JmmParserImpl(new CompilerContext()).parse(file, config));
+        }
+    }
+
+    @Benchmark
+    public void lexRead(Blackhole blackhole) throws IOException {
+        for (var file : files) {
+            blackhole.consume(lex(new ANTLRInputStream(Files.readString(file))));
+        }
+    }
+
+    @Benchmark
+    public void lexMapped(Blackhole blackhole) {
+        for (var file : files) {
+            blackhole.consume(lex(MappedCharStream.open(file)));
+        }
+    }
+
+    private static int lex(CharStream input) {
+        var tokens = new CommonTokenStream(new JavammLexer(input));
+        tokens.fill();
+        return tokens.size();
+    }
+}
@@ -0,0 +1,50 @@
+package pt.up.fe.comp2024.symboltable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.benchmark.BenchmarkInputs;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of {@link JmmSymbolTableBuilder#build}, from the AST to the symbol table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SymbolTableBenchmark {
+
+    @Param({BenchmarkInputs.CORPUS, "synthetic-100", "synthetic-1000", "synthetic-4000"})
+    public String input;
+
+    private List<JmmNode> roots;
+
+    @Setup
+    public void setup() {
+        roots = BenchmarkInputs.load(input).stream()
+                .map(code -> BenchmarkInputs.parse(code, BenchmarkInputs.config()).getRootNode())
+                .toList();
+    }
+
+    @Benchmark
+    public void build(Blackhole blackhole) {
+        for (var root : roots) {
+            blackhole.consume(JmmSymbolTableBuilder.build(root));
+        }
+    }
+}
@@ -0,0 +1,3 @@
+@echo off
+
+java -cp "./build/install/jmm/lib/*" pt.up.fe.comp2024.driver.DaemonClient %*
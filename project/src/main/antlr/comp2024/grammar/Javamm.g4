@@ -69,22 +69,27 @@ methodDecl
 
 param: typeOrVargs name = ID;
 
-expr:
-	expr LBRACKETS expr RBRACKETS									# ArrayAccessExpr
-	| expr DOT field = ID											# FieldAccessExpr
-	| expr DOT functionName = ID LPAREN (expr (COL expr)*)? RPAREN	# FuncExpr
-	| functionName = ID (LPAREN (expr (COL expr)*)? RPAREN)			# SelfFuncExpr
-	| NEW ID LBRACKETS expr RBRACKETS								# NewArrayExpr
-	| NEW name = ID LPAREN RPAREN									# NewExpr
-	| op = NOT expr													# UnaryExpr
-	| LPAREN expr RPAREN											# ParenExpr
-	| LBRACKETS (expr (COL expr)*)? RBRACKETS						# ArrayExpr
-	| expr op = (DIV | MUL) expr									# BinaryExpr
-	| expr op = (SUB | ADD) expr									# BinaryExpr
-	| expr op = RELACIONAL expr										# BinaryExpr
-	| expr op = LOGICAL expr										# BinaryExpr
-	| value = INTEGER												# IntegerLiteral
-	| name = ID														# VarRefExpr;
+// Operator chains are matched flat, without recursion, and ExpressionRebuilder turns them into the BinaryExpr,
+// ArrayAccessExpr, FieldAccessExpr and FuncExpr nodes, by precedence: * and /, then + and -, then <, then &&
+expr: operand (op += (DIV | MUL | SUB | ADD | RELACIONAL | LOGICAL) operand)*;
+
+operand:
+	op = NOT operand	# UnaryExpr
+	| primary suffix*	# PostfixExpr;
+
+suffix:
+	LBRACKETS expr RBRACKETS									# ArrayAccessSuffix
+	| DOT field = ID											# FieldAccessSuffix
+	| DOT functionName = ID LPAREN (expr (COL expr)*)? RPAREN	# FuncSuffix;
+
+primary:
+	functionName = ID (LPAREN (expr (COL expr)*)? RPAREN)	# SelfFuncExpr
+	| NEW ID LBRACKETS expr RBRACKETS						# NewArrayExpr
+	| NEW name = ID LPAREN RPAREN							# NewExpr
+	| LPAREN expr RPAREN									# ParenExpr
+	| LBRACKETS (expr (COL expr)*)? RBRACKETS				# ArrayExpr
+	| value = INTEGER										# IntegerLiteral
+	| name = ID												# VarRefExpr;
 
 stmt:
 	name = ID EQUALS expr SEMI								# AssignStmt
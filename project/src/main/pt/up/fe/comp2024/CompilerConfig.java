@@ -1,7 +1,13 @@
 package pt.up.fe.comp2024;
 
+import pt.up.fe.comp2024.backend.Backend;
+import pt.up.fe.comp2024.output.Artifact;
+import pt.up.fe.comp2024.output.Verbosity;
+
 import java.io.File;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -10,6 +16,26 @@ public class CompilerConfig {
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String BATCH = "batch";
+    private static final String THREADS = "threads";
+    private static final String OUTPUT_DIR = "outputDir";
+    private static final String SERVER = "server";
+    private static final String PORT = "port";
+    private static final String CACHE = "cache";
+    private static final String CACHE_SIZE = "cacheSize";
+    private static final String METRICS = "metrics";
+    private static final String VERBOSITY = "verbosity";
+    private static final String ARTIFACTS = "artifacts";
+    private static final String OUTPUT_FILE = "outputFile";
+    private static final String BACKEND = "backend";
+    private static final String PARALLEL_ANALYSIS = "parallelAnalysis";
+    private static final String CLASSPATH = "classpath";
+    private static final String PARSER_CACHE_SIZE = "parserCacheSize";
+
+    private static final int DEFAULT_PORT = 7377;
+    private static final int DEFAULT_CACHE_SIZE_MB = 64;
+    private static final long DEFAULT_PARSER_CACHE_SIZE = 100_000;
+    private static final String DEFAULT_CLASSPATH = "libs-jmm/compiled";
 
     static Map<String, String> shortToLong = new HashMap<>();
 
@@ -17,6 +43,21 @@ public class CompilerConfig {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("b", CompilerConfig.BATCH);
+        shortToLong.put("t", CompilerConfig.THREADS);
+        shortToLong.put("d", CompilerConfig.OUTPUT_DIR);
+        shortToLong.put("s", CompilerConfig.SERVER);
+        shortToLong.put("p", CompilerConfig.PORT);
+        shortToLong.put("c", CompilerConfig.CACHE);
+        shortToLong.put("m", CompilerConfig.CACHE_SIZE);
+        shortToLong.put("j", CompilerConfig.METRICS);
+        shortToLong.put("v", CompilerConfig.VERBOSITY);
+        shortToLong.put("a", CompilerConfig.ARTIFACTS);
+        shortToLong.put("f", CompilerConfig.OUTPUT_FILE);
+        shortToLong.put("g", CompilerConfig.BACKEND);
+        shortToLong.put("l", CompilerConfig.PARALLEL_ANALYSIS);
+        shortToLong.put("k", CompilerConfig.CLASSPATH);
+        shortToLong.put("e", CompilerConfig.PARSER_CACHE_SIZE);
     }
 
     public static Optional<File> getInputFile(Map<String, String> config) {
@@ -37,6 +78,191 @@ public class CompilerConfig {
         return Integer.parseInt(config.getOrDefault(REGISTER, "-1"));
     }
 
+    /**
+     * @return the directory or file list given with '-b', if the compiler should run in batch mode
+     */
+    public static Optional<File> getBatchInput(Map<String, String> config) {
+        var batch = config.get(BATCH);
+
+        if (batch == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(batch));
+    }
+
+    public static int getThreads(Map<String, String> config) {
+        var threads = config.get(THREADS);
+
+        if (threads == null) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        return Integer.parseInt(threads);
+    }
+
+    public static Optional<File> getOutputDir(Map<String, String> config) {
+        var outputDir = config.get(OUTPUT_DIR);
+
+        if (outputDir == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(outputDir));
+    }
+
+    /**
+     * @return true if the compiler should stay resident and serve compile requests ('-s')
+     */
+    public static boolean getServer(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(SERVER, "false"));
+    }
+
+    /**
+     * @return the loopback port used by the compilation daemon and its client
+     */
+    public static int getPort(Map<String, String> config) {
+        return Integer.parseInt(config.getOrDefault(PORT, String.valueOf(DEFAULT_PORT)));
+    }
+
+    /**
+     * @return the folder of the compilation cache given with '-c', if compilations should be cached
+     */
+    public static Optional<File> getCacheDir(Map<String, String> config) {
+        var cache = config.get(CACHE);
+
+        if (cache == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(cache));
+    }
+
+    /**
+     * @return the maximum size of the compilation cache in bytes, given in megabytes with '-m'
+     */
+    public static long getCacheSize(Map<String, String> config) {
+        return Long.parseLong(config.getOrDefault(CACHE_SIZE, String.valueOf(DEFAULT_CACHE_SIZE_MB))) * 1024 * 1024;
+    }
+
+    /**
+     * @return how many states the prediction DFA shared by the parsers may hold before it is cleared, given with '-e'
+     */
+    public static long getParserCacheSize(Map<String, String> config) {
+        return Long.parseLong(config.getOrDefault(PARSER_CACHE_SIZE, String.valueOf(DEFAULT_PARSER_CACHE_SIZE)));
+    }
+
+    /**
+     * @return the JSON file given with '-j', where the metrics of each stage should be written
+     */
+    public static Optional<File> getMetricsFile(Map<String, String> config) {
+        var metrics = config.get(METRICS);
+
+        if (metrics == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(metrics));
+    }
+
+    /**
+     * @return how much is printed, given with '-v' (quiet, normal, verbose or debug)
+     */
+    public static Verbosity getVerbosity(Map<String, String> config) {
+        return Verbosity.fromString(config.getOrDefault(VERBOSITY, Verbosity.NORMAL.name()));
+    }
+
+    /**
+     * @return the artifacts given with '-a' as a comma-separated list, printed regardless of the verbosity
+     */
+    public static List<String> getArtifacts(Map<String, String> config) {
+        var artifacts = config.get(ARTIFACTS);
+
+        if (artifacts == null) {
+            return List.of();
+        }
+
+        return Arrays.stream(artifacts.split(",")).map(String::strip).filter(name -> !name.isEmpty()).toList();
+    }
+
+    /**
+     * @return the file given with '-f', where intermediate results are written instead of the console
+     */
+    public static Optional<File> getOutputFile(Map<String, String> config) {
+        var outputFile = config.get(OUTPUT_FILE);
+
+        if (outputFile == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(outputFile));
+    }
+
+    /**
+     * @return the backend given with '-g' (jasmin or class), Jasmin by default
+     */
+    public static Backend getBackend(Map<String, String> config) {
+        return Backend.fromOptionName(config.getOrDefault(BACKEND, Backend.JASMIN.getOptionName()));
+    }
+
+    /**
+     * @return true if the methods of a class should be analysed in parallel ('-l')
+     */
+    public static boolean getParallelAnalysis(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(PARALLEL_ANALYSIS, "false"));
+    }
+
+    /**
+     * @return the folders and jars given with '-k', separated like in the 'java' classpath, with the classes the
+     * program imports (libs-jmm/compiled by default)
+     */
+    public static List<File> getClasspath(Map<String, String> config) {
+        return Arrays.stream(config.getOrDefault(CLASSPATH, DEFAULT_CLASSPATH).split(File.pathSeparator))
+                .filter(path -> !path.isBlank())
+                .map(File::new)
+                .toList();
+    }
+
+    /**
+     * Creates a copy of the given config that compiles the given input file.
+     */
+    public static Map<String, String> withInputFile(Map<String, String> config, File inputFile) {
+        var copy = new HashMap<>(config);
+        copy.put(INPUT_FILE, inputFile.getAbsolutePath());
+        return copy;
+    }
+
+    /**
+     * Creates a copy of the given config where the files and folders given as options, and the default classpath, are
+     * absolute paths, so that they do not depend on the working directory of the process that reads them (e.g. the
+     * compilation daemon).
+     */
+    public static Map<String, String> withAbsolutePaths(Map<String, String> config) {
+        var copy = new HashMap<>(config);
+        for (var option : List.of(INPUT_FILE, OUTPUT_DIR, CACHE, METRICS, OUTPUT_FILE, BATCH)) {
+            copy.computeIfPresent(option, (key, path) -> new File(path).getAbsolutePath());
+        }
+
+        var classpath = getClasspath(config).stream().map(File::getAbsolutePath).toList();
+        copy.put(CLASSPATH, String.join(File.pathSeparator, classpath));
+        return copy;
+    }
+
+    /**
+     * Checks that the paths which are resolved while compiling ('-c' and '-k') are absolute.
+     *
+     * @throws RuntimeException if one of them is relative
+     */
+    public static void checkAbsolutePaths(Map<String, String> config) {
+        getCacheDir(config).filter(folder -> !folder.isAbsolute()).ifPresent(folder -> {
+            throw new RuntimeException("Option '-c' expects an absolute path, got '" + folder + "'");
+        });
+
+        getClasspath(config).stream().filter(path -> !path.isAbsolute()).findFirst().ifPresent(path -> {
+            throw new RuntimeException("Option '-k' expects absolute paths, got '" + path + "'");
+        });
+    }
+
     public static Map<String, String> getDefault() {
 
         var config = new HashMap<String, String>();
@@ -86,6 +312,37 @@ public class CompilerConfig {
             config.put(getLongOpt(shortOption), value);
         }
 
+        // the daemon receives its input files from the clients
+        if (getServer(config)) {
+            if (getPort(config) < 0 || getPort(config) > 65535) {
+                throw new RuntimeException("Option '-p' expects a valid port number");
+            }
+            if (getThreads(config) < 1) {
+                throw new RuntimeException("Option '-t' expects a positive number of threads");
+            }
+
+            return config;
+        }
+
+        // in batch mode the input files come from '-b'
+        if (config.containsKey(BATCH)) {
+            var batchInput = new File(config.get(BATCH));
+            if (!batchInput.exists()) {
+                throw new RuntimeException("Could not find batch input '" + batchInput + "'");
+            }
+
+            config.put(BATCH, batchInput.getAbsolutePath());
+            if (getThreads(config) < 1) {
+                throw new RuntimeException("Option '-t' expects a positive number of threads");
+            }
+
+            getOptimize(config);
+            getRegisterAllocation(config);
+            getBackend(config);
+
+            return config;
+        }
+
         if (!config.containsKey(INPUT_FILE)) {
 
             throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>'");
@@ -103,6 +360,9 @@ public class CompilerConfig {
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        getBackend(config);
+        getVerbosity(config);
+        getArtifacts(config).forEach(Artifact::fromOptionName);
 
         return config;
     }
@@ -0,0 +1,184 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.classpath.ClasspathIndex;
+import pt.up.fe.comp2024.metrics.CompilationMetrics;
+import pt.up.fe.comp2024.output.OutputSink;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * State that belongs to a single compilation.
+ * <p>
+ * Holds the counters used to name temporaries and labels, the state of the semantic analysis (where reports go,
+ * which method is being analysed, the types of the expressions computed so far), the classpath, the metrics of each
+ * stage and where intermediate results are printed. Each compilation creates its own context, so that several
+ * compilations can run at the same time and the names they generate do not depend on what was compiled before.
+ */
+public class CompilerContext {
+
+    private int tempNumber = -1;
+    private int tempArrayNumber = -1;
+    private int tempLabel = -1;
+
+    private List<Report> reports;
+    private String currentMethod;
+    private boolean isStatic;
+    private final Map<JmmNode, Type> exprTypes = new IdentityHashMap<>();
+    private ClasspathIndex classpath;
+    private boolean classpathLoaded;
+
+    private final CompilationMetrics metrics;
+    private OutputSink output = OutputSink.quiet();
+
+    public CompilerContext() {
+        this(new CompilationMetrics());
+    }
+
+    private CompilerContext(CompilationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return a context for analysing part of the program in another thread, with analysis state of its own (reports,
+     * current method, expression types) and the same metrics and output as this one
+     */
+    public CompilerContext forAnalysisTask() {
+        var task = new CompilerContext(metrics);
+        task.output = output;
+        task.classpath = classpath;
+        task.classpathLoaded = classpathLoaded;
+        return task;
+    }
+
+    public String getTemp() {
+
+        return getTemp("tmp");
+    }
+
+    public String getTemp(String prefix) {
+
+        return prefix + getNextTempNum();
+    }
+
+    public int getNextTempNum() {
+
+        tempNumber += 1;
+        return tempNumber;
+    }
+
+    /**
+     * @return how many temporaries were generated so far
+     */
+    public int getTempCount() {
+        return tempNumber + 1;
+    }
+
+    public String getTempArray(String prefix) {
+
+        return prefix + getNextTempArrayNum();
+    }
+
+    public int getNextTempArrayNum() {
+
+        tempArrayNumber += 1;
+        return tempArrayNumber;
+    }
+
+    public String getNextTempLabel() {
+
+        return getNextTempLabel("label");
+    }
+
+    public String getNextTempLabel(String prefix) {
+        tempLabel += 1;
+        return prefix + tempLabel;
+    }
+
+    /**
+     * @return where semantic errors found while computing types are reported, or null if they should be ignored
+     */
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    public void setReports(List<Report> reports) {
+        this.reports = reports;
+    }
+
+    public String getCurrentMethod() {
+        return currentMethod;
+    }
+
+    public void setCurrentMethod(String currentMethod) {
+        this.currentMethod = currentMethod;
+    }
+
+    public boolean isStatic() {
+        return isStatic;
+    }
+
+    public void setStatic(boolean isStatic) {
+        this.isStatic = isStatic;
+    }
+
+    /**
+     * @return the type of each expression typed so far, by node, including the null types of expressions whose type is
+     * not known
+     */
+    public Map<JmmNode, Type> getExprTypes() {
+        return exprTypes;
+    }
+
+    /**
+     * Forgets the types of all the expressions, e.g. after the AST is rewritten.
+     */
+    public void clearExprTypes() {
+        exprTypes.clear();
+    }
+
+    /**
+     * @return the signatures of the classes the program can import, empty if there is no classpath
+     */
+    public Optional<ClasspathIndex> getClasspath() {
+        return Optional.ofNullable(classpath);
+    }
+
+    /**
+     * @return the hash of the class files of the classpath, 'none' if there is no classpath
+     */
+    public String getClasspathFingerprint() {
+        return getClasspath().map(ClasspathIndex::getFingerprint).orElse("none");
+    }
+
+    /**
+     * Uses the classpath of the given config, unless this context already looked one up. The class files are only
+     * checked for changes once per compilation, by the first stage that needs them.
+     */
+    public void useClasspath(Map<String, String> config) {
+        if (!classpathLoaded) {
+            classpath = ClasspathIndex.fromConfig(config).orElse(null);
+            classpathLoaded = true;
+        }
+    }
+
+    public CompilationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return where intermediate results are printed, prints nothing unless set
+     */
+    public OutputSink getOutput() {
+        return output;
+    }
+
+    public void setOutput(OutputSink output) {
+        this.output = output;
+    }
+}
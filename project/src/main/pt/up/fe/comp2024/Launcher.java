@@ -2,14 +2,19 @@ package pt.up.fe.comp2024;
 
 import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
-import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.backend.ClassFileResult;
+import pt.up.fe.comp2024.driver.BatchCompiler;
+import pt.up.fe.comp2024.driver.CompilationDaemon;
+import pt.up.fe.comp2024.metrics.MetricsReport;
+import pt.up.fe.comp2024.output.Artifact;
+import pt.up.fe.comp2024.output.OutputSink;
 import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
 import pt.up.fe.comp2024.parser.JmmParserImpl;
-import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsSystem;
 import java.util.Map;
 
@@ -20,60 +25,86 @@ public class Launcher {
 
         Map<String, String> config = CompilerConfig.parseArgs(args);
 
+        // Batch mode, compiles every file given with '-b' in this JVM
+        if (CompilerConfig.getBatchInput(config).isPresent()) {
+            int failed = new BatchCompiler(config, System.out).run();
+            System.exit(failed == 0 ? 0 : 1);
+        }
+
+        // Daemon mode, stays resident and compiles the requests of 'jmmc' clients
+        if (CompilerConfig.getServer(config)) {
+            new CompilationDaemon(config, System.out).run();
+            return;
+        }
+
         var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
         if (!inputFile.isFile()) {
             throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
         }
-        String code = SpecsIo.read(inputFile);
-
-        // Parsing stage
-        JmmParserImpl parser = new JmmParserImpl();
-        JmmParserResult parserResult = parser.parse(code, config);
-        TestUtils.noErrors(parserResult.getReports());
-
-        // Print AST
-        System.out.println(parserResult.getRootNode().toTree());
-
-        // Semantic Analysis stage
-        JmmAnalysisImpl sema = new JmmAnalysisImpl();
-        JmmSemanticsResult semanticsResult = sema.semanticAnalysis(parserResult);
-        for (var report : semanticsResult.getReports()) {
-            System.out.println(report);
+        long start = System.nanoTime();
+        var context = new CompilerContext();
+
+        try (var output = OutputSink.fromConfig(config)) {
+            context.setOutput(output);
+
+            // Parsing stage
+            JmmParserImpl parser = new JmmParserImpl(context);
+            JmmParserResult parserResult = parser.parse(inputFile.toPath(), config);
+            TestUtils.noErrors(parserResult.getReports());
+
+            // Print AST
+            output.emit(Artifact.AST, "AST", out -> OutputSink.writeTree(parserResult.getRootNode(), out));
+
+            // Semantic Analysis stage
+            JmmAnalysisImpl sema = new JmmAnalysisImpl(context);
+            JmmSemanticsResult semanticsResult = sema.semanticAnalysis(parserResult);
+            for (var report : semanticsResult.getReports()) {
+                output.line(Artifact.REPORTS, report.toString());
+            }
+            TestUtils.noErrors(semanticsResult.getReports());
+
+            // Optimization stage
+            JmmOptimizationImpl ollirGen = new JmmOptimizationImpl(context);
+            var optimizedResult = ollirGen.optimize(semanticsResult);
+            output.emit(Artifact.OPTIMIZED_AST, "AST OPTIMIZED",
+                    out -> OutputSink.writeTree(optimizedResult.getRootNode(), out));
+
+            OllirResult ollirResult = ollirGen.toOllir(optimizedResult);
+            TestUtils.noErrors(ollirResult.getReports());
+            ollirResult = ollirGen.optimize(ollirResult);
+
+            // Print OLLIR code
+            var ollirCode = ollirResult.getOllirCode();
+            output.emit(Artifact.OLLIR, "OLLIR", out -> out.write(ollirCode));
+            TestUtils.noErrors(ollirResult.getReports());
+
+            // Code generation stage
+            JasminBackend backend = CompilerConfig.getBackend(config).create(context);
+            JasminResult jasminResult = backend.toJasmin(ollirResult);
+            TestUtils.noErrors(jasminResult.getReports());
+
+            CompilerConfig.getMetricsFile(config).ifPresent(metricsFile -> {
+                var metrics = new MetricsReport();
+                metrics.add(inputFile, true, false, System.nanoTime() - start, context.getMetrics().getStages());
+                metrics.write(metricsFile);
+            });
+
+            // Print Jasmin code, the class file backend does not generate any
+            if (jasminResult instanceof ClassFileResult classFileResult) {
+                output.line(Artifact.JASMIN, "Generated " + classFileResult.getClassFile().length
+                        + " bytes of class file, without Jasmin code");
+            } else {
+                output.emit(Artifact.JASMIN, "JASMIN", out -> out.write(jasminResult.getJasminCode()));
+            }
+
+            CompilerConfig.getOutputDir(config).ifPresent(jasminResult::compile);
+
+            if (output.isEnabled(Artifact.RUN)) {
+                var runOutput = jasminResult.runWithFullOutput();
+                output.line(Artifact.RUN, "\n Result: " + runOutput.getOutput());
+                output.line(Artifact.RUN, "\n Exit code: " + runOutput.getReturnValue());
+            }
         }
-        TestUtils.noErrors(semanticsResult.getReports());
-
-        // Optimization stage
-        JmmOptimizationImpl ollirGen = new JmmOptimizationImpl();
-        semanticsResult = ollirGen.optimize(semanticsResult);
-        System.out.println("====AST OPTIMIZED=============");
-        System.out.println(semanticsResult.getRootNode().toTree());
-        System.out.println("====END=======================");
-        // System.exit(0);
-
-        OllirResult ollirResult = ollirGen.toOllir(semanticsResult);
-        TestUtils.noErrors(ollirResult.getReports());
-        ollirResult = ollirGen.optimize(ollirResult);
-
-        System.out.println("====OLIR======================");
-        // Print OLLIR code
-        System.out.println(ollirResult.getOllirCode());
-        TestUtils.noErrors(ollirResult.getReports());
-        System.out.println("====END=======================");
-
-
-        // Code generation stage
-        JasminBackendImpl jasminGen = new JasminBackendImpl();
-        JasminResult jasminResult = jasminGen.toJasmin(ollirResult);
-        TestUtils.noErrors(jasminResult.getReports());
-
-        System.out.println("====JASMIN====================");
-        // Print Jasmin code
-        System.out.println(jasminResult.getJasminCode());
-        System.out.println("====END=======================");
-
-        var runOutput = jasminResult.runWithFullOutput();
-        System.out.println("\n Result: " + runOutput.getOutput());
-        System.out.println("\n Exit code: " + runOutput.getReturnValue());
     }
 
 }
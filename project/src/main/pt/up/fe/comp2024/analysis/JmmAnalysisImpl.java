@@ -7,34 +7,82 @@ import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.CompilerContext;
 import pt.up.fe.comp2024.analysis.passes.Test;
+import pt.up.fe.comp2024.metrics.StageTimer;
 import pt.up.fe.comp2024.symboltable.JmmSymbolTableBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class JmmAnalysisImpl implements JmmAnalysis {
 
-    private final List<AnalysisPass> analysisPasses;
+    private final CompilerContext context;
+    private final SemanticCache cache;
+    private final String code;
 
     public JmmAnalysisImpl() {
 
-        this.analysisPasses = List.of(new Test());
+        this(new CompilerContext());
 
     }
 
+    public JmmAnalysisImpl(CompilerContext context) {
+
+        this(context, null, null);
+
+    }
+
+    /**
+     * @param cache results of methods analysed before, shared by analyses of successive versions of a class, or null
+     * @param code  the source that was parsed, without which the cache is not used
+     */
+    public JmmAnalysisImpl(CompilerContext context, SemanticCache cache, String code) {
+
+        this.context = context;
+        this.cache = cache;
+        this.code = code;
+
+    }
+
+    /**
+     * Passes keep the reports they find, so each analysis gets new ones.
+     */
+    private List<AnalysisPass> createPasses(Map<String, String> config) {
+        return List.of(new Test(context, CompilerConfig.getParallelAnalysis(config), cache, code));
+    }
+
     @Override
     public JmmSemanticsResult semanticAnalysis(JmmParserResult parserResult) {
 
+        var metrics = context.getMetrics();
+        try (var timer = metrics.start("analysis")) {
+            return semanticAnalysis(parserResult, timer);
+        }
+    }
+
+    private JmmSemanticsResult semanticAnalysis(JmmParserResult parserResult, StageTimer timer) {
+
         JmmNode rootNode = parserResult.getRootNode();
+        var metrics = context.getMetrics();
+
+        SymbolTable table;
+        try (var symbolTableTimer = metrics.start("analysis.symbolTable")) {
+            table = JmmSymbolTableBuilder.build(rootNode);
+            symbolTableTimer.count("methods", table.getMethods().size());
+        }
 
-        SymbolTable table = JmmSymbolTableBuilder.build(rootNode);
+        try (var classpathTimer = metrics.start("analysis.classpath")) {
+            context.useClasspath(parserResult.getConfig());
+        }
 
         List<Report> reports = new ArrayList<>();
 
         // Visit all nodes in the AST
-        for (var analysisPass : analysisPasses) {
-            try {
+        for (var analysisPass : createPasses(parserResult.getConfig())) {
+            try (var passTimer = metrics.start("analysis." + analysisPass.getClass().getSimpleName())) {
                 var passReports = analysisPass.analyze(rootNode, table);
                 reports.addAll(passReports);
             } catch (Exception e) {
@@ -47,6 +95,8 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         }
 
+        timer.count("reports", reports.size());
+        timer.count("typedExpressions", context.getExprTypes().size());
         return new JmmSemanticsResult(parserResult, table, reports);
     }
 }
@@ -0,0 +1,239 @@
+package pt.up.fe.comp2024.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.TypeUtils;
+
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Reports of the methods analysed before, so that analysing a new version of a class only checks the methods that
+ * changed.
+ * <p>
+ * Entries are keyed by the source text of the method, from the start of its first line, by the parts of the
+ * symbol table its checks read: the class name, super class, imports and fields, and the signature of the method
+ * itself and of every method it may call, and by the fingerprint of the classpath, whose classes type the calls to
+ * imported classes. The same text parses into the same subtree, with the same columns, so a
+ * method that was only moved up or down keeps its key and its reports are moved by the same number of lines. Hashing
+ * the text is much cheaper than walking the subtree, which costs about as much as checking it.
+ * <p>
+ * The types of the expressions are not kept, the later stages compute the ones they need.
+ * <p>
+ * The least recently used entries are dropped beyond the maximum size. A cache can be shared by several threads.
+ */
+public class SemanticCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    /**
+     * @param reports reports with lines relative to the first line of the method
+     */
+    private record Entry(List<Report> reports) {
+    }
+
+    private final Map<String, Entry> entries;
+    private int hits;
+    private int misses;
+
+    public SemanticCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public SemanticCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the reports of the method, at its current position, if the key is in the cache
+     */
+    public synchronized Optional<List<Report>> get(String key, JmmNode method) {
+        var entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return Optional.empty();
+        }
+        hits++;
+
+        int line = NodeUtils.getLine(method);
+        List<Report> reports = new ArrayList<>();
+        for (var report : entry.reports()) {
+            reports.add(moveReport(report, line));
+        }
+        return Optional.of(reports);
+    }
+
+    public void put(String key, JmmNode method, List<Report> reports) {
+        int line = NodeUtils.getLine(method);
+        List<Report> relativeReports = new ArrayList<>();
+        for (var report : reports) {
+            relativeReports.add(moveReport(report, -line));
+        }
+
+        synchronized (this) {
+            entries.put(key, new Entry(relativeReports));
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    private static Report moveReport(Report report, int lines) {
+        if (report.getLine() < 0) {
+            return report;
+        }
+        return new Report(report.getType(), report.getStage(), report.getLine() + lines, report.getColumn(),
+                report.getMessage());
+    }
+
+    /**
+     * Keys of the methods of one version of a class.
+     */
+    public static class MethodKeys {
+
+        private final String code;
+        private final SymbolTable table;
+        private final List<Integer> lineOffsets = new ArrayList<>();
+        private final Hash classHash = new Hash();
+
+        /**
+         * @param code                 the source the methods were parsed from
+         * @param classpathFingerprint the fingerprint of the classpath of the analysis, see
+         *                             {@link pt.up.fe.comp2024.CompilerContext#getClasspathFingerprint()}
+         */
+        public MethodKeys(String code, SymbolTable table, String classpathFingerprint) {
+            this.code = code;
+            this.table = table;
+
+            lineOffsets.add(0);
+            for (int i = 0; i < code.length(); i++) {
+                if (code.charAt(i) == '\n') {
+                    lineOffsets.add(i + 1);
+                }
+            }
+
+            classHash.add(classpathFingerprint);
+            classHash.add(table.getClassName());
+            classHash.add(String.valueOf(table.getSuper()));
+            table.getImports().forEach(classHash::add);
+            classHash.add("");
+            table.getFields().forEach(field -> classHash.add(field.getName() + ":" + typeName(field.getType())));
+            classHash.add("");
+        }
+
+        public String get(JmmNode method) {
+            int start = lineOffsets.get(getInt(method, NodePosition.LINE_START) - 1);
+            int end = lineOffsets.get(getInt(method, NodePosition.LINE_END) - 1)
+                    + getInt(method, NodePosition.COL_END) + 1;
+
+            var hash = new Hash();
+            hash.add(classHash);
+            hash.add(code, start, end);
+
+            // Every name followed by a parenthesis may be a call, which at worst adds signatures that are not needed
+            Set<String> callees = new TreeSet<>();
+            for (int i = start; i < end; i++) {
+                if (code.charAt(i) != '(') {
+                    continue;
+                }
+                int nameEnd = i;
+                while (nameEnd > start && Character.isWhitespace(code.charAt(nameEnd - 1))) {
+                    nameEnd--;
+                }
+                int nameStart = nameEnd;
+                while (nameStart > start && Character.isJavaIdentifierPart(code.charAt(nameStart - 1))) {
+                    nameStart--;
+                }
+                callees.add(code.substring(nameStart, nameEnd));
+            }
+
+            for (var callee : callees) {
+                if (!table.getMethods().contains(callee)) {
+                    continue;
+                }
+                hash.add(callee);
+                hash.add(typeName(table.getReturnType(callee)));
+                for (var param : table.getParameters(callee)) {
+                    var varArgs = TypeUtils.isVarArgs(param.getType()) ? "..." : "";
+                    hash.add(typeName(param.getType()) + varArgs);
+                }
+            }
+
+            return hash.toString();
+        }
+
+        private static int getInt(JmmNode node, NodePosition position) {
+            return Integer.parseInt(node.get(position.getKey()));
+        }
+
+        private static String typeName(Type type) {
+            if (type == null) {
+                return "?";
+            }
+            return type.getName() + (type.isArray() ? "[]" : "");
+        }
+    }
+
+    /**
+     * 128-bit hash made of two 64-bit hashes with different multipliers, since the String hash codes are too short
+     * to tell methods apart and a MessageDigest costs more than the analysis it saves on small methods.
+     */
+    private static class Hash {
+        private static final long MULTIPLIER_1 = 0x100000001B3L;
+        private static final long MULTIPLIER_2 = 0x9E3779B97F4A7C15L;
+
+        private long first = 0xCBF29CE484222325L;
+        private long second = 0x6A09E667F3BCC908L;
+
+        void add(long value) {
+            first = (first ^ value) * MULTIPLIER_1;
+            second = (second ^ value) * MULTIPLIER_2;
+        }
+
+        void add(String value) {
+            add(value, 0, value.length());
+        }
+
+        void add(String value, int start, int end) {
+            for (int i = start; i < end; i++) {
+                add(value.charAt(i));
+            }
+            // Separator, so that the boundaries between values are part of the hash
+            add(-1);
+        }
+
+        void add(Hash other) {
+            add(other.first);
+            add(other.second);
+        }
+
+        @Override
+        public String toString() {
+            return HexFormat.of().toHexDigits(first) + HexFormat.of().toHexDigits(second);
+        }
+    }
+}
@@ -5,18 +5,43 @@ import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerContext;
 import pt.up.fe.comp2024.analysis.AnalysisPass;
+import pt.up.fe.comp2024.analysis.SemanticCache;
 import pt.up.fe.comp2024.ast.Kind;
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.output.Artifact;
 import pt.up.fe.comp2024.utils.ReservedWords;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class Test implements AnalysisPass {
+    private final CompilerContext context;
+    private final boolean parallel;
+    private final SemanticCache cache;
+    private final String code;
     private String currentMethod;
     private final List<Report> reports = new ArrayList<>();
 
+    public Test(CompilerContext context) {
+        this(context, false, null, null);
+    }
+
+    /**
+     * @param parallel if the methods should be checked in parallel, each one in a task of its own
+     * @param cache    results of methods checked before, or null
+     * @param code     the source of the class, which the cache is keyed by
+     */
+    public Test(CompilerContext context, boolean parallel, SemanticCache cache, String code) {
+        this.context = context;
+        this.parallel = parallel;
+        this.cache = code == null ? null : cache;
+        this.code = code;
+    }
+
     private void addNewReport(String message, JmmNode expr) {
         reports.add(Report.newError(
                 Stage.SEMANTIC,
@@ -28,8 +53,8 @@ public class Test implements AnalysisPass {
 
     protected void visitAssignStatement(JmmNode stmt, SymbolTable table) {
 
-        var left = TypeUtils.visitVariableReferenceExpression(stmt.get("name"), table, stmt);
-        var right = TypeUtils.getExprType(stmt.getChild(0), table);
+        var left = TypeUtils.visitVariableReferenceExpression(stmt.get("name"), table, stmt, context);
+        var right = TypeUtils.getExprType(stmt.getChild(0), table, context);
         if (left == null)
             return;
         if (right == null)
@@ -72,7 +97,7 @@ public class Test implements AnalysisPass {
                 stmt.getChildren().forEach(stm -> visitStatement(stm, table));
                 break;
             case ("IfStmt"): {
-                Type type = TypeUtils.getExprType(stmt.getChild(0), table);
+                Type type = TypeUtils.getExprType(stmt.getChild(0), table, context);
                 if (type != null && (!type.getName().equals("boolean") || type.isArray())) {
                     addNewReport("Not boolean expression in if", stmt.getChild(0));
                 }
@@ -81,7 +106,7 @@ public class Test implements AnalysisPass {
                 break;
             }
             case ("WhileStmt"): {
-                Type type = TypeUtils.getExprType(stmt.getChild(0), table);
+                Type type = TypeUtils.getExprType(stmt.getChild(0), table, context);
                 if (type != null && (!type.getName().equals("boolean") || type.isArray())) {
                     addNewReport("Not boolean expression in while", stmt.getChild(0));
                 }
@@ -89,15 +114,15 @@ public class Test implements AnalysisPass {
                 break;
             }
             case ("VarStmt"):
-                TypeUtils.getExprType(stmt.getChild(0), table);
+                TypeUtils.getExprType(stmt.getChild(0), table, context);
                 break;
             case ("AssignStmt"):
                 visitAssignStatement(stmt, table);
                 break;
             case ("AssignStmtArray"): {
-                var array = TypeUtils.visitVariableReferenceExpression(stmt.get("name"), table, stmt);
-                var index = TypeUtils.getExprType(stmt.getChild(0), table);
-                var value = TypeUtils.getExprType(stmt.getChild(1), table);
+                var array = TypeUtils.visitVariableReferenceExpression(stmt.get("name"), table, stmt, context);
+                var index = TypeUtils.getExprType(stmt.getChild(0), table, context);
+                var value = TypeUtils.getExprType(stmt.getChild(1), table, context);
                 if (array == null)
                     return;
                 if (!array.isArray()) {
@@ -130,7 +155,7 @@ public class Test implements AnalysisPass {
                 break;
             }
             case ("ReturnStmt"): {
-                Type typeExpr = TypeUtils.getExprType(stmt.getChild(0), table);
+                Type typeExpr = TypeUtils.getExprType(stmt.getChild(0), table, context);
                 Optional<Type> typeReturn = table.getReturnTypeTry(currentMethod);
                 if (typeReturn.isPresent()) {
                     if (typeExpr != null && !typeExpr.equals(typeReturn.get()))
@@ -143,10 +168,10 @@ public class Test implements AnalysisPass {
 
     protected void visitMethods(JmmNode method, SymbolTable table) {
         currentMethod = method.get("name");
-        TypeUtils.currentMethod = currentMethod;
-        TypeUtils.isStatic = NodeUtils.getBooleanAttribute(method, "isStatic", "false");
+        context.setCurrentMethod(currentMethod);
+        context.setStatic(NodeUtils.getBooleanAttribute(method, "isStatic", "false"));
         var params = table.getParameters(currentMethod);
-        System.out.println(currentMethod + ":" + TypeUtils.isStatic);
+        context.getOutput().line(Artifact.DEBUG, currentMethod + ":" + context.isStatic());
         if (currentMethod.equals("main")) {
             if (params.size() != 1 || !params.get(0).getType().getName().equals("String")
                     || !params.get(0).getType().isArray()) {
@@ -218,7 +243,7 @@ public class Test implements AnalysisPass {
 
     @Override
     public List<Report> analyze(JmmNode root, SymbolTable table) {
-        TypeUtils.reports = this.reports;
+        context.setReports(this.reports);
         Set<String> fieldsSet = Set.copyOf(table.getFields().stream().map(field -> {
             String name = field.getName();
             if (ReservedWords.isReservedWord(name)) {
@@ -256,8 +281,65 @@ public class Test implements AnalysisPass {
             addNewReport("Error: Duplicated Methods", root);
         }
 
-        root.getChildren(Kind.CLASS_DECL).get(0).getChildren(Kind.METHOD_DECL).stream()
-                .forEach(method -> visitMethods(method, table));
+        var methodDecls = root.getChildren(Kind.CLASS_DECL).get(0).getChildren(Kind.METHOD_DECL);
+        if (parallel || cache != null) {
+            visitMethodsIsolated(methodDecls, table);
+        } else {
+            methodDecls.forEach(method -> visitMethods(method, table));
+        }
         return reports;
     }
+
+    /**
+     * Checks each method with a Test and a context of its own, so that the methods share no state: in a ForkJoinPool
+     * task each in parallel mode, and only if it is not in the cache when there is one. The reports are added in the
+     * order of the methods, as when they are checked one after the other, and the types of the expressions of the
+     * methods that were checked are kept in this context.
+     */
+    private void visitMethodsIsolated(List<JmmNode> methodDecls, SymbolTable table) {
+        var methodKeys = cache == null ? null : new SemanticCache.MethodKeys(code, table,
+                context.getClasspathFingerprint());
+        List<List<Report>> methodReports = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < methodDecls.size(); i++) {
+            var method = methodDecls.get(i);
+            var key = methodKeys == null ? null : methodKeys.get(method);
+            var cached = key == null ? Optional.<List<Report>>empty() : cache.get(key, method);
+
+            keys.add(key);
+            methodReports.add(cached.orElse(null));
+            if (cached.isEmpty()) {
+                pending.add(i);
+            }
+        }
+
+        List<ForkJoinTask<Test>> tasks = new ArrayList<>();
+        if (parallel && pending.size() > 1) {
+            for (int i : pending) {
+                tasks.add(ForkJoinPool.commonPool().submit(() -> visitMethodIsolated(methodDecls.get(i), table)));
+            }
+        }
+
+        for (int j = 0; j < pending.size(); j++) {
+            int i = pending.get(j);
+            var method = methodDecls.get(i);
+            var methodTest = tasks.isEmpty() ? visitMethodIsolated(method, table) : tasks.get(j).join();
+
+            methodReports.set(i, methodTest.reports);
+            context.getExprTypes().putAll(methodTest.context.getExprTypes());
+            if (cache != null) {
+                cache.put(keys.get(i), method, methodTest.reports);
+            }
+        }
+
+        methodReports.forEach(reports::addAll);
+    }
+
+    private Test visitMethodIsolated(JmmNode method, SymbolTable table) {
+        var methodTest = new Test(context.forAnalysisTask());
+        methodTest.context.setReports(methodTest.reports);
+        methodTest.visitMethods(method, table);
+        return methodTest;
+    }
 }
@@ -1,6 +1,5 @@
 package pt.up.fe.comp2024.ast;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,6 +9,11 @@ import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.classpath.Descriptors;
+import pt.up.fe.comp2024.classpath.MemberInfo;
+import pt.up.fe.comp2024.symboltable.SymbolIndex;
+import pt.up.fe.comp2024.symboltable.SymbolKind;
 
 public class TypeUtils {
 
@@ -19,11 +23,8 @@ public class TypeUtils {
         return INT_TYPE_NAME;
     }
 
-    public static List<Report> reports;
-    public static String currentMethod;
-    public static boolean isStatic;
-
-    protected static void addNewReport(String message, JmmNode expr) {
+    protected static void addNewReport(String message, JmmNode expr, CompilerContext context) {
+        var reports = context.getReports();
         if (reports == null)
             return;
         reports.add(Report.newError(
@@ -34,19 +35,19 @@ public class TypeUtils {
                 null));
     }
 
-    protected static Type visitUnaryExpression(JmmNode expr, SymbolTable table) {
-        var type = getExprType(expr.getChild(0), table);
+    protected static Type visitUnaryExpression(JmmNode expr, SymbolTable table, CompilerContext context) {
+        var type = getExprType(expr.getChild(0), table, context);
         if (type == null || type.getName().equals("boolean")) {
             return new Type("boolean", false);
         }
-        addNewReport("Unary Expression : argument not boolean", expr);
+        addNewReport("Unary Expression : argument not boolean", expr, context);
         return null;
     }
 
-    protected static Type visitBinaryExpression(JmmNode expr, SymbolTable table) {
+    protected static Type visitBinaryExpression(JmmNode expr, SymbolTable table, CompilerContext context) {
 
-        var left = getExprType(expr.getChild(0), table);
-        var right = getExprType(expr.getChild(1), table);
+        var left = getExprType(expr.getChild(0), table, context);
+        var right = getExprType(expr.getChild(1), table, context);
 
         switch (expr.get("op")) {
             case "+", "-", "*", "/":
@@ -78,28 +79,28 @@ public class TypeUtils {
         }
         addNewReport(
                 "Arithmetic Expression : at least one argument not of right type or it is not expected an arithmetic expression",
-                expr);
+                expr, context);
         return null;
     }
 
-    protected static Type visitArrayAccessExpression(JmmNode expr, SymbolTable table) {
+    protected static Type visitArrayAccessExpression(JmmNode expr, SymbolTable table, CompilerContext context) {
 
-        var left = getExprType(expr.getChild(0), table);
-        var right = getExprType(expr.getChild(1), table);
+        var left = getExprType(expr.getChild(0), table, context);
+        var right = getExprType(expr.getChild(1), table, context);
         if (left == null || right == null)
             return new Type("int", false);
 
         if (!left.isArray()) {
-            addNewReport("Array Declaration Expression : left node not an array", expr);
+            addNewReport("Array Declaration Expression : left node not an array", expr, context);
             return null;
         } else if (!right.getName().equals("int") || right.isArray()) {
-            addNewReport("Array Declaration Expression : right node not an int", expr);
+            addNewReport("Array Declaration Expression : right node not an int", expr, context);
             return null;
         }
         return new Type(left.getName(), false);
     }
 
-    protected static Type visitFunctionExpression(JmmNode expr, SymbolTable table) {
+    protected static Type visitFunctionExpression(JmmNode expr, SymbolTable table, CompilerContext context) {
         String functionName = expr.get("functionName");
         Type child = null;
         boolean isMainClass = true;
@@ -107,43 +108,52 @@ public class TypeUtils {
 
         if (expr.getKind().equals("FuncExpr")) {
             isMainClass = false;
-            child = getExprType(expr.getChild(0), table);
+            child = getExprType(expr.getChild(0), table, context);
             arguments = arguments.stream().skip(1).toList();
         } else {
-            if (isStatic) {
-                addNewReport("Self call in static method", expr);
+            if (context.isStatic()) {
+                addNewReport("Self call in static method", expr, context);
                 return null;
             }
         }
         isMainClass = isMainClass || (child != null && table.getClassName().equals(child.getName()));
         // class object and function declared
-        if (!isMainClass)
-            return null;
+        if (!isMainClass) {
+            if (child != null) {
+                return child.isArray() ? null
+                        : getImportedMethodType(child.getName(), false, functionName, arguments, table, context);
+            }
+            // static call, e.g. io.println(a)
+            var target = expr.getChild(0);
+            return Kind.VAR_REF_EXPR.check(target)
+                    ? getImportedMethodType(target.get("name"), true, functionName, arguments, table, context)
+                    : null;
+        }
         if (table.getMethods().contains(functionName)) {
             // different number of parameters
             List<Symbol> parametersMethod = table.getParameters(functionName);
             boolean isVarArgs = parametersMethod.size() > 0
                     && TypeUtils.isVarArgs(parametersMethod.get(parametersMethod.size() - 1).getType());
             if (!isVarArgs && arguments.size() != parametersMethod.size()) {
-                addNewReport("Function Expression : wrong number of parameters", expr);
+                addNewReport("Function Expression : wrong number of parameters", expr, context);
                 return null;
             }
             boolean arrayInLast = false;
             if (parametersMethod.size() - arguments.size() > 1
                     || (parametersMethod.size() - arguments.size() == 1 && !TypeUtils.isVarArgs(parametersMethod
                             .get(parametersMethod.size() - 1).getType()))) {
-                addNewReport("Function Expression : wrong number of parameters", expr);
+                addNewReport("Function Expression : wrong number of parameters", expr, context);
                 return null;
             }
             for (int i = 0; i < Math.min(arguments.size(), parametersMethod.size()); i++) {
-                Type argument = getExprType(arguments.get(i), table);
+                Type argument = getExprType(arguments.get(i), table, context);
                 Type parameter = parametersMethod.get(i).getType();
                 if (argument == null || parameter == null) {
                     continue;
                 }
                 if (!argument.equals(parameter)
                         && !(TypeUtils.isVarArgs(parameter) && parameter.getName().equals(argument.getName()))) {
-                    addNewReport("Function Expression : parameter with wrong type", arguments.get(i));
+                    addNewReport("Function Expression : parameter with wrong type", arguments.get(i), context);
                     return null;
                 }
                 if (i == parametersMethod.size() - 1 && argument.isArray()) {
@@ -151,14 +161,14 @@ public class TypeUtils {
                 }
             }
             if (isVarArgs && arrayInLast && parametersMethod.size() != arguments.size()) {
-                addNewReport("Varargs alredy handled by array", expr);
+                addNewReport("Varargs alredy handled by array", expr, context);
                 return null;
             }
             for (int i = parametersMethod.size(); i < arguments.size(); i++) {
-                Type argument = getExprType(arguments.get(i), table);
+                Type argument = getExprType(arguments.get(i), table, context);
                 Type parameter = parametersMethod.get(parametersMethod.size() - 1).getType();
                 if (!parameter.getName().equals(argument.getName()) || argument.isArray()) {
-                    addNewReport("Function Expression : parameter with wrong type2", arguments.get(i));
+                    addNewReport("Function Expression : parameter with wrong type2", arguments.get(i), context);
                     return null;
                 }
             }
@@ -168,39 +178,83 @@ public class TypeUtils {
         }
         // supposed method declared in super
         if (table.getSuper() != null)
-            return null;
+            return getImportedMethodType(table.getSuper(), false, functionName, arguments, table, context);
 
-        addNewReport("Function Expression : right side not declared", expr);
+        addNewReport("Function Expression : right side not declared", expr, context);
 
         return null;
     }
 
-    public static Type visitVariableReferenceExpression(String name, SymbolTable table, JmmNode expr) {
+    /**
+     * Types a call to a method of an imported class with its signature in the classpath, if exactly one method of the
+     * class or of its super classes fits the call. Calls that do not fit any are not reported, since the classpath
+     * may not be the one the program runs with.
+     *
+     * @param isStaticCall if the method is called on the class instead of on an object
+     * @return the return type of the method, null if it is not known
+     */
+    private static Type getImportedMethodType(String className, boolean isStaticCall, String functionName,
+            List<JmmNode> arguments, SymbolTable table, CompilerContext context) {
+        var qualifiedName = SymbolIndex.of(table).resolveImport(className);
+        var classpath = context.getClasspath();
+        if (qualifiedName.isEmpty() || classpath.isEmpty()) {
+            return null;
+        }
+
+        var methods = classpath.get().findMethods(qualifiedName.get(), functionName, arguments.size()).stream()
+                .filter(method -> !isStaticCall || method.isStatic())
+                .toList();
+        // Overloads with the same number of parameters are told apart by the types of the arguments
+        if (methods.size() > 1) {
+            methods = methods.stream().filter(method -> fitsArguments(method, arguments, table, context)).toList();
+        }
+        if (methods.size() != 1) {
+            return null;
+        }
+
+        var type = Descriptors.returnType(methods.get(0).descriptor());
+        if (type == null || !(type.getName().equals("void") || isValidType(new Type(type.getName(), false), table))) {
+            return null;
+        }
+        return type;
+    }
+
+    private static boolean fitsArguments(MemberInfo method, List<JmmNode> arguments, SymbolTable table,
+            CompilerContext context) {
+        var parameters = Descriptors.parameters(method.descriptor());
+        for (int i = 0; i < arguments.size(); i++) {
+            var parameter = Descriptors.toType(parameters.get(i));
+            var argument = getExprType(arguments.get(i), table, context);
+            if (parameter != null && argument != null && !parameter.equals(argument)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static Type visitVariableReferenceExpression(String name, SymbolTable table, JmmNode expr,
+            CompilerContext context) {
 
         if (name.equals("true") || name.equals("false")) {
             return new Type("boolean", false);
         }
 
+        boolean isStatic = context.isStatic();
+        String currentMethod = context.getCurrentMethod();
         if (isStatic && name.equals("this")) {
-            addNewReport("This in static method", expr);
+            addNewReport("This in static method", expr, context);
             return null;
         }
         if (name.equals("this")) {
             return new Type(table.getClassName(), false);
         }
 
-        List<Symbol> symbols = new ArrayList<>();
-        symbols.addAll(table.getLocalVariables(currentMethod));
-        symbols.addAll(table.getParameters(currentMethod));
-        if (!isStatic) {
-            symbols.addAll(table.getFields());
-        }
-
-        var symbol = symbols.stream()
-                .filter(param -> param.getName().equals(name)).findFirst();
+        // Fields cannot be used in static methods
+        var symbol = SymbolIndex.of(table).resolve(currentMethod, name)
+                .filter(resolved -> !isStatic || resolved.kind() != SymbolKind.FIELD);
 
         if (symbol.isPresent()) {
-            return symbol.get().getType();
+            return symbol.get().type();
         }
         if (isInImports(name, table)) {
             return null;
@@ -208,15 +262,15 @@ public class TypeUtils {
         if (!isStatic && table.getSuper() != null) {
             return null;
         }
-        addNewReport("Variable Reference Expression : variable not declared", expr);
+        addNewReport("Variable Reference Expression : variable not declared", expr, context);
 
         return null;
     }
 
-    protected static Type visitFieldAccessExpression(JmmNode expr, SymbolTable table) {
-        Type rigth = getExprType(expr.getChild(0), table);
+    protected static Type visitFieldAccessExpression(JmmNode expr, SymbolTable table, CompilerContext context) {
+        Type rigth = getExprType(expr.getChild(0), table, context);
         if (rigth == null) {
-            addNewReport("Invalid field access of import", expr);
+            addNewReport("Invalid field access of import", expr, context);
             return null;
         }
         String field = expr.get("field");
@@ -224,69 +278,86 @@ public class TypeUtils {
             return new Type("int", false);
         }
         if (rigth.isArray()) {
-            addNewReport("Not .length on array", expr);
+            addNewReport("Not .length on array", expr, context);
             return null;
         }
         if (!rigth.getName().equals(table.getClassName())) {
             addNewReport("Field Access Expression : field cannot be access because object is not the same as class",
-                    expr);
+                    expr, context);
             return null;
         }
-        addNewReport("Invalid field access", expr);
+        addNewReport("Invalid field access", expr, context);
 
-        var symbol = table.getFields().stream()
-                .filter(param -> param.getName().equals(field)).findFirst();
+        var symbol = SymbolIndex.of(table).resolveField(field);
 
         if (symbol.isPresent()) {
-            return symbol.get().getType();
+            return symbol.get().type();
         }
 
         if (table.getSuper() == null)
-            addNewReport("Field Access Expression : field not declared", expr);
+            addNewReport("Field Access Expression : field not declared", expr, context);
 
         return null;
     }
 
-    protected static Type visitNewExpr(JmmNode expr, SymbolTable table) {
+    protected static Type visitNewExpr(JmmNode expr, SymbolTable table, CompilerContext context) {
         var type = new Type(expr.get("name"), false);
         if (isValidType(type, table))
             return type;
-        addNewReport("Invalid new expression", expr);
+        addNewReport("Invalid new expression", expr, context);
         return null;
     }
 
-    protected static Type visitArrayExpr(JmmNode expr, SymbolTable table) {
+    protected static Type visitArrayExpr(JmmNode expr, SymbolTable table, CompilerContext context) {
         for (var child : expr.getChildren()) {
-            Type type = getExprType(child, table);
+            Type type = getExprType(child, table, context);
             if (type.isArray() || !type.getName().equals("int")) {
-                addNewReport("Array Initializer Expression : invalid array initializer", child);
+                addNewReport("Array Initializer Expression : invalid array initializer", child, context);
                 return null;
             }
         }
         return new Type("int", true);
     }
 
-    protected static Type visitNewArrayExpr(JmmNode expr, SymbolTable table) {
-        var type = getExprType(expr.getChild(0), table);
+    protected static Type visitNewArrayExpr(JmmNode expr, SymbolTable table, CompilerContext context) {
+        var type = getExprType(expr.getChild(0), table, context);
         if (type != null && (type.isArray() || !type.getName().equals("int"))) {
-            addNewReport("Invalid size for new array", expr.getChild(0));
+            addNewReport("Invalid size for new array", expr.getChild(0), context);
         }
         return new Type("int", true);
     }
 
-    public static Type getExprType(JmmNode expr, SymbolTable table) {
+    /**
+     * Computes the type of each expression once, the first time it is asked for, and keeps it in the context.
+     * Semantic errors are only reported that first time.
+     *
+     * @return the type of the expression, null if it is not known (e.g. calls to imported classes that are not in
+     * the classpath) or invalid
+     */
+    public static Type getExprType(JmmNode expr, SymbolTable table, CompilerContext context) {
+        var exprTypes = context.getExprTypes();
+        if (exprTypes.containsKey(expr)) {
+            return exprTypes.get(expr);
+        }
+
+        var type = computeExprType(expr, table, context);
+        exprTypes.put(expr, type);
+        return type;
+    }
+
+    private static Type computeExprType(JmmNode expr, SymbolTable table, CompilerContext context) {
         var a = switch (expr.getKind()) {
             case "IntegerLiteral" -> new Type("int", false);
-            case "ParenExpr" -> getExprType(expr.getChild(0), table);
-            case "VarRefExpr" -> visitVariableReferenceExpression(expr.get("name"), table, expr);
-            case "FieldAccessExpr" -> visitFieldAccessExpression(expr, table);
-            case "NewExpr" -> visitNewExpr(expr, table);
-            case "ArrayExpr" -> visitArrayExpr(expr, table);
-            case "NewArrayExpr" -> visitNewArrayExpr(expr, table);
-            case "UnaryExpr" -> visitUnaryExpression(expr, table);
-            case "BinaryExpr" -> visitBinaryExpression(expr, table);
-            case "ArrayAccessExpr" -> visitArrayAccessExpression(expr, table);
-            case "FuncExpr", "SelfFuncExpr" -> visitFunctionExpression(expr, table);
+            case "ParenExpr" -> getExprType(expr.getChild(0), table, context);
+            case "VarRefExpr" -> visitVariableReferenceExpression(expr.get("name"), table, expr, context);
+            case "FieldAccessExpr" -> visitFieldAccessExpression(expr, table, context);
+            case "NewExpr" -> visitNewExpr(expr, table, context);
+            case "ArrayExpr" -> visitArrayExpr(expr, table, context);
+            case "NewArrayExpr" -> visitNewArrayExpr(expr, table, context);
+            case "UnaryExpr" -> visitUnaryExpression(expr, table, context);
+            case "BinaryExpr" -> visitBinaryExpression(expr, table, context);
+            case "ArrayAccessExpr" -> visitArrayAccessExpression(expr, table, context);
+            case "FuncExpr", "SelfFuncExpr" -> visitFunctionExpression(expr, table, context);
             default -> null;
         };
         return a;
@@ -327,10 +398,7 @@ public class TypeUtils {
     }
 
     public static boolean isInImports(String name, SymbolTable table) {
-        return table.getImports().stream().map(x -> {
-            var splitImport = x.split("\\.");
-            return splitImport[splitImport.length - 1];
-        }).anyMatch(x -> x.equals(name));
+        return SymbolIndex.of(table).resolveImport(name).isPresent();
     }
 
 }
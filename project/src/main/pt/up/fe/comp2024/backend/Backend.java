@@ -0,0 +1,45 @@
+package pt.up.fe.comp2024.backend;
+
+import pt.up.fe.comp.jmm.jasmin.JasminBackend;
+import pt.up.fe.comp2024.CompilerContext;
+
+/**
+ * The backends that generate code from OLLIR, selected with '-g'.
+ */
+public enum Backend {
+    /**
+     * Generates Jasmin code, which is assembled into a class file when needed
+     */
+    JASMIN("jasmin"),
+    /**
+     * Writes the class file directly, see {@link ClassFileResult}
+     */
+    CLASS_FILE("class");
+
+    private final String optionName;
+
+    Backend(String optionName) {
+        this.optionName = optionName;
+    }
+
+    public String getOptionName() {
+        return optionName;
+    }
+
+    public JasminBackend create(CompilerContext context) {
+        return switch (this) {
+            case JASMIN -> new JasminBackendImpl(context);
+            case CLASS_FILE -> new ClassFileBackendImpl(context);
+        };
+    }
+
+    public static Backend fromOptionName(String name) {
+        for (var backend : values()) {
+            if (backend.optionName.equalsIgnoreCase(name)) {
+                return backend;
+            }
+        }
+
+        throw new RuntimeException("Unknown backend '" + name + "', expected jasmin or class");
+    }
+}
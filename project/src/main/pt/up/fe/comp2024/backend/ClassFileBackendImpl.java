@@ -0,0 +1,34 @@
+package pt.up.fe.comp2024.backend;
+
+import pt.up.fe.comp.jmm.jasmin.JasminBackend;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.CompilerContext;
+
+/**
+ * Backend that writes the class file directly, selected with '-g=class'.
+ */
+public class ClassFileBackendImpl implements JasminBackend {
+
+    private final CompilerContext context;
+
+    public ClassFileBackendImpl() {
+        this(new CompilerContext());
+    }
+
+    public ClassFileBackendImpl(CompilerContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public JasminResult toJasmin(OllirResult ollirResult) {
+        var generator = new ClassFileGenerator(ollirResult);
+        byte[] classFile;
+        try (var timer = context.getMetrics().start("classFile")) {
+            classFile = generator.build();
+            timer.count("bytes", classFile.length);
+        }
+        return new ClassFileResult(ollirResult, classFile, generator.getReports());
+    }
+
+}
@@ -0,0 +1,550 @@
+package pt.up.fe.comp2024.backend;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.tree.TreeNode;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.specs.util.classmap.BiConsumerClassMap;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static pt.up.fe.comp2024.backend.Opcodes.*;
+
+/**
+ * Generates a class file directly from an OllirResult, without going through Jasmin code.
+ * <p>
+ * One ClassFileGenerator instance per OllirResult. It selects the same instructions as the {@link JasminGenerator},
+ * and computes the limits the same way, except that the depth of the stack is tracked exactly after comparisons and
+ * array allocations, where the Jasmin backend overestimates it. The class file has version 49.0, the last one where the JVM infers the
+ * types of the stack itself, so no StackMapTable has to be generated.
+ */
+public class ClassFileGenerator {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int MAJOR_VERSION = 49;
+    private static final int MINOR_VERSION = 0;
+
+    private final OllirResult ollirResult;
+
+    List<Report> reports;
+
+    byte[] classFile;
+
+    Method currentMethod;
+    ClassUnit classUnit;
+
+    MaxCounter stackMax;
+
+    private final BiConsumerClassMap<TreeNode, CodeBuffer> generators;
+    private final CodeBuffer methodCode;
+    private ConstantPool constants;
+    private TypeDescriptors types;
+    private boolean needsResult;
+
+    public ClassFileGenerator(OllirResult ollirResult) {
+        this.ollirResult = ollirResult;
+        reports = new ArrayList<>();
+        classFile = null;
+        currentMethod = null;
+        stackMax = new MaxCounter();
+        methodCode = new CodeBuffer();
+        this.generators = new BiConsumerClassMap<>();
+        generators.put(AssignInstruction.class, this::generateAssign);
+        generators.put(SingleOpInstruction.class, this::generateSingleOp);
+        generators.put(LiteralElement.class, this::generateLiteral);
+        generators.put(Operand.class, this::generateOperand);
+        generators.put(BinaryOpInstruction.class, this::generateBinaryOp);
+        generators.put(UnaryOpInstruction.class, this::generateUnaryOp);
+        generators.put(CallInstruction.class, this::generateCall);
+        generators.put(ReturnInstruction.class, this::generateReturn);
+        generators.put(GetFieldInstruction.class, this::generateGetField);
+        generators.put(PutFieldInstruction.class, this::generatePutField);
+        generators.put(OpCondInstruction.class, this::generateOpCond);
+        generators.put(SingleOpCondInstruction.class, this::generateSingleOpCond);
+        generators.put(GotoInstruction.class, this::generateGoto);
+    }
+
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    public byte[] build() {
+        // This way, build is idempotent
+        if (classFile == null) {
+            try {
+                classFile = generateClassUnit(ollirResult.getOllirClass());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return classFile;
+    }
+
+    private byte[] generateClassUnit(ClassUnit classUnit) throws IOException {
+        this.classUnit = classUnit;
+        this.types = new TypeDescriptors(classUnit);
+        this.constants = new ConstantPool();
+
+        var className = classUnit.getClassName();
+        var superName = "java/lang/Object";
+        if (classUnit.getSuperClass() != null)
+            superName = types.className(classUnit.getSuperClass());
+
+        // The constant pool goes first in the file, but it is only complete after generating every member
+        var membersBytes = new ByteArrayOutputStream();
+        var members = new DataOutputStream(membersBytes);
+
+        members.writeShort(classUnit.getFields().size());
+        for (var field : classUnit.getFields()) {
+            members.writeShort(ACC_PRIVATE);
+            members.writeShort(constants.utf8(field.getFieldName()));
+            members.writeShort(constants.utf8(types.of(field.getFieldType())));
+            members.writeShort(0);
+        }
+
+        var methods = ollirResult.getOllirClass().getMethods().stream()
+                .filter(method -> !method.isConstructMethod())
+                .toList();
+
+        // generate a single constructor method, that receives no arguments and calls the one of the super class
+        members.writeShort(methods.size() + 1);
+        methodCode.reset();
+        methodCode.op(ALOAD_0);
+        methodCode.op(INVOKESPECIAL);
+        methodCode.u2(constants.methodRef(superName, "<init>", "()V"));
+        methodCode.op(RETURN);
+        writeMethod(members, ACC_PUBLIC, "<init>", "()V", 1, 1);
+
+        // generate code for all other methods
+        for (var method : methods) {
+            generateMethod(method, members);
+        }
+
+        int thisClass = constants.classRef(className);
+        int superClass = constants.classRef(superName);
+
+        var bytes = new ByteArrayOutputStream(membersBytes.size() + 1024);
+        var out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(MINOR_VERSION);
+        out.writeShort(MAJOR_VERSION);
+        constants.writeTo(out);
+        out.writeShort(ACC_PUBLIC | ACC_SUPER);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        // interfaces
+        out.writeShort(0);
+        membersBytes.writeTo(out);
+        // attributes
+        out.writeShort(0);
+
+        return bytes.toByteArray();
+    }
+
+    private void generateMethod(Method method, DataOutputStream members) throws IOException {
+        // set method
+        currentMethod = method;
+
+        stackMax.reset();
+
+        int access = switch (method.getMethodAccessModifier()) {
+            case PUBLIC -> ACC_PUBLIC;
+            case PRIVATE -> ACC_PRIVATE;
+            case PROTECTED -> ACC_PROTECTED;
+            default -> 0;
+        };
+        if (method.isStaticMethod()) {
+            access |= ACC_STATIC;
+        }
+
+        var descriptor = new StringBuilder("(");
+        for (var param : method.getParams()) {
+            descriptor.append(types.of(param.getType()));
+        }
+        descriptor.append(")").append(types.of(method.getReturnType()));
+
+        methodCode.reset();
+        for (var inst : method.getInstructions()) {
+            needsResult = !inst.getInstType().equals(InstructionType.CALL);
+            for (var label : method.getLabels(inst)) {
+                methodCode.label(label);
+            }
+            generators.accept(inst, methodCode);
+        }
+
+        var maxVirtualReg = method.getVarTable().values().stream().mapToInt(Descriptor::getVirtualReg).max();
+        int maxLocals = maxVirtualReg.orElse(0) + 1;
+
+        writeMethod(members, access, method.getMethodName(), descriptor.toString(), stackMax.getMax(), maxLocals);
+
+        // unset method
+        currentMethod = null;
+    }
+
+    /**
+     * Writes a method whose code is in the method buffer.
+     */
+    private void writeMethod(DataOutputStream members, int access, String name, String descriptor, int maxStack,
+            int maxLocals) throws IOException {
+        methodCode.resolve();
+
+        members.writeShort(access);
+        members.writeShort(constants.utf8(name));
+        members.writeShort(constants.utf8(descriptor));
+        // a single attribute, the code
+        members.writeShort(1);
+        members.writeShort(constants.utf8("Code"));
+        // max_stack, max_locals, code_length, code, exception_table_length, attributes_count
+        members.writeInt(2 + 2 + 4 + methodCode.length() + 2 + 2);
+        members.writeShort(maxStack);
+        members.writeShort(maxLocals);
+        members.writeInt(methodCode.length());
+        methodCode.writeTo(members);
+        members.writeShort(0);
+        members.writeShort(0);
+    }
+
+    private int getReg(Operand operand) {
+        return currentMethod.getVarTable().get(operand.getName()).getVirtualReg();
+    }
+
+    /**
+     * Tries to generate 'iinc' for an assignment like 'a = a + 1', 'a = 1 + a' or 'a = a - 1' ('a = 1 - a' is not an
+     * increment).
+     *
+     * @param sign 1 for additions, -1 for subtractions
+     * @return true if the assignment was generated
+     */
+    private boolean generateIinc(BinaryOpInstruction binaryOp, int reg, int sign, CodeBuffer code) {
+        LiteralElement literal;
+        if (binaryOp.getLeftOperand() instanceof Operand left
+                && binaryOp.getRightOperand() instanceof LiteralElement right
+                && getReg(left) == reg) {
+            literal = right;
+        } else if (sign > 0 && binaryOp.getRightOperand() instanceof Operand right
+                && binaryOp.getLeftOperand() instanceof LiteralElement left
+                && getReg(right) == reg) {
+            literal = left;
+        } else {
+            return false;
+        }
+
+        int value = sign * Integer.parseInt(literal.getLiteral());
+        if (value < -128 || value > 127) {
+            return false;
+        }
+
+        if (reg < 256) {
+            code.op(IINC);
+            code.u1(reg);
+            code.u1(value);
+        } else {
+            code.op(WIDE);
+            code.op(IINC);
+            code.u2(reg);
+            code.u2(value);
+        }
+        return true;
+    }
+
+    private void generateAssign(AssignInstruction assign, CodeBuffer code) {
+        // store value in the stack in destination
+        var lhs = assign.getDest();
+
+        if (!(lhs instanceof Operand operand)) {
+            throw new NotImplementedException(lhs.getClass());
+        }
+
+        // get register
+        var reg = getReg(operand);
+        var isReference = types.isReference(operand.getType());
+        if (operand instanceof ArrayOperand arrayOperand) {
+            code.local(ALOAD_0, ALOAD, reg);
+            stackMax.add(1);
+            generators.accept(arrayOperand.getIndexOperands().get(0), code);
+            generators.accept(assign.getRhs(), code);
+            stackMax.sub(3);
+            code.op(isReference ? AASTORE : IASTORE);
+            return;
+        }
+
+        if (assign.getRhs() instanceof BinaryOpInstruction binaryOp) {
+            var opType = binaryOp.getOperation().getOpType();
+            if (opType.equals(OperationType.ADD) && generateIinc(binaryOp, reg, 1, code)) {
+                return;
+            }
+            if (opType.equals(OperationType.SUB) && generateIinc(binaryOp, reg, -1, code)) {
+                return;
+            }
+        }
+        generators.accept(assign.getRhs(), code);
+        stackMax.sub(1);
+        if (isReference)
+            code.local(ASTORE_0, ASTORE, reg);
+        else
+            code.local(ISTORE_0, ISTORE, reg);
+    }
+
+    private void generateSingleOp(SingleOpInstruction singleOp, CodeBuffer code) {
+        generators.accept(singleOp.getSingleOperand(), code);
+    }
+
+    private void generateLiteral(LiteralElement literal, CodeBuffer code) {
+        stackMax.add(1);
+        int number = Integer.parseInt(literal.getLiteral());
+        if (number >= -1 && number <= 5) {
+            code.op(number == -1 ? ICONST_M1 : ICONST_0 + number);
+            return;
+        }
+        if (number <= 127 && number >= -128) {
+            code.op(BIPUSH);
+            code.u1(number);
+            return;
+        }
+        if (number <= 32767 && number >= -32768) {
+            code.op(SIPUSH);
+            code.u2(number);
+            return;
+        }
+
+        int index = constants.integer(number);
+        if (index < 256) {
+            code.op(LDC);
+            code.u1(index);
+        } else {
+            code.op(LDC_W);
+            code.u2(index);
+        }
+    }
+
+    private void generateOperand(Operand operand, CodeBuffer code) {
+        // get register
+        if (operand.getName().equals("this")) {
+            stackMax.add(1);
+            code.op(ALOAD_0);
+            return;
+        }
+        if (operand.getName().equals("true")) {
+            stackMax.add(1);
+            code.op(ICONST_1);
+            return;
+        }
+        if (operand.getName().equals("false")) {
+            stackMax.add(1);
+            code.op(ICONST_0);
+            return;
+        }
+        var reg = getReg(operand);
+        var isReference = types.isReference(operand.getType());
+        if (operand instanceof ArrayOperand arrayOperand) {
+            stackMax.add(1);
+            code.local(ALOAD_0, ALOAD, reg);
+            generators.accept(arrayOperand.getIndexOperands().get(0), code);
+            stackMax.sub(2);
+            stackMax.add(1);
+            code.op(isReference ? AALOAD : IALOAD);
+            return;
+        }
+        stackMax.add(1);
+        if (isReference)
+            code.local(ALOAD_0, ALOAD, reg);
+        else
+            code.local(ILOAD_0, ILOAD, reg);
+    }
+
+    private void generateBinaryOp(BinaryOpInstruction binaryOp, CodeBuffer code) {
+        // load values on the left and on the right
+        generators.accept(binaryOp.getLeftOperand(), code);
+        generators.accept(binaryOp.getRightOperand(), code);
+
+        if (binaryOp.getOperation().getOpType() == OperationType.LTH) {
+            // a - b < 0 ? 1 : 0, with the offsets relative to each branch
+            code.op(ISUB);
+            stackMax.sub(1);
+            code.op(IFLT);
+            stackMax.sub(1);
+            code.u2(7);
+            code.op(ICONST_0);
+            code.op(GOTO);
+            code.u2(4);
+            code.op(ICONST_1);
+            // each branch pushes one of the constants
+            stackMax.add(1);
+            return;
+        }
+        // apply operation
+        var op = switch (binaryOp.getOperation().getOpType()) {
+            case ADD -> IADD;
+            case MUL -> IMUL;
+            case DIV -> IDIV;
+            case SUB -> ISUB;
+            default -> throw new IllegalArgumentException("Unexpected value: " + binaryOp.getOperation().getOpType());
+        };
+        stackMax.sub(2);
+        stackMax.add(1);
+        code.op(op);
+    }
+
+    private void generateUnaryOp(UnaryOpInstruction unaryOpInst, CodeBuffer code) {
+        generators.accept(unaryOpInst.getOperand(), code);
+        stackMax.add(1);
+        code.op(ICONST_1);
+        code.op(IXOR);
+        stackMax.sub(1);
+    }
+
+    private void generateCall(CallInstruction callInst, CodeBuffer code) {
+        switch (callInst.getInvocationType()) {
+            case NEW:
+                var operands = callInst.getOperands();
+                if (operands.size() > 1) {
+                    generators.accept(callInst.getOperands().get(1), code);
+                    stackMax.sub(1);
+                    stackMax.add(1);
+                    code.op(NEWARRAY);
+                    code.u1(T_INT);
+                } else {
+                    stackMax.add(1);
+                    code.op(NEW);
+                    code.u2(constants.classRef(types.className(callInst.getCaller().getType())));
+                }
+                break;
+            case arraylength: {
+                var operand = (Operand) callInst.getOperands().get(0);
+                generators.accept(operand, code);
+                stackMax.sub(1);
+                stackMax.add(1);
+                code.op(ARRAYLENGTH);
+                break;
+            }
+            case invokeinterface:
+                invokeMethod(code, callInst, INVOKEINTERFACE);
+                break;
+            case invokespecial:
+                invokeMethod(code, callInst, INVOKESPECIAL);
+                break;
+            case invokestatic:
+                invokeMethod(code, callInst, INVOKESTATIC);
+                break;
+            case invokevirtual:
+                invokeMethod(code, callInst, INVOKEVIRTUAL);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void invokeMethod(CodeBuffer code, CallInstruction callInst, int opcode) {
+        boolean savedNeedsResult = needsResult;
+        needsResult = true;
+        var operand = (Operand) callInst.getOperands().get(0);
+        var methodName = ((LiteralElement) callInst.getOperands().get(1)).getLiteral();
+        if (methodName.charAt(0) == '"') {
+            methodName = methodName.substring(1, methodName.length() - 1);
+        }
+        boolean isStatic = opcode == INVOKESTATIC;
+        String className;
+        if (!isStatic) {
+            className = types.className(callInst.getOperands().get(0).getType());
+            generateOperand(operand, code);
+        } else {
+            className = types.className(operand.getName());
+        }
+        var operands = callInst.getOperands();
+        for (int i = 2; i < operands.size(); i++) {
+            generators.accept(operands.get(i), code);
+        }
+
+        var descriptor = new StringBuilder("(");
+        for (var argument : callInst.getArguments()) {
+            descriptor.append(types.of(argument.getType()));
+        }
+        var returnType = types.of(callInst.getReturnType());
+        descriptor.append(")").append(returnType);
+
+        code.op(opcode);
+        if (opcode == INVOKEINTERFACE) {
+            code.u2(constants.interfaceMethodRef(className, methodName, descriptor.toString()));
+            // the receiver and the arguments, every type of the language takes a single slot
+            code.u1(callInst.getArguments().size() + 1);
+            code.u1(0);
+        } else {
+            code.u2(constants.methodRef(className, methodName, descriptor.toString()));
+        }
+
+        stackMax.sub(callInst.getArguments().size());
+        if (!isStatic) {
+            stackMax.sub(1);
+        }
+        if (!returnType.equals("V")) {
+            stackMax.add(1);
+        }
+        if (!savedNeedsResult && !returnType.equals("V")) {
+            stackMax.sub(1);
+            code.op(POP);
+        }
+    }
+
+    private void generateReturn(ReturnInstruction returnInst, CodeBuffer code) {
+        if (returnInst.getReturnType().getTypeOfElement().equals(ElementType.VOID)) {
+            code.op(RETURN);
+            return;
+        }
+        generators.accept(returnInst.getOperand(), code);
+        stackMax.sub(1);
+        code.op(types.isReference(returnInst.getReturnType()) ? ARETURN : IRETURN);
+    }
+
+    private void generateGetField(GetFieldInstruction getFieldInst, CodeBuffer code) {
+        code.op(ALOAD_0);
+        stackMax.add(1);
+        code.op(GETFIELD);
+        code.u2(constants.fieldRef(classUnit.getClassName(), getFieldInst.getField().getName(),
+                types.of(getFieldInst.getFieldType())));
+        stackMax.sub(1);
+        stackMax.add(1);
+    }
+
+    private void generatePutField(PutFieldInstruction putFieldInst, CodeBuffer code) {
+        code.op(ALOAD_0);
+        stackMax.add(1);
+        generators.accept(putFieldInst.getValue(), code);
+        stackMax.sub(2);
+        code.op(PUTFIELD);
+        code.u2(constants.fieldRef(classUnit.getClassName(), putFieldInst.getField().getName(),
+                types.of(putFieldInst.getValue().getType())));
+    }
+
+    private void generateOpCond(OpCondInstruction opCondInst, CodeBuffer code) {
+        generators.accept(opCondInst.getOperands().get(0), code);
+        generators.accept(opCondInst.getOperands().get(1), code);
+        code.op(ISUB);
+        stackMax.sub(2);
+        stackMax.add(1);
+        code.branch(switch (opCondInst.getCondition().getOperation().getOpType()) {
+            case LTH -> IFLT;
+            case LTE -> IFLE;
+            case GTE -> IFGE;
+            case GTH -> IFGT;
+            default -> throw new IllegalArgumentException(
+                    "Unexpected value: " + opCondInst.getCondition().getOperation().getOpType());
+        }, opCondInst.getLabel());
+        stackMax.sub(1);
+    }
+
+    private void generateSingleOpCond(SingleOpCondInstruction singleOpCondInst, CodeBuffer code) {
+        generators.accept(singleOpCondInst.getOperands().get(0), code);
+        code.branch(IFNE, singleOpCondInst.getLabel());
+        stackMax.sub(1);
+    }
+
+    private void generateGoto(GotoInstruction gotoInst, CodeBuffer code) {
+        code.branch(GOTO, gotoInst.getLabel());
+    }
+}
@@ -0,0 +1,48 @@
+package pt.up.fe.comp2024.backend;
+
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.specs.util.SpecsCollections;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of the class file backend, which holds the bytes of the class file instead of Jasmin code.
+ * <p>
+ * {@link #getJasminCode()} returns null. Compiling and running the result use the class file as is, without calling
+ * the Jasmin assembler.
+ */
+public class ClassFileResult extends InProcessJasminResult {
+
+    private final byte[] classFile;
+
+    public ClassFileResult(String className, byte[] classFile, List<Report> reports, Map<String, String> config) {
+        super(className, null, reports, config);
+        this.classFile = classFile;
+    }
+
+    public ClassFileResult(OllirResult ollirResult, byte[] classFile, List<Report> reports) {
+        this(ollirResult.getOllirClass().getClassName(), classFile,
+                SpecsCollections.concat(ollirResult.getReports(), reports), ollirResult.getConfig());
+    }
+
+    public byte[] getClassFile() {
+        return classFile;
+    }
+
+    @Override
+    public File compile(File outputDir) {
+        var outputFile = new File(SpecsIo.mkdir(outputDir), getClassName() + ".class");
+        try {
+            Files.write(outputFile.toPath(), classFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write class file '" + outputFile + "'", e);
+        }
+        return outputFile;
+    }
+}
@@ -0,0 +1,118 @@
+package pt.up.fe.comp2024.backend;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bytecode of a method, reused between methods with {@link #reset()}.
+ * <p>
+ * Branches to labels that were not placed yet are written with a zero offset and patched by {@link #resolve()}.
+ */
+class CodeBuffer {
+
+    private static final int MAX_CODE_LENGTH = 65535;
+
+    private record Branch(int instruction, int operand, String label) {
+    }
+
+    private byte[] code;
+    private int length;
+    private final Map<String, Integer> labels;
+    private final List<Branch> branches;
+
+    CodeBuffer() {
+        this.code = new byte[1024];
+        this.length = 0;
+        this.labels = new HashMap<>();
+        this.branches = new ArrayList<>();
+    }
+
+    void reset() {
+        length = 0;
+        labels.clear();
+        branches.clear();
+    }
+
+    int length() {
+        return length;
+    }
+
+    void u1(int value) {
+        if (length == code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+        code[length++] = (byte) value;
+    }
+
+    void u2(int value) {
+        u1(value >> 8);
+        u1(value);
+    }
+
+    void op(int opcode) {
+        u1(opcode);
+    }
+
+    /**
+     * Writes a load or store of a local variable, e.g. 'iload_1', 'iload 4' or 'wide iload 300'.
+     *
+     * @param shortOpcode opcode of the variant for register 0, e.g. 'iload_0'
+     */
+    void local(int shortOpcode, int opcode, int reg) {
+        if (reg < 4) {
+            op(shortOpcode + reg);
+        } else if (reg < 256) {
+            op(opcode);
+            u1(reg);
+        } else {
+            op(Opcodes.WIDE);
+            op(opcode);
+            u2(reg);
+        }
+    }
+
+    void label(String label) {
+        labels.put(label, length);
+    }
+
+    /**
+     * Writes a branch instruction to the given label.
+     */
+    void branch(int opcode, String label) {
+        branches.add(new Branch(length, length + 1, label));
+        op(opcode);
+        u2(0);
+    }
+
+    /**
+     * Patches the offsets of every branch, once all labels of the method are placed.
+     */
+    void resolve() {
+        if (length > MAX_CODE_LENGTH) {
+            throw new RuntimeException("Method has " + length + " bytes of code, the limit is " + MAX_CODE_LENGTH);
+        }
+
+        for (var branch : branches) {
+            var target = labels.get(branch.label());
+            if (target == null) {
+                throw new RuntimeException("Branch to undefined label '" + branch.label() + "'");
+            }
+
+            int offset = target - branch.instruction();
+            if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                throw new RuntimeException("Branch to label '" + branch.label() + "' is too far");
+            }
+            code[branch.operand()] = (byte) (offset >> 8);
+            code[branch.operand() + 1] = (byte) offset;
+        }
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.write(code, 0, length);
+    }
+}
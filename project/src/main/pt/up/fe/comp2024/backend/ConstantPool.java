@@ -0,0 +1,142 @@
+package pt.up.fe.comp2024.backend;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Constant pool of a class file. Every constant is added once and referenced by its index afterwards.
+ */
+class ConstantPool {
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int MAX_ENTRIES = 0xffff;
+
+    private final ByteArrayOutputStream bytes;
+    private final DataOutputStream out;
+    // Keys start with the tag of the constant, so that equal values of different kinds do not collide
+    private final Map<String, Integer> indexes;
+    private int count;
+
+    ConstantPool() {
+        this.bytes = new ByteArrayOutputStream();
+        this.out = new DataOutputStream(bytes);
+        this.indexes = new HashMap<>();
+        // Index 0 is not used
+        this.count = 1;
+    }
+
+    int utf8(String value) {
+        var key = CONSTANT_UTF8 + ":" + value;
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        try {
+            out.writeByte(CONSTANT_UTF8);
+            out.writeUTF(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return add(key);
+    }
+
+    int integer(int value) {
+        var key = CONSTANT_INTEGER + ":" + value;
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        try {
+            out.writeByte(CONSTANT_INTEGER);
+            out.writeInt(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return add(key);
+    }
+
+    /**
+     * @param internalName the name of the class with '/' as separator, e.g. 'java/lang/Object'
+     */
+    int classRef(String internalName) {
+        var key = CONSTANT_CLASS + ":" + internalName;
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        return reference(key, CONSTANT_CLASS, utf8(internalName));
+    }
+
+    int nameAndType(String name, String descriptor) {
+        var key = CONSTANT_NAME_AND_TYPE + ":" + name + ":" + descriptor;
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        return reference(key, CONSTANT_NAME_AND_TYPE, utf8(name), utf8(descriptor));
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    int interfaceMethodRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_INTERFACE_METHODREF, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        var key = tag + ":" + owner + ":" + name + ":" + descriptor;
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        return reference(key, tag, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    private int reference(String key, int tag, int... references) {
+        try {
+            out.writeByte(tag);
+            for (var reference : references) {
+                out.writeShort(reference);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return add(key);
+    }
+
+    private int add(String key) {
+        if (count >= MAX_ENTRIES) {
+            throw new RuntimeException("Too many constants for a single class file");
+        }
+
+        int index = count++;
+        indexes.put(key, index);
+        return index;
+    }
+
+    void writeTo(DataOutputStream classFile) throws IOException {
+        classFile.writeShort(count);
+        bytes.writeTo(classFile);
+    }
+}
@@ -0,0 +1,38 @@
+package pt.up.fe.comp2024.backend;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.runner.InProcessRunner;
+import pt.up.fe.specs.util.SpecsCollections;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of the backends of this compiler, which runs the generated class with the {@link InProcessRunner} instead
+ * of starting a new 'java' process.
+ * <p>
+ * Every run and runWithFullOutput overload goes through here. The input is given to the program all at once, instead
+ * of line by line.
+ */
+public class InProcessJasminResult extends JasminResult {
+
+    public InProcessJasminResult(String className, String jasminCode, List<Report> reports,
+            Map<String, String> config) {
+        super(className, jasminCode, reports, config);
+    }
+
+    public InProcessJasminResult(OllirResult ollirResult, String jasminCode, List<Report> reports) {
+        this(ollirResult.getOllirClass().getClassName(), jasminCode,
+                SpecsCollections.concat(ollirResult.getReports(), reports), ollirResult.getConfig());
+    }
+
+    @Override
+    public ProcessOutputAsString runWithFullOutput(List<String> args, List<String> classpath, String input) {
+        var classFile = JasminAssembler.toClassFile(this);
+        return InProcessRunner.forClasspath(classpath).run(getClassName(), Map.of(getClassName(), classFile), args,
+                input);
+    }
+}
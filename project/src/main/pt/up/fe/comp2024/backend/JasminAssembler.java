@@ -0,0 +1,46 @@
+package pt.up.fe.comp2024.backend;
+
+import jasmin.ClassFile;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+
+/**
+ * Turns the result of a backend into the bytes of its class file, in memory.
+ */
+public class JasminAssembler {
+
+    // Jasmin keeps some state in static fields, so class files are assembled one at a time
+    private static final Object ASSEMBLER_LOCK = new Object();
+
+    private JasminAssembler() {
+    }
+
+    /**
+     * @return the class file of the result, assembling its Jasmin code unless it already is a {@link ClassFileResult}
+     */
+    public static byte[] toClassFile(JasminResult result) {
+        // Nothing to assemble with the class file backend
+        if (result instanceof ClassFileResult classFileResult) {
+            return classFileResult.getClassFile();
+        }
+
+        synchronized (ASSEMBLER_LOCK) {
+            try {
+                var classFile = new ClassFile();
+                classFile.readJasmin(new StringReader(result.getJasminCode()), result.getClassName() + ".j", true);
+                if (classFile.errorCount() > 0) {
+                    throw new RuntimeException("Found " + classFile.errorCount()
+                            + " errors while assembling Jasmin code");
+                }
+
+                var bytes = new ByteArrayOutputStream();
+                classFile.write(bytes);
+                return bytes.toByteArray();
+            } catch (Exception e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -3,19 +3,29 @@ package pt.up.fe.comp2024.backend;
 import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2024.CompilerContext;
 
 public class JasminBackendImpl implements JasminBackend {
 
+    private final CompilerContext context;
+
+    public JasminBackendImpl() {
+        this(new CompilerContext());
+    }
+
+    public JasminBackendImpl(CompilerContext context) {
+        this.context = context;
+    }
+
     @Override
     public JasminResult toJasmin(OllirResult ollirResult) {
-        var jasminGenerator = new JasminGenerator(ollirResult);
-        var jasminCode = jasminGenerator.build();
-        System.out.println("--- OLLIR ---");
-        System.out.println(ollirResult.getOllirCode());
-        var temp = new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
-        System.out.println("--- JASMIN ---");
-        System.out.println(temp.getJasminCode());
-        return temp;
+        var jasminGenerator = new JasminGenerator(ollirResult, context);
+        String jasminCode;
+        try (var timer = context.getMetrics().start("jasmin")) {
+            jasminCode = jasminGenerator.build();
+            timer.count("lines", jasminCode.lines().count());
+        }
+        return new InProcessJasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
     }
 
 }
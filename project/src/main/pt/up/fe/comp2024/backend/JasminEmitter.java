@@ -0,0 +1,85 @@
+package pt.up.fe.comp2024.backend;
+
+/**
+ * Appends Jasmin code directly into a buffer, one piece at a time.
+ * <p>
+ * Instructions are started with {@link #inst(String)}, which also writes the indentation, continued with
+ * {@link #arg(String)} / {@link #append(String)} and finished with {@link #end()}, so no intermediate String is built
+ * for each instruction.
+ */
+class JasminEmitter {
+
+    private static final String TAB = "   ";
+
+    private final StringBuilder code;
+
+    JasminEmitter(StringBuilder code) {
+        this.code = code;
+    }
+
+    /**
+     * Starts an indented instruction.
+     */
+    JasminEmitter inst(String opcode) {
+        code.append(TAB).append(opcode);
+        return this;
+    }
+
+    /**
+     * Starts an indented instruction that ends in a register number, e.g. 'iload_1' or 'iload 4'.
+     */
+    JasminEmitter inst(String shortOpcode, String opcode, int reg) {
+        code.append(TAB).append(reg < 4 ? shortOpcode : opcode).append(reg);
+        return this;
+    }
+
+    /**
+     * Appends an argument, preceded by a space.
+     */
+    JasminEmitter arg(String argument) {
+        code.append(' ').append(argument);
+        return this;
+    }
+
+    JasminEmitter arg(int argument) {
+        code.append(' ').append(argument);
+        return this;
+    }
+
+    /**
+     * Appends text as is, e.g. the parts of a method descriptor.
+     */
+    JasminEmitter append(String text) {
+        code.append(text);
+        return this;
+    }
+
+    /**
+     * Finishes the current line.
+     */
+    void end() {
+        code.append('\n');
+    }
+
+    /**
+     * Writes a whole instruction without arguments.
+     */
+    void line(String opcode) {
+        inst(opcode).end();
+    }
+
+    void label(String label) {
+        code.append(label).append(":\n");
+    }
+
+    /**
+     * Writes an indented directive, e.g. '.limit stack 2'.
+     */
+    void directive(String directive, int value) {
+        code.append(TAB).append(directive).append(' ').append(value).append('\n');
+    }
+
+    StringBuilder getCode() {
+        return code;
+    }
+}
@@ -4,15 +4,12 @@ import org.specs.comp.ollir.*;
 import org.specs.comp.ollir.tree.TreeNode;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
-import pt.up.fe.comp2024.optimization.OptUtils;
-import pt.up.fe.specs.util.classmap.FunctionClassMap;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.specs.util.classmap.BiConsumerClassMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
-import pt.up.fe.specs.util.utilities.StringLines;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 class MaxCounter {
     private int count = 0;
@@ -46,14 +43,14 @@ class MaxCounter {
 /**
  * Generates Jasmin code from an OllirResult.
  * <p>
- * One JasminGenerator instance per OllirResult.
+ * One JasminGenerator instance per OllirResult. The code of every instruction is appended directly into a single
+ * buffer through a {@link JasminEmitter}. The body of each method goes into a second buffer, reused by all methods,
+ * so that the limits (only known after the body is generated) can be written before it.
  */
 public class JasminGenerator {
 
-    private static final String NL = "\n";
-    private static final String TAB = "   ";
-
     private final OllirResult ollirResult;
+    private final CompilerContext context;
 
     List<Report> reports;
 
@@ -64,18 +61,20 @@ public class JasminGenerator {
 
     MaxCounter stackMax;
 
-    private final FunctionClassMap<TreeNode, String> generators;
+    private final BiConsumerClassMap<TreeNode, JasminEmitter> generators;
+    private final StringBuilder methodBody;
+    private TypeDescriptors types;
     private boolean needsResult;
 
-    public JasminGenerator(OllirResult ollirResult) {
+    public JasminGenerator(OllirResult ollirResult, CompilerContext context) {
         this.ollirResult = ollirResult;
+        this.context = context;
         reports = new ArrayList<>();
         code = null;
         currentMethod = null;
         stackMax = new MaxCounter();
-        this.generators = new FunctionClassMap<>();
-        generators.put(ClassUnit.class, this::generateClassUnit);
-        generators.put(Method.class, this::generateMethod);
+        methodBody = new StringBuilder();
+        this.generators = new BiConsumerClassMap<>();
         generators.put(AssignInstruction.class, this::generateAssign);
         generators.put(SingleOpInstruction.class, this::generateSingleOp);
         generators.put(LiteralElement.class, this::generateLiteral);
@@ -99,33 +98,31 @@ public class JasminGenerator {
     public String build() {
         // This way, build is idempotent
         if (code == null) {
-            code = generators.apply(ollirResult.getOllirClass());
+            var buffer = new StringBuilder();
+            generateClassUnit(ollirResult.getOllirClass(), new JasminEmitter(buffer));
+            code = buffer.toString();
         }
         return code;
     }
 
-    private String generateClassUnit(ClassUnit classUnit) {
+    private void generateClassUnit(ClassUnit classUnit, JasminEmitter code) {
 
         this.classUnit = classUnit;
-        var code = new StringBuilder();
+        this.types = new TypeDescriptors(classUnit);
 
         // generate class name
         var className = ollirResult.getOllirClass().getClassName();
-        code.append(".class ").append(className).append(NL).append(NL);
+        code.append(".class ").append(className).end();
+        code.end();
 
         var superName = "java/lang/Object";
         if (classUnit.getSuperClass() != null)
-            superName = handleImports(classUnit.getSuperClass());
-        code.append(".super ");
-        code.append(superName);
-        code.append(NL);
+            superName = types.className(classUnit.getSuperClass());
+        code.append(".super ").append(superName).end();
 
         for (var field : classUnit.getFields()) {
-            code.append(".field private ");
-            code.append(field.getFieldName());
-            code.append(" ");
-            code.append(typeJasmin(field.getFieldType()));
-            code.append(NL);
+            code.append(".field private ").append(field.getFieldName()).append(" ")
+                    .append(types.of(field.getFieldType())).end();
         }
         // generate a single constructor method
         code.append("""
@@ -133,15 +130,14 @@ public class JasminGenerator {
                 .method public <init>()V
                     aload_0
                 """);
-        code.append("    invokespecial ");
-        code.append(superName);
-        code.append("/<init>()V\n");
+        code.append("    invokespecial ").append(superName).append("/<init>()V").end();
         code.append("""
                     return
                 .end method
                 """);
 
         // generate code for all other methods
+        var body = new JasminEmitter(methodBody);
         for (var method : ollirResult.getOllirClass().getMethods()) {
 
             // Ignore constructor, since there is always one constructor
@@ -151,74 +147,93 @@ public class JasminGenerator {
                 continue;
             }
 
-            code.append(generators.apply(method));
+            generateMethod(method, code, body);
         }
-
-        return code.toString();
     }
 
-    private String generateMethod(Method method) {
+    private void generateMethod(Method method, JasminEmitter code, JasminEmitter body) {
         // set method
         currentMethod = method;
-        var code = new StringBuilder();
 
         stackMax.reset();
 
+        code.end();
+        code.append(".method ");
         // calculate modifier
-        var modifier = method.getMethodAccessModifier() != AccessModifier.DEFAULT
-                ? method.getMethodAccessModifier().name().toLowerCase() + " "
-                : "";
-
-        var isStatic = method.isStaticMethod() ? "static " : "";
-        var methodName = method.getMethodName();
-        code.append("\n.method ").append(modifier).append(isStatic).append(methodName).append("(");
+        if (method.getMethodAccessModifier() != AccessModifier.DEFAULT) {
+            code.append(method.getMethodAccessModifier().name().toLowerCase()).append(" ");
+        }
+        if (method.isStaticMethod()) {
+            code.append("static ");
+        }
+        code.append(method.getMethodName()).append("(");
 
         // Add params
         for (int i = 0; i < method.getParams().size(); i++) {
-            code.append(this.typeJasmin(method.getParams().get(i).getType()));
+            code.append(types.of(method.getParams().get(i).getType()));
         }
 
         // Add return
         var returnType = method.getReturnType();
-        code.append(")").append(this.typeJasmin(returnType)).append(NL);
-        // Add limits
-
-        var codeTemp = new StringBuilder();
+        code.append(")").append(types.of(returnType)).end();
 
+        // The body goes first to the method buffer, the limits are only known after generating it
+        methodBody.setLength(0);
         for (var inst : method.getInstructions()) {
             needsResult = !inst.getInstType().equals(InstructionType.CALL);
             for (var label : method.getLabels(inst)) {
-                codeTemp.append(label);
-                codeTemp.append(":\n");
+                body.label(label);
             }
-            var instCode = StringLines.getLines(generators.apply(inst)).stream()
-                    .collect(Collectors.joining(NL + TAB, TAB, NL));
-
-            // System.out.println("instcode - " + instCode);
-            codeTemp.append(instCode);
+            generators.accept(inst, body);
         }
 
-        code.append(TAB).append(".limit stack ").append(stackMax.getMax()).append(NL);
+        // Add limits
+        code.directive(".limit stack", stackMax.getMax());
         var maxVirtualReg = method.getVarTable().values().stream().mapToInt(Descriptor::getVirtualReg).max();
-        int number = maxVirtualReg.orElse(0); //method.getVarTable().values().stream().map(Descriptor::getVirtualReg).max(Comparator.naturalOrder()).get()
-        code.append(TAB).append(".limit locals ").append(number+1)
-                .append(NL);
+        int number = maxVirtualReg.orElse(0);
+        code.directive(".limit locals", number + 1);
 
-        code.append(codeTemp);
+        code.getCode().append(methodBody);
 
-        code.append(".end method\n");
+        code.append(".end method").end();
 
         // unset method
         currentMethod = null;
+    }
+
+    /**
+     * Tries to generate 'iinc' for an assignment like 'a = a + 1', 'a = 1 + a' or 'a = a - 1' ('a = 1 - a' is not an
+     * increment).
+     *
+     * @param sign 1 for additions, -1 for subtractions
+     * @return true if the assignment was generated
+     */
+    private boolean generateIinc(BinaryOpInstruction binaryOp, int reg, int sign, JasminEmitter code) {
+        LiteralElement literal;
+        if (binaryOp.getLeftOperand() instanceof Operand left
+                && binaryOp.getRightOperand() instanceof LiteralElement right
+                && currentMethod.getVarTable().get(left.getName()).getVirtualReg() == reg) {
+            literal = right;
+        } else if (sign > 0 && binaryOp.getRightOperand() instanceof Operand right
+                && binaryOp.getLeftOperand() instanceof LiteralElement left
+                && currentMethod.getVarTable().get(right.getName()).getVirtualReg() == reg) {
+            literal = left;
+        } else {
+            return false;
+        }
+
+        int value = sign * Integer.parseInt(literal.getLiteral());
+        if (value < -128 || value > 127) {
+            return false;
+        }
 
-        return code.toString();
+        code.inst("iinc").arg(reg).arg(value).end();
+        return true;
     }
 
-    private String generateAssign(AssignInstruction assign) {
-        var code = new StringBuilder();
+    private void generateAssign(AssignInstruction assign, JasminEmitter code) {
         // generate code for loading what's on the right
 
-        // System.out.println("hello - " + assign.getRhs());
         // store value in the stack in destination
         var lhs = assign.getDest();
 
@@ -228,172 +243,119 @@ public class JasminGenerator {
 
         // get register
         var reg = currentMethod.getVarTable().get(operand.getName()).getVirtualReg();
-        var jasminType = typeJasmin(operand.getType());
+        var isReference = types.isReference(operand.getType());
         if (operand instanceof ArrayOperand arrayOperand) {
-            code.append(reg < 4 ? "aload_" : "aload ").append(reg).append(NL);
+            code.inst("aload_", "aload ", reg).end();
             stackMax.add(1);
-            code.append(generators.apply(arrayOperand.getIndexOperands().get(0)));
-            code.append(generators.apply(assign.getRhs()));
+            generators.accept(arrayOperand.getIndexOperands().get(0), code);
+            generators.accept(assign.getRhs(), code);
             stackMax.sub(3);
-            if (jasminType.startsWith("L") || jasminType.startsWith("["))
-                code.append("aastore").append(NL);
-            else
-                code.append("iastore").append(NL);
-        } else {
-            if (assign.getRhs() instanceof BinaryOpInstruction binaryOp) {
-                if (binaryOp.getOperation().getOpType().equals(OperationType.ADD)) {
-                    if (binaryOp.getLeftOperand() instanceof Operand
-                            && binaryOp.getRightOperand() instanceof LiteralElement &&
-                            currentMethod.getVarTable().get(((Operand) binaryOp.getLeftOperand()).getName())
-                                    .getVirtualReg() == reg) {
-                        int value = Integer.parseInt(((LiteralElement) binaryOp.getRightOperand()).getLiteral());
-                        if (value >= -128 && value <= 127) {
-                            code.append("iinc ");
-                            code.append(reg);
-                            code.append(" ");
-                            code.append(value);
-                            code.append(NL);
-                            return code.toString();
-                        }
-                    } else if (binaryOp.getRightOperand() instanceof Operand
-                            && binaryOp.getLeftOperand() instanceof LiteralElement &&
-                            currentMethod.getVarTable().get(((Operand) binaryOp.getRightOperand()).getName())
-                                    .getVirtualReg() == reg) {
-                        int value = Integer.parseInt(((LiteralElement) binaryOp.getLeftOperand()).getLiteral());
-                        if (value >= -128 && value <= 127) {
-                            code.append("iinc ");
-                            code.append(reg);
-                            code.append(" ");
-                            code.append(value);
-                            code.append(NL);
-                            return code.toString();
-                        }
-                    }
-                }
+            code.line(isReference ? "aastore" : "iastore");
+            return;
+        }
 
-                if (binaryOp.getOperation().getOpType().equals(OperationType.SUB)) {
-                    if (binaryOp.getLeftOperand() instanceof Operand
-                            && binaryOp.getRightOperand() instanceof LiteralElement &&
-                            currentMethod.getVarTable().get(((Operand) binaryOp.getLeftOperand()).getName())
-                                    .getVirtualReg() == reg) {
-                        int value = -Integer.parseInt(((LiteralElement) binaryOp.getRightOperand()).getLiteral());
-                        if (value >= -128 && value <= 127) {
-                            code.append("iinc ");
-                            code.append(reg);
-                            code.append(" ");
-                            code.append(value);
-                            code.append(NL);
-                            return code.toString();
-                        }
-                    } else if (binaryOp.getRightOperand() instanceof Operand
-                            && binaryOp.getLeftOperand() instanceof LiteralElement &&
-                            currentMethod.getVarTable().get(((Operand) binaryOp.getRightOperand()).getName())
-                                    .getVirtualReg() == reg) {
-                        int value = -Integer.parseInt(((LiteralElement) binaryOp.getLeftOperand()).getLiteral());
-                        if (value >= -128 && value <= 127) {
-                            code.append("iinc ");
-                            code.append(reg);
-                            code.append(" ");
-                            code.append(value);
-                            code.append(NL);
-                            return code.toString();
-                        }
-                    }
-                }
+        if (assign.getRhs() instanceof BinaryOpInstruction binaryOp) {
+            var opType = binaryOp.getOperation().getOpType();
+            if (opType.equals(OperationType.ADD) && generateIinc(binaryOp, reg, 1, code)) {
+                return;
+            }
+            if (opType.equals(OperationType.SUB) && generateIinc(binaryOp, reg, -1, code)) {
+                return;
             }
-            code.append(generators.apply(assign.getRhs()));
-            stackMax.sub(1);
-            if (jasminType.startsWith("L") || jasminType.startsWith("["))
-                code.append(reg < 4 ? "astore_" : "astore ").append(reg).append(NL);
-            else
-                code.append(reg < 4 ? "istore_" : "istore ").append(reg).append(NL);
         }
-        return code.toString();
+        generators.accept(assign.getRhs(), code);
+        stackMax.sub(1);
+        if (isReference)
+            code.inst("astore_", "astore ", reg).end();
+        else
+            code.inst("istore_", "istore ", reg).end();
     }
 
-    private String generateSingleOp(SingleOpInstruction singleOp) {
-        return generators.apply(singleOp.getSingleOperand());
+    private void generateSingleOp(SingleOpInstruction singleOp, JasminEmitter code) {
+        generators.accept(singleOp.getSingleOperand(), code);
     }
 
-    private String generateLiteral(LiteralElement literal) {
+    private void generateLiteral(LiteralElement literal, JasminEmitter code) {
         stackMax.add(1);
-        if (literal.getType().toString().equals("INT32")) {
+        if (literal.getType().getTypeOfElement() == ElementType.INT32) {
             int number = Integer.parseInt(literal.getLiteral());
             if (number >= -1 && number <= 5) {
                 if (number == -1) {
-                    return "iconst_m1" + NL;
+                    code.line("iconst_m1");
+                    return;
                 }
-                return "iconst_" + literal.getLiteral() + NL;
+                code.inst("iconst_").append(literal.getLiteral()).end();
+                return;
             }
             if (number <= 127 && number >= -128) {
-                return "bipush " + literal.getLiteral() + NL;
+                code.inst("bipush").arg(literal.getLiteral()).end();
+                return;
             }
             if (number <= 32767 && number >= -32768) {
-                return "sipush " + literal.getLiteral() + NL;
+                code.inst("sipush").arg(literal.getLiteral()).end();
+                return;
             }
         }
-        return "ldc " + literal.getLiteral() + NL;
+        code.inst("ldc").arg(literal.getLiteral()).end();
     }
 
-    private String generateOperand(Operand operand) {
+    private void generateOperand(Operand operand, JasminEmitter code) {
         // get register
         if (operand.getName().equals("this")) {
             stackMax.add(1);
-            return "aload_0\n";
+            code.line("aload_0");
+            return;
         }
         if (operand.getName().equals("true")) {
             stackMax.add(1);
-            return "iconst_1\n";
+            code.line("iconst_1");
+            return;
         }
         if (operand.getName().equals("false")) {
             stackMax.add(1);
-            return "iconst_0\n";
+            code.line("iconst_0");
+            return;
         }
         var reg = currentMethod.getVarTable().get(operand.getName()).getVirtualReg();
-        var jasminType = typeJasmin(operand.getType());
+        var isReference = types.isReference(operand.getType());
         if (operand instanceof ArrayOperand arrayOperand) {
-            var code = new StringBuilder();
             stackMax.add(1);
-            code.append(reg < 4 ? "aload_" : "aload ").append(reg).append(NL);
-            code.append(generators.apply(arrayOperand.getIndexOperands().get(0)));
+            code.inst("aload_", "aload ", reg).end();
+            generators.accept(arrayOperand.getIndexOperands().get(0), code);
             stackMax.sub(2);
             stackMax.add(1);
-            if (jasminType.startsWith("L") || jasminType.startsWith("["))
-                return code + "aaload" + NL;
-            return code + "iaload" + NL;
+            code.line(isReference ? "aaload" : "iaload");
+            return;
         }
         stackMax.add(1);
-        if (jasminType.startsWith("L") || jasminType.startsWith("["))
-            return (reg < 4 ? "aload_" : "aload ") + reg + NL;
-        return (reg < 4 ? "iload_" : "iload ") + reg + NL;
+        if (isReference)
+            code.inst("aload_", "aload ", reg).end();
+        else
+            code.inst("iload_", "iload ", reg).end();
     }
 
-    private String generateBinaryOp(BinaryOpInstruction binaryOp) {
-        var code = new StringBuilder();
-
-        // System.out.println(binaryOp.toTree());
-
+    private void generateBinaryOp(BinaryOpInstruction binaryOp, JasminEmitter code) {
         // load values on the left and on the right
-        code.append(generators.apply(binaryOp.getLeftOperand()));
-        code.append(generators.apply(binaryOp.getRightOperand()));
+        generators.accept(binaryOp.getLeftOperand(), code);
+        generators.accept(binaryOp.getRightOperand(), code);
 
-        if (binaryOp.getOperation().getOpType().toString().equals("LTH")) {
-            String temp = OptUtils.getNextTempLabel();
-            String temp1 = OptUtils.getNextTempLabel();
+        if (binaryOp.getOperation().getOpType() == OperationType.LTH) {
+            // A different prefix keeps these apart from the labels already in the OLLIR code
+            String temp = context.getNextTempLabel("cmp");
+            String temp1 = context.getNextTempLabel("cmp");
 
             // ver 0 e 1 aqui !!!!!
-            code.append("isub").append(NL);
-            code.append("iflt ").append(temp).append(NL);
-            code.append("ldc 0").append(NL);
-            code.append("goto ").append(temp1).append(NL);
+            code.line("isub");
+            code.inst("iflt").arg(temp).end();
+            code.inst("ldc").arg(0).end();
+            code.inst("goto").arg(temp1).end();
 
-            code.append(temp).append(":").append(NL);
-            code.append("ldc 1").append(NL);
-            code.append("goto ").append(temp1).append(NL);
+            code.label(temp);
+            code.inst("ldc").arg(1).end();
+            code.inst("goto").arg(temp1).end();
 
-            code.append(temp1).append(":").append(NL);
-
-            return code.toString();
+            code.label(temp1);
+            return;
         }
         // apply operation
         var op = switch (binaryOp.getOperation().getOpType()) {
@@ -405,42 +367,36 @@ public class JasminGenerator {
         };
         stackMax.sub(2);
         stackMax.add(1);
-        code.append(op).append(NL);
-
-        return code.toString();
+        code.line(op);
     }
 
-    private String generateUnaryOp(UnaryOpInstruction unaryOpInst) {
-        var code = new StringBuilder();
-        code.append(generators.apply(unaryOpInst.getOperand()));
+    private void generateUnaryOp(UnaryOpInstruction unaryOpInst, JasminEmitter code) {
+        generators.accept(unaryOpInst.getOperand(), code);
         stackMax.add(1);
-        code.append("iconst_1").append(NL);
-        code.append("ixor").append(NL);
+        code.line("iconst_1");
+        code.line("ixor");
         stackMax.sub(1);
-        return code.toString();
     }
 
-    private String generateCall(CallInstruction callInst) {
-        var code = new StringBuilder();
+    private void generateCall(CallInstruction callInst, JasminEmitter code) {
         switch (callInst.getInvocationType()) {
             case NEW:
                 var operands = callInst.getOperands();
                 if (operands.size() > 1) {
-                    code.append(generators.apply(callInst.getOperands().get(1)));
+                    generators.accept(callInst.getOperands().get(1), code);
                     stackMax.add(1);
-                    code.append("newarray int");
+                    code.inst("newarray int").end();
                 } else {
-                    code.append("new ");
                     stackMax.add(1);
-                    code.append(handleImports(callInst.getCaller().getType()));
+                    code.inst("new").arg(types.className(callInst.getCaller().getType())).end();
                 }
                 break;
             case arraylength: {
                 var operand = (Operand) callInst.getOperands().get(0);
-                code.append(generators.apply(operand));
+                generators.accept(operand, code);
                 stackMax.sub(1);
                 stackMax.add(1);
-                code.append("arraylength");
+                code.line("arraylength");
                 break;
             }
             case invokeinterface:
@@ -461,193 +417,102 @@ public class JasminGenerator {
                 break;
 
         }
-        code.append("\n");
-        return code.toString();
     }
 
-    private void invokeMethod(StringBuilder code, CallInstruction callInst, String callType) {
+    private void invokeMethod(JasminEmitter code, CallInstruction callInst, String callType) {
         boolean savedNeedsResult = needsResult;
         needsResult = true;
         var operand = (Operand) callInst.getOperands().get(0);
-        var className = handleImports(callInst.getOperands().get(0).getType());
         var methodName = ((LiteralElement) callInst.getOperands().get(1)).getLiteral();
         if (methodName.charAt(0) == '"') {
             methodName = methodName.substring(1, methodName.length() - 1);
         }
-        if (!callType.equals("invokestatic")) {
-            code.append(generateOperand(operand));
+        boolean isStatic = callType.equals("invokestatic");
+        String className;
+        if (!isStatic) {
+            className = types.className(callInst.getOperands().get(0).getType());
+            generateOperand(operand, code);
         } else {
-            className = handleImports(operand.getName());
-            // className = operand.getName();
+            className = types.className(operand.getName());
         }
-        for (var param : callInst.getOperands().stream().skip(2).toList()) {
-            code.append(generators.apply(param));
+        var operands = callInst.getOperands();
+        for (int i = 2; i < operands.size(); i++) {
+            generators.accept(operands.get(i), code);
         }
 
-        code.append(callType);
-        code.append(" ");
-        code.append(className);
-        code.append("/");
-        code.append(methodName);
-        code.append("(");
+        code.inst(callType).arg(className).append("/").append(methodName).append("(");
         for (int i = 0; i < callInst.getArguments().size(); i++) {
-            code.append(this.typeJasmin(callInst.getArguments().get(i).getType()));
+            code.append(types.of(callInst.getArguments().get(i).getType()));
         }
         code.append(")");
         stackMax.sub(callInst.getArguments().size());
-        if (!callType.equals("invokestatic")) {
+        if (!isStatic) {
             stackMax.sub(1);
         }
-        var jasminType = this.typeJasmin(callInst.getReturnType());
-        code.append(jasminType);
+        var jasminType = types.of(callInst.getReturnType());
+        code.append(jasminType).end();
         if (!jasminType.equals("V")) {
             stackMax.add(1);
         }
         if (!savedNeedsResult && !jasminType.equals("V")) {
             stackMax.sub(1);
-            code.append("\npop");
+            code.line("pop");
         }
     }
 
-    private String generateReturn(ReturnInstruction returnInst) {
-        var code = new StringBuilder();
+    private void generateReturn(ReturnInstruction returnInst, JasminEmitter code) {
         if (returnInst.getReturnType().getTypeOfElement().equals(ElementType.VOID)) {
-            code.append("return").append(NL);
-            return code.toString();
+            code.line("return");
+            return;
         }
-        code.append(generators.apply(returnInst.getOperand()));
-        var jasminType = typeJasmin(returnInst.getReturnType());
+        generators.accept(returnInst.getOperand(), code);
         stackMax.sub(1);
-        if (jasminType.startsWith("L") || jasminType.startsWith("[")) {
-            code.append("areturn").append(NL);
-            return code.toString();
-        }
-        code.append("ireturn").append(NL);
-        return code.toString();
+        code.line(types.isReference(returnInst.getReturnType()) ? "areturn" : "ireturn");
     }
 
-    private String generateGetField(GetFieldInstruction getFieldInst) {
-        var code = new StringBuilder();
-        code.append("aload_0 ; push this\n");
+    private void generateGetField(GetFieldInstruction getFieldInst, JasminEmitter code) {
+        code.line("aload_0");
         stackMax.add(1);
-        code.append("getfield ");
-        code.append(classUnit.getClassName());
-        code.append("/");
-        code.append(getFieldInst.getField().getName());
-        code.append(" ");
-        code.append(typeJasmin(getFieldInst.getFieldType()));
-        code.append("\n");
+        code.inst("getfield").arg(classUnit.getClassName()).append("/").append(getFieldInst.getField().getName())
+                .arg(types.of(getFieldInst.getFieldType())).end();
         stackMax.sub(1);
         stackMax.add(1);
-        return code.toString();
     }
 
-    private String generatePutField(PutFieldInstruction putFieldInst) {
-        var code = new StringBuilder();
-        code.append("aload_0 ; push this").append(NL);
+    private void generatePutField(PutFieldInstruction putFieldInst, JasminEmitter code) {
+        code.line("aload_0");
         stackMax.add(1);
-        code.append(generators.apply(putFieldInst.getValue()));
-        code.append("putfield ");
+        generators.accept(putFieldInst.getValue(), code);
         stackMax.sub(2);
-        code.append(ollirResult.getOllirClass().getClassName());
-        code.append("/");
-        code.append(putFieldInst.getField().getName());
-        code.append(" ");
-        code.append(typeJasmin(putFieldInst.getValue().getType()));
-        code.append("\n");
-        return code.toString();
+        code.inst("putfield").arg(ollirResult.getOllirClass().getClassName()).append("/")
+                .append(putFieldInst.getField().getName()).arg(types.of(putFieldInst.getValue().getType())).end();
     }
 
-    private String generateOpCond(OpCondInstruction opCondInst) {
-        var code = new StringBuilder();
-        code.append(generators.apply(opCondInst.getOperands().get(0)));
-        code.append(generators.apply(opCondInst.getOperands().get(1)));
-        code.append("isub").append(NL);
+    private void generateOpCond(OpCondInstruction opCondInst, JasminEmitter code) {
+        generators.accept(opCondInst.getOperands().get(0), code);
+        generators.accept(opCondInst.getOperands().get(1), code);
+        code.line("isub");
         stackMax.sub(2);
         stackMax.add(1);
-        code.append(switch (opCondInst.getCondition().getOperation().getOpType()) {
-            case LTH -> "iflt ";
-            case LTE -> "ifle ";
-            case GTE -> "ifge ";
-            case GTH -> "ifgt ";
+        code.inst(switch (opCondInst.getCondition().getOperation().getOpType()) {
+            case LTH -> "iflt";
+            case LTE -> "ifle";
+            case GTE -> "ifge";
+            case GTH -> "ifgt";
             default -> throw new IllegalArgumentException(
                     "Unexpected value: " + opCondInst.getCondition().getOperation().getOpType());
-        });
-        code.append(opCondInst.getLabel()).append(NL);
+        }).arg(opCondInst.getLabel()).end();
         stackMax.sub(1);
-        return code.toString();
     }
 
-    private String generateSingleOpCond(SingleOpCondInstruction singleOpCondInst) {
-        var code = new StringBuilder();
-        code.append(generators.apply(singleOpCondInst.getOperands().get(0)));
-        code.append("ifne ").append(singleOpCondInst.getLabel()).append(NL);
+    private void generateSingleOpCond(SingleOpCondInstruction singleOpCondInst, JasminEmitter code) {
+        generators.accept(singleOpCondInst.getOperands().get(0), code);
+        code.inst("ifne").arg(singleOpCondInst.getLabel()).end();
         stackMax.sub(1);
-        return code.toString();
-    }
-
-    private String generateGoto(GotoInstruction gotoInst) {
-        var code = new StringBuilder();
-        code.append("goto ").append(gotoInst.getLabel()).append(NL);
-        return code.toString();
-    }
-
-    @SuppressWarnings("unused")
-    private String typeJasmin(String typeString) {
-        return typeJasmin("", typeString);
     }
 
-    private String typeJasmin(String ret, String typeString) {
-        switch (typeString) {
-            case "INT32":
-                return ret + "I";
-            case "BOOLEAN":
-                return ret + "Z";
-            case "STRING":
-                return ret + "Ljava/lang/String;";
-            case "VOID":
-                return ret + "V";
-        }
-        if (typeString.equals(classUnit.getClassName())) {
-            return ret + "L" + typeString + ";";
-        }
-        if (classUnit.isImportedClass(typeString)) {
-            for (var importedClass : classUnit.getImports()) {
-                if (importedClass.endsWith("." + typeString) || importedClass.equals(typeString)) {
-                    return ret + "L" + importedClass.replace(".", "/") + ";";
-                }
-            }
-        }
-        return "";
-    }
-
-    private String typeJasmin(Type type) {
-        var ret = "";
-        var typeString = type.toString();
-        if (type instanceof ClassType) {
-            typeString = ((ClassType) type).getName();
-        }
-        if (type.getTypeOfElement().equals(ElementType.ARRAYREF)) {
-            ret = "[";
-            typeString = typeString.substring(0, typeString.length() - 2);
-        }
-        return typeJasmin(ret, typeString);
-    }
-
-    private String handleImports(Type type) {
-        var typeString = ((ClassType) type).getName();
-        return handleImports(typeString);
-    }
-
-    private String handleImports(String typeString) {
-        if (classUnit.isImportedClass(typeString)) {
-            for (var importedClass : classUnit.getImports()) {
-                if (importedClass.endsWith("." + typeString) || importedClass.equals(typeString)) {
-                    return importedClass.replace(".", "/");
-                }
-            }
-        }
-        return typeString;
+    private void generateGoto(GotoInstruction gotoInst, JasminEmitter code) {
+        code.inst("goto").arg(gotoInst.getLabel()).end();
     }
 
 }
@@ -0,0 +1,92 @@
+package pt.up.fe.comp2024.backend;
+
+import org.specs.comp.ollir.ArrayType;
+import org.specs.comp.ollir.ClassType;
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Type;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Descriptors and internal names of the OLLIR types of a class, shared by the Jasmin and the class file generators.
+ */
+class TypeDescriptors {
+
+    private final ClassUnit classUnit;
+    // Descriptors of class types, which would otherwise be concatenated again on every use
+    private final Map<String, String> classDescriptors;
+    // Internal names of the imported classes by simple name, instead of scanning the imports on every use
+    private final Map<String, String> importedClasses;
+
+    TypeDescriptors(ClassUnit classUnit) {
+        this.classUnit = classUnit;
+        this.classDescriptors = new HashMap<>();
+        this.importedClasses = new HashMap<>();
+        for (var importedClass : classUnit.getImports()) {
+            importedClasses.putIfAbsent(importedClass.substring(importedClass.lastIndexOf('.') + 1),
+                    importedClass.replace(".", "/"));
+        }
+    }
+
+    /**
+     * @return the descriptor of the type, e.g. 'I', '[I' or 'Ljava/lang/String;'
+     */
+    String of(Type type) {
+        var ret = "";
+        String typeString;
+        if (type instanceof ClassType classType) {
+            typeString = classType.getName();
+        } else if (type instanceof ArrayType arrayType) {
+            ret = "[";
+            typeString = arrayType.getElementType().toString();
+        } else {
+            typeString = type.getTypeOfElement().name();
+        }
+        return of(ret, typeString);
+    }
+
+    private String of(String ret, String typeString) {
+        switch (typeString) {
+            case "INT32":
+                return ret.isEmpty() ? "I" : "[I";
+            case "BOOLEAN":
+                return ret.isEmpty() ? "Z" : "[Z";
+            case "STRING":
+                return ret.isEmpty() ? "Ljava/lang/String;" : "[Ljava/lang/String;";
+            case "VOID":
+                return "V";
+        }
+        return classDescriptors.computeIfAbsent(ret + typeString, key -> classDescriptor(ret, typeString));
+    }
+
+    private String classDescriptor(String ret, String typeString) {
+        if (typeString.equals(classUnit.getClassName())) {
+            return ret + "L" + typeString + ";";
+        }
+        var importedClass = importedClasses.get(typeString);
+        if (importedClass != null) {
+            return ret + "L" + importedClass + ";";
+        }
+        return "";
+    }
+
+    /**
+     * @return true if values of the type are stored with a/ instructions (objects and arrays)
+     */
+    boolean isReference(Type type) {
+        var descriptor = of(type);
+        return descriptor.startsWith("L") || descriptor.startsWith("[");
+    }
+
+    /**
+     * @return the internal name of the class, with the full path of imported classes, e.g. 'java/util/List'
+     */
+    String className(Type type) {
+        return className(((ClassType) type).getName());
+    }
+
+    String className(String typeString) {
+        return importedClasses.getOrDefault(typeString, typeString);
+    }
+}
@@ -0,0 +1,125 @@
+package pt.up.fe.comp2024.classpath;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the names and descriptors of a class file, skipping the code and every other attribute.
+ */
+class ClassFileReader {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_PRIVATE = 0x0002;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private ClassFileReader() {
+    }
+
+    /**
+     * @throws IOException if the bytes are not a class file
+     */
+    static ClassInfo read(byte[] classFile) throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(classFile));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        // minor and major version
+        in.readInt();
+
+        // Only the UTF-8 constants and the classes, which point to them, are needed
+        int count = in.readUnsignedShort();
+        var utf8 = new String[count];
+        var classes = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case CONSTANT_UTF8 -> utf8[i] = in.readUTF();
+                case CONSTANT_CLASS -> classes[i] = in.readUnsignedShort();
+                case CONSTANT_STRING, CONSTANT_METHOD_TYPE, CONSTANT_MODULE, CONSTANT_PACKAGE ->
+                        in.readUnsignedShort();
+                case CONSTANT_METHOD_HANDLE -> {
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                }
+                case CONSTANT_INTEGER, CONSTANT_FLOAT, CONSTANT_FIELDREF, CONSTANT_METHODREF,
+                        CONSTANT_INTERFACE_METHODREF, CONSTANT_NAME_AND_TYPE, CONSTANT_DYNAMIC,
+                        CONSTANT_INVOKE_DYNAMIC -> in.readInt();
+                case CONSTANT_LONG, CONSTANT_DOUBLE -> {
+                    in.readLong();
+                    // Takes two entries
+                    i++;
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        // access flags
+        in.readUnsignedShort();
+        var name = utf8[classes[in.readUnsignedShort()]];
+        int superIndex = in.readUnsignedShort();
+        var superName = superIndex == 0 ? null : utf8[classes[superIndex]];
+
+        int interfaces = in.readUnsignedShort();
+        for (int i = 0; i < interfaces; i++) {
+            in.readUnsignedShort();
+        }
+
+        var fields = readMembers(in, utf8);
+        var methods = readMembers(in, utf8);
+        methods.removeIf(method -> method.name().startsWith("<"));
+
+        return new ClassInfo(toBinaryName(name), superName == null || superName.equals("java/lang/Object") ? null
+                : toBinaryName(superName), methods, fields);
+    }
+
+    private static List<MemberInfo> readMembers(DataInputStream in, String[] utf8) throws IOException {
+        int count = in.readUnsignedShort();
+        List<MemberInfo> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int access = in.readUnsignedShort();
+            var name = utf8[in.readUnsignedShort()];
+            var descriptor = utf8[in.readUnsignedShort()];
+            skipAttributes(in);
+
+            if ((access & ACC_PRIVATE) == 0) {
+                members.add(new MemberInfo(name, descriptor, (access & ACC_STATIC) != 0));
+            }
+        }
+        return members;
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            // name
+            in.readUnsignedShort();
+            in.skipNBytes(in.readInt() & 0xFFFFFFFFL);
+        }
+    }
+
+    private static String toBinaryName(String internalName) {
+        return internalName.replace('/', '.');
+    }
+}
@@ -0,0 +1,14 @@
+package pt.up.fe.comp2024.classpath;
+
+import java.util.List;
+
+/**
+ * The signatures of a class of the classpath.
+ *
+ * @param name      the binary name, e.g. 'foo.bar.A'
+ * @param superName the binary name of the super class, null for java.lang.Object
+ * @param methods   the methods that are not private, without constructors
+ * @param fields    the fields that are not private
+ */
+public record ClassInfo(String name, String superName, List<MemberInfo> methods, List<MemberInfo> fields) {
+}
@@ -0,0 +1,337 @@
+package pt.up.fe.comp2024.classpath;
+
+import pt.up.fe.comp2024.CompilerConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * The method and field descriptors of the classes of a classpath (folders and jars), so that calls to imported
+ * classes can be typed without loading them.
+ * <p>
+ * The index is stored in a compact binary file in the compilation cache folder, when there is one, and later runs map
+ * that file instead of reading the class files again. The file starts with a table of every name and descriptor and
+ * a table of classes with the offset of their members, which are only decoded the first time the class is looked up.
+ * It keeps a hash of the paths, sizes and modification times of the class files, and is built again when they change.
+ * <p>
+ * Indexes are shared by classpath, so each classpath is only read once per process, unless its class files change,
+ * e.g. between the compilations of a daemon. Every lookup walks the classpath to compare the hash, which only reads
+ * the file attributes, so a compilation looks its classpath up once and keeps it in its {@link
+ * pt.up.fe.comp2024.CompilerContext}.
+ */
+public class ClasspathIndex {
+
+    private static final int MAGIC = 0x4A4D4D49;
+    private static final int VERSION = 1;
+    private static final String CLASS_EXTENSION = ".class";
+
+    private static final Map<List<File>, ClasspathIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final String fingerprint;
+    private final ByteBuffer data;
+    private final String[] strings;
+    private final Map<String, Integer> offsets;
+    private final Map<String, ClassInfo> classes = new ConcurrentHashMap<>();
+
+    /**
+     * @param data an index, as written by {@link #encode}
+     */
+    private ClasspathIndex(ByteBuffer data) {
+        var in = data.duplicate();
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IllegalArgumentException("Not a classpath index");
+        }
+
+        strings = new String[in.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            var bytes = new byte[Short.toUnsignedInt(in.getShort())];
+            in.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        fingerprint = strings[in.getInt()];
+
+        int classCount = in.getInt();
+        offsets = new HashMap<>(classCount * 2);
+        for (int i = 0; i < classCount; i++) {
+            offsets.put(strings[in.getInt()], in.getInt());
+        }
+
+        this.data = in.slice();
+    }
+
+    /**
+     * @return the index of the classpath given with '-k', which holds libs-jmm/compiled by default, or empty if none
+     * of its folders and jars exist
+     */
+    public static Optional<ClasspathIndex> fromConfig(Map<String, String> config) {
+        var classpath = CompilerConfig.getClasspath(config).stream()
+                .filter(File::exists)
+                .map(File::getAbsoluteFile)
+                .toList();
+        if (classpath.isEmpty()) {
+            return Optional.empty();
+        }
+
+        var indexFile = CompilerConfig.getCacheDir(config)
+                .map(folder -> new File(folder, "classpath-" + Integer.toHexString(classpath.hashCode()) + ".idx"))
+                .map(File::toPath)
+                .orElse(null);
+        return Optional.of(forClasspath(classpath, indexFile));
+    }
+
+    /**
+     * @param indexFile where the index is stored, null to keep it in memory only
+     * @return the index shared by every compilation with the given classpath, built again if its class files changed
+     */
+    public static ClasspathIndex forClasspath(List<File> classpath, Path indexFile) {
+        var fingerprint = fingerprint(classpath);
+        var index = INDEXES.get(classpath);
+        if (index != null && index.fingerprint.equals(fingerprint)) {
+            return index;
+        }
+
+        // Built without holding the map, so lookups of other classpaths do not wait for the file system. Threads that
+        // miss at the same time each build one, and the last one stays.
+        var newIndex = open(classpath, indexFile, fingerprint);
+        INDEXES.put(classpath, newIndex);
+        return newIndex;
+    }
+
+    private static ClasspathIndex open(List<File> classpath, Path indexFile, String fingerprint) {
+        if (indexFile != null && Files.isRegularFile(indexFile)) {
+            // The mapping stays valid after the channel is closed
+            try (var channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+                var index = new ClasspathIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                if (index.fingerprint.equals(fingerprint)) {
+                    return index;
+                }
+            } catch (IOException | IllegalArgumentException | BufferUnderflowException
+                     | IndexOutOfBoundsException e) {
+                // Unreadable or written by another version, built again below
+            }
+        }
+
+        var data = encode(fingerprint, readClasses(classpath));
+        if (indexFile != null) {
+            write(indexFile, data);
+        }
+        return new ClasspathIndex(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * @return the hash of the class files of the classpath the index was built from
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public int size() {
+        return offsets.size();
+    }
+
+    /**
+     * @param name the binary name of the class, e.g. 'foo.bar.A'
+     */
+    public Optional<ClassInfo> getClassInfo(String name) {
+        var offset = offsets.get(name);
+        if (offset == null) {
+            return Optional.empty();
+        }
+        return Optional.of(classes.computeIfAbsent(name, key -> decode(key, offset)));
+    }
+
+    /**
+     * @return the methods of the class and of its super classes with the given name and number of parameters, one
+     * per descriptor, with overriding methods before the ones they override
+     */
+    public List<MemberInfo> findMethods(String className, String methodName, int parameters) {
+        Map<String, MemberInfo> methods = new LinkedHashMap<>();
+        var current = getClassInfo(className);
+        while (current.isPresent()) {
+            for (var method : current.get().methods()) {
+                if (method.name().equals(methodName)
+                        && Descriptors.parameters(method.descriptor()).size() == parameters) {
+                    methods.putIfAbsent(method.descriptor(), method);
+                }
+            }
+            var superName = current.get().superName();
+            current = superName == null ? Optional.empty() : getClassInfo(superName);
+        }
+        return new ArrayList<>(methods.values());
+    }
+
+    private ClassInfo decode(String name, int offset) {
+        var in = data.duplicate().position(offset);
+        int superName = in.getInt();
+        var methods = decodeMembers(in);
+        var fields = decodeMembers(in);
+        return new ClassInfo(name, superName < 0 ? null : strings[superName], methods, fields);
+    }
+
+    private List<MemberInfo> decodeMembers(ByteBuffer in) {
+        int count = Short.toUnsignedInt(in.getShort());
+        List<MemberInfo> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            members.add(new MemberInfo(strings[in.getInt()], strings[in.getInt()], in.get() != 0));
+        }
+        return members;
+    }
+
+    private static byte[] encode(String fingerprint, Collection<ClassInfo> classes) {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        var body = new ByteArrayOutputStream();
+        var bodyOut = new DataOutputStream(body);
+        Map<ClassInfo, Integer> offsets = new LinkedHashMap<>();
+
+        try {
+            for (var classInfo : classes) {
+                offsets.put(classInfo, bodyOut.size());
+                bodyOut.writeInt(classInfo.superName() == null ? -1 : intern(strings, classInfo.superName()));
+                encodeMembers(bodyOut, strings, classInfo.methods());
+                encodeMembers(bodyOut, strings, classInfo.fields());
+            }
+            offsets.keySet().forEach(classInfo -> intern(strings, classInfo.name()));
+            int fingerprintIndex = intern(strings, fingerprint);
+
+            var bytes = new ByteArrayOutputStream(body.size() + strings.size() * 16);
+            var out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(strings.size());
+            for (var string : strings.keySet()) {
+                var utf8 = string.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(utf8.length);
+                out.write(utf8);
+            }
+            out.writeInt(fingerprintIndex);
+            out.writeInt(offsets.size());
+            for (var entry : offsets.entrySet()) {
+                out.writeInt(strings.get(entry.getKey().name()));
+                out.writeInt(entry.getValue());
+            }
+            body.writeTo(out);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void encodeMembers(DataOutputStream out, Map<String, Integer> strings, List<MemberInfo> members)
+            throws IOException {
+        out.writeShort(members.size());
+        for (var member : members) {
+            out.writeInt(intern(strings, member.name()));
+            out.writeInt(intern(strings, member.descriptor()));
+            out.writeByte(member.isStatic() ? 1 : 0);
+        }
+    }
+
+    private static int intern(Map<String, Integer> strings, String string) {
+        return strings.computeIfAbsent(string, key -> strings.size());
+    }
+
+    private static void write(Path indexFile, byte[] data) {
+        try {
+            Files.createDirectories(indexFile.getParent());
+            var tempFile = Files.createTempFile(indexFile.getParent(), indexFile.getFileName().toString(), ".tmp");
+            Files.write(tempFile, data);
+            try {
+                Files.move(tempFile, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // Only later runs lose, this one has the index in memory
+        }
+    }
+
+    /**
+     * Reads every class of the classpath, the first one of each name winning like in a class loader. Files that are
+     * not valid class files are skipped.
+     */
+    private static Collection<ClassInfo> readClasses(List<File> classpath) {
+        Map<String, ClassInfo> classes = new LinkedHashMap<>();
+        try {
+            for (var entry : classpath) {
+                if (entry.isDirectory()) {
+                    for (var classFile : classFiles(entry.toPath())) {
+                        addClass(classes, Files.readAllBytes(classFile));
+                    }
+                } else if (entry.isFile()) {
+                    try (var jar = new JarFile(entry)) {
+                        for (var jarEntry : jar.stream().filter(e -> e.getName().endsWith(CLASS_EXTENSION)).toList()) {
+                            addClass(classes, jar.getInputStream(jarEntry).readAllBytes());
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read classpath " + classpath, e);
+        }
+        return classes.values();
+    }
+
+    private static void addClass(Map<String, ClassInfo> classes, byte[] classFile) {
+        try {
+            var classInfo = ClassFileReader.read(classFile);
+            classes.putIfAbsent(classInfo.name(), classInfo);
+        } catch (IOException | RuntimeException e) {
+            // Not a class file
+        }
+    }
+
+    private static List<Path> classFiles(Path folder) throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            return files.filter(file -> file.toString().endsWith(CLASS_EXTENSION) && Files.isRegularFile(file))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String fingerprint(List<File> classpath) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+
+        try {
+            for (var entry : classpath) {
+                var files = entry.isDirectory() ? classFiles(entry.toPath()) : List.of(entry.toPath());
+                for (var file : files) {
+                    var line = file + ":" + Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis() + "\n";
+                    digest.update(line.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read classpath " + classpath, e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,58 @@
+package pt.up.fe.comp2024.classpath;
+
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts JVM descriptors to the types of Java--.
+ */
+public class Descriptors {
+
+    private Descriptors() {
+    }
+
+    /**
+     * @return the type of the field descriptor, with the simple name of classes, or null if Java-- has no such type
+     * (e.g. long, char or arrays of arrays)
+     */
+    public static Type toType(String descriptor) {
+        boolean isArray = descriptor.startsWith("[");
+        var element = isArray ? descriptor.substring(1) : descriptor;
+
+        var name = switch (element) {
+            case "I" -> "int";
+            case "Z" -> "boolean";
+            case "V" -> isArray ? null : "void";
+            default -> element.startsWith("L") && element.endsWith(";") ? simpleName(element) : null;
+        };
+        return name == null ? null : new Type(name, isArray);
+    }
+
+    public static Type returnType(String methodDescriptor) {
+        return toType(methodDescriptor.substring(methodDescriptor.indexOf(')') + 1));
+    }
+
+    /**
+     * @return the descriptor of each parameter of the method
+     */
+    public static List<String> parameters(String methodDescriptor) {
+        List<String> parameters = new ArrayList<>();
+        int i = 1;
+        while (methodDescriptor.charAt(i) != ')') {
+            int start = i;
+            while (methodDescriptor.charAt(i) == '[') {
+                i++;
+            }
+            i = methodDescriptor.charAt(i) == 'L' ? methodDescriptor.indexOf(';', i) + 1 : i + 1;
+            parameters.add(methodDescriptor.substring(start, i));
+        }
+        return parameters;
+    }
+
+    private static String simpleName(String classDescriptor) {
+        var internalName = classDescriptor.substring(1, classDescriptor.length() - 1);
+        return internalName.substring(internalName.lastIndexOf('/') + 1);
+    }
+}
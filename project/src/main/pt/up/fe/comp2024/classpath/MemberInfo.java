@@ -0,0 +1,9 @@
+package pt.up.fe.comp2024.classpath;
+
+/**
+ * A method or field of a class of the classpath.
+ *
+ * @param descriptor the JVM descriptor, e.g. '(I[I)Z' or '[I'
+ */
+public record MemberInfo(String name, String descriptor, boolean isStatic) {
+}
@@ -0,0 +1,160 @@
+package pt.up.fe.comp2024.driver;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.backend.ClassFileResult;
+import pt.up.fe.comp2024.metrics.MetricsReport;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compiles many Java-- files in a single JVM, using a fixed number of worker threads.
+ * <p>
+ * The input is either a directory, which is searched recursively for .jmm files, or a text file with one path per
+ * line (relative paths are resolved against the folder of the list).
+ */
+public class BatchCompiler {
+
+    private final Map<String, String> config;
+    private final CompilationPipeline pipeline;
+    private final PrintStream out;
+
+    public BatchCompiler(Map<String, String> config, PrintStream out) {
+        this.config = config;
+        this.pipeline = new CompilationPipeline(CompilationCache.fromConfig(config).orElse(null));
+        this.out = out;
+    }
+
+    /**
+     * Compiles every input file and prints one line per file, followed by a summary.
+     *
+     * @return the number of files that failed to compile
+     */
+    public int run() {
+        var batchInput = CompilerConfig.getBatchInput(config).orElseThrow();
+        var files = collectInputs(batchInput);
+        int threads = Math.min(CompilerConfig.getThreads(config), Math.max(files.size(), 1));
+
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            var thread = new Thread(runnable, "jmm-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Future<CompilationOutcome>> futures = new ArrayList<>();
+        for (var file : files) {
+            futures.add(workers.submit(() -> compile(file)));
+        }
+
+        var metrics = new MetricsReport();
+        int failed = 0;
+        long busyNanos = 0;
+        try {
+            // Results are printed in input order, while the remaining files keep compiling
+            for (int i = 0; i < files.size(); i++) {
+                var outcome = getOutcome(futures.get(i));
+                busyNanos += outcome.getElapsedNanos();
+                if (!outcome.isSuccess()) {
+                    failed++;
+                }
+                printOutcome(files.get(i), outcome);
+                metrics.add(files.get(i), outcome.isSuccess(), outcome.isCached(), outcome.getElapsedNanos(),
+                        outcome.getMetrics().getStages());
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        double elapsedSeconds = elapsedNanos / 1e9;
+        out.println("----------------------------------------");
+        out.printf("Compiled %d files (%d ok, %d failed) with %d threads in %.3f s%n",
+                files.size(), files.size() - failed, failed, threads, elapsedSeconds);
+        out.printf("Throughput: %.1f files/s, average %.1f ms per file%n",
+                files.size() / Math.max(elapsedSeconds, 1e-9),
+                files.isEmpty() ? 0.0 : busyNanos / 1e6 / files.size());
+        pipeline.getCache().ifPresent(cache -> out.printf("Cache: %d hits, %d misses%n",
+                cache.getHits(), cache.getMisses()));
+
+        CompilerConfig.getMetricsFile(config).ifPresent(metricsFile -> {
+            metrics.setTotals(threads, elapsedNanos);
+            metrics.write(metricsFile);
+            out.println("Metrics written to " + metricsFile);
+        });
+
+        return failed;
+    }
+
+    private CompilationOutcome compile(File file) {
+        var fileConfig = CompilerConfig.withInputFile(config, file);
+        var outcome = pipeline.compile(file.toPath(), fileConfig);
+
+        CompilerConfig.getOutputDir(config).ifPresent(outputDir -> outcome.getJasminResult().ifPresent(result -> {
+            // The class file backend has no Jasmin code, only the class file itself
+            if (result instanceof ClassFileResult) {
+                result.compile(outputDir);
+            } else {
+                SpecsIo.write(new File(outputDir, result.getClassName() + ".j"), result.getJasminCode());
+            }
+        }));
+
+        return outcome;
+    }
+
+    private CompilationOutcome getOutcome(Future<CompilationOutcome> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for batch compilation", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Unexpected failure in batch compilation", e.getCause());
+        }
+    }
+
+    private void printOutcome(File file, CompilationOutcome outcome) {
+        var errors = outcome.getReports().stream()
+                .filter(report -> report.getType() == ReportType.ERROR)
+                .toList();
+
+        out.printf("[%s] %s (%.1f ms%s)%n", outcome.isSuccess() ? "OK" : "FAIL", file.getPath(),
+                outcome.getElapsedNanos() / 1e6, outcome.isCached() ? ", cached" : "");
+        for (Report error : errors) {
+            out.println("    " + error);
+        }
+    }
+
+    static List<File> collectInputs(File batchInput) {
+        List<File> files = new ArrayList<>();
+
+        if (batchInput.isDirectory()) {
+            files.addAll(SpecsIo.getFilesRecursive(batchInput, "jmm"));
+            files.sort(Comparator.comparing(File::getPath));
+            return files;
+        }
+
+        var baseFolder = batchInput.getAbsoluteFile().getParentFile();
+        for (var line : SpecsIo.read(batchInput).lines().map(String::strip).toList()) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            var file = new File(line);
+            files.add(file.isAbsolute() ? file : new File(baseFolder, line));
+        }
+
+        return files;
+    }
+}
@@ -0,0 +1,273 @@
+package pt.up.fe.comp2024.driver;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.backend.ClassFileResult;
+import pt.up.fe.comp2024.backend.InProcessJasminResult;
+import pt.up.fe.specs.util.SpecsLogs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of successful compilations, addressed by the contents of the input.
+ * <p>
+ * The key is a SHA-256 of the compiler version, the options that change the generated code (optimize, register
+ * allocation and backend), the class files of the classpath, whose signatures type the calls to imported classes, and
+ * the source text. Entries are written to a temporary file and then moved into place, so
+ * a reader never sees a partial entry, even with several compilers sharing the same folder. When the folder grows
+ * above the size limit, the least recently used entries are removed (a hit updates the modification time of the
+ * entry). The size of the folder is only listed when the cache is created and when it goes above the limit, in
+ * between it is kept up to date with the entries this cache writes.
+ * <p>
+ * The cache never fails a compilation: an entry that cannot be written, e.g. on a full disk, is only logged.
+ */
+public class CompilationCache {
+
+    private static final String ENTRY_EXTENSION = ".entry";
+    private static final Gson GSON = new Gson();
+
+    private static String compilerVersion;
+
+    private static class Entry {
+        private String className;
+        private String jasminCode;
+        /**
+         * Base64 of the class file, instead of the Jasmin code, for the class file backend
+         */
+        private String classFile;
+        private List<DaemonProtocol.ReportMessage> reports;
+    }
+
+    private final File folder;
+    private final long maxBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long folderBytes;
+
+    public CompilationCache(File folder, long maxBytes) {
+        this.folder = folder;
+        this.maxBytes = maxBytes;
+
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            throw new RuntimeException("Could not create cache folder '" + folder + "'");
+        }
+
+        this.folderBytes = listEntries().stream().mapToLong(File::length).sum();
+    }
+
+    /**
+     * @return the cache given with '-c', if any
+     */
+    public static Optional<CompilationCache> fromConfig(Map<String, String> config) {
+        return CompilerConfig.getCacheDir(config)
+                .map(folder -> new CompilationCache(folder, CompilerConfig.getCacheSize(config)));
+    }
+
+    public String getKey(String code, Map<String, String> config, CompilerContext context) {
+        return getKey(StandardCharsets.UTF_8.encode(code), config, context);
+    }
+
+    /**
+     * @param source  the UTF-8 bytes of the source, e.g. a mapped file; gives the same key as its text
+     * @param context the context of the compilation, whose classpath is part of the key
+     */
+    public String getKey(ByteBuffer source, Map<String, String> config, CompilerContext context) {
+        context.useClasspath(config);
+
+        var digest = newDigest();
+        update(digest, getCompilerVersion());
+        update(digest, String.valueOf(CompilerConfig.getOptimize(config)));
+        update(digest, String.valueOf(CompilerConfig.getRegisterAllocation(config)));
+        update(digest, CompilerConfig.getBackend(config).name());
+        update(digest, context.getClasspathFingerprint());
+        digest.update(source.duplicate());
+        digest.update((byte) 0);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * @return the stored result for the given key, or empty on a miss
+     */
+    public Optional<JasminResult> get(String key, Map<String, String> config) {
+        var entryFile = getEntryFile(key);
+
+        try {
+            var entry = GSON.fromJson(Files.readString(entryFile, StandardCharsets.UTF_8), Entry.class);
+            if (entry == null || entry.className == null || (entry.jasminCode == null && entry.classFile == null)) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+
+            // Touch the entry so that eviction removes the least recently used ones first
+            Files.setLastModifiedTime(entryFile, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.incrementAndGet();
+
+            List<Report> reports = new ArrayList<>(entry.reports.stream()
+                    .map(DaemonProtocol.ReportMessage::toReport)
+                    .toList());
+            if (entry.classFile != null) {
+                var classFile = Base64.getDecoder().decode(entry.classFile);
+                return Optional.of(new ClassFileResult(entry.className, classFile, reports, config));
+            }
+            return Optional.of(new InProcessJasminResult(entry.className, entry.jasminCode, reports, config));
+        } catch (IOException | JsonParseException e) {
+            // Missing, or removed by another process while reading
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+    }
+
+    public void put(String key, JasminResult result) {
+        var entry = new Entry();
+        entry.className = result.getClassName();
+        entry.jasminCode = result.getJasminCode();
+        if (result instanceof ClassFileResult classFileResult) {
+            entry.classFile = Base64.getEncoder().encodeToString(classFileResult.getClassFile());
+        }
+        entry.reports = result.getReports().stream().map(DaemonProtocol.ReportMessage::fromReport).toList();
+
+        var entryFile = getEntryFile(key);
+        Path tempFile = null;
+        long written;
+        try {
+            tempFile = Files.createTempFile(folder.toPath(), key, ".tmp");
+            Files.writeString(tempFile, GSON.toJson(entry), StandardCharsets.UTF_8);
+            written = Files.size(tempFile) - entryFile.toFile().length();
+            try {
+                Files.move(tempFile, entryFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, entryFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            SpecsLogs.warn("Could not write cache entry " + key + ": " + e.getMessage());
+            if (tempFile != null) {
+                tempFile.toFile().delete();
+            }
+            return;
+        }
+
+        added(written);
+    }
+
+    /**
+     * Counts the bytes of a new entry, and removes the least recently used entries if the folder no longer fits in the
+     * size limit.
+     */
+    private synchronized void added(long bytes) {
+        folderBytes += bytes;
+        if (folderBytes <= maxBytes) {
+            return;
+        }
+
+        // Other compilers may share the folder, so its size is listed again before removing anything
+        var entries = listEntries();
+        long total = entries.stream().mapToLong(File::length).sum();
+        for (var entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+
+            long size = entry.length();
+            if (entry.delete()) {
+                total -= size;
+            }
+        }
+        folderBytes = total;
+    }
+
+    /**
+     * @return the entries in the folder, the least recently used first
+     */
+    private List<File> listEntries() {
+        try (Stream<Path> files = Files.list(folder.toPath())) {
+            return files.map(Path::toFile)
+                    .filter(file -> file.getName().endsWith(ENTRY_EXTENSION))
+                    .sorted(Comparator.comparingLong(File::lastModified))
+                    .toList();
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private Path getEntryFile(String key) {
+        return new File(folder, key + ENTRY_EXTENSION).toPath();
+    }
+
+    /**
+     * The compiler version is a hash of the jar (or class folder) the compiler was loaded from, so that rebuilding
+     * the compiler invalidates the cache.
+     */
+    private static synchronized String getCompilerVersion() {
+        if (compilerVersion != null) {
+            return compilerVersion;
+        }
+
+        var digest = newDigest();
+        try {
+            var location = Path.of(CompilationCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(location)) {
+                files = walk.filter(Files::isRegularFile).sorted().toList();
+            }
+
+            for (var file : files) {
+                update(digest, location.relativize(file).toString());
+                try (InputStream input = Files.newInputStream(file)) {
+                    digest.update(input.readAllBytes());
+                }
+            }
+        } catch (IOException | URISyntaxException | SecurityException e) {
+            throw new RuntimeException("Could not compute the compiler version", e);
+        }
+
+        compilerVersion = HexFormat.of().formatHex(digest.digest());
+        return compilerVersion;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        // Separator, so that different splits of the same text do not collide
+        digest.update((byte) 0);
+    }
+}
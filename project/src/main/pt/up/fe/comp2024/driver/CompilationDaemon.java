@@ -0,0 +1,195 @@
+package pt.up.fe.comp2024.driver;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.analysis.SemanticCache;
+import pt.up.fe.comp2024.backend.JasminAssembler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the compiler resident in a JVM and serves compile requests from {@link DaemonClient}s.
+ * <p>
+ * Listens on a loopback port only. Since the libraries are already loaded, the JIT has already compiled the hot paths
+ * and the ANTLR DFA caches (which are static in the generated lexer and parser) are already filled, a request takes
+ * much less time than starting a new JVM.
+ */
+public class CompilationDaemon {
+
+    // Parses without errors and goes through every stage, used to warm up the JVM before the first request
+    private static final String WARM_UP_CODE = """
+            import io;
+            class WarmUp {
+                int field;
+                public int sum(int[] values) {
+                    int i;
+                    int total;
+                    i = 0;
+                    total = 0;
+                    while (i < values.length) {
+                        total = total + values[i] * 2 - 1;
+                        i = i + 1;
+                    }
+                    if (!(total < 0) && true) {
+                        field = total;
+                    } else {
+                        field = 0;
+                    }
+                    return field;
+                }
+                public static void main(String[] args) {
+                    WarmUp warmUp;
+                    int[] values;
+                    warmUp = new WarmUp();
+                    values = new int[3];
+                    io.println(warmUp.sum(values));
+                }
+            }
+            """;
+
+    private static final int WARM_UP_ROUNDS = 20;
+
+    private final Map<String, String> config;
+    private final CompilationPipeline pipeline;
+    private final PrintStream log;
+
+    public CompilationDaemon(Map<String, String> config, PrintStream log) {
+        this.config = config;
+        // Clients usually send the file they are editing again, so most of its methods are already analysed
+        this.pipeline = new CompilationPipeline(CompilationCache.fromConfig(config).orElse(null), new SemanticCache());
+        this.log = log;
+    }
+
+    /**
+     * Serves requests until the process is stopped.
+     */
+    public void run() {
+        warmUp();
+
+        try (var server = new ServerSocket(CompilerConfig.getPort(config), 50, InetAddress.getLoopbackAddress())) {
+            listen(server);
+        } catch (IOException e) {
+            throw new RuntimeException("Compilation daemon stopped: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Serves the requests accepted by the given server socket until it is closed.
+     */
+    void listen(ServerSocket server) throws IOException {
+        int threads = CompilerConfig.getThreads(config);
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            var thread = new Thread(runnable, "jmm-daemon");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        log.printf("Compilation daemon listening on %s:%d with %d threads%n",
+                server.getInetAddress().getHostAddress(), server.getLocalPort(), threads);
+
+        try {
+            while (true) {
+                var socket = server.accept();
+                workers.submit(() -> serve(socket));
+            }
+        } catch (IOException e) {
+            if (!server.isClosed()) {
+                throw e;
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void warmUp() {
+        // Does not go through the cache, otherwise only the first round would run the stages
+        var uncached = new CompilationPipeline();
+        long start = System.nanoTime();
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            var outcome = uncached.compile(WARM_UP_CODE, CompilerConfig.getDefault());
+            if (!outcome.isSuccess()) {
+                log.println("Warm-up compilation failed: " + outcome.getReports());
+                return;
+            }
+        }
+        log.printf("Warmed up in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             var writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+
+            DaemonProtocol.Request request;
+            while ((request = DaemonProtocol.read(reader, DaemonProtocol.Request.class)) != null) {
+                DaemonProtocol.write(writer, compile(request));
+            }
+        } catch (Exception e) {
+            log.println("Error while serving client: " + e.getMessage());
+        }
+    }
+
+    DaemonProtocol.Response compile(DaemonProtocol.Request request) {
+        // Relative paths would be resolved against the working directory of the daemon, not the one of the client
+        try {
+            CompilerConfig.checkAbsolutePaths(request.config);
+        } catch (RuntimeException e) {
+            var response = new DaemonProtocol.Response();
+            response.reports = List.of(DaemonProtocol.ReportMessage.fromReport(
+                    new Report(ReportType.ERROR, Stage.OTHER, -1, -1, e.getMessage())));
+            response.stages = List.of();
+            return response;
+        }
+
+        var outcome = pipeline.compile(request.code, request.config);
+
+        var response = new DaemonProtocol.Response();
+        response.success = outcome.isSuccess();
+        response.reports = new ArrayList<>(outcome.getReports().stream()
+                .map(DaemonProtocol.ReportMessage::fromReport)
+                .toList());
+
+        outcome.getJasminResult().ifPresent(result -> {
+            response.className = result.getClassName();
+            response.jasminCode = result.getJasminCode();
+            if (CompilerConfig.getOutputDir(request.config).isEmpty()) {
+                return;
+            }
+
+            try {
+                response.classFile = Base64.getEncoder().encodeToString(JasminAssembler.toClassFile(result));
+            } catch (RuntimeException e) {
+                response.success = false;
+                response.reports.add(DaemonProtocol.ReportMessage.fromReport(
+                        Report.newError(Stage.OTHER, -1, -1, "Could not assemble the class file", e)));
+            }
+        });
+
+        response.elapsedMillis = outcome.getElapsedNanos() / 1e6;
+        response.cached = outcome.isCached();
+        response.stages = outcome.getMetrics().getStages();
+        pipeline.getCache().ifPresent(cache -> {
+            response.cacheHits = cache.getHits();
+            response.cacheMisses = cache.getMisses();
+            log.printf("%s in %.1f ms (%s, cache: %d hits, %d misses)%n", response.className, response.elapsedMillis,
+                    response.cached ? "hit" : "miss", response.cacheHits, response.cacheMisses);
+        });
+        return response;
+    }
+}
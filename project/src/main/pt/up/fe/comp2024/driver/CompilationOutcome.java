@@ -0,0 +1,68 @@
+package pt.up.fe.comp2024.driver;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.metrics.CompilationMetrics;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Result of running the whole pipeline over a single source.
+ */
+public class CompilationOutcome {
+
+    private final List<Report> reports;
+    private final JasminResult jasminResult;
+    private final long elapsedNanos;
+    private final CompilationMetrics metrics;
+    private final boolean cached;
+
+    public CompilationOutcome(List<Report> reports, JasminResult jasminResult, long elapsedNanos,
+            CompilationMetrics metrics) {
+        this(reports, jasminResult, elapsedNanos, metrics, false);
+    }
+
+    public CompilationOutcome(List<Report> reports, JasminResult jasminResult, long elapsedNanos,
+            CompilationMetrics metrics, boolean cached) {
+        this.reports = reports;
+        this.jasminResult = jasminResult;
+        this.elapsedNanos = elapsedNanos;
+        this.metrics = metrics;
+        this.cached = cached;
+    }
+
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    /**
+     * @return the generated code, or empty if some stage reported an error
+     */
+    public Optional<JasminResult> getJasminResult() {
+        return Optional.ofNullable(jasminResult);
+    }
+
+    public boolean isSuccess() {
+        return jasminResult != null && !ReportUtils.anyError(reports);
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the metrics of the stages that ran for this compilation
+     */
+    public CompilationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return true if the result came from the compilation cache
+     */
+    public boolean isCached() {
+        return cached;
+    }
+}
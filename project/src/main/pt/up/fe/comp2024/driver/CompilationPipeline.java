@@ -0,0 +1,140 @@
+package pt.up.fe.comp2024.driver;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.misc.Interval;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.analysis.SemanticCache;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.parser.MappedCharStream;
+import pt.up.fe.comp2024.utils.ReportUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Runs parse -> semantic analysis -> optimization -> code generation over a single source.
+ * <p>
+ * Unlike the Launcher, it does not print intermediate results nor throw on errors, the reports of every stage are
+ * collected in the returned outcome instead. A pipeline can be shared by several threads.
+ * <p>
+ * With a cache, successful compilations are stored and an input that was already compiled with the same options
+ * skips every stage. With a semantic cache, the methods of an input that changed since it was last compiled are the
+ * only ones analysed again.
+ */
+public class CompilationPipeline {
+
+    private final CompilationCache cache;
+    private final SemanticCache semanticCache;
+
+    public CompilationPipeline() {
+        this(null);
+    }
+
+    public CompilationPipeline(CompilationCache cache) {
+        this(cache, null);
+    }
+
+    public CompilationPipeline(CompilationCache cache, SemanticCache semanticCache) {
+        this.cache = cache;
+        this.semanticCache = semanticCache;
+    }
+
+    public Optional<CompilationCache> getCache() {
+        return Optional.ofNullable(cache);
+    }
+
+    public CompilationOutcome compile(String code, Map<String, String> config) {
+        return compile(new ANTLRInputStream(code), context -> cache.getKey(code, config, context), config);
+    }
+
+    /**
+     * Compiles a source file without reading it into a String, see {@link MappedCharStream}.
+     */
+    public CompilationOutcome compile(Path file, Map<String, String> config) {
+        MappedCharStream source;
+        try {
+            source = MappedCharStream.open(file);
+        } catch (RuntimeException e) {
+            var report = Report.newError(Stage.OTHER, -1, -1, e.getMessage(), e);
+            return new CompilationOutcome(List.of(report), null, 0, new CompilerContext().getMetrics());
+        }
+
+        return compile(source, context -> cache.getKey(source.getBytes(), config, context), config);
+    }
+
+    private CompilationOutcome compile(CharStream source, Function<CompilerContext, String> cacheKey,
+            Map<String, String> config) {
+        // Temporaries, labels, analysis state and metrics are private to this compilation
+        var context = new CompilerContext();
+        if (cache == null) {
+            return compileStages(source, config, context);
+        }
+
+        long start = System.nanoTime();
+        String key;
+        Optional<JasminResult> cached;
+        try (var timer = context.getMetrics().start("cache")) {
+            key = cacheKey.apply(context);
+            cached = cache.get(key, config);
+        }
+        if (cached.isPresent()) {
+            return new CompilationOutcome(cached.get().getReports(), cached.get(), System.nanoTime() - start,
+                    context.getMetrics(), true);
+        }
+
+        var outcome = compileStages(source, config, context);
+        if (outcome.isSuccess()) {
+            cache.put(key, outcome.getJasminResult().orElseThrow());
+        }
+
+        return outcome;
+    }
+
+    private CompilationOutcome compileStages(CharStream source, Map<String, String> config, CompilerContext context) {
+        long start = System.nanoTime();
+        List<Report> reports = new ArrayList<>();
+
+        try {
+            var parser = new JmmParserImpl(context);
+            var parserResult = parser.parse(source, parser.getDefaultRule(), config);
+            reports.addAll(parserResult.getReports());
+            if (parserResult.getRootNode() == null || ReportUtils.anyError(reports)) {
+                return new CompilationOutcome(reports, null, System.nanoTime() - start, context.getMetrics());
+            }
+
+            // Each stage result already carries the reports of the previous stages
+            var code = semanticCache == null ? null : source.getText(Interval.of(0, source.size() - 1));
+            var semanticsResult = new JmmAnalysisImpl(context, semanticCache, code).semanticAnalysis(parserResult);
+            reports = new ArrayList<>(semanticsResult.getReports());
+            if (ReportUtils.anyError(reports)) {
+                return new CompilationOutcome(reports, null, System.nanoTime() - start, context.getMetrics());
+            }
+
+            var optimization = new JmmOptimizationImpl(context);
+            semanticsResult = optimization.optimize(semanticsResult);
+            var ollirResult = optimization.optimize(optimization.toOllir(semanticsResult));
+
+            var jasminResult = CompilerConfig.getBackend(config).create(context).toJasmin(ollirResult);
+            reports = new ArrayList<>(jasminResult.getReports());
+            if (ReportUtils.anyError(reports)) {
+                return new CompilationOutcome(reports, null, System.nanoTime() - start, context.getMetrics());
+            }
+
+            return new CompilationOutcome(reports, jasminResult, System.nanoTime() - start, context.getMetrics());
+        } catch (Exception e) {
+            reports.add(Report.newError(Stage.OTHER, -1, -1, "Exception during compilation: " + e.getMessage(), e));
+            return new CompilationOutcome(reports, null, System.nanoTime() - start, context.getMetrics());
+        }
+    }
+}
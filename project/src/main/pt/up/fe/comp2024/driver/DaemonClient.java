@@ -0,0 +1,121 @@
+package pt.up.fe.comp2024.driver;
+
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.Launcher;
+import pt.up.fe.comp2024.metrics.MetricsReport;
+import pt.up.fe.comp2024.output.Artifact;
+import pt.up.fe.comp2024.output.OutputSink;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Thin client that sends a compilation to a running {@link CompilationDaemon}.
+ * <p>
+ * Accepts the same arguments as the Launcher. If there is no daemon listening on the port (or the arguments ask for a
+ * mode the daemon does not serve), it falls back to compiling in this JVM through the Launcher, so it can be used in
+ * place of the 'jmm' script.
+ */
+public class DaemonClient {
+
+    public static void main(String[] args) {
+        Map<String, String> config = CompilerConfig.parseArgs(args);
+
+        if (CompilerConfig.getServer(config) || CompilerConfig.getBatchInput(config).isPresent()) {
+            Launcher.main(args);
+            return;
+        }
+
+        var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
+        // The daemon runs in another working directory
+        var request = new DaemonProtocol.Request(SpecsIo.read(inputFile), CompilerConfig.withAbsolutePaths(config));
+
+        DaemonProtocol.Response response;
+        try {
+            response = send(request, CompilerConfig.getPort(config));
+        } catch (ConnectException e) {
+            Launcher.main(args);
+            return;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not communicate with the compilation daemon: " + e.getMessage(), e);
+        }
+
+        CompilerConfig.getMetricsFile(config).ifPresent(metricsFile -> {
+            var metrics = new MetricsReport();
+            metrics.add(inputFile, response.success, response.cached, (long) (response.elapsedMillis * 1e6),
+                    response.stages);
+            metrics.write(metricsFile);
+        });
+
+        System.exit(printResponse(response, config) ? 0 : 1);
+    }
+
+    static DaemonProtocol.Response send(DaemonProtocol.Request request, int port) throws IOException {
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             var writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+
+            DaemonProtocol.write(writer, request);
+            var response = DaemonProtocol.read(reader, DaemonProtocol.Response.class);
+            if (response == null) {
+                throw new IOException("Connection closed before receiving a response");
+            }
+
+            return response;
+        }
+    }
+
+    /**
+     * Prints the reports and the Jasmin code to the output selected with '-v', '-a' and '-f', like the Launcher, and
+     * writes the generated files to the output folder.
+     *
+     * @return true if the compilation succeeded
+     */
+    static boolean printResponse(DaemonProtocol.Response response, Map<String, String> config) {
+        try (var output = OutputSink.fromConfig(config)) {
+            for (var message : response.reports) {
+                output.line(Artifact.REPORTS, message.toReport().toString());
+            }
+
+            if (!response.success) {
+                return false;
+            }
+
+            // Print Jasmin code, the class file backend does not generate any
+            if (response.jasminCode != null) {
+                output.emit(Artifact.JASMIN, "JASMIN", out -> out.write(response.jasminCode));
+            } else if (response.classFile != null) {
+                output.line(Artifact.JASMIN, "Generated " + Base64.getDecoder().decode(response.classFile).length
+                        + " bytes of class file, without Jasmin code");
+            }
+        }
+
+        CompilerConfig.getOutputDir(config).ifPresent(outputDir -> writeFiles(response, outputDir));
+        return true;
+    }
+
+    private static void writeFiles(DaemonProtocol.Response response, File outputDir) {
+        if (response.jasminCode != null) {
+            SpecsIo.write(new File(outputDir, response.className + ".j"), response.jasminCode);
+        }
+        if (response.classFile != null) {
+            var classFile = new File(outputDir, response.className + ".class");
+            try {
+                Files.write(classFile.toPath(), Base64.getDecoder().decode(response.classFile));
+            } catch (IOException e) {
+                throw new RuntimeException("Could not write class file '" + classFile + "'", e);
+            }
+        }
+    }
+}
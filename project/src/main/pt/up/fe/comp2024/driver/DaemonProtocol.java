@@ -0,0 +1,99 @@
+package pt.up.fe.comp2024.driver;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.metrics.StageMetrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Messages exchanged between the compilation daemon and its clients.
+ * <p>
+ * Each message is a JSON object on a single line. A client sends a {@link Request} and reads back a {@link Response},
+ * and may send several requests over the same connection.
+ */
+public class DaemonProtocol {
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    public static class Request {
+        public String code;
+        public Map<String, String> config;
+
+        public Request(String code, Map<String, String> config) {
+            this.code = code;
+            this.config = config;
+        }
+    }
+
+    public static class Response {
+        public boolean success;
+        public List<ReportMessage> reports;
+        public String className;
+        public String jasminCode;
+        /**
+         * Base64 of the assembled class file, only filled when the request has an output directory
+         */
+        public String classFile;
+        public double elapsedMillis;
+        public boolean cached;
+        /**
+         * Totals of the daemon cache, zero if the daemon runs without one
+         */
+        public long cacheHits;
+        public long cacheMisses;
+        public List<StageMetrics> stages;
+    }
+
+    /**
+     * Reports are sent without their exception, which is not serializable.
+     */
+    public static class ReportMessage {
+        public ReportType type;
+        public Stage stage;
+        public int line;
+        public int column;
+        public String message;
+
+        public static ReportMessage fromReport(Report report) {
+            var message = new ReportMessage();
+            message.type = report.getType();
+            message.stage = report.getStage();
+            message.line = report.getLine();
+            message.column = report.getColumn();
+            message.message = report.getException()
+                    .map(e -> report.getMessage() + " (exception: " + e.getMessage() + ")")
+                    .orElse(report.getMessage());
+            return message;
+        }
+
+        public Report toReport() {
+            return new Report(type, stage, line, column, message);
+        }
+    }
+
+    /**
+     * @return the next message, or null if the other side closed the connection
+     */
+    public static <T> T read(BufferedReader reader, Class<T> messageClass) throws IOException {
+        var line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+
+        return GSON.fromJson(line, messageClass);
+    }
+
+    public static void write(Writer writer, Object message) throws IOException {
+        writer.write(GSON.toJson(message));
+        writer.write('\n');
+        writer.flush();
+    }
+}
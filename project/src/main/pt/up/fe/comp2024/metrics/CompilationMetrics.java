@@ -0,0 +1,43 @@
+package pt.up.fe.comp2024.metrics;
+
+import com.google.gson.GsonBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-stage metrics of a single compilation, in the order the stages first finished.
+ */
+public class CompilationMetrics {
+
+    private final List<StageMetrics> stages = new ArrayList<>();
+
+    /**
+     * Starts measuring a stage, the measurement is recorded when the returned timer is closed.
+     */
+    public StageTimer start(String stage) {
+        return new StageTimer(this, stage);
+    }
+
+    synchronized void add(StageMetrics stage) {
+        for (int i = 0; i < stages.size(); i++) {
+            if (stages.get(i).getName().equals(stage.getName())) {
+                stages.set(i, stages.get(i).merge(stage));
+                return;
+            }
+        }
+
+        stages.add(stage);
+    }
+
+    public synchronized List<StageMetrics> getStages() {
+        return new ArrayList<>(stages);
+    }
+
+    /**
+     * Serializes the given object, which may contain metrics, as indented JSON.
+     */
+    public static String toJson(Object metrics) {
+        return new GsonBuilder().setPrettyPrinting().create().toJson(metrics);
+    }
+}
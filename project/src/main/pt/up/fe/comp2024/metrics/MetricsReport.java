@@ -0,0 +1,50 @@
+package pt.up.fe.comp2024.metrics;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Machine-readable report with the metrics of one or more compilations, written as JSON with '-j'.
+ */
+public class MetricsReport {
+
+    private static class FileMetrics {
+        private String file;
+        private boolean success;
+        private boolean cached;
+        private long elapsedNanos;
+        private List<StageMetrics> stages;
+    }
+
+    private final List<FileMetrics> files = new ArrayList<>();
+    private Integer threads;
+    private Long totalNanos;
+
+    public synchronized void add(File file, boolean success, boolean cached, long elapsedNanos,
+            List<StageMetrics> stages) {
+        var metrics = new FileMetrics();
+        metrics.file = file.getPath();
+        metrics.success = success;
+        metrics.cached = cached;
+        metrics.elapsedNanos = elapsedNanos;
+        metrics.stages = stages;
+        files.add(metrics);
+    }
+
+    /**
+     * Sets the totals of a batch compilation.
+     */
+    public synchronized void setTotals(int threads, long totalNanos) {
+        this.threads = threads;
+        this.totalNanos = totalNanos;
+    }
+
+    public synchronized void write(File outputFile) {
+        if (!SpecsIo.write(outputFile, CompilationMetrics.toJson(this))) {
+            throw new RuntimeException("Could not write metrics to '" + outputFile + "'");
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package pt.up.fe.comp2024.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What one stage or pass of the compiler cost, and how big the data it produced was.
+ * <p>
+ * Nested stages use dotted names (e.g. 'optimization.constantFolding') and their costs are also included in the
+ * enclosing stage. A stage that runs several times (e.g. once per method) is recorded once, with the sum of the runs.
+ */
+public class StageMetrics {
+
+    private final String name;
+    private final int runs;
+    private final long wallNanos;
+    /**
+     * -1 when the JVM does not measure thread CPU time
+     */
+    private final long cpuNanos;
+    /**
+     * -1 when the JVM does not measure thread allocations
+     */
+    private final long allocatedBytes;
+    private final Map<String, Long> counters;
+
+    public StageMetrics(String name, long wallNanos, long cpuNanos, long allocatedBytes, Map<String, Long> counters) {
+        this(name, 1, wallNanos, cpuNanos, allocatedBytes, counters);
+    }
+
+    private StageMetrics(String name, int runs, long wallNanos, long cpuNanos, long allocatedBytes,
+            Map<String, Long> counters) {
+        this.name = name;
+        this.runs = runs;
+        this.wallNanos = wallNanos;
+        this.cpuNanos = cpuNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.counters = new LinkedHashMap<>(counters);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the sum of both runs of the same stage
+     */
+    public StageMetrics merge(StageMetrics other) {
+        var mergedCounters = new LinkedHashMap<>(counters);
+        other.counters.forEach((counter, value) -> mergedCounters.merge(counter, value, Long::sum));
+
+        return new StageMetrics(name, runs + other.runs, wallNanos + other.wallNanos,
+                mergeMeasure(cpuNanos, other.cpuNanos), mergeMeasure(allocatedBytes, other.allocatedBytes),
+                mergedCounters);
+    }
+
+    private static long mergeMeasure(long a, long b) {
+        return a < 0 || b < 0 ? -1 : a + b;
+    }
+
+    public int getRuns() {
+        return runs;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+}
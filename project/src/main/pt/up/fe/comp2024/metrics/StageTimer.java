@@ -0,0 +1,77 @@
+package pt.up.fe.comp2024.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures a stage from its creation until it is closed, on the thread that created it.
+ * <p>
+ * Meant to be used with try-with-resources:
+ *
+ * <pre>
+ * try (var timer = context.getMetrics().start("jasmin")) {
+ *     code = generator.build();
+ *     timer.count("lines", code.lines().count());
+ * }
+ * </pre>
+ */
+public class StageTimer implements AutoCloseable {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final CompilationMetrics metrics;
+    private final String name;
+    private final Map<String, Long> counters = new LinkedHashMap<>();
+    private final long startWall;
+    private final long startCpu;
+    private final long startAllocated;
+    private boolean closed;
+
+    StageTimer(CompilationMetrics metrics, String name) {
+        this.metrics = metrics;
+        this.name = name;
+        this.startAllocated = allocatedBytes();
+        this.startCpu = cpuNanos();
+        this.startWall = System.nanoTime();
+    }
+
+    /**
+     * Records a size counter of this stage, e.g. the number of nodes it produced.
+     */
+    public void count(String counter, long value) {
+        counters.merge(counter, value, Long::sum);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        long wall = System.nanoTime() - startWall;
+        long cpu = startCpu < 0 ? -1 : cpuNanos() - startCpu;
+        long allocated = startAllocated < 0 ? -1 : allocatedBytes() - startAllocated;
+        metrics.add(new StageMetrics(name, wall, cpu, allocated, counters));
+    }
+
+    private static long cpuNanos() {
+        if (!THREADS.isCurrentThreadCpuTimeSupported()) {
+            return -1;
+        }
+
+        return THREADS.getCurrentThreadCpuTime();
+    }
+
+    private static long allocatedBytes() {
+        // Allocation counters are an extension of the HotSpot JVMs
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean hotspotThreads)
+                || !hotspotThreads.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+
+        return hotspotThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -1,363 +1,79 @@
 package pt.up.fe.comp2024.optimization;
 
-import java.util.ArrayList;
-import java.util.BitSet;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.CompilerContext;
 import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.metrics.CompilationMetrics;
+import pt.up.fe.comp2024.output.Artifact;
+import pt.up.fe.comp2024.output.OutputSink;
+
+/**
+ * Constant propagation, constant folding and dead code elimination, in a single pass over each method:
+ * {@link ConstantPropagation} finds the constants of the whole method at once, so the literals it puts in place of
+ * the variables only need to be folded once, and {@link DeadCodeElimination} keeps the branch chosen by the conditions
+ * that fold to a literal and removes the statements no path reaches.
+ */
+public class ASTOptimization {
+    public final JmmNode rootNode;
+    public final SymbolTable table;
+    private final CompilerContext context;
+    private final CompilationMetrics metrics;
+    private final OutputSink output;
+    private int constants = 0;
+    private final DeadCodeElimination deadCodeElimination = new DeadCodeElimination();
 
-class CFGNode {
-    BitSet gen = new BitSet();
-    BitSet kill = new BitSet();
-    BitSet in;
-    BitSet out;
-    List<JmmNode> stmts = new ArrayList<>();
-    List<CFGNode> children = new ArrayList<>();
-    int id;
-
-    public CFGNode(int id) {
-        this.id = id;
-    }
-}
-
-class AST_CFG {
-    private final SymbolTable table;
-    private final String currentMethod;
-    private Map<String, JmmNode> constants = new HashMap<>();
-    private CFGNode entry;
-    private List<CFGNode> all = new ArrayList<>();
-    private List<JmmNode> gens = new ArrayList<>();
-    private BitSet isConstant = new BitSet();
-
-    public CFGNode creatNode() {
-        var node = new CFGNode(all.size());
-        all.add(node);
-        return node;
-    }
-
-    public AST_CFG(SymbolTable table, String currentMethod) {
-        this.table = table;
-        this.currentMethod = currentMethod;
-    }
-
-    private void computeKillGenSets() {
-        for (var node : all) {
-            node.in = new BitSet(gens.size());
-            node.in.flip(0, gens.size());
-            node.out = new BitSet(gens.size());
-            node.out.flip(0, gens.size());
-            Map<String, Integer> vars = new HashMap<>();
-            for (var stmt : node.stmts) {
-                if (stmt.getKind().equals("AssignStmt")) {
-                    vars.put(stmt.get("name"), stmt.getObject("genIndex", Integer.class));
-                    for (var gen : gens) {
-                        if (gen.get("name").equals(stmt.get("name"))) {
-                            node.kill.set(gen.getObject("genIndex", Integer.class));
-                        }
-                    }
-                }
-            }
-            for (var index : vars.values()) {
-                node.gen.set(index);
-            }
-        }
-        entry.in = new BitSet(gens.size());
-    }
-
-    static private BitSet or(BitSet a, BitSet b) {
-        var ca = ((BitSet) a.clone());
-        ca.or(b);
-        return ca;
-    }
-
-    static private BitSet and(BitSet a, BitSet b) {
-        var ca = ((BitSet) a.clone());
-        ca.and(b);
-        return ca;
-    }
-
-    static private BitSet andNot(BitSet a, BitSet b) {
-        var ca = ((BitSet) a.clone());
-        ca.andNot(b);
-        return ca;
-    }
-
-    private void computeInOutSets() {
-        boolean changed = true;
-        while (changed) {
-            changed = false;
-            for (var node : all) {
-                var out = or(node.gen, andNot(node.in, node.kill));
-                if (!out.equals(node.out)) {
-                    node.out = out;
-                    changed = true;
-                }
-                for (var child : node.children) {
-                    var in = and(child.in, out);
-                    if (!in.equals(child.in)) {
-                        child.in = in;
-                    }
-                }
-            }
-        }
-    }
-
-    public boolean constProp() {
-        boolean changed = false;
-        for (var node : all) {
-            constants.clear();
-            for (int i = 0; i < node.in.length(); i++) {
-                if (node.in.get(i) && isConstant.get(i)) {
-                    var gen = gens.get(i);
-                    constants.put(gen.get("name"), gen.getChild(0));
-                }
-            }
-            for (var stmt : node.stmts) {
-                changed |= constPropStatement(stmt);
-            }
-        }
-        return changed;
-    }
-
-    public boolean constPropStatement(JmmNode stmt) {
-        if (stmt.isInstance("Expr")) {
-            return constPropExpr(stmt);
-        }
-        boolean changed = false;
-        switch (stmt.getKind()) {
-            case ("VarStmt"):
-                changed |= constPropExpr(stmt.getChild(0));
-                break;
-            case ("AssignStmt"): {
-                changed |= constPropExpr(stmt.getChild(0));
-                var value = stmt.getChild(0);
-                String name = stmt.get("name");
-                constants.remove(name);
-                var vars = table.getLocalVariables(currentMethod);
-                for (var v : vars) {
-                    if (v.getName().equals(name)) {
-                        var type = v.getType();
-                        if (type.isArray())
-                            break;
-                        switch (type.getName()) {
-                            case "int":
-                                if (value.getKind().equals("IntegerLiteral")) {
-                                    constants.put(name, value);
-                                }
-                                break;
-                            case "boolean":
-                                if (value.getKind().equals("VarRefExpr")
-                                        && (value.get("name").equals("true") || value.get("name").equals("false"))) {
-                                    constants.put(name, value);
-                                }
-                                break;
-                        }
-                    }
-                }
-                break;
-            }
-            case ("AssignStmtArray"): {
-                changed |= constPropExpr(stmt.getChild(0));
-                changed |= constPropExpr(stmt.getChild(1));
-                break;
-            }
-            case ("ReturnStmt"): {
-                changed |= constPropExpr(stmt.getChild(0));
-                break;
-            }
-        }
-        return changed;
+    public ASTOptimization(JmmNode rootNode, SymbolTable symbolTable, CompilerContext context) {
+        this.rootNode = rootNode;
+        this.table = symbolTable;
+        this.context = context;
+        this.metrics = context.getMetrics();
+        this.output = context.getOutput();
     }
 
-    public boolean constPropExpr(JmmNode expr) {
-        boolean changed = false;
-        switch (expr.getKind()) {
-            case "VarRefExpr":
-                String name = expr.get("name");
-                if (constants.containsKey(name)) {
-                    changed = true;
-                    var value = constants.get(name);
-                    var newNode = value.copyNode();
-                    expr.replace(newNode);
-                }
-                break;
-            case "IntegerLiteral", "FieldAccessExpr", "NewExpr":
-                break;
-            case "ArrayExpr", "FuncExpr", "SelfFuncExpr": {
-                for (var exp : expr.getChildren()) {
-                    changed |= constPropExpr(exp);
-                }
-                break;
-            }
-            case "NewArrayExpr", "UnaryExpr": {
-                changed |= constPropExpr(expr.getChild(0));
-                break;
-            }
-            case "BinaryExpr", "ArrayAccessExpr": {
-                changed |= constPropExpr(expr.getChild(0));
-                changed |= constPropExpr(expr.getChild(1));
-                break;
-            }
-        }
-        return changed;
+    /**
+     * @return how many variables were replaced with their constant value
+     */
+    public int getConstants() {
+        return constants;
     }
 
-    private String listAttribute(List<JmmNode> nodes, String name) {
-        return nodes.stream().map((stmt) -> stmt.getOptional(name).orElse("unkonw")).collect(
-                Collectors.joining(","));
+    /**
+     * @return how many AST nodes were removed because they can never run
+     */
+    public int getRemovedNodes() {
+        return deadCodeElimination.getRemovedNodes();
     }
 
-    public String dump() {
-
-        String graph = "";
-        for (var gen : gens) {
-            graph += "//";
-            graph += gen.getObject("genIndex", Integer.class);
-            graph += " ";
-            graph += gen.get("lineStart");
-            graph += " ";
-            graph += gen.get("name");
-            graph += " ";
-            graph += isConstant.get(gen.getObject("genIndex", Integer.class));
-            graph += "\n";
-        }
-        graph += "digraph {\n";
-        for (var node : all) {
-            graph += node.id + "[label=\"";
-            graph += listAttribute(node.stmts, "lineStart");
-            graph += "\\ngen=";
-            graph += node.gen;
-            graph += "\\nkill=";
-            graph += node.kill;
-            graph += "\\nin=";
-            graph += node.in;
-            graph += "\\nout=";
-            graph += node.out;
-            graph += "\"]\n";
-            for (var child : node.children) {
-                graph += node.id + "->" + child.id + "\n";
-            }
+    public void optimize() {
+        for (var method : rootNode.getChildren(Kind.CLASS_DECL).get(0).getChildren(Kind.METHOD_DECL)) {
+            visitMethod(method);
         }
-        graph += "\n}";
-        return graph;
-    }
 
-    public static AST_CFG build(JmmNode method, SymbolTable table) {
-        var cfg = new AST_CFG(table, method.get("name"));
-        cfg.entry = cfg.creatNode();
-        cfg.build(method.getChildren(), cfg.entry);
-        cfg.computeKillGenSets();
-        cfg.computeInOutSets();
-        return cfg;
+        // Folding and propagation replace expression nodes, so the types computed by the analysis are computed again
+        // for the new tree when the OLLIR is generated
+        context.clearExprTypes();
     }
 
-    private CFGNode build(List<JmmNode> nodes, CFGNode current) {
-        for (var stmt : nodes) {
-            current = build(stmt, current);
+    public void visitMethod(JmmNode method) {
+        int methodConstants;
+        try (var timer = metrics.start("optimization.constantPropagation")) {
+            var propagation = ConstantPropagation.analyse(method, table);
+            output.emit(Artifact.CFG, "CFG " + method.get("name"), propagation::dump);
+            methodConstants = propagation.substitute();
         }
-        return current;
-    }
-
-    private CFGNode build(JmmNode stmt, CFGNode current) {
-        switch (stmt.getKind()) {
-            case "AssignStmt":
-                stmt.putObject("genIndex", gens.size());
-                var name = stmt.get("name");
-                var value = stmt.getChild(0);
-                var vars = table.getLocalVariables(currentMethod);
-                for (var v : vars) {
-                    if (v.getName().equals(name)) {
-                        var type = v.getType();
-                        if (type.isArray())
-                            break;
-                        switch (type.getName()) {
-                            case "int":
-                                if (value.getKind().equals("IntegerLiteral")) {
-                                    isConstant.set(gens.size());
-                                }
-                                break;
-                            case "boolean":
-                                if (value.getKind().equals("VarRefExpr")
-                                        && (value.get("name").equals("true") || value.get("name").equals("false"))) {
-                                    isConstant.set(gens.size());
-                                }
-                                break;
-                        }
-                    }
-                }
-                gens.add(stmt);
-            case "VarStmt", "AssignStmtArray", "ReturnStmt":
-                current.stmts.add(stmt);
-                break;
-            case "IfStmt":
-                current.stmts.add(stmt.getChild(0));
-                var ifCFG = creatNode();
-                var elseCFG = creatNode();
-                System.out.println("//if" + ifCFG.id);
-                System.out.println("//else" + elseCFG.id);
-                current.children.add(ifCFG);
-                current.children.add(elseCFG);
-
-                var endIfCFG = build(stmt.getChild(1), ifCFG);
-                var endElseCFG = build(stmt.getChild(2), elseCFG);
-                current = creatNode();
-                System.out.println("//endif" + current.id);
-                endIfCFG.children.add(current);
-                endElseCFG.children.add(current);
-                break;
-            case "WhileStmt":
-                var whileCFG = creatNode();
-                whileCFG.stmts.add(stmt.getChild(0));
-                var whileBodyCFG = creatNode();
-                whileCFG.children.add(whileBodyCFG);
-                var endWhileCFG = build(stmt.getChild(1), whileBodyCFG);
-                current.children.add(whileCFG);
-                endWhileCFG.children.add(whileCFG);
-                current = creatNode();
-                whileCFG.children.add(current);
-                break;
-            case "MultiStmt":
-                current = build(stmt.getChildren(), current);
-                break;
+        try (var timer = metrics.start("optimization.constantFolding")) {
+            constFoldMethod(method);
         }
-        return current;
-    }
-}
-
-public class ASTOptimization {
-    public final JmmNode rootNode;
-    public final SymbolTable table;
-    private boolean changed = true;
-
-    public ASTOptimization(JmmNode rootNode, SymbolTable symbolTable) {
-        this.rootNode = rootNode;
-        this.table = symbolTable;
-    }
-
-    public void optimize() {
-        while (changed) {
-            changed = false;
-            for (var method : rootNode.getChildren(Kind.CLASS_DECL).get(0).getChildren(Kind.METHOD_DECL)) {
-                visitMethod(method);
-            }
-            System.out.println("changed");
-            System.out.println(changed);
+        int removedBefore = deadCodeElimination.getRemovedNodes();
+        try (var timer = metrics.start("optimization.deadCode")) {
+            deadCodeElimination.eliminate(method);
         }
-    }
 
-    public void visitMethod(JmmNode method) {
-        constFoldMethod(method);
-        AST_CFG cfg = AST_CFG.build(method, table);
-        System.out.println("===================================");
-        System.out.println(cfg.dump());
-        System.out.println("===================================");
-        changed |= cfg.constProp();
+        constants += methodConstants;
+        output.line(Artifact.DEBUG, "AST optimization of " + method.get("name") + ": " + methodConstants
+                + " constants, " + (deadCodeElimination.getRemovedNodes() - removedBefore) + " dead nodes removed");
     }
 
     public void constFoldMethod(JmmNode method) {
@@ -405,9 +121,8 @@ public class ASTOptimization {
             case "IntegerLiteral", "VarRefExpr", "FieldAccessExpr", "NewExpr":
                 break;
             case "ParenExpr": {
-                changed = true;
                 constFoldExpr(expr.getChild(0));
-                expr.replace(expr.getChild(0));
+                expr.replace(expr.getChild(0).copy());
                 break;
             }
             case "ArrayExpr", "FuncExpr", "SelfFuncExpr": {
@@ -425,15 +140,11 @@ public class ASTOptimization {
                 var child = expr.getChild(0);
                 if (child.getKind().equals("VarRefExpr"))
                     if (child.get("name").equals("true")) {
-                        changed = true;
-
                         var newNode = new JmmNodeImpl("VarRefExpr");
                         newNode.put("name", "false");
                         expr.replace(newNode);
 
                     } else if (child.get("name").equals("false")) {
-                        changed = true;
-
                         var newNode = new JmmNodeImpl("VarRefExpr");
                         newNode.put("name", "true");
                         expr.replace(newNode);
@@ -475,29 +186,23 @@ public class ASTOptimization {
                 switch (expr.get("op")) {
                     case "+":
                         if (leftIsInt && rightIsInt) {
-                            changed = true;
                             var newNode = new JmmNodeImpl("IntegerLiteral");
                             newNode.put("value", "" + (leftValue + rightValue));
                             expr.replace(newNode);
                         } else if (leftIsInt && leftValue == 0) {
-                            changed = true;
-                            expr.replace(right);
+                            expr.replace(right.copy());
                         } else if (rightIsInt && rightValue == 0) {
-                            changed = true;
-                            expr.replace(left);
+                            expr.replace(left.copy());
                         }
                         break;
                     case "-":
                         if (leftIsInt && rightIsInt) {
-                            changed = true;
                             var newNode = new JmmNodeImpl("IntegerLiteral");
                             newNode.put("value", "" + (leftValue - rightValue));
                             expr.replace(newNode);
                         } else if (rightIsInt && rightValue == 0) {
-                            changed = true;
-                            expr.replace(left);
+                            expr.replace(left.copy());
                         } else if (leftIsVar && rightIsVar && leftName.equals(rightName)) {
-                            changed = true;
                             var newNode = new JmmNodeImpl("IntegerLiteral");
                             newNode.put("value", "0");
                             expr.replace(newNode);
@@ -505,7 +210,6 @@ public class ASTOptimization {
                         break;
                     case "*":
                         if (leftIsInt && rightIsInt) {
-                            changed = true;
                             var newNode = new JmmNodeImpl("IntegerLiteral");
                             newNode.put("value", "" + (leftValue * rightValue));
                             expr.replace(newNode);
@@ -518,16 +222,13 @@ public class ASTOptimization {
                            * }
                            */
                         else if (leftIsInt && leftValue == 1) {
-                            changed = true;
-                            expr.replace(right);
+                            expr.replace(right.copy());
                         } else if (rightIsInt && rightValue == 1) {
-                            changed = true;
-                            expr.replace(left);
+                            expr.replace(left.copy());
                         }
                         break;
                     case "/":
                         if (leftIsInt && rightIsInt && rightValue != 0) {
-                            changed = true;
                             var newNode = new JmmNodeImpl("IntegerLiteral");
                             newNode.put("value", "" + (leftValue / rightValue));
                             expr.replace(newNode);
@@ -540,10 +241,8 @@ public class ASTOptimization {
                            * }
                            */
                         else if (rightIsInt && rightValue == 1) {
-                            changed = true;
-                            expr.replace(left);
+                            expr.replace(left.copy());
                         } else if (leftIsVar && rightIsVar && leftName.equals(rightName)) {
-                            changed = true;
                             var newNode = new JmmNodeImpl("IntegerLiteral");
                             newNode.put("value", "1");
                             expr.replace(newNode);
@@ -551,12 +250,10 @@ public class ASTOptimization {
                         break;
                     case "<":
                         if (leftIsInt && rightIsInt) {
-                            changed = true;
                             var newNode = new JmmNodeImpl("VarRefExpr");
                             newNode.put("name", (leftValue < rightValue) ? "true" : "false");
                             expr.replace(newNode);
                         } else if (leftIsVar && rightIsVar && leftName.equals(rightName)) {
-                            changed = true;
                             var newNode = new JmmNodeImpl("VarRefExpr");
                             newNode.put("name", "false");
                             expr.replace(newNode);
@@ -564,16 +261,13 @@ public class ASTOptimization {
                         break;
                     case "&&":
                         if (leftIsBool && rightIsBool) {
-                            changed = true;
                             var newNode = new JmmNodeImpl("VarRefExpr");
                             newNode.put("name", (leftBool && rightBool) ? "true" : "false");
                             expr.replace(newNode);
-                        } else if (leftName.equals(rightName)) {
-                            changed = true;
-                            expr.replace(left);
+                        } else if (leftIsVar && rightIsVar && leftName.equals(rightName)) {
+                            expr.replace(left.copy());
                         } else if (leftIsBool && leftBool) {
-                            changed = true;
-                            expr.replace(right);
+                            expr.replace(right.copy());
                         } /*
                            * else if (leftIsBool && !leftBool) {
                            * changed = true;
@@ -583,8 +277,7 @@ public class ASTOptimization {
                            * }
                            */
                         else if (rightIsBool && rightBool) {
-                            changed = true;
-                            expr.replace(left);
+                            expr.replace(left.copy());
                         } /*
                            * else if (rightIsBool && !rightBool) {
                            * changed = true;
@@ -0,0 +1,118 @@
+package pt.up.fe.comp2024.optimization;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.optimization.dataflow.FlowGraph;
+
+/**
+ * The basic blocks of the statements of a method, for the AST passes. Blocks are numbered in the order of the
+ * source, the entry being 0, and a block ends with the condition of an if or while statement, ends with a return or
+ * flows into the next one.
+ */
+class BasicBlocks {
+
+    static class Block {
+        final int id;
+        // AssignStmt, VarStmt, AssignStmtArray and ReturnStmt
+        final List<JmmNode> stmts = new ArrayList<>();
+        // IfStmt or WhileStmt whose condition ends the block, followed by 'ifTrue' or 'ifFalse'
+        JmmNode branch;
+        Block ifTrue;
+        Block ifFalse;
+        Block next;
+
+        Block(int id) {
+            this.id = id;
+        }
+    }
+
+    private final List<Block> blocks = new ArrayList<>();
+
+    private BasicBlocks() {
+    }
+
+    public static BasicBlocks build(JmmNode method) {
+        var basicBlocks = new BasicBlocks();
+        basicBlocks.build(method.getChildren(), basicBlocks.createBlock());
+        return basicBlocks;
+    }
+
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    public Block get(int id) {
+        return blocks.get(id);
+    }
+
+    public int size() {
+        return blocks.size();
+    }
+
+    public FlowGraph toFlowGraph() {
+        var graph = new FlowGraph(blocks.size(), 0);
+        for (var block : blocks) {
+            if (block.branch != null) {
+                graph.addEdge(block.id, block.ifTrue.id);
+                graph.addEdge(block.id, block.ifFalse.id);
+            } else if (block.next != null) {
+                graph.addEdge(block.id, block.next.id);
+            }
+        }
+        return graph;
+    }
+
+    private Block createBlock() {
+        var block = new Block(blocks.size());
+        blocks.add(block);
+        return block;
+    }
+
+    private Block build(List<JmmNode> stmts, Block current) {
+        for (var stmt : stmts) {
+            current = build(stmt, current);
+        }
+        return current;
+    }
+
+    private Block build(JmmNode stmt, Block current) {
+        switch (stmt.getKind()) {
+            case "AssignStmt", "VarStmt", "AssignStmtArray":
+                current.stmts.add(stmt);
+                break;
+            case "ReturnStmt":
+                // Nothing flows from a return, so the statements after it start a block without predecessors
+                current.stmts.add(stmt);
+                current = createBlock();
+                break;
+            case "IfStmt": {
+                current.branch = stmt;
+                current.ifTrue = createBlock();
+                current.ifFalse = createBlock();
+                var endThen = build(stmt.getChild(1), current.ifTrue);
+                var endElse = build(stmt.getChild(2), current.ifFalse);
+                current = createBlock();
+                endThen.next = current;
+                endElse.next = current;
+                break;
+            }
+            case "WhileStmt": {
+                var header = createBlock();
+                current.next = header;
+                header.branch = stmt;
+                header.ifTrue = createBlock();
+                var endBody = build(stmt.getChild(1), header.ifTrue);
+                endBody.next = header;
+                current = createBlock();
+                header.ifFalse = current;
+                break;
+            }
+            case "MultiStmt":
+                current = build(stmt.getChildren(), current);
+                break;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,317 @@
+package pt.up.fe.comp2024.optimization;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.optimization.BasicBlocks.Block;
+
+/**
+ * Conditional constant propagation of the int and boolean variables of one method (Wegman and Zadeck).
+ * <p>
+ * The statements are split into {@link BasicBlocks}, and a worklist visits a block only when one of the edges into it is
+ * known to be taken. The values of the variables at the start of a block are the meet of the values at the end of
+ * the taken edges into it, which plays the role of the phi functions of SSA form: a variable keeps a constant while
+ * every taken edge brings the same one. A branch whose condition is constant only takes one edge, so the other side
+ * is not visited and does not spoil the values after the branch. Each block value can only go down from constant to
+ * unknown, so a block is visited at most once more than the variables that change in it.
+ * <p>
+ * Parameters and fields are unknown when the method starts, and so are locals, which are assigned before being read.
+ */
+class ConstantPropagation {
+
+    private final Map<String, Integer> variables = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<Boolean> isBoolean = new ArrayList<>();
+    private final BasicBlocks blocks;
+    // Value of each variable when the block starts, null while no taken edge reaches it
+    private final Integer[][] in;
+    private final boolean[] takesTrue;
+    private final boolean[] takesFalse;
+
+    private ConstantPropagation(JmmNode method, SymbolTable table) {
+        blocks = BasicBlocks.build(method);
+        in = new Integer[blocks.size()][];
+        takesTrue = new boolean[blocks.size()];
+        takesFalse = new boolean[blocks.size()];
+
+        var methodName = method.get("name");
+        for (var param : table.getParameters(methodName)) {
+            track(param);
+        }
+        for (var local : table.getLocalVariables(methodName)) {
+            track(local);
+        }
+    }
+
+    private void track(Symbol symbol) {
+        var type = symbol.getType();
+        boolean tracked = !type.isArray() && (type.getName().equals("int") || type.getName().equals("boolean"));
+        var index = variables.get(symbol.getName());
+        if (index == null) {
+            if (!tracked) {
+                return;
+            }
+            index = names.size();
+            variables.put(symbol.getName(), index);
+            names.add(symbol.getName());
+            isBoolean.add(false);
+        } else if (!tracked) {
+            // A local that hides a parameter of another type
+            variables.remove(symbol.getName());
+            return;
+        }
+        isBoolean.set(index, type.getName().equals("boolean"));
+    }
+
+    public static ConstantPropagation analyse(JmmNode method, SymbolTable table) {
+        var propagation = new ConstantPropagation(method, table);
+        propagation.propagate();
+        return propagation;
+    }
+
+    private void propagate() {
+        // Blocks are numbered in the order of the source, so taking the lowest one first visits a loop header
+        // before its body and the body before the code after the loop
+        var worklist = new BitSet(blocks.size());
+        in[0] = new Integer[names.size()];
+        worklist.set(0);
+
+        for (int id = worklist.nextSetBit(0); id >= 0; id = worklist.nextSetBit(0)) {
+            worklist.clear(id);
+            var block = blocks.get(id);
+            var values = in[id].clone();
+            for (var stmt : block.stmts) {
+                assign(stmt, values);
+            }
+
+            if (block.branch == null) {
+                if (block.next != null) {
+                    join(block.next, values, worklist);
+                }
+                continue;
+            }
+
+            var condition = evaluate(block.branch.getChild(0), values);
+            if (condition == null || condition != 0) {
+                takesTrue[id] = true;
+                join(block.ifTrue, values, worklist);
+            }
+            if (condition == null || condition == 0) {
+                takesFalse[id] = true;
+                join(block.ifFalse, values, worklist);
+            }
+        }
+    }
+
+    private void join(Block block, Integer[] values, BitSet worklist) {
+        var blockIn = in[block.id];
+        if (blockIn == null) {
+            in[block.id] = values.clone();
+            worklist.set(block.id);
+            return;
+        }
+
+        boolean changed = false;
+        for (int i = 0; i < values.length; i++) {
+            if (blockIn[i] != null && !blockIn[i].equals(values[i])) {
+                blockIn[i] = null;
+                changed = true;
+            }
+        }
+        if (changed) {
+            worklist.set(block.id);
+        }
+    }
+
+    private void assign(JmmNode stmt, Integer[] values) {
+        if (!stmt.getKind().equals("AssignStmt")) {
+            return;
+        }
+        var index = variables.get(stmt.get("name"));
+        if (index != null) {
+            values[index] = evaluate(stmt.getChild(0), values);
+        }
+    }
+
+    /**
+     * @return the value of the expression, with 1 and 0 for true and false, or null if it is not a known constant
+     */
+    private Integer evaluate(JmmNode expr, Integer[] values) {
+        switch (expr.getKind()) {
+            case "IntegerLiteral":
+                try {
+                    return Integer.parseInt(expr.get("value"));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            case "VarRefExpr": {
+                var name = expr.get("name");
+                if (name.equals("true") || name.equals("false")) {
+                    return name.equals("true") ? 1 : 0;
+                }
+                var index = variables.get(name);
+                return index == null ? null : values[index];
+            }
+            case "ParenExpr":
+                return evaluate(expr.getChild(0), values);
+            case "UnaryExpr": {
+                var value = evaluate(expr.getChild(0), values);
+                return value == null ? null : 1 - value;
+            }
+            case "BinaryExpr":
+                return evaluateBinary(expr, values);
+            default:
+                return null;
+        }
+    }
+
+    private Integer evaluateBinary(JmmNode expr, Integer[] values) {
+        var op = expr.get("op");
+        var left = expr.getChild(0);
+        var right = expr.getChild(1);
+
+        // The same identities as the folding, which hold whatever the value of the variable
+        if (left.getKind().equals("VarRefExpr") && right.getKind().equals("VarRefExpr")
+                && left.get("name").equals(right.get("name"))) {
+            switch (op) {
+                case "-":
+                    return 0;
+                case "/":
+                    return 1;
+                case "<":
+                    return 0;
+                case "&&":
+                    return evaluate(left, values);
+            }
+        }
+
+        var leftValue = evaluate(left, values);
+        var rightValue = evaluate(right, values);
+        if (op.equals("&&") && (Objects.equals(leftValue, 0) || Objects.equals(rightValue, 0))) {
+            return 0;
+        }
+        if (leftValue == null || rightValue == null) {
+            return null;
+        }
+
+        return switch (op) {
+            case "+" -> leftValue + rightValue;
+            case "-" -> leftValue - rightValue;
+            case "*" -> leftValue * rightValue;
+            case "/" -> rightValue == 0 ? null : leftValue / rightValue;
+            case "<" -> leftValue < rightValue ? 1 : 0;
+            case "&&" -> leftValue & rightValue;
+            default -> null;
+        };
+    }
+
+    /**
+     * Replaces the variables of the reachable statements and conditions that hold a constant with a literal. The
+     * statements of blocks that are never reached are left as they are.
+     *
+     * @return how many variables were replaced
+     */
+    public int substitute() {
+        int replaced = 0;
+        for (var block : blocks.getBlocks()) {
+            if (in[block.id] == null) {
+                continue;
+            }
+            var values = in[block.id].clone();
+            for (var stmt : block.stmts) {
+                for (var expr : stmt.getChildren()) {
+                    replaced += substitute(expr, values);
+                }
+                assign(stmt, values);
+            }
+            if (block.branch != null) {
+                replaced += substitute(block.branch.getChild(0), values);
+            }
+        }
+        return replaced;
+    }
+
+    private int substitute(JmmNode expr, Integer[] values) {
+        if (expr.getKind().equals("VarRefExpr")) {
+            var index = variables.get(expr.get("name"));
+            if (index == null || values[index] == null) {
+                return 0;
+            }
+            expr.replace(literal(values[index], isBoolean.get(index)));
+            return 1;
+        }
+
+        int replaced = 0;
+        for (var child : expr.getChildren()) {
+            replaced += substitute(child, values);
+        }
+        return replaced;
+    }
+
+    private static JmmNode literal(int value, boolean isBoolean) {
+        if (isBoolean) {
+            var node = new JmmNodeImpl("VarRefExpr");
+            node.put("name", value != 0 ? "true" : "false");
+            return node;
+        }
+        var node = new JmmNodeImpl("IntegerLiteral");
+        node.put("value", String.valueOf(value));
+        return node;
+    }
+
+    private String listConstants(Integer[] values) {
+        if (values == null) {
+            return "unreachable";
+        }
+        List<String> constants = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (values[i] != null && variables.get(names.get(i)) == i) {
+                constants.add(names.get(i) + "=" + values[i]);
+            }
+        }
+        return String.join(",", constants);
+    }
+
+    /**
+     * Writes the graph in the DOT format, with the lines of the statements, and the constants and the lines of the
+     * definitions that reach the start of each block. Edges that are never taken are dashed.
+     */
+    public void dump(Writer graph) throws IOException {
+        var reachingDefinitions = ReachingDefinitions.analyse(blocks);
+        graph.write("digraph {\n");
+        for (var block : blocks.getBlocks()) {
+            graph.write(block.id + "[label=\"");
+            graph.write(block.stmts.stream().map(stmt -> stmt.getOptional("lineStart").orElse("unknown"))
+                    .collect(Collectors.joining(",")));
+            graph.write("\\nin=");
+            graph.write(listConstants(in[block.id]));
+            graph.write("\\nreaching=");
+            graph.write(reachingDefinitions.getReaching(block.id).stream()
+                    .map(stmt -> stmt.getOptional("lineStart").orElse("unknown"))
+                    .collect(Collectors.joining(",")));
+            graph.write("\"]\n");
+            if (block.branch == null) {
+                if (block.next != null) {
+                    graph.write(block.id + "->" + block.next.id + "\n");
+                }
+                continue;
+            }
+            graph.write(block.id + "->" + block.ifTrue.id + "[label=true" + (takesTrue[block.id] ? "" : ",style=dashed")
+                    + "]\n");
+            graph.write(block.id + "->" + block.ifFalse.id + "[label=false"
+                    + (takesFalse[block.id] ? "" : ",style=dashed") + "]\n");
+        }
+        graph.write("\n}");
+    }
+}
@@ -0,0 +1,187 @@
+package pt.up.fe.comp2024.optimization;
+
+import java.util.List;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.optimization.dataflow.FlowGraph;
+
+/**
+ * Removes the statements of a method that can never run, so that they do not become labels, gotos and instructions
+ * nobody jumps to:
+ * <ul>
+ * <li>an if statement whose condition folded to a literal is replaced with the branch it takes;</li>
+ * <li>a while loop whose condition folded to false is removed;</li>
+ * <li>statements that no path reaches, after a return or after a while loop whose condition is true, are removed.
+ * The OLLIR generator relies on a method ending with its return, so an unreachable final return of an int or boolean
+ * is kept returning 0 or false, and nothing is removed from methods whose unreachable final return has another
+ * type.</li>
+ * </ul>
+ */
+class DeadCodeElimination {
+
+    private int removedNodes = 0;
+
+    /**
+     * @return how many AST nodes were removed, statements and the expressions in them
+     */
+    public int getRemovedNodes() {
+        return removedNodes;
+    }
+
+    public void eliminate(JmmNode method) {
+        pruneBranches(method.getChildren());
+        removeUnreachable(method);
+    }
+
+    private void pruneBranches(List<JmmNode> stmts) {
+        for (var stmt : stmts) {
+            switch (stmt.getKind()) {
+                case "MultiStmt":
+                    pruneBranches(stmt.getChildren());
+                    break;
+                case "IfStmt": {
+                    var condition = booleanLiteral(stmt.getChild(0));
+                    if (condition == null) {
+                        pruneBranches(stmt.getChildren().subList(1, 3));
+                        break;
+                    }
+                    var taken = stmt.removeChild(condition ? 1 : 2);
+                    removedNodes += size(stmt);
+                    stmt.replace(taken);
+                    pruneBranches(List.of(taken));
+                    break;
+                }
+                case "WhileStmt": {
+                    if (Boolean.FALSE.equals(booleanLiteral(stmt.getChild(0)))) {
+                        remove(stmt);
+                    } else {
+                        pruneBranches(List.of(stmt.getChild(1)));
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    private void removeUnreachable(JmmNode method) {
+        var blocks = BasicBlocks.build(method);
+        var graph = new FlowGraph(blocks.size(), 0);
+        for (var block : blocks.getBlocks()) {
+            if (block.branch == null) {
+                if (block.next != null) {
+                    graph.addEdge(block.id, block.next.id);
+                }
+                continue;
+            }
+            // Only while loops can still have a literal condition, true, which never leaves the loop
+            var condition = booleanLiteral(block.branch.getChild(0));
+            if (!Boolean.FALSE.equals(condition)) {
+                graph.addEdge(block.id, block.ifTrue.id);
+            }
+            if (!Boolean.TRUE.equals(condition)) {
+                graph.addEdge(block.id, block.ifFalse.id);
+            }
+        }
+
+        var reachable = new boolean[blocks.size()];
+        for (int block : graph.reversePostorder()) {
+            reachable[block] = true;
+        }
+
+        var last = method.getChild(method.getNumChildren() - 1);
+        var returnType = method.getChild(0);
+        var keep = returnType.get("name").equals("void") ? null : last;
+        if (keep != null && isUnreachable(keep, blocks, reachable)) {
+            var value = defaultValue(returnType);
+            if (value == null) {
+                return;
+            }
+            removedNodes += size(keep.getChild(0)) - 1;
+            keep.getChild(0).replace(value);
+        }
+
+        for (var block : blocks.getBlocks()) {
+            if (reachable[block.id]) {
+                continue;
+            }
+            for (var stmt : block.stmts) {
+                if (stmt != keep && isAttached(stmt, method)) {
+                    remove(stmt);
+                }
+            }
+            if (block.branch != null && isAttached(block.branch, method)) {
+                remove(block.branch);
+            }
+        }
+    }
+
+    private static boolean isUnreachable(JmmNode stmt, BasicBlocks blocks, boolean[] reachable) {
+        for (var block : blocks.getBlocks()) {
+            if (block.stmts.contains(stmt)) {
+                return !reachable[block.id];
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the literal that stands for any value of the type, or null if there is none
+     */
+    private static JmmNode defaultValue(JmmNode type) {
+        if (Boolean.parseBoolean(type.get("isArray"))) {
+            return null;
+        }
+        return switch (type.get("name")) {
+            case "int" -> {
+                var literal = new JmmNodeImpl("IntegerLiteral");
+                literal.put("value", "0");
+                yield literal;
+            }
+            case "boolean" -> {
+                var literal = new JmmNodeImpl("VarRefExpr");
+                literal.put("name", "false");
+                yield literal;
+            }
+            default -> null;
+        };
+    }
+
+    private void remove(JmmNode stmt) {
+        var parentKind = stmt.getParent().getKind();
+        if (parentKind.equals("IfStmt") || parentKind.equals("WhileStmt")) {
+            // Those need a statement in its place
+            removedNodes += size(stmt) - 1;
+            stmt.replace(new JmmNodeImpl("MultiStmt"));
+        } else {
+            removedNodes += size(stmt);
+            stmt.detach();
+        }
+    }
+
+    /**
+     * @return false if the statement is inside one that was already removed
+     */
+    private static boolean isAttached(JmmNode stmt, JmmNode method) {
+        var node = stmt;
+        while (node != null && node != method) {
+            node = node.getParent();
+        }
+        return node == method;
+    }
+
+    private static int size(JmmNode node) {
+        return (int) node.getDescendantsAndSelfStream().count();
+    }
+
+    private static Boolean booleanLiteral(JmmNode expr) {
+        if (!expr.getKind().equals("VarRefExpr")) {
+            return null;
+        }
+        return switch (expr.get("name")) {
+            case "true" -> true;
+            case "false" -> false;
+            default -> null;
+        };
+    }
+}
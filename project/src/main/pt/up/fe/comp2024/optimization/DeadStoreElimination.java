@@ -0,0 +1,140 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Removes the assignments to variables of an OLLIR method that are not live after them, and have no other effect.
+ * <p>
+ * Only assignments of operations, single operands and field reads are removed: calls (including new and
+ * arraylength), array stores and putfield are kept, and so are divisions that may divide by zero and array reads
+ * that may be out of bounds. Removing a store can make the variables it read dead, e.g. the temporaries of an
+ * expression, so the liveness is computed again until no store is removed. The CFG of the method must have been
+ * built, and it is built again after each removal.
+ */
+public class DeadStoreElimination {
+
+    private final Method method;
+    private int removed = 0;
+
+    public DeadStoreElimination(Method method) {
+        this.method = method;
+    }
+
+    /**
+     * @return how many assignments were removed
+     */
+    public int getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return the liveness of the method without its dead stores
+     */
+    public Liveness eliminate() {
+        var liveness = Liveness.analyse(method);
+        while (true) {
+            var deadStores = findDeadStores(liveness);
+            if (deadStores.isEmpty()) {
+                return liveness;
+            }
+
+            remove(deadStores);
+            rebuildCFG();
+            liveness = Liveness.analyse(method);
+        }
+    }
+
+    private Set<Instruction> findDeadStores(Liveness liveness) {
+        Set<Instruction> deadStores = new HashSet<>();
+        var instructions = method.getInstructions();
+        // The last instruction is kept, so that the labels of removed instructions always have one to move to
+        for (int i = 0; i < instructions.size() - 1; i++) {
+            var instruction = instructions.get(i);
+            if (instruction instanceof AssignInstruction assign && liveness.isReachable(assign.getId())
+                    && !(assign.getDest() instanceof ArrayOperand)
+                    && !liveness.getLiveOut(assign.getId()).contains(((Operand) assign.getDest()).getName())
+                    && hasNoEffect(assign.getRhs())) {
+                deadStores.add(assign);
+            }
+        }
+        return deadStores;
+    }
+
+    private static boolean hasNoEffect(Instruction rhs) {
+        switch (rhs.getInstType()) {
+            case UNARYOPER, GETFIELD:
+                return true;
+            case BINARYOPER: {
+                var binary = (BinaryOpInstruction) rhs;
+                if (binary.getOperation().getOpType() != OperationType.DIV) {
+                    return true;
+                }
+                return binary.getRightOperand() instanceof LiteralElement divisor
+                        && !divisor.getLiteral().equals("0");
+            }
+            case NOPER:
+                return !(((SingleOpInstruction) rhs).getSingleOperand() instanceof ArrayOperand);
+            default:
+                return false;
+        }
+    }
+
+    private void remove(Set<Instruction> deadStores) {
+        var instructions = method.getInstructions();
+        var labels = method.getLabels();
+        Map<Instruction, List<String>> removedLabels = new HashMap<>();
+        for (var entry : labels.entrySet()) {
+            if (deadStores.contains(entry.getValue())) {
+                removedLabels.computeIfAbsent(entry.getValue(), instruction -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+
+        List<Instruction> kept = new ArrayList<>(instructions.size() - deadStores.size());
+        List<String> pendingLabels = new ArrayList<>();
+        for (var instruction : instructions) {
+            if (deadStores.contains(instruction)) {
+                // The labels of a removed instruction go to the next one that is kept
+                pendingLabels.addAll(removedLabels.getOrDefault(instruction, List.of()));
+                continue;
+            }
+            for (var label : pendingLabels) {
+                labels.put(label, instruction);
+            }
+            pendingLabels.clear();
+            kept.add(instruction);
+        }
+
+        removed += deadStores.size();
+        instructions.clear();
+        instructions.addAll(kept);
+
+        // The variables that are no longer assigned or read must not keep a register
+        method.getVarTable().clear();
+        method.buildVarTable();
+    }
+
+    private void rebuildCFG() {
+        clearEdges(method.getBeginNode());
+        clearEdges(method.getEndNode());
+        for (var instruction : method.getInstructions()) {
+            clearEdges(instruction);
+        }
+        method.buildCFG();
+    }
+
+    private static void clearEdges(Node node) {
+        if (node.getSuccessors() != null) {
+            node.getSuccessors().clear();
+        }
+        if (node.getPredecessors() != null) {
+            node.getPredecessors().clear();
+        }
+    }
+}
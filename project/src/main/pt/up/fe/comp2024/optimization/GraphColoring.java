@@ -47,6 +47,10 @@ public class GraphColoring {
         graph.get(b).add(a);
     }
 
+    public int getEdgeCount(){
+        return graph.values().stream().mapToInt(Set::size).sum() / 2;
+    }
+
     public Map<String, Integer> getGraphColors(){
         return graphColors;
     }
@@ -7,86 +7,139 @@ import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.metrics.StageTimer;
 
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.optimization.GraphColoring;
 
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class JmmOptimizationImpl implements JmmOptimization {
-    private boolean change;
+    private final CompilerContext context;
+
+    public JmmOptimizationImpl() {
+        this(new CompilerContext());
+    }
+
+    public JmmOptimizationImpl(CompilerContext context) {
+        this.context = context;
+    }
+
     @Override
     public JmmSemanticsResult optimize(JmmSemanticsResult semanticsResult) {
         if (!CompilerConfig.getOptimize(semanticsResult.getConfig())) {
             return semanticsResult;
         }
 
+        context.useClasspath(semanticsResult.getConfig());
         ASTOptimization optimizer = new ASTOptimization(semanticsResult.getRootNode(),
-                semanticsResult.getSymbolTable());
-        optimizer.optimize();
+                semanticsResult.getSymbolTable(), context);
+        try (var timer = context.getMetrics().start("optimization")) {
+            optimizer.optimize();
+            timer.count("constants", optimizer.getConstants());
+            timer.count("removedNodes", optimizer.getRemovedNodes());
+            timer.count("astNodes", optimizer.rootNode.getDescendantsAndSelfStream().count());
+        }
         return new JmmSemanticsResult(optimizer.rootNode, optimizer.table, semanticsResult.getReports(),
                 semanticsResult.getConfig());
     }
 
     @Override
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
-
-        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
-        var ollirCode = visitor.visit(semanticsResult.getRootNode());
-        return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
+        context.useClasspath(semanticsResult.getConfig());
+
+        var metrics = context.getMetrics();
+        try (var timer = metrics.start("ollir")) {
+            String ollirCode;
+            try (var generationTimer = metrics.start("ollir.generation")) {
+                var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable(), context);
+                ollirCode = visitor.visit(semanticsResult.getRootNode());
+                generationTimer.count("temps", context.getTempCount());
+                generationTimer.count("lines", ollirCode.lines().count());
+            }
+
+            // The OLLIR code is parsed when the result is created
+            try (var parseTimer = metrics.start("ollir.parse")) {
+                var ollirResult = new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
+                parseTimer.count("instructions", ollirResult.getOllirClass().getMethods().stream()
+                        .mapToInt(method -> method.getInstructions().size())
+                        .sum());
+                return ollirResult;
+            }
+        }
     }
 
     @Override
     public OllirResult optimize(OllirResult ollirResult) {
-        if (CompilerConfig.getRegisterAllocation(ollirResult.getConfig()) == -1) {
+        boolean removeDeadStores = CompilerConfig.getOptimize(ollirResult.getConfig());
+        boolean allocateRegisters = CompilerConfig.getRegisterAllocation(ollirResult.getConfig()) != -1;
+        if (!removeDeadStores && !allocateRegisters) {
             return ollirResult;
         }
 
-        int n = CompilerConfig.getRegisterAllocation(ollirResult.getConfig());
         ClassUnit classUnit = ollirResult.getOllirClass();
         classUnit.buildCFGs();
 
+        // The liveness left by the dead store elimination is the one the register allocation needs
+        Map<Method, Liveness> livenessByMethod = new HashMap<>();
+        if (removeDeadStores) {
+            try (var timer = context.getMetrics().start("deadStores")) {
+                int removed = 0;
+                for (Method method : classUnit.getMethods()) {
+                    var elimination = new DeadStoreElimination(method);
+                    livenessByMethod.put(method, elimination.eliminate());
+                    removed += elimination.getRemoved();
+                }
+                timer.count("removed", removed);
+            }
+        }
+
+        if (!allocateRegisters) {
+            return ollirResult;
+        }
+        try (var timer = context.getMetrics().start("registerAllocation")) {
+            return allocateRegisters(ollirResult, livenessByMethod, timer);
+        }
+    }
+
+    private OllirResult allocateRegisters(OllirResult ollirResult, Map<Method, Liveness> livenessByMethod,
+                                          StageTimer timer) {
+        var metrics = context.getMetrics();
+        int n = CompilerConfig.getRegisterAllocation(ollirResult.getConfig());
+        ClassUnit classUnit = ollirResult.getOllirClass();
+        timer.count("methods", classUnit.getMethods().size());
+
         for(Method method : classUnit.getMethods()) {
             method.buildVarTable();
             int size = method.getInstructions().size() + 1;
-            Node begin = method.getBeginNode();
 
             //System.out.println("\n \n Test \n");
             //method.show();
             //System.out.println("\n \n End \n");
 
-            Set<Integer> visit = new HashSet<>();
-            List<Set<String>> use = new ArrayList<>();
-            List<Set<String>> def = new ArrayList<>();
-            List<Set<String>> liveIn = new ArrayList<>();
-            List<Set<String>> liveOut = new ArrayList<>();
-            for (int i = 0; i < size; i++) {
-                use.add(new HashSet<>());
-                def.add(new HashSet<>());
-                liveIn.add(new HashSet<>());
-                liveOut.add(new HashSet<>());
-            }
-            dfs(begin, visit, use, def);
-
-            change = true;
-            while (change) {
-                change = false;
-                visit.clear();
-                computeLiveSet(begin, visit, liveIn, liveOut, use, def);
-            }
+            var livenessTimer = metrics.start("registerAllocation.liveness");
+            var liveness = livenessByMethod.containsKey(method)
+                    ? livenessByMethod.get(method)
+                    : Liveness.analyse(method);
             List<Set<String>> defJoinLiveOut = new ArrayList<>();
-            for (int i = 0; i < size; i++) {
-                Set<String> join = Stream.concat(def.get(i).stream(), liveOut.get(i).stream()).collect(Collectors.toSet());
+            defJoinLiveOut.add(new HashSet<>());
+            for (int i = 1; i < size; i++) {
+                Set<String> join = liveness.getDef(i);
+                join.addAll(liveness.getLiveOut(i));
                 defJoinLiveOut.add(join);
             }
+            livenessTimer.count("visits", liveness.getVisits());
+            livenessTimer.close();
+
+            var coloringTimer = metrics.start("registerAllocation.coloring");
             Set<String> vars = new HashSet<>();
             for (var s : defJoinLiveOut) {
                 vars.addAll(s);
             }
             List<String> params = method.getParams().stream().map(param -> ((Operand) param).getName()).toList();
             params.forEach(vars::remove);
+            vars.remove("this");
             GraphColoring graphColoring = new GraphColoring();
             for (String var : vars) {
                 graphColoring.addNode(var);
@@ -104,6 +157,9 @@ public class JmmOptimizationImpl implements JmmOptimization {
             for (String var : vars) {
                 graphColoring.addColor(var);
             }
+            coloringTimer.count("interferenceEdges", graphColoring.getEdgeCount());
+            coloringTimer.count("variables", vars.size());
+            coloringTimer.close();
 
             if(n == 0) {
 
@@ -124,7 +180,6 @@ public class JmmOptimizationImpl implements JmmOptimization {
                 String message =  "Minimum number of local variables require for the method " + method.getMethodName() + " is "+minRegisterNumber + ", available " + n;
 
                 if(minRegisterNumber > n){
-                    System.out.println("\n \n" + message + "\n \n");
                     Report report = Report.newError(
                             Stage.OPTIMIZATION,
                             -1,
@@ -172,141 +227,4 @@ public class JmmOptimizationImpl implements JmmOptimization {
 
         return ollirResult;
     }
-
-    private void dfs(Node node, Set<Integer> visit, List<Set<String>> use, List<Set<String>> def){
-        if(node.getNodeType() == NodeType.BEGIN){
-            if(node.getSucc1().getNodeType() != NodeType.END) {
-                dfs(node.getSucc1(), visit, use, def);
-            }
-            return;
-        }
-        Instruction inst = (Instruction) node;
-
-        switch (inst.getInstType()) {
-            case BRANCH: {
-                CondBranchInstruction branch = (CondBranchInstruction) inst;
-                List<Element> a = branch.getOperands();
-                for (Element e : a) {
-                    if(!e.isLiteral()){
-                        use.get(node.getId()).add(((Operand) e).getName());
-                    }
-                }
-                break;
-            }
-            case ASSIGN:{
-                AssignInstruction assign = (AssignInstruction) inst;
-                Operand dest = (Operand) assign.getDest();
-                if(dest instanceof ArrayOperand arrayOperand){
-                    use.get(node.getId()).add(dest.getName());
-                    for(Element e : arrayOperand.getIndexOperands()){
-                        if(!e.isLiteral()){
-                            use.get(node.getId()).add(((Operand) e).getName());
-                        }
-                    }
-                }
-                else {
-                    def.get(node.getId()).add(dest.getName());
-                }
-                Instruction rhs = assign.getRhs();
-                List<String> rhsOpe = getInstructionOperands(rhs);
-                use.get(node.getId()).addAll(rhsOpe);
-                break;
-            }
-            case RETURN:{
-                ReturnInstruction ret = (ReturnInstruction) inst;
-                Element element = ret.getOperand();
-                if(element != null && !element.isLiteral()){
-                    use.get(node.getId()).add(((Operand) element).getName());
-                }
-                break;
-            }
-        }
-        visit.add(node.getId());
-        for(Node successor : node.getSuccessors()){
-            if(!visit.contains(successor.getId()) && successor.getNodeType() != NodeType.END) {
-                dfs(successor, visit, use, def);
-            }
-        }
-    }
-
-    private List<String> getInstructionOperands(Instruction inst){
-        List<String> elements = new ArrayList<>();
-        switch (inst.getInstType()) {
-            case UNARYOPER:{
-                UnaryOpInstruction unary = (UnaryOpInstruction) inst;
-                Element element = unary.getOperand();
-                if(!element.isLiteral()){
-                    elements.add(((Operand) element).getName());
-                }
-                break;
-            }
-            case BINARYOPER: {
-                BinaryOpInstruction binary = (BinaryOpInstruction) inst;
-                Element e1 = binary.getLeftOperand();
-                if (!e1.isLiteral()) {
-                    elements.add(((Operand) e1).getName());
-                }
-                Element e2 = binary.getRightOperand();
-                if (!e2.isLiteral()) {
-                    elements.add(((Operand) e2).getName());
-                }
-                break;
-            }
-            case NOPER:{
-                SingleOpInstruction single = (SingleOpInstruction)inst;
-                Element element = single.getSingleOperand();
-                if(!element.isLiteral()){
-                    elements.add(((Operand) element).getName());
-                }
-                break;
-            }
-            case CALL:{
-                CallInstruction call = (CallInstruction) inst;
-                List<Element> arguments = call.getArguments();
-                for(Element e : arguments){
-                    if(!e.isLiteral()){
-                        elements.add(((Operand) e).getName());
-                    }
-                }
-            }
-        }
-        return elements;
-    }
-
-    private void computeLiveSet(Node node, Set<Integer> visit, List<Set<String>> liveIn, List<Set<String>> liveOut, List<Set<String>> use, List<Set<String>> def){
-        if(node.getNodeType() == NodeType.BEGIN){
-            if(node.getSucc1().getNodeType() != NodeType.END) {
-                computeLiveSet(node.getSucc1(), visit, liveIn, liveOut, use, def);
-            }
-            return;
-        }
-        int nodeId =  node.getId();
-        Set<String> oldIn = new HashSet<>(liveIn.get(nodeId));
-        Set<String> oldOut = new HashSet<>(liveOut.get(nodeId));
-
-        Set<String> newIn = oldOut.stream().filter(x->!def.get(nodeId).contains(x)).collect(Collectors.toSet());
-        newIn.addAll(use.get(nodeId));
-        Set<String> newOut = new HashSet<>();
-
-        visit.add(node.getId());
-        for(Node successor : node.getSuccessors()){
-            if(successor.getNodeType() != NodeType.END) {
-                int successorId = successor.getId();
-                newOut.addAll(liveIn.get(successorId));
-            }
-        }
-        if (!newIn.equals(oldIn)) {
-            change = true;
-            liveIn.set(nodeId, newIn);
-        }
-        if (!newOut.equals(oldOut)) {
-            change = true;
-            liveOut.set(nodeId, newOut);
-        }
-        for(Node successor : node.getSuccessors()){
-            if(!visit.contains(successor.getId()) && successor.getNodeType() != NodeType.END) {
-                computeLiveSet(successor, visit, liveIn, liveOut, use, def);
-            }
-        }
-    }
 }
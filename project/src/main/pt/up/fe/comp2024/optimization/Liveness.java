@@ -0,0 +1,203 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2024.optimization.dataflow.DataflowProblem.Direction;
+import pt.up.fe.comp2024.optimization.dataflow.DataflowProblem.Meet;
+import pt.up.fe.comp2024.optimization.dataflow.DataflowResult;
+import pt.up.fe.comp2024.optimization.dataflow.FlowGraph;
+import pt.up.fe.comp2024.optimization.dataflow.GenKillProblem;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The variables used, defined and live around each instruction of an OLLIR method, whose CFG must have been built.
+ * Instructions are referred to by their id, from 1 to the number of instructions. Instructions that cannot be reached
+ * from the start of the method use, define and keep nothing alive.
+ */
+public class Liveness {
+
+    private final Map<String, Integer> variables = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<BitSet> use = new ArrayList<>();
+    private final List<BitSet> def = new ArrayList<>();
+    private final DataflowResult result;
+
+    private Liveness(Method method) {
+        var instructions = method.getInstructions();
+        var graph = new FlowGraph(instructions.size(), 0);
+        for (var instruction : instructions) {
+            for (var successor : instruction.getSuccessors()) {
+                if (successor.getNodeType() != NodeType.END) {
+                    graph.addEdge(instruction.getId() - 1, successor.getId() - 1);
+                }
+            }
+        }
+
+        var reachable = new boolean[instructions.size()];
+        for (int node : graph.reversePostorder()) {
+            reachable[node] = true;
+        }
+        for (var instruction : instructions) {
+            var instructionUse = new BitSet();
+            var instructionDef = new BitSet();
+            if (reachable[instruction.getId() - 1]) {
+                addUseDef(instruction, instructionUse, instructionDef);
+            }
+            use.add(instructionUse);
+            def.add(instructionDef);
+        }
+
+        // Live variables flow backwards: the ones used by the instruction, and the ones live after it that it does
+        // not define
+        var problem = new GenKillProblem(Direction.BACKWARD, Meet.UNION, names.size(), instructions.size());
+        for (int i = 0; i < instructions.size(); i++) {
+            problem.getGen(i).or(use.get(i));
+            problem.getKill(i).or(def.get(i));
+        }
+        result = problem.solve(graph);
+    }
+
+    public static Liveness analyse(Method method) {
+        return new Liveness(method);
+    }
+
+    public boolean isReachable(int instructionId) {
+        return result.isReachable(instructionId - 1);
+    }
+
+    public Set<String> getUse(int instructionId) {
+        return toNames(use.get(instructionId - 1));
+    }
+
+    public Set<String> getDef(int instructionId) {
+        return toNames(def.get(instructionId - 1));
+    }
+
+    public Set<String> getLiveIn(int instructionId) {
+        return toNames(result.getIn(instructionId - 1));
+    }
+
+    public Set<String> getLiveOut(int instructionId) {
+        return toNames(result.getOut(instructionId - 1));
+    }
+
+    /**
+     * @return how many times an instruction was visited until the live sets stopped changing
+     */
+    public int getVisits() {
+        return result.getVisits();
+    }
+
+    private Set<String> toNames(BitSet variableSet) {
+        Set<String> set = new HashSet<>();
+        for (int i = variableSet.nextSetBit(0); i >= 0; i = variableSet.nextSetBit(i + 1)) {
+            set.add(names.get(i));
+        }
+        return set;
+    }
+
+    private int variable(String name) {
+        return variables.computeIfAbsent(name, key -> {
+            names.add(key);
+            return names.size() - 1;
+        });
+    }
+
+    private void addUseDef(Instruction inst, BitSet use, BitSet def) {
+        switch (inst.getInstType()) {
+            case BRANCH: {
+                CondBranchInstruction branch = (CondBranchInstruction) inst;
+                for (Element e : branch.getOperands()) {
+                    if (!e.isLiteral()) {
+                        use.set(variable(((Operand) e).getName()));
+                    }
+                }
+                break;
+            }
+            case ASSIGN: {
+                AssignInstruction assign = (AssignInstruction) inst;
+                Operand dest = (Operand) assign.getDest();
+                if (dest instanceof ArrayOperand arrayOperand) {
+                    use.set(variable(dest.getName()));
+                    for (Element e : arrayOperand.getIndexOperands()) {
+                        if (!e.isLiteral()) {
+                            use.set(variable(((Operand) e).getName()));
+                        }
+                    }
+                } else {
+                    def.set(variable(dest.getName()));
+                }
+                addOperands(assign.getRhs(), use);
+                break;
+            }
+            case CALL, PUTFIELD: {
+                addOperands(inst, use);
+                break;
+            }
+            case RETURN: {
+                ReturnInstruction ret = (ReturnInstruction) inst;
+                Element element = ret.getOperand();
+                if (element != null && !element.isLiteral()) {
+                    use.set(variable(((Operand) element).getName()));
+                }
+                break;
+            }
+        }
+    }
+
+    private void addOperands(Instruction inst, BitSet use) {
+        switch (inst.getInstType()) {
+            case UNARYOPER: {
+                UnaryOpInstruction unary = (UnaryOpInstruction) inst;
+                addOperand(unary.getOperand(), use);
+                break;
+            }
+            case BINARYOPER: {
+                BinaryOpInstruction binary = (BinaryOpInstruction) inst;
+                addOperand(binary.getLeftOperand(), use);
+                addOperand(binary.getRightOperand(), use);
+                break;
+            }
+            case NOPER: {
+                SingleOpInstruction single = (SingleOpInstruction) inst;
+                addOperand(single.getSingleOperand(), use);
+                break;
+            }
+            case CALL: {
+                CallInstruction call = (CallInstruction) inst;
+                // The object of the call is also used, the class of static calls and of new is not a variable
+                if (call.getInvocationType() != CallType.invokestatic && call.getInvocationType() != CallType.NEW) {
+                    addOperand(call.getCaller(), use);
+                }
+                for (Element e : call.getArguments()) {
+                    addOperand(e, use);
+                }
+                break;
+            }
+            case PUTFIELD: {
+                PutFieldInstruction putField = (PutFieldInstruction) inst;
+                addOperand(putField.getValue(), use);
+                break;
+            }
+        }
+    }
+
+    private void addOperand(Element element, BitSet use) {
+        if (element.isLiteral()) {
+            return;
+        }
+        use.set(variable(((Operand) element).getName()));
+        // Indexes of array accesses, e.g. a[i.i32].i32
+        if (element instanceof ArrayOperand arrayOperand) {
+            for (Element index : arrayOperand.getIndexOperands()) {
+                addOperand(index, use);
+            }
+        }
+    }
+}
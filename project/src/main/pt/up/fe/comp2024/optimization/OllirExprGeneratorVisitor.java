@@ -1,11 +1,14 @@
 package pt.up.fe.comp2024.optimization;
 
-import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.CompilerContext;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.ResolvedSymbol;
+import pt.up.fe.comp2024.symboltable.SymbolIndex;
+import pt.up.fe.comp2024.symboltable.SymbolKind;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
@@ -24,10 +27,13 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
     private final String TAB = "    ";
 
     private final SymbolTable table;
-    public String currentMethod;
+    private final SymbolIndex symbols;
+    private final CompilerContext context;
 
-    public OllirExprGeneratorVisitor(SymbolTable table) {
+    public OllirExprGeneratorVisitor(SymbolTable table, CompilerContext context) {
         this.table = table;
+        this.symbols = SymbolIndex.of(table);
+        this.context = context;
     }
 
     @Override
@@ -62,7 +68,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
 
     private OllirExprResult visitNewExpr(JmmNode node, InferType expected) {
         var name = node.get("name");
-        var tmp = OptUtils.getTemp();
+        var tmp = context.getTemp();
         var code = tmp + "." + name;
         var computation = new StringBuilder();
         computation.append(TAB);
@@ -82,9 +88,9 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
     }
 
     private OllirExprResult visitNewArrayExpr(JmmNode node, InferType expected) {
-        Type resType = typeOrExpected(TypeUtils.getExprType(node, table), expected);
+        Type resType = typeOrExpected(TypeUtils.getExprType(node, table, context), expected);
         String resOllirType = OptUtils.toOllirType(resType);
-        var tmp = OptUtils.getTemp();
+        var tmp = context.getTemp();
         var code = tmp + resOllirType;
         var computation = new StringBuilder();
         computation.append(TAB);
@@ -107,13 +113,13 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
 
         if (node.get("op").equals("&&")) {
 
-            String code = OptUtils.getTemp() + OptUtils.toOllirType(new Type("boolean", false));
+            String code = context.getTemp() + OptUtils.toOllirType(new Type("boolean", false));
 
             var lhs = visit(node.getJmmChild(0), new InferType(new Type("boolean", false)));
             var rhs = visit(node.getJmmChild(1), new InferType(new Type("boolean", false)));
 
-            String initIf = "true_" + OptUtils.getNextTempLabel();
-            String endIf = "end_" + OptUtils.getNextTempLabel();
+            String initIf = "true_" + context.getNextTempLabel();
+            String endIf = "end_" + context.getNextTempLabel();
 
             // computation of left side
             computation.append(lhs.getComputation());
@@ -166,16 +172,16 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
         computation.append(rhs.getComputation());
 
         // code to compute self
-        Type resType = typeOrExpected(TypeUtils.getExprType(node, table), expected);
+        Type resType = typeOrExpected(TypeUtils.getExprType(node, table, context), expected);
         String resOllirType = OptUtils.toOllirType(resType);
-        String code = OptUtils.getTemp() + resOllirType;
+        String code = context.getTemp() + resOllirType;
 
         computation.append(TAB);
         computation.append(code).append(SPACE)
                 .append(ASSIGN).append(resOllirType).append(SPACE)
                 .append(lhs.getCode()).append(SPACE);
 
-        Type type = TypeUtils.getExprType(node, table);
+        Type type = TypeUtils.getExprType(node, table, context);
         computation.append(node.get("op")).append(OptUtils.toOllirType(type)).append(SPACE)
                 .append(rhs.getCode()).append(END_STMT);
 
@@ -192,9 +198,9 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
         computation.append(s.getComputation());
 
         // code to compute self
-        Type resType = typeOrExpected(TypeUtils.getExprType(node, table), expected);
+        Type resType = typeOrExpected(TypeUtils.getExprType(node, table, context), expected);
         String resOllirType = OptUtils.toOllirType(resType);
-        String code = OptUtils.getTemp() + resOllirType;
+        String code = context.getTemp() + resOllirType;
 
         computation.append(TAB);
         computation.append(code).append(SPACE)
@@ -217,19 +223,17 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
             return new OllirExprResult("0.bool");
         }
 
-        Type type = typeOrExpected(TypeUtils.getExprType(node, table), expected);
+        Type type = typeOrExpected(TypeUtils.getExprType(node, table, context), expected);
         if (type == null)
             return new OllirExprResult(id);
 
-        var isLocalList = table.getLocalVariables(currentMethod).stream().filter(local -> local.getName().equals(id))
-                .toList();
-        var isParamList = table.getParameters(currentMethod).stream().filter(param -> param.getName().equals(id))
-                .toList();
-        var isFieldList = table.getFields().stream().filter(field -> field.getName().equals(id)).toList();
+        var isField = symbols.resolve(context.getCurrentMethod(), id)
+                .map(symbol -> symbol.kind() == SymbolKind.FIELD)
+                .orElse(false);
         String ollirType = OptUtils.toOllirType(type);
 
-        if (isLocalList.isEmpty() && isParamList.isEmpty() && !isFieldList.isEmpty()) {
-            var code = OptUtils.getTemp() + ollirType;
+        if (isField) {
+            var code = context.getTemp() + ollirType;
             var computation = new StringBuilder();
             computation.append(TAB);
             computation.append(code);
@@ -254,21 +258,19 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
 
     private OllirExprResult visitFieldAccessExpr(JmmNode node, InferType expected) {
         var lhs = visit(node.getChild(0));
-        var lhsType = TypeUtils.getExprType(node.getChild(0), table);
+        var lhsType = TypeUtils.getExprType(node.getChild(0), table, context);
         var fieldName = node.get("field");
         var rhsType = expected;
         if (!lhsType.isArray() && lhsType.getName().equals(table.getClassName())) {
-            rhsType = new InferType(table.getFields().stream()
-                    .filter(field -> field.getName().equals(fieldName)).findFirst()
-                    .orElse(new Symbol(
-                            expected != null ? expected.type : null, ""))
-                    .getType());
+            rhsType = new InferType(symbols.resolveField(fieldName)
+                    .map(ResolvedSymbol::type)
+                    .orElse(expected != null ? expected.type : null));
         }
         var ollirType = ".V";
         if (rhsType != null && rhsType.type != null) {
             ollirType = OptUtils.toOllirType(rhsType.type);
         }
-        var code = OptUtils.getTemp() + ollirType;
+        var code = context.getTemp() + ollirType;
         var computation = new StringBuilder();
         computation.append(lhs.getComputation());
         computation.append(TAB);
@@ -299,14 +301,14 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
 
     private OllirExprResult visitArrayExpr(JmmNode node, InferType expected) {
 
-        Type type = typeOrExpected(TypeUtils.getExprType(node, table), expected);
+        Type type = typeOrExpected(TypeUtils.getExprType(node, table, context), expected);
         String ollirType = OptUtils.toOllirType(type);
         String resultType = OptUtils.toOllirType(type.getName());
         int size = node.getChildren().size();
 
         var computation = new StringBuilder();
 
-        String temp = (OptUtils.getTemp() + ollirType);
+        String temp = (context.getTemp() + ollirType);
 
         computation.append(TAB);
         computation.append(temp);
@@ -321,7 +323,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
         computation.append(END_STMT);
 
         computation.append(TAB);
-        String array = OptUtils.getTempArray("__varargs_array_");
+        String array = context.getTempArray("__varargs_array_");
         String code = (array + ollirType);
         computation.append(code);
         computation.append(SPACE)
@@ -359,10 +361,10 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
     private OllirExprResult visitArrayAccessExpr(JmmNode node, InferType expected) {
         var var = visit(node.getChild(0));
         var pos = visit(node.getChild(1));
-        var arrayType = TypeUtils.getExprType(node.getChild(0), table);
+        var arrayType = TypeUtils.getExprType(node.getChild(0), table, context);
         var ollirArrayType = OptUtils.toOllirType(arrayType.getName());
 
-        var code = OptUtils.getTemp() + ollirArrayType;
+        var code = context.getTemp() + ollirArrayType;
         var computation = new StringBuilder();
 
         String[] arrayNameCodeList = var.getCode().split("\\.");
@@ -394,7 +396,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
 
     private OllirExprResult visitFunctionCall(JmmNode node, InferType expected) {
 
-        var type = typeOrExpected(TypeUtils.getExprType(node, table), expected);
+        var type = typeOrExpected(TypeUtils.getExprType(node, table, context), expected);
         var object = visit(node.getChild(0));
         var functionName = node.get("functionName");
         String callType;
@@ -411,7 +413,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
 
     private OllirExprResult visitSelfFunctionCall(JmmNode node, InferType expected) {
         var functionName = node.get("functionName");
-        var type = typeOrExpected(TypeUtils.getExprType(node, table), expected);
+        var type = typeOrExpected(TypeUtils.getExprType(node, table, context), expected);
         return generateFunction("this." + table.getClassName(), "invokevirtual", "", node, 0,
                 functionName, type, expected != null ? expected.needsResult : true);
     }
@@ -441,7 +443,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
             for (int i = 0; i < paramsSize; i++) {
                 if (TypeUtils.isVarArgs(params.get(i).getType())) {
                     var elements = args.subList(paramsSize - 1, argsSize);
-                    if (elements.size() == 1 && TypeUtils.getExprType(elements.get(0), table).isArray()) {
+                    if (elements.size() == 1 && TypeUtils.getExprType(elements.get(0), table, context).isArray()) {
                         var computed = visit(elements.get(0));
                         computation.append(TAB);
                         computedArgs.add(computed);
@@ -473,7 +475,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
         if (type == null || type.getName().equals("void") || !needsResult) {
             res = "";
         } else {
-            res = OptUtils.getTemp() + OptUtils.toOllirType(type);
+            res = context.getTemp() + OptUtils.toOllirType(type);
             computation.append(TAB);
             computation.append(res);
             computation.append(SPACE)
@@ -509,7 +511,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
 
         var computation = new StringBuilder();
 
-        String temp = (OptUtils.getTemp() + ollirArrayType);
+        String temp = (context.getTemp() + ollirArrayType);
         computation.append(TAB);
         computation.append(temp);
         computation.append(SPACE)
@@ -523,7 +525,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<InferType, OllirExprR
         computation.append(END_STMT);
 
         computation.append(TAB);
-        String array = OptUtils.getTempArray("__varargs_array_");
+        String array = context.getTempArray("__varargs_array_");
         String code = (array + ollirArrayType);
         computation.append(code);
         computation.append(SPACE)
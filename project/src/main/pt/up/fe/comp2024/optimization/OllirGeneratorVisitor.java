@@ -5,8 +5,11 @@ import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.CompilerContext;
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.SymbolIndex;
+import pt.up.fe.comp2024.symboltable.SymbolKind;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
@@ -29,13 +32,18 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     private final String TAB = "    ";
 
     private final SymbolTable table;
+    private final SymbolIndex symbols;
+
+    private final CompilerContext context;
 
     private final OllirExprGeneratorVisitor exprVisitor;
     private String currentMethod;
 
-    public OllirGeneratorVisitor(SymbolTable table) {
+    public OllirGeneratorVisitor(SymbolTable table, CompilerContext context) {
         this.table = table;
-        exprVisitor = new OllirExprGeneratorVisitor(table);
+        this.symbols = SymbolIndex.of(table);
+        this.context = context;
+        exprVisitor = new OllirExprGeneratorVisitor(table, context);
     }
 
     @Override
@@ -58,7 +66,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     private String visitAssignStmt(JmmNode node, Void unused) {
 
         var lhs = node.get("name");
-        Type thisType = TypeUtils.visitVariableReferenceExpression(lhs, table, node);
+        Type thisType = TypeUtils.visitVariableReferenceExpression(lhs, table, node, context);
         String typeString = OptUtils.toOllirType(thisType);
 
         var rhs = exprVisitor.visit(node.getJmmChild(0), new InferType(thisType));
@@ -67,15 +75,11 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         // code to compute the children
 
-        var isLocalList = table.getLocalVariables(currentMethod).stream().filter(local -> local.getName().equals(
-                lhs))
-                .toList();
-        var isParamList = table.getParameters(currentMethod).stream().filter(param -> param.getName().equals(
-                lhs))
-                .toList();
-        var isFieldList = table.getFields().stream().filter(field -> field.getName().equals(lhs)).toList();
+        var isField = symbols.resolve(currentMethod, lhs)
+                .map(symbol -> symbol.kind() == SymbolKind.FIELD)
+                .orElse(false);
 
-        if (isLocalList.isEmpty() && isParamList.isEmpty() && !isFieldList.isEmpty()) {
+        if (isField) {
 
             code.append(rhs.getComputation());
 
@@ -124,7 +128,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     private String visitAssignStmtArray(JmmNode node, Void unused) {
 
         String lhsName = node.get("name");
-        Type arrayType = TypeUtils.visitVariableReferenceExpression(lhsName, table, node);
+        Type arrayType = TypeUtils.visitVariableReferenceExpression(lhsName, table, node, context);
         Type itemType = new Type(arrayType.getName(), false);
         String ollirArrayType = OptUtils.toOllirType(arrayType);
         String ollirItemType = OptUtils.toOllirType(itemType);
@@ -137,19 +141,15 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         // code to compute the children
         code.append(lhs.getComputation());
 
-        var isLocalList = table.getLocalVariables(currentMethod).stream().filter(local -> local.getName().equals(
-                lhsName))
-                .toList();
-        var isParamList = table.getParameters(currentMethod).stream().filter(param -> param.getName().equals(
-                lhsName))
-                .toList();
-        var isFieldList = table.getFields().stream().filter(field -> field.getName().equals(lhsName)).toList();
+        var isField = symbols.resolve(currentMethod, lhsName)
+                .map(symbol -> symbol.kind() == SymbolKind.FIELD)
+                .orElse(false);
 
         String tmp = lhsName;
 
-        if (isLocalList.isEmpty() && isParamList.isEmpty() && !isFieldList.isEmpty()) {
+        if (isField) {
 
-            tmp = OptUtils.getTemp();
+            tmp = context.getTemp();
             code.append(rhs.getComputation());
             code.append(TAB);
             code.append(tmp);
@@ -211,9 +211,9 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         // code block of the loop
         var body = this.visit(node.getJmmChild(1));
 
-        String condLabel = OptUtils.getNextTempLabel();
-        String loopLabel = OptUtils.getNextTempLabel();
-        String endLabel = OptUtils.getNextTempLabel();
+        String condLabel = context.getNextTempLabel();
+        String loopLabel = context.getNextTempLabel();
+        String endLabel = context.getNextTempLabel();
 
         code.append(condLabel);
         code.append(":\n");
@@ -254,8 +254,8 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     private String visitIfStmt(JmmNode node, Void unused) {
         // condition
         var expression = exprVisitor.visit(node.getJmmChild(0), new InferType(new Type("boolean", false)));
-        String initLabel = OptUtils.getNextTempLabel();
-        String endLabel = OptUtils.getNextTempLabel();
+        String initLabel = context.getNextTempLabel();
+        String endLabel = context.getNextTempLabel();
 
         var ifTrue = this.visit(node.getJmmChild(1)); // code block if true
         var ifFalse = this.visit(node.getJmmChild(2)); // code block if false
@@ -359,9 +359,8 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         // name
         currentMethod = node.get("name");
         code.append(currentMethod);
-        exprVisitor.currentMethod = currentMethod;
-        TypeUtils.currentMethod = currentMethod;
-        TypeUtils.isStatic = NodeUtils.getBooleanAttribute(node, "isStatic", "false");
+        context.setCurrentMethod(currentMethod);
+        context.setStatic(NodeUtils.getBooleanAttribute(node, "isStatic", "false"));
 
         // param
         int paramsSize = 0;
@@ -7,42 +7,6 @@ import pt.up.fe.comp2024.ast.NodeUtils;
 import static pt.up.fe.comp2024.ast.Kind.TYPE;
 
 public class OptUtils {
-    private static int tempNumber = -1;
-
-    private static int tempArrayNumber = -1;
-    private static int tempLabel = -1;
-
-    public static String getTemp() {
-
-        return getTemp("tmp");
-    }
-
-    public static String getTemp(String prefix) {
-
-        return prefix + getNextTempNum();
-    }
-
-    public static int getNextTempNum() {
-
-        tempNumber += 1;
-        return tempNumber;
-    }
-
-    public static String getTempArray(String prefix) {
-
-        return prefix + getNextTempArrayNum();
-    }
-
-    public static int getNextTempArrayNum() {
-
-        tempArrayNumber += 1;
-        return tempArrayNumber;
-    }
-
-    public static String getNextTempLabel() {
-        tempLabel += 1;
-        return "label" + tempLabel;
-    }
 
     public static String toOllirType(JmmNode typeNode) {
 
@@ -0,0 +1,75 @@
+package pt.up.fe.comp2024.optimization;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.optimization.dataflow.DataflowProblem.Direction;
+import pt.up.fe.comp2024.optimization.dataflow.DataflowProblem.Meet;
+import pt.up.fe.comp2024.optimization.dataflow.DataflowResult;
+import pt.up.fe.comp2024.optimization.dataflow.GenKillProblem;
+
+/**
+ * The assignments that may reach the start of each basic block of a method.
+ * <p>
+ * Each AssignStmt is a definition, numbered in the order of the blocks, and the definitions of each variable are
+ * collected in one set, so a block kills every definition of the variables it assigns with a single union instead of
+ * comparing its assignments with every other one.
+ */
+class ReachingDefinitions {
+
+    private final List<JmmNode> definitions;
+    private final DataflowResult result;
+
+    private ReachingDefinitions(List<JmmNode> definitions, DataflowResult result) {
+        this.definitions = definitions;
+        this.result = result;
+    }
+
+    public static ReachingDefinitions analyse(BasicBlocks blocks) {
+        List<JmmNode> definitions = new ArrayList<>();
+        Map<String, BitSet> variableDefinitions = new HashMap<>();
+        for (var block : blocks.getBlocks()) {
+            for (var stmt : block.stmts) {
+                if (stmt.getKind().equals("AssignStmt")) {
+                    variableDefinitions.computeIfAbsent(stmt.get("name"), name -> new BitSet()).set(definitions.size());
+                    definitions.add(stmt);
+                }
+            }
+        }
+
+        var problem = new GenKillProblem(Direction.FORWARD, Meet.UNION, definitions.size(), blocks.size());
+        int definition = 0;
+        for (var block : blocks.getBlocks()) {
+            // Only the last assignment of each variable leaves the block
+            Map<String, Integer> lastDefinitions = new LinkedHashMap<>();
+            for (var stmt : block.stmts) {
+                if (stmt.getKind().equals("AssignStmt")) {
+                    lastDefinitions.put(stmt.get("name"), definition++);
+                }
+            }
+            for (var entry : lastDefinitions.entrySet()) {
+                problem.getKill(block.id).or(variableDefinitions.get(entry.getKey()));
+                problem.getGen(block.id).set(entry.getValue());
+            }
+        }
+
+        return new ReachingDefinitions(definitions, problem.solve(blocks.toFlowGraph()));
+    }
+
+    /**
+     * @return the assignments that may reach the start of the block
+     */
+    public List<JmmNode> getReaching(int block) {
+        var reaching = result.getIn(block);
+        List<JmmNode> stmts = new ArrayList<>(reaching.cardinality());
+        for (int i = reaching.nextSetBit(0); i >= 0; i = reaching.nextSetBit(i + 1)) {
+            stmts.add(definitions.get(i));
+        }
+        return stmts;
+    }
+}
@@ -0,0 +1,161 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import java.util.BitSet;
+
+/**
+ * A dataflow analysis whose facts are the bits of a BitSet, e.g. the definitions that reach a node or the variables
+ * that are live after it. Subclasses give the transfer function of the nodes, and {@link #solve} finds the fixpoint.
+ * <p>
+ * The solver keeps a worklist of nodes ordered by reverse postorder (postorder for backward analyses), so a node is
+ * usually visited after the nodes it depends on, and only the nodes whose inputs changed are visited again. The sets
+ * of every node are allocated once and updated in place, one 64-bit word at a time.
+ */
+public abstract class DataflowProblem {
+
+    public enum Direction {
+        FORWARD, BACKWARD
+    }
+
+    public enum Meet {
+        /**
+         * A fact holds if it holds along some path, e.g. reaching definitions and liveness.
+         */
+        UNION,
+        /**
+         * A fact holds if it holds along every path, e.g. available expressions.
+         */
+        INTERSECTION
+    }
+
+    private final Direction direction;
+    private final Meet meet;
+    private final int width;
+    private final BitSet boundary = new BitSet();
+
+    /**
+     * @param width the number of facts
+     */
+    protected DataflowProblem(Direction direction, Meet meet, int width) {
+        this.direction = direction;
+        this.meet = meet;
+        this.width = width;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public Meet getMeet() {
+        return meet;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the facts when the method starts (forward) or ends (backward), empty unless changed
+     */
+    public BitSet getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * Computes the facts after the node (before it, for backward analyses) from the ones before it.
+     *
+     * @param input  the facts flowing into the node, which must not be changed
+     * @param output an empty set that receives the result
+     */
+    protected abstract void transfer(int node, BitSet input, BitSet output);
+
+    public DataflowResult solve(FlowGraph graph) {
+        boolean forward = direction == Direction.FORWARD;
+        var order = graph.reversePostorder();
+        if (!forward) {
+            reverse(order);
+        }
+
+        int size = graph.size();
+        var positions = new int[size];
+        var reachable = new boolean[size];
+        var inputs = new BitSet[size];
+        var outputs = new BitSet[size];
+        for (int position = 0; position < order.length; position++) {
+            int node = order[position];
+            positions[node] = position;
+            reachable[node] = true;
+            inputs[node] = new BitSet(width);
+            outputs[node] = new BitSet(width);
+            if (meet == Meet.INTERSECTION) {
+                outputs[node].set(0, width);
+            }
+        }
+
+        var worklist = new BitSet(order.length);
+        worklist.set(0, order.length);
+        var scratch = new BitSet(width);
+        int visits = 0;
+
+        for (int position = worklist.nextSetBit(0); position >= 0; position = worklist.nextSetBit(0)) {
+            worklist.clear(position);
+            int node = order[position];
+            visits++;
+
+            var input = inputs[node];
+            input.clear();
+            boolean first = true;
+            int sources = forward ? graph.getPredecessorCount(node) : graph.getSuccessorCount(node);
+            for (int i = 0; i < sources; i++) {
+                int source = forward ? graph.getPredecessor(node, i) : graph.getSuccessor(node, i);
+                if (reachable[source]) {
+                    first = meet(input, outputs[source], first);
+                }
+            }
+            boolean isBoundary = forward ? node == graph.getEntry() : graph.getSuccessorCount(node) == 0;
+            if (isBoundary || first) {
+                meet(input, boundary, first);
+            }
+
+            scratch.clear();
+            transfer(node, input, scratch);
+            if (scratch.equals(outputs[node])) {
+                continue;
+            }
+            var previous = outputs[node];
+            outputs[node] = scratch;
+            scratch = previous;
+
+            int targets = forward ? graph.getSuccessorCount(node) : graph.getPredecessorCount(node);
+            for (int i = 0; i < targets; i++) {
+                int target = forward ? graph.getSuccessor(node, i) : graph.getPredecessor(node, i);
+                if (reachable[target]) {
+                    worklist.set(positions[target]);
+                }
+            }
+        }
+
+        return forward
+                ? new DataflowResult(inputs, outputs, visits)
+                : new DataflowResult(outputs, inputs, visits);
+    }
+
+    /**
+     * @return false, so that it can be assigned to 'first'
+     */
+    private boolean meet(BitSet input, BitSet value, boolean first) {
+        if (first || meet == Meet.UNION) {
+            input.or(value);
+        } else {
+            input.and(value);
+        }
+        return false;
+    }
+
+    private static void reverse(int[] order) {
+        for (int i = 0, j = order.length - 1; i < j; i++, j--) {
+            int node = order[i];
+            order[i] = order[j];
+            order[j] = node;
+        }
+    }
+}
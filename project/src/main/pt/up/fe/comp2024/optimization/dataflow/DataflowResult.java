@@ -0,0 +1,47 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import java.util.BitSet;
+
+/**
+ * The facts before and after each node of a solved {@link DataflowProblem}, in the order of execution whatever the
+ * direction of the analysis. Nodes that cannot be reached from the entry have no facts.
+ */
+public class DataflowResult {
+
+    private static final BitSet EMPTY = new BitSet();
+
+    private final BitSet[] in;
+    private final BitSet[] out;
+    private final int visits;
+
+    DataflowResult(BitSet[] in, BitSet[] out, int visits) {
+        this.in = in;
+        this.out = out;
+        this.visits = visits;
+    }
+
+    public boolean isReachable(int node) {
+        return in[node] != null;
+    }
+
+    /**
+     * @return the facts before the node, which must not be changed
+     */
+    public BitSet getIn(int node) {
+        return in[node] == null ? EMPTY : in[node];
+    }
+
+    /**
+     * @return the facts after the node, which must not be changed
+     */
+    public BitSet getOut(int node) {
+        return out[node] == null ? EMPTY : out[node];
+    }
+
+    /**
+     * @return how many times a transfer function was applied until the fixpoint
+     */
+    public int getVisits() {
+        return visits;
+    }
+}
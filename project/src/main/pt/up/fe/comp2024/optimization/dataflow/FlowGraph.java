@@ -0,0 +1,109 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import java.util.Arrays;
+
+/**
+ * Control flow graph of one method for the dataflow analyses, with nodes numbered from 0 to size - 1. The nodes can
+ * be statements, basic blocks or instructions, the analyses only see their numbers.
+ */
+public class FlowGraph {
+
+    private static final int[] NO_NODES = new int[0];
+
+    private final int entry;
+    private final int[][] successors;
+    private final int[][] predecessors;
+    private final int[] successorCounts;
+    private final int[] predecessorCounts;
+
+    /**
+     * @param entry the node where the method starts
+     */
+    public FlowGraph(int size, int entry) {
+        this.entry = entry;
+        this.successors = new int[size][];
+        this.predecessors = new int[size][];
+        this.successorCounts = new int[size];
+        this.predecessorCounts = new int[size];
+        Arrays.fill(successors, NO_NODES);
+        Arrays.fill(predecessors, NO_NODES);
+    }
+
+    public int size() {
+        return successors.length;
+    }
+
+    public int getEntry() {
+        return entry;
+    }
+
+    public void addEdge(int from, int to) {
+        successors[from] = append(successors[from], successorCounts[from]++, to);
+        predecessors[to] = append(predecessors[to], predecessorCounts[to]++, from);
+    }
+
+    private static int[] append(int[] nodes, int count, int node) {
+        if (count == nodes.length) {
+            nodes = Arrays.copyOf(nodes, Math.max(2, count * 2));
+        }
+        nodes[count] = node;
+        return nodes;
+    }
+
+    public int getSuccessorCount(int node) {
+        return successorCounts[node];
+    }
+
+    /**
+     * @param index from 0 to {@link #getSuccessorCount} - 1
+     */
+    public int getSuccessor(int node, int index) {
+        return successors[node][index];
+    }
+
+    public int getPredecessorCount(int node) {
+        return predecessorCounts[node];
+    }
+
+    /**
+     * @param index from 0 to {@link #getPredecessorCount} - 1
+     */
+    public int getPredecessor(int node, int index) {
+        return predecessors[node][index];
+    }
+
+    /**
+     * @return the nodes that can be reached from the entry, in reverse postorder, so that every node comes before its
+     * successors except along the edges that go back to a loop
+     */
+    public int[] reversePostorder() {
+        if (size() == 0) {
+            return NO_NODES;
+        }
+
+        // Depth-first search with an explicit stack, so long methods do not overflow the Java stack
+        var order = new int[size()];
+        int orderSize = size();
+        var visited = new boolean[size()];
+        var stack = new int[size()];
+        var nextSuccessor = new int[size()];
+        int depth = 0;
+        stack[depth++] = entry;
+        visited[entry] = true;
+
+        while (depth > 0) {
+            int node = stack[depth - 1];
+            if (nextSuccessor[node] < successorCounts[node]) {
+                int successor = successors[node][nextSuccessor[node]++];
+                if (!visited[successor]) {
+                    visited[successor] = true;
+                    stack[depth++] = successor;
+                }
+            } else {
+                depth--;
+                order[--orderSize] = node;
+            }
+        }
+        return Arrays.copyOfRange(order, orderSize, order.length);
+    }
+}
@@ -0,0 +1,47 @@
+package pt.up.fe.comp2024.optimization.dataflow;
+
+import java.util.BitSet;
+
+/**
+ * A dataflow problem whose transfer function is 'gen + (input - kill)', with the gen and kill sets of each node filled
+ * by the analysis before solving it.
+ */
+public class GenKillProblem extends DataflowProblem {
+
+    private final BitSet[] gen;
+    private final BitSet[] kill;
+
+    /**
+     * @param nodes the size of the flow graph
+     */
+    public GenKillProblem(Direction direction, Meet meet, int width, int nodes) {
+        super(direction, meet, width);
+        this.gen = new BitSet[nodes];
+        this.kill = new BitSet[nodes];
+        for (int i = 0; i < nodes; i++) {
+            gen[i] = new BitSet(width);
+            kill[i] = new BitSet(width);
+        }
+    }
+
+    /**
+     * @return the facts the node creates, to be filled by the analysis
+     */
+    public BitSet getGen(int node) {
+        return gen[node];
+    }
+
+    /**
+     * @return the facts the node removes, to be filled by the analysis
+     */
+    public BitSet getKill(int node) {
+        return kill[node];
+    }
+
+    @Override
+    protected void transfer(int node, BitSet input, BitSet output) {
+        output.or(input);
+        output.andNot(kill[node]);
+        output.or(gen[node]);
+    }
+}
@@ -0,0 +1,44 @@
+package pt.up.fe.comp2024.output;
+
+/**
+ * Something the compiler can print while compiling.
+ */
+public enum Artifact {
+    AST("ast", Verbosity.VERBOSE),
+    REPORTS("reports", Verbosity.NORMAL),
+    OPTIMIZED_AST("optimizedAst", Verbosity.VERBOSE),
+    CFG("cfg", Verbosity.DEBUG),
+    OLLIR("ollir", Verbosity.NORMAL),
+    JASMIN("jasmin", Verbosity.NORMAL),
+    RUN("run", Verbosity.NORMAL),
+    DEBUG("debug", Verbosity.DEBUG);
+
+    private final String optionName;
+    private final Verbosity minVerbosity;
+
+    Artifact(String optionName, Verbosity minVerbosity) {
+        this.optionName = optionName;
+        this.minVerbosity = minVerbosity;
+    }
+
+    public String getOptionName() {
+        return optionName;
+    }
+
+    /**
+     * @return the lowest verbosity at which this artifact is printed when it is not selected explicitly
+     */
+    public Verbosity getMinVerbosity() {
+        return minVerbosity;
+    }
+
+    public static Artifact fromOptionName(String name) {
+        for (var artifact : values()) {
+            if (artifact.optionName.equalsIgnoreCase(name)) {
+                return artifact;
+            }
+        }
+
+        throw new RuntimeException("Unknown artifact '" + name + "'");
+    }
+}
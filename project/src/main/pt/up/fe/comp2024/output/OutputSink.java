@@ -0,0 +1,163 @@
+package pt.up.fe.comp2024.output;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.CompilerConfig;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Where the compiler prints its intermediate results.
+ * <p>
+ * Each artifact is only rendered when it is enabled, either because it was selected with '-a' or because the
+ * verbosity given with '-v' is high enough. Dumps are written piece by piece to a buffered writer, over a file
+ * channel when '-f' is given or over the standard output otherwise, instead of being built as a single String.
+ */
+public class OutputSink implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Writes a dump to the sink, only called if the artifact is enabled.
+     */
+    @FunctionalInterface
+    public interface Dump {
+        void writeTo(Writer out) throws IOException;
+    }
+
+    private final Set<Artifact> enabled;
+    private final Writer out;
+    private final boolean toFile;
+
+    private OutputSink(Set<Artifact> enabled, Writer out, boolean toFile) {
+        this.enabled = enabled;
+        this.out = out;
+        this.toFile = toFile;
+    }
+
+    /**
+     * @return a sink that prints nothing
+     */
+    public static OutputSink quiet() {
+        return new OutputSink(EnumSet.noneOf(Artifact.class), Writer.nullWriter(), false);
+    }
+
+    public static OutputSink fromConfig(Map<String, String> config) {
+        var verbosity = CompilerConfig.getVerbosity(config);
+
+        var enabled = EnumSet.noneOf(Artifact.class);
+        for (var artifact : Artifact.values()) {
+            if (artifact.getMinVerbosity().compareTo(verbosity) <= 0) {
+                enabled.add(artifact);
+            }
+        }
+        CompilerConfig.getArtifacts(config).forEach(name -> enabled.add(Artifact.fromOptionName(name)));
+
+        var outputFile = CompilerConfig.getOutputFile(config);
+        if (outputFile.isEmpty()) {
+            var stdout = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            return new OutputSink(enabled, stdout, false);
+        }
+
+        return new OutputSink(enabled, openFile(outputFile.get()), true);
+    }
+
+    private static Writer openFile(File file) {
+        try {
+            var channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open output file '" + file + "'", e);
+        }
+    }
+
+    public boolean isEnabled(Artifact artifact) {
+        return enabled.contains(artifact);
+    }
+
+    /**
+     * Writes the artifact under the given title, if it is enabled.
+     */
+    public void emit(Artifact artifact, String title, Dump dump) {
+        if (!isEnabled(artifact)) {
+            return;
+        }
+
+        try {
+            out.write("====" + title + "====\n");
+            dump.writeTo(out);
+            out.write("\n====END====\n");
+            flushConsole();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a single line, if the artifact is enabled.
+     */
+    public void line(Artifact artifact, String message) {
+        if (!isEnabled(artifact)) {
+            return;
+        }
+
+        // A single write, so that lines written by several threads are not mixed
+        try {
+            out.write(message + '\n');
+            flushConsole();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Same as {@link JmmNode#toTree()}, without building the whole tree as a String first.
+     */
+    public static void writeTree(JmmNode node, Writer out) throws IOException {
+        writeTree(node, out, 0);
+    }
+
+    private static void writeTree(JmmNode node, Writer out, int depth) throws IOException {
+        for (int i = 0; i < depth; i++) {
+            out.write("   ");
+        }
+        out.write(node.toString());
+        out.write('\n');
+
+        for (var child : node.getChildren()) {
+            writeTree(child, out, depth + 1);
+        }
+    }
+
+    // The console is flushed after each artifact, so it is not mixed with what other code prints
+    private void flushConsole() throws IOException {
+        if (!toFile) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (toFile) {
+                out.close();
+            } else {
+                out.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package pt.up.fe.comp2024.output;
+
+/**
+ * How much the compiler prints, selected with '-v'.
+ */
+public enum Verbosity {
+    /**
+     * Only what was explicitly selected with '-a'
+     */
+    QUIET,
+    /**
+     * Reports, OLLIR and Jasmin code
+     */
+    NORMAL,
+    /**
+     * Also the AST before and after the AST optimizations
+     */
+    VERBOSE,
+    /**
+     * Also the control flow graphs of the optimizations and internal progress messages
+     */
+    DEBUG;
+
+    public static Verbosity fromString(String value) {
+        for (var verbosity : values()) {
+            if (verbosity.name().equalsIgnoreCase(value) || String.valueOf(verbosity.ordinal()).equals(value)) {
+                return verbosity;
+            }
+        }
+
+        throw new RuntimeException("Unknown verbosity '" + value + "', expected quiet, normal, verbose or debug");
+    }
+}
@@ -0,0 +1,165 @@
+package pt.up.fe.comp2024.parser;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp2024.ast.Kind;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the expression nodes of the AST from the flat operator chains of the grammar.
+ * <p>
+ * The grammar matches 'a + b * c' as one Expr node with the operands as children and the operators in the 'op'
+ * attribute, and 'x.f().g()' as one PostfixExpr node with the primary expression followed by its suffixes. This turns
+ * them into the nodes a left-recursive expr rule gives, which the rest of the compiler expects: BinaryExpr,
+ * ArrayAccessExpr, FieldAccessExpr and FuncExpr, with the same attributes and positions, and every expression node is
+ * an instance of Expr. Chains are folded with loops, so their length does not add to the depth of the recursion.
+ */
+class ExpressionRebuilder {
+
+    private static final String EXPR = "Expr";
+    private static final String OPERAND = "Operand";
+    private static final String PRIMARY = "Primary";
+    private static final String POSTFIX_EXPR = "PostfixExpr";
+    private static final String ARRAY_ACCESS_SUFFIX = "ArrayAccessSuffix";
+    private static final String FIELD_ACCESS_SUFFIX = "FieldAccessSuffix";
+    private static final String FUNC_SUFFIX = "FuncSuffix";
+    private static final String ARRAY_ACCESS_EXPR = "ArrayAccessExpr";
+
+    /**
+     * Higher binds tighter, all the operators are left associative.
+     */
+    private static final Map<String, Integer> PRECEDENCE = Map.of("*", 3, "/", 3, "+", 2, "-", 2, "<", 1, "&&", 0);
+
+    private ExpressionRebuilder() {
+    }
+
+    static void rebuild(JmmNode root) {
+        rebuildNode(root);
+    }
+
+    /**
+     * @return the node that takes the place of the given one, without a parent if it is not the same node
+     */
+    private static JmmNode rebuildNode(JmmNode node) {
+        var children = node.getChildren();
+        var rebuiltChildren = new ArrayList<JmmNode>(children.size());
+        for (var child : children) {
+            rebuiltChildren.add(rebuildNode(child));
+        }
+
+        // Chains take their rebuilt operands from the list, since replacing children one by one copies the whole
+        // list of children each time
+        if (node.getKind().equals(EXPR)) {
+            return foldBinary(node, rebuiltChildren);
+        }
+
+        if (node.getKind().equals(POSTFIX_EXPR)) {
+            return foldPostfix(rebuiltChildren);
+        }
+
+        for (int i = 0; i < children.size(); i++) {
+            if (rebuiltChildren.get(i) != children.get(i)) {
+                node.setChild(rebuiltChildren.get(i), i);
+            }
+        }
+
+        if (node.isInstance(OPERAND) || node.isInstance(PRIMARY)) {
+            ((JmmNodeImpl) node).setHierarchy(List.of(node.getKind(), EXPR));
+        }
+
+        return node;
+    }
+
+    /**
+     * Operator precedence parsing over the operands of the chain.
+     */
+    private static JmmNode foldBinary(JmmNode chain, List<JmmNode> children) {
+        var operators = (List<?>) chain.getObject("op");
+
+        Deque<JmmNode> operandStack = new ArrayDeque<>();
+        Deque<String> operatorStack = new ArrayDeque<>();
+        operandStack.push(detach(children.get(0)));
+
+        for (int i = 0; i < operators.size(); i++) {
+            var op = operators.get(i).toString();
+            while (!operatorStack.isEmpty() && PRECEDENCE.get(operatorStack.peek()) >= PRECEDENCE.get(op)) {
+                reduce(operandStack, operatorStack);
+            }
+            operatorStack.push(op);
+            operandStack.push(detach(children.get(i + 1)));
+        }
+
+        while (!operatorStack.isEmpty()) {
+            reduce(operandStack, operatorStack);
+        }
+
+        return operandStack.pop();
+    }
+
+    private static void reduce(Deque<JmmNode> operandStack, Deque<String> operatorStack) {
+        var right = operandStack.pop();
+        var left = operandStack.pop();
+
+        var binary = newExpr(Kind.BINARY_EXPR.getNodeName(), left, right);
+        binary.put("op", operatorStack.pop());
+        binary.add(left);
+        binary.add(right);
+        operandStack.push(binary);
+    }
+
+    /**
+     * Applies the suffixes from left to right, each one to the expression built so far.
+     */
+    private static JmmNode foldPostfix(List<JmmNode> children) {
+        var expr = detach(children.get(0));
+
+        for (int i = 1; i < children.size(); i++) {
+            var suffix = children.get(i);
+            var args = suffix.getChildren();
+
+            var next = switch (suffix.getKind()) {
+                case ARRAY_ACCESS_SUFFIX -> newExpr(ARRAY_ACCESS_EXPR, expr, suffix);
+                case FIELD_ACCESS_SUFFIX -> newExpr(Kind.FIELD_ACCESS_EXPR.getNodeName(), expr, suffix);
+                case FUNC_SUFFIX -> newExpr(Kind.FUNC_EXPR.getNodeName(), expr, suffix);
+                default -> throw new RuntimeException("Unexpected suffix '" + suffix.getKind() + "'");
+            };
+            suffix.getOptional("field").ifPresent(field -> next.put("field", field));
+            suffix.getOptional("functionName").ifPresent(name -> next.put("functionName", name));
+
+            next.add(expr);
+            for (var arg : args) {
+                next.add(detach(arg));
+            }
+            expr = next;
+        }
+
+        return expr;
+    }
+
+    /**
+     * @return an expression node that starts where the first node starts and ends where the last one ends
+     */
+    private static JmmNodeImpl newExpr(String kind, JmmNode first, JmmNode last) {
+        var expr = new JmmNodeImpl(kind);
+        expr.setHierarchy(List.of(kind, EXPR));
+        expr.put(NodePosition.LINE_START.getKey(), first.get(NodePosition.LINE_START.getKey()));
+        expr.put(NodePosition.COL_START.getKey(), first.get(NodePosition.COL_START.getKey()));
+        expr.put(NodePosition.LINE_END.getKey(), last.get(NodePosition.LINE_END.getKey()));
+        expr.put(NodePosition.COL_END.getKey(), last.get(NodePosition.COL_END.getKey()));
+        return expr;
+    }
+
+    /**
+     * Only clears the parent of the node, the old parent is discarded afterwards.
+     */
+    private static JmmNode detach(JmmNode node) {
+        node.removeParent();
+        return node;
+    }
+}
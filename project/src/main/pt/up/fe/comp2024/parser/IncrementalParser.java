@@ -0,0 +1,292 @@
+package pt.up.fe.comp2024.parser;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.ast.Kind;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses successive versions of a file, e.g. while it is edited, and only reparses the method that changed.
+ * <p>
+ * When a change falls strictly inside the text of a method, only that text is parsed again, with 'methodDecl' as the
+ * starting rule, and the new MethodDecl node replaces the old one in the tree of the previous version. The other
+ * nodes are kept, with their attributes; only the positions of the nodes after the change are moved, and only if the
+ * change added or removed lines, or moved columns on a line they share. Any other change, or one that leaves the method
+ * with a syntax error or turns it into something else, parses the whole file.
+ * <p>
+ * The tree is updated in place, so callers that modify it, such as the optimizations, should work on a copy.
+ */
+public class IncrementalParser {
+
+    private static final String METHOD_DECL_RULE = "methodDecl";
+
+    /**
+     * Text range of a method in the current version, end exclusive.
+     */
+    private static class MethodSpan {
+        private JmmNode node;
+        private int start;
+        private int end;
+
+        private MethodSpan(JmmNode node, int start, int end) {
+            this.node = node;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Moves the positions that are after a change.
+     *
+     * @param line    line of the end of the change before it
+     * @param col     column of the end of the change before it
+     * @param newLine line of the end of the change after it
+     * @param newCol  column of the end of the change after it
+     */
+    private record Shift(int line, int col, int newLine, int newCol) {
+
+        boolean isIdentity() {
+            return line == newLine && col == newCol;
+        }
+
+        /**
+         * @return true if the subtree of the node starts after the lines this shift changes
+         */
+        boolean skips(JmmNode node) {
+            return line == newLine && getInt(node, NodePosition.LINE_START) > line;
+        }
+
+        void apply(JmmNode node, NodePosition linePosition, NodePosition colPosition) {
+            int nodeLine = getInt(node, linePosition);
+            if (nodeLine == line) {
+                node.put(linePosition.getKey(), Integer.toString(newLine));
+                node.put(colPosition.getKey(), Integer.toString(getInt(node, colPosition) - col + newCol));
+            } else if (nodeLine > line) {
+                node.put(linePosition.getKey(), Integer.toString(nodeLine + newLine - line));
+            }
+        }
+    }
+
+    private final Map<String, String> config;
+    private final List<MethodSpan> methods = new ArrayList<>();
+
+    private String code;
+    private JmmNode root;
+    private int fullParses;
+    private int methodParses;
+
+    public IncrementalParser(Map<String, String> config) {
+        this.config = config;
+        this.code = "";
+    }
+
+    /**
+     * Parses a new version of the file, reparsing only the method that differs from the previous version if there is
+     * a single one.
+     */
+    public JmmParserResult parse(String newCode) {
+        int prefix = 0;
+        int maxCommon = Math.min(code.length(), newCode.length());
+        while (prefix < maxCommon && code.charAt(prefix) == newCode.charAt(prefix)) {
+            prefix++;
+        }
+
+        int suffix = 0;
+        while (suffix < maxCommon - prefix
+                && code.charAt(code.length() - 1 - suffix) == newCode.charAt(newCode.length() - 1 - suffix)) {
+            suffix++;
+        }
+
+        return edit(prefix, code.length() - suffix, newCode.substring(prefix, newCode.length() - suffix));
+    }
+
+    /**
+     * Replaces the text between start (inclusive) and end (exclusive) of the current version and parses the result.
+     */
+    public JmmParserResult edit(int start, int end, String replacement) {
+        if (start == end && replacement.isEmpty() && root != null) {
+            return new JmmParserResult(root, new ArrayList<>(), config);
+        }
+
+        var newCode = code.substring(0, start) + replacement + code.substring(end);
+
+        var span = findMethod(start, end);
+        if (span == null) {
+            return parseFile(newCode);
+        }
+
+        int delta = replacement.length() - (end - start);
+        var methodCode = newCode.substring(span.start, span.end + delta);
+        var result = new JmmParserImpl(new CompilerContext()).parse(methodCode, METHOD_DECL_RULE, config);
+        var method = result.getRootNode();
+
+        // The last character of the method must still be its closing bracket, otherwise the change also affects what
+        // comes after it
+        int methodLine = getInt(span.node, NodePosition.LINE_START);
+        int methodCol = getInt(span.node, NodePosition.COL_START);
+        var methodEnd = positionOf(methodCode, 0, methodCode.length() - 1, 1, 0);
+        if (method == null || !Kind.METHOD_DECL.check(method)
+                || getInt(method, NodePosition.LINE_END) != methodEnd[0]
+                || getInt(method, NodePosition.COL_END) != methodEnd[1]) {
+            return parseFile(newCode);
+        }
+
+        // Positions of the new method are relative to its text
+        moveToMethod(method, methodLine, methodCol);
+
+        var oldEditEnd = positionOf(code, span.start, end, methodLine, methodCol);
+        var newEditEnd = positionOf(newCode, span.start, start + replacement.length(), methodLine, methodCol);
+        var shift = new Shift(oldEditEnd[0], oldEditEnd[1], newEditEnd[0], newEditEnd[1]);
+
+        var classDecl = span.node.getParent();
+        int index = span.node.getIndexOfSelf();
+        classDecl.setChild(method, index);
+
+        if (!shift.isIdentity()) {
+            var siblings = classDecl.getChildren();
+            for (int i = index + 1; i < siblings.size(); i++) {
+                shiftSubtree(siblings.get(i), shift);
+            }
+            for (var ancestor = classDecl; ancestor != null; ancestor = ancestor.getParent()) {
+                shift.apply(ancestor, NodePosition.LINE_END, NodePosition.COL_END);
+            }
+        }
+
+        span.node = method;
+        span.end += delta;
+        for (var other : methods) {
+            if (other.start > span.start) {
+                other.start += delta;
+                other.end += delta;
+            }
+        }
+
+        code = newCode;
+        methodParses++;
+        return new JmmParserResult(root, result.getReports(), config);
+    }
+
+    private JmmParserResult parseFile(String newCode) {
+        var result = new JmmParserImpl(new CompilerContext()).parse(newCode, config);
+
+        code = newCode;
+        root = result.getRootNode();
+        methods.clear();
+        fullParses++;
+
+        if (root != null) {
+            var lineOffsets = lineOffsets(newCode);
+            var classDecl = root.getChildren(Kind.CLASS_DECL).get(0);
+            for (var method : classDecl.getChildren(Kind.METHOD_DECL)) {
+                int start = lineOffsets.get(getInt(method, NodePosition.LINE_START) - 1)
+                        + getInt(method, NodePosition.COL_START);
+                int end = lineOffsets.get(getInt(method, NodePosition.LINE_END) - 1)
+                        + getInt(method, NodePosition.COL_END) + 1;
+                methods.add(new MethodSpan(method, start, end));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the method whose text strictly contains the range, keeping its first and last characters, or null
+     */
+    private MethodSpan findMethod(int start, int end) {
+        if (root == null) {
+            return null;
+        }
+
+        for (var span : methods) {
+            if (span.start < start && end < span.end) {
+                return span;
+            }
+        }
+        return null;
+    }
+
+    private static void moveToMethod(JmmNode method, int methodLine, int methodCol) {
+        var shift = new Shift(1, 0, methodLine, methodCol);
+        Deque<JmmNode> pending = new ArrayDeque<>();
+        pending.push(method);
+        while (!pending.isEmpty()) {
+            var node = pending.pop();
+            shift.apply(node, NodePosition.LINE_START, NodePosition.COL_START);
+            shift.apply(node, NodePosition.LINE_END, NodePosition.COL_END);
+            node.getChildren().forEach(pending::push);
+        }
+    }
+
+    /**
+     * Without recursion, since long operator chains give deep trees.
+     */
+    private static void shiftSubtree(JmmNode root, Shift shift) {
+        Deque<JmmNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            var node = pending.pop();
+            if (shift.skips(node)) {
+                continue;
+            }
+            shift.apply(node, NodePosition.LINE_START, NodePosition.COL_START);
+            shift.apply(node, NodePosition.LINE_END, NodePosition.COL_END);
+            node.getChildren().forEach(pending::push);
+        }
+    }
+
+    /**
+     * @return the line and column of the offset 'to' of the text, given those of the offset 'from'
+     */
+    private static int[] positionOf(String text, int from, int to, int line, int col) {
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == '\n') {
+                line++;
+                col = 0;
+            } else {
+                col++;
+            }
+        }
+        return new int[]{line, col};
+    }
+
+    private static List<Integer> lineOffsets(String text) {
+        var offsets = new ArrayList<Integer>();
+        offsets.add(0);
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                offsets.add(i + 1);
+            }
+        }
+        return offsets;
+    }
+
+    private static int getInt(JmmNode node, NodePosition position) {
+        return Integer.parseInt(node.get(position.getKey()));
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * @return the tree of the current version, null if it has syntax errors
+     */
+    public JmmNode getRootNode() {
+        return root;
+    }
+
+    public int getFullParses() {
+        return fullParses;
+    }
+
+    public int getMethodParses() {
+        return methodParses;
+    }
+}
@@ -1,16 +1,23 @@
 package pt.up.fe.comp2024.parser;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
-import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
-import pt.up.fe.comp2024.grammar.JavammParser;
-import pt.up.fe.comp2024.grammar.JavammLexer;
+import pt.up.fe.comp2024.CompilerContext;
 
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Copyright 2022 SPeCS.
@@ -31,26 +38,50 @@ import java.util.Map;
 
 public class JmmParserImpl implements JmmParser {
 
+    private final CompilerContext context;
+
+    public JmmParserImpl() {
+        this(new CompilerContext());
+    }
+
+    public JmmParserImpl(CompilerContext context) {
+        this.context = context;
+    }
+
     @Override
     public String getDefaultRule() {
         return "program";
     }
 
+    /**
+     * Parses in two stages: first with SLL prediction, which is faster and enough for nearly every valid input, and
+     * only if that fails, again with full LL prediction and the usual error reporting.
+     */
     @Override
     public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+        return parse(new ANTLRInputStream(jmmCode), startingRule, config);
+    }
 
-        try {
-            // Convert code string into a character stream
-            var input = new ANTLRInputStream(jmmCode);
-            // Transform characters into tokens using the lexer
-            var lex = new JavammLexer(input);
-            // Wrap lexer around a token stream
-            var tokens = new CommonTokenStream(lex);
-            // Transforms tokens into a parse tree
-            var parser = new JavammParser(tokens);
-
-            // Convert ANTLR CST to JmmNode AST
-            return AntlrParser.parse(lex, parser, startingRule, config);
+    /**
+     * Parses a source file without reading it into a String first, see {@link MappedCharStream}.
+     */
+    public JmmParserResult parse(Path file, Map<String, String> config) {
+        return parse(MappedCharStream.open(file), getDefaultRule(), config);
+    }
+
+    public JmmParserResult parse(CharStream input, String startingRule, Map<String, String> config) {
+
+        try (var timer = context.getMetrics().start("parse")) {
+            var result = parseSll(input, startingRule, config);
+            timer.count("llFallbacks", result.isPresent() ? 0 : 1);
+
+            var parserResult = result.orElseGet(() -> parseLl(input, startingRule, config));
+            if (parserResult.getRootNode() != null) {
+                timer.count("astNodes", countNodes(parserResult.getRootNode()));
+            }
+            timer.count("predictionCacheSize", ParserPool.getCacheSize());
+            timer.count("predictionContexts", ParserPool.getContextCacheSize());
+            return parserResult;
 
         } catch (Exception e) {
             // There was an uncaught exception during parsing, create an error
@@ -59,4 +90,43 @@ public class JmmParserImpl implements JmmParser {
                     config);
         }
     }
+
+    /**
+     * SLL prediction with a strategy that stops at the first syntax error, instead of reporting and recovering.
+     *
+     * @return empty if the input could not be parsed this way, either because it has a syntax error or because SLL
+     * is not powerful enough for it
+     */
+    Optional<JmmParserResult> parseSll(CharStream input, String startingRule, Map<String, String> config) {
+        try {
+            return Optional.of(ParserPool.parse(input, startingRule, config, PredictionMode.SLL,
+                    new BailErrorStrategy()));
+        } catch (ParseCancellationException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Full LL prediction with the default error strategy, which reports every syntax error.
+     */
+    JmmParserResult parseLl(CharStream input, String startingRule, Map<String, String> config) {
+        return ParserPool.parse(input, startingRule, config, PredictionMode.LL, new DefaultErrorStrategy());
+    }
+
+    /**
+     * Without recursion, since long operator chains give deep trees.
+     */
+    private static long countNodes(JmmNode root) {
+        long nodes = 0;
+        Deque<JmmNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            var node = pending.pop();
+            nodes++;
+            for (var child : node.getChildren()) {
+                pending.push(child);
+            }
+        }
+        return nodes;
+    }
 }
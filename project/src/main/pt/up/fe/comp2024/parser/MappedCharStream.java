@@ -0,0 +1,176 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Source file read by the lexer straight from a memory mapping of the file, instead of from a String and a copy of it
+ * in an ANTLRInputStream.
+ * <p>
+ * Files that are plain ASCII, as programs usually are, are lexed from the bytes of the file, and only the text of the
+ * tokens the AST keeps is ever decoded. Other files are decoded as UTF-8 once, since their byte offsets are not
+ * character offsets. Mapping a file costs more than reading it when it is small, so files below
+ * {@link #MAP_THRESHOLD} bytes are read into a buffer instead, which still skips the String and its copy.
+ */
+public class MappedCharStream implements CharStream {
+
+    public static final int MAP_THRESHOLD = 64 * 1024;
+
+    private final ByteBuffer bytes;
+    /**
+     * The bytes of the file when they were read instead of mapped, which are faster to index than the buffer
+     */
+    private final byte[] array;
+    private final CharBuffer chars;
+    private final String sourceName;
+    private final int size;
+
+    /**
+     * Index of the next character to consume
+     */
+    private int position;
+
+    private MappedCharStream(ByteBuffer bytes, String sourceName) {
+        this.bytes = bytes;
+        this.array = bytes.hasArray() ? bytes.array() : null;
+        this.chars = isAscii(bytes) ? null : StandardCharsets.UTF_8.decode(bytes.duplicate());
+        this.sourceName = sourceName;
+        this.size = chars == null ? bytes.limit() : chars.limit();
+    }
+
+    public static MappedCharStream open(Path file) {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new RuntimeException("Source file '" + file + "' is too large (" + length + " bytes)");
+            }
+
+            if (length < MAP_THRESHOLD) {
+                var bytes = ByteBuffer.allocate((int) length);
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                    // Keep reading until the buffer is full
+                }
+                return new MappedCharStream(bytes.flip(), file.toString());
+            }
+
+            // The mapping stays valid after the channel is closed
+            var bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            return new MappedCharStream(bytes, file.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read source file '" + file + "'", e);
+        }
+    }
+
+    private static boolean isAscii(ByteBuffer bytes) {
+        for (int i = 0; i < bytes.limit(); i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the contents of the file, without copying them
+     */
+    public ByteBuffer getBytes() {
+        return bytes.asReadOnlyBuffer();
+    }
+
+    private int charAt(int index) {
+        if (array != null && chars == null) {
+            return array[index];
+        }
+        return chars == null ? bytes.get(index) : chars.get(index);
+    }
+
+    @Override
+    public void consume() {
+        if (position >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        position++;
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) {
+            return 0;
+        }
+
+        // LA(-1) is the last consumed character
+        int index = i > 0 ? position + i - 1 : position + i;
+        if (index < 0 || index >= size) {
+            return IntStream.EOF;
+        }
+        return charAt(index);
+    }
+
+    /**
+     * The whole file is always available, so marks are not needed.
+     */
+    @Override
+    public int mark() {
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return position;
+    }
+
+    @Override
+    public void seek(int index) {
+        position = Math.max(0, Math.min(index, size));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = interval.a;
+        int stop = Math.min(interval.b, size - 1);
+        if (start >= size || stop < start) {
+            return "";
+        }
+
+        if (chars != null) {
+            return chars.subSequence(start, stop + 1).toString();
+        }
+
+        if (array != null) {
+            return new String(array, start, stop - start + 1, StandardCharsets.US_ASCII);
+        }
+
+        var text = new byte[stop - start + 1];
+        bytes.get(start, text);
+        return new String(text, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+}
@@ -0,0 +1,233 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRErrorStrategy;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.tree.ParseTree;
+import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import pt.up.fe.comp.jmm.ast.antlr.AntlrToJmmNodeConverter;
+import pt.up.fe.comp.jmm.ast.antlr.JmmErrorListener;
+import pt.up.fe.comp.jmm.ast.antlr.JmmNodeCleanup;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.grammar.JavammLexer;
+import pt.up.fe.comp2024.grammar.JavammParser;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Lexer and parser instances kept by each thread and reset for every input, instead of creating new ones per file.
+ * <p>
+ * All instances share the DFA and the prediction context cache of the generated lexer and parser, so what prediction
+ * learns on one file speeds up the next ones, in any thread. The DFA only grows, so once it holds more states than
+ * the limit given with '-e' it is cleared; {@link #clearCaches()} does it on demand. Clearing waits for running
+ * parses to finish. The prediction context cache cannot be cleared in ANTLR 4.5, so it is not part of the limit,
+ * otherwise every parse would clear the DFA once the contexts alone reached it.
+ * <p>
+ * Rules are called directly instead of through AntlrParser, whose reflection cache is not thread safe.
+ */
+public class ParserPool {
+
+    private static final ANTLRInputStream EMPTY = new ANTLRInputStream("");
+
+    private static final ThreadLocal<ParserPool> POOLS = ThreadLocal.withInitial(ParserPool::new);
+    private static final ReadWriteLock CACHE_LOCK = new ReentrantReadWriteLock();
+    private static final Map<String, Method> RULES = new ConcurrentHashMap<>();
+
+    private static final AtomicLong CLEARS = new AtomicLong();
+
+    private static volatile List<String> ignoreList;
+
+    private final JavammLexer lexer;
+    private final CommonTokenStream tokens;
+    private final JavammParser parser;
+
+    private ParserPool() {
+        lexer = new JavammLexer(EMPTY);
+        tokens = new ReusableTokenStream(lexer);
+        parser = new JavammParser(tokens);
+    }
+
+    /**
+     * In ANTLR 4.5, a token stream given a new source still thinks it has reached the end of the previous one.
+     */
+    private static class ReusableTokenStream extends CommonTokenStream {
+
+        ReusableTokenStream(TokenSource tokenSource) {
+            super(tokenSource);
+        }
+
+        @Override
+        public void setTokenSource(TokenSource tokenSource) {
+            super.setTokenSource(tokenSource);
+            fetchedEOF = false;
+        }
+    }
+
+    /**
+     * Parses with the instances of the current thread.
+     *
+     * @param errorStrategy how the parser handles syntax errors, e.g. bail out at the first one
+     */
+    static JmmParserResult parse(CharStream input, String startingRule, Map<String, String> config,
+            PredictionMode mode, ANTLRErrorStrategy errorStrategy) {
+        CACHE_LOCK.readLock().lock();
+        try {
+            return POOLS.get().parseWith(input, startingRule, config, mode, errorStrategy);
+        } finally {
+            CACHE_LOCK.readLock().unlock();
+            long maxCacheSize = CompilerConfig.getParserCacheSize(config);
+            if (getCacheSize() > maxCacheSize) {
+                clearCaches(maxCacheSize);
+            }
+        }
+    }
+
+    private JmmParserResult parseWith(CharStream input, String startingRule, Map<String, String> config,
+            PredictionMode mode, ANTLRErrorStrategy errorStrategy) {
+        // The stream may have been read by a previous attempt, e.g. the SLL stage, and the lexer does not rewind it
+        input.seek(0);
+        lexer.setInputStream(input);
+        tokens.setTokenSource(lexer);
+        parser.setTokenStream(tokens);
+        parser.getInterpreter().setPredictionMode(mode);
+        parser.setErrorHandler(errorStrategy);
+
+        lexer.removeErrorListeners();
+        var lexerListener = new JmmErrorListener(Stage.LEXICAL);
+        lexer.addErrorListener(lexerListener);
+
+        parser.removeErrorListeners();
+        var parserListener = new JmmErrorListener(Stage.SYNTATIC);
+        parser.addErrorListener(parserListener);
+
+        try {
+            var tree = invokeRule(startingRule);
+
+            var reports = new ArrayList<Report>();
+            reports.addAll(lexerListener.getReports());
+            reports.addAll(parserListener.getReports());
+            if (reports.stream().anyMatch(report -> report.getType().equals(ReportType.ERROR))) {
+                return new JmmParserResult(null, reports, config);
+            }
+
+            var root = AntlrToJmmNodeConverter.convert(tree, parser);
+            var ignored = getIgnoreList();
+            if (!ignored.isEmpty()) {
+                new JmmNodeCleanup(ignored).visit(root);
+            }
+            ExpressionRebuilder.rebuild(root);
+
+            return new JmmParserResult(root, reports, config);
+        } finally {
+            // Do not keep the tokens of the last file alive
+            lexer.setInputStream(EMPTY);
+            tokens.setTokenSource(lexer);
+            parser.setTokenStream(tokens);
+        }
+    }
+
+    private ParseTree invokeRule(String rule) {
+        var method = RULES.computeIfAbsent(rule, name -> {
+            try {
+                return JavammParser.class.getMethod(name);
+            } catch (NoSuchMethodException e) {
+                throw new RuntimeException("Unknown parser rule '" + name + "'", e);
+            }
+        });
+
+        try {
+            return (ParseTree) method.invoke(parser);
+        } catch (InvocationTargetException e) {
+            // E.g. the exception of the bail out strategy, which the caller expects as is
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Error while parsing rule '" + rule + "'", e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Could not call parser rule '" + rule + "'", e);
+        }
+    }
+
+    private List<String> getIgnoreList() {
+        if (ignoreList == null) {
+            ignoreList = AntlrParser.getIgnoreList(parser);
+        }
+        return ignoreList;
+    }
+
+    /**
+     * @return the number of DFA states of the lexer and the parser
+     */
+    public static long getCacheSize() {
+        var pool = POOLS.get();
+        return countStates(pool.lexer.getInterpreter().decisionToDFA)
+                + countStates(pool.parser.getInterpreter().decisionToDFA);
+    }
+
+    /**
+     * @return the number of cached prediction contexts, which are kept for as long as the process runs
+     */
+    public static long getContextCacheSize() {
+        return POOLS.get().parser.getInterpreter().getSharedContextCache().size();
+    }
+
+    private static long countStates(DFA[] decisionToDFA) {
+        long states = 0;
+        for (var dfa : decisionToDFA) {
+            states += dfa.states.size();
+        }
+        return states;
+    }
+
+    /**
+     * @return how many times the DFA was cleared since the process started
+     */
+    public static long getClearCount() {
+        return CLEARS.get();
+    }
+
+    /**
+     * Empties the DFA of the lexer and the parser, shared by every instance, once no parse is running.
+     * <p>
+     * ANTLR 4.5 has no way to empty the prediction context cache, but it is only used to build DFA states, so it stops
+     * growing while the DFA is refilled.
+     */
+    public static void clearCaches() {
+        clearCaches(-1);
+    }
+
+    /**
+     * Clears the DFA if it still has more states than the given number once no parse is running, so that threads that
+     * passed the limit at the same time clear it only once.
+     */
+    private static void clearCaches(long maxCacheSize) {
+        CACHE_LOCK.writeLock().lock();
+        try {
+            if (getCacheSize() <= maxCacheSize) {
+                return;
+            }
+            var pool = POOLS.get();
+            pool.lexer.getInterpreter().clearDFA();
+            pool.parser.getInterpreter().clearDFA();
+            CLEARS.incrementAndGet();
+        } finally {
+            CACHE_LOCK.writeLock().unlock();
+        }
+    }
+}
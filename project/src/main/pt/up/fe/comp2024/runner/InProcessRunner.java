@@ -0,0 +1,284 @@
+package pt.up.fe.comp2024.runner;
+
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.jar.JarFile;
+
+/**
+ * Runs compiled programs inside the current JVM, instead of starting a new 'java' process for each one.
+ * <p>
+ * Every run gets its own {@link IsolatedClassLoader} with the generated classes and the runtime classes of the
+ * classpath (e.g. io and Quicksort from libs-jmm/compiled), and its own standard input, output and error, so several
+ * programs can run at the same time. System.exit ends only the program that called it, and its status is returned
+ * like the exit code of a process.
+ * <p>
+ * When the timeout expires, the run returns -1 and the program is stopped the next time it prints or jumps backwards
+ * in a generated class (see {@link LoopCancellation}), since threads cannot be killed safely. Only a loop inside a
+ * runtime class, which is compiled by javac and not rewritten, can keep running in its daemon thread.
+ */
+public class InProcessRunner {
+
+    public static final long DEFAULT_TIMEOUT_NANOS = 5_000_000_000L;
+
+    private static final int MAX_OUTPUT_BYTES = 16 * 1024 * 1024;
+    private static final int TIMED_OUT = -1;
+    private static final byte[] MISSING = new byte[0];
+    private static final String NEW_LINE = System.lineSeparator();
+
+    // Runners are shared by classpath, so the runtime classes are only read and redirected once
+    private static final Map<List<File>, InProcessRunner> RUNNERS = new ConcurrentHashMap<>();
+    private static final Map<String, byte[]> RUNNER_CLASSES = new ConcurrentHashMap<>();
+
+    private final List<File> classpath;
+    private final Map<String, byte[]> runtimeClasses;
+
+    /**
+     * @param classpath folders and jars with the runtime classes the programs may use
+     */
+    public InProcessRunner(List<File> classpath) {
+        this.classpath = classpath;
+        this.runtimeClasses = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return the runner shared by every run with the given classpath
+     */
+    public static InProcessRunner forClasspath(List<String> classpath) {
+        var files = classpath.stream().map(path -> new File(path).getAbsoluteFile()).toList();
+        return RUNNERS.computeIfAbsent(files, InProcessRunner::new);
+    }
+
+    public ProcessOutputAsString run(String mainClass, Map<String, byte[]> classes, List<String> args, String input) {
+        return run(mainClass, classes, args, input, DEFAULT_TIMEOUT_NANOS);
+    }
+
+    /**
+     * Runs the main method of the given class.
+     *
+     * @param mainClass the binary name of the class with the main method
+     * @param classes   the generated class files, by binary name
+     * @param input     what the program reads from the standard input, can be null
+     * @return the exit status and what the program printed, split in lines like the output of a process
+     */
+    public ProcessOutputAsString run(String mainClass, Map<String, byte[]> classes, List<String> args, String input,
+            long timeoutNanos) {
+        var stdout = new CapturedOutput();
+        var stderr = new CapturedOutput();
+        var stdin = new ByteArrayInputStream(input == null ? new byte[0] : input.getBytes(StandardCharsets.UTF_8));
+
+        var loader = new IsolatedClassLoader(classes, this::getRuntimeClass, InProcessRunner::getRunnerClass);
+        Class<?> system;
+        try {
+            system = loader.loadClass(RunnerSystem.class.getName());
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Could not define the system class of the run", e);
+        }
+        var task = new FutureTask<>(() -> runMain(loader, system, mainClass, args, stdout, stderr, stdin));
+
+        var thread = new Thread(task, "main");
+        thread.setDaemon(true);
+        thread.setContextClassLoader(loader);
+        thread.start();
+
+        int status;
+        try {
+            status = task.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            stdout.cancel();
+            stderr.cancel();
+            cancel(system);
+            thread.interrupt();
+            stderr.note("Program timed out after " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+            status = TIMED_OUT;
+        } catch (InterruptedException e) {
+            stdout.cancel();
+            stderr.cancel();
+            cancel(system);
+            thread.interrupt();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running '" + mainClass + "'", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not run '" + mainClass + "'", e.getCause());
+        }
+
+        return new ProcessOutputAsString(status, stdout.toLines(), stderr.toLines());
+    }
+
+    private static void cancel(Class<?> system) {
+        try {
+            system.getMethod("cancel").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Could not cancel the run", e);
+        }
+    }
+
+    private static int runMain(ClassLoader loader, Class<?> system, String mainClass, List<String> args,
+            CapturedOutput stdout, CapturedOutput stderr, InputStream stdin) throws ReflectiveOperationException {
+        var out = new PrintStream(stdout, true, StandardCharsets.UTF_8);
+        var err = new PrintStream(stderr, true, StandardCharsets.UTF_8);
+
+        system.getField("out").set(null, out);
+        system.getField("err").set(null, err);
+        system.getField("in").set(null, stdin);
+
+        try {
+            var main = loader.loadClass(mainClass).getMethod("main", String[].class);
+            main.setAccessible(true);
+            main.invoke(null, (Object) args.toArray(String[]::new));
+            return 0;
+        } catch (InvocationTargetException e) {
+            if ((boolean) system.getMethod("hasExited").invoke(null)) {
+                return (int) system.getMethod("getExitStatus").invoke(null);
+            }
+
+            var cause = e.getCause();
+            if (cause instanceof CapturedOutput.Cancelled) {
+                stderr.note(cause.getMessage());
+                return TIMED_OUT;
+            }
+            // Defined by the loader of the run, so it is not the same class as the one the runner sees
+            if (cause.getClass().getName().equals(RunnerSystem.Cancelled.class.getName())) {
+                return TIMED_OUT;
+            }
+
+            // Same as the 'java' launcher
+            stderr.printUncancelled("Exception in thread \"main\" ", cause);
+            return 1;
+        } catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+            stderr.printUncancelled("Error: Could not run main class " + mainClass + NEW_LINE + "\t", e);
+            return 1;
+        } finally {
+            out.flush();
+            err.flush();
+        }
+    }
+
+    private byte[] getRuntimeClass(String name) {
+        var classFile = runtimeClasses.computeIfAbsent(name, this::readRuntimeClass);
+        return classFile == MISSING ? null : classFile;
+    }
+
+    private byte[] readRuntimeClass(String name) {
+        var path = name.replace('.', '/') + ".class";
+        try {
+            for (var entry : classpath) {
+                if (entry.isDirectory()) {
+                    var classFile = new File(entry, path);
+                    if (classFile.isFile()) {
+                        return SystemRedirect.apply(Files.readAllBytes(classFile.toPath()));
+                    }
+                } else if (entry.isFile()) {
+                    try (var jar = new JarFile(entry)) {
+                        var jarEntry = jar.getJarEntry(path);
+                        if (jarEntry != null) {
+                            return SystemRedirect.apply(jar.getInputStream(jarEntry).readAllBytes());
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read class '" + name + "'", e);
+        }
+
+        return MISSING;
+    }
+
+    private static byte[] getRunnerClass(String name) {
+        return RUNNER_CLASSES.computeIfAbsent(name, key -> {
+            var resource = key.replace('.', '/') + ".class";
+            try (var classFile = InProcessRunner.class.getClassLoader().getResourceAsStream(resource)) {
+                if (classFile == null) {
+                    throw new RuntimeException("Could not find '" + resource + "'");
+                }
+                return classFile.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Standard output or error of a run, which stops the program once the run is cancelled or prints too much.
+     */
+    private static class CapturedOutput extends OutputStream {
+
+        static class Cancelled extends Error {
+            Cancelled(String message) {
+                super(message, null, false, false);
+            }
+        }
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private volatile boolean cancelled = false;
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        private void check(int length) {
+            if (cancelled) {
+                throw new Cancelled("Program stopped after the timeout");
+            }
+            if (bytes.size() + length > MAX_OUTPUT_BYTES) {
+                cancelled = true;
+                throw new Cancelled("Program stopped after printing more than " + MAX_OUTPUT_BYTES + " bytes");
+            }
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            check(1);
+            bytes.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            check(len);
+            bytes.write(b, off, len);
+        }
+
+        /**
+         * Adds a line, even if the run was cancelled.
+         */
+        synchronized void note(String message) {
+            bytes.writeBytes((message + NEW_LINE).getBytes(StandardCharsets.UTF_8));
+        }
+
+        synchronized void printUncancelled(String prefix, Throwable throwable) {
+            var trace = new ByteArrayOutputStream();
+            try (var printer = new PrintStream(trace, true, StandardCharsets.UTF_8)) {
+                printer.print(prefix);
+                throwable.printStackTrace(printer);
+            }
+            bytes.writeBytes(trace.toByteArray());
+        }
+
+        /**
+         * @return the output with every line ended by the line separator, the same as reading it from a process
+         */
+        synchronized String toLines() {
+            var text = bytes.toString(StandardCharsets.UTF_8);
+            var lines = new StringBuilder(text.length() + NEW_LINE.length());
+            text.lines().forEach(line -> lines.append(line).append(NEW_LINE));
+            return lines.toString();
+        }
+    }
+}
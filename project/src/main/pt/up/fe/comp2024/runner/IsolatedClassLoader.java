@@ -0,0 +1,54 @@
+package pt.up.fe.comp2024.runner;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Class loader of a single run of the {@link InProcessRunner}.
+ * <p>
+ * It only sees the JDK, the generated classes and the runtime classes of the language (e.g. io), never the classes of
+ * the compiler, so static state such as the input buffer of io is not shared between runs. Every class it defines
+ * goes through {@link SystemRedirect}, the generated ones also through {@link LoopCancellation}, and it defines its own
+ * {@link RunnerSystem}.
+ */
+class IsolatedClassLoader extends ClassLoader {
+
+    private final Map<String, byte[]> generatedClasses;
+    private final Function<String, byte[]> runtimeClasses;
+    private final Function<String, byte[]> runnerClasses;
+
+    /**
+     * @param generatedClasses the classes produced by the compiler, by binary name
+     * @param runtimeClasses   the already redirected classes of the runtime classpath, null for unknown classes
+     * @param runnerClasses    the bytes of {@link RunnerSystem} and its nested classes
+     */
+    IsolatedClassLoader(Map<String, byte[]> generatedClasses, Function<String, byte[]> runtimeClasses,
+            Function<String, byte[]> runnerClasses) {
+        super("jmm-run", ClassLoader.getPlatformClassLoader());
+        this.generatedClasses = generatedClasses;
+        this.runtimeClasses = runtimeClasses;
+        this.runnerClasses = runnerClasses;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        if (name.startsWith(RunnerSystem.class.getName())) {
+            return define(name, runnerClasses.apply(name));
+        }
+
+        var generated = generatedClasses.get(name);
+        if (generated != null) {
+            return define(name, SystemRedirect.apply(LoopCancellation.apply(generated)));
+        }
+
+        return define(name, runtimeClasses.apply(name));
+    }
+
+    private Class<?> define(String name, byte[] classFile) throws ClassNotFoundException {
+        if (classFile == null) {
+            throw new ClassNotFoundException(name);
+        }
+
+        return defineClass(name, classFile, 0, classFile.length);
+    }
+}
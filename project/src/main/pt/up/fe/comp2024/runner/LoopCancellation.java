@@ -0,0 +1,502 @@
+package pt.up.fe.comp2024.runner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Makes the loops of a generated class call {@link RunnerSystem#checkCancelled()}, so the {@link InProcessRunner} can
+ * stop a program that loops forever without printing.
+ * <p>
+ * The call is inserted before every branch that jumps backwards. It takes nothing from the stack and leaves nothing on
+ * it, so only the offsets change: branches, switches, exception handlers, line numbers and local variable ranges are
+ * moved to the new offsets. Classes with a StackMapTable, i.e. the runtime classes compiled by javac, are left as they
+ * are, and so are the methods whose branches would no longer fit in their offsets.
+ */
+class LoopCancellation {
+
+    private static final String CODE = "Code";
+    private static final String STACK_MAP_TABLE = "StackMapTable";
+    private static final String LINE_NUMBER_TABLE = "LineNumberTable";
+    private static final String LOCAL_VARIABLE_TABLE = "LocalVariableTable";
+    private static final String LOCAL_VARIABLE_TYPE_TABLE = "LocalVariableTypeTable";
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    /**
+     * Entries added to the constant pool: the class name, the class, the method name, the descriptor, the name and
+     * type and the Methodref, which is the last one
+     */
+    private static final int ADDED_CONSTANTS = 6;
+
+    private static final int IFEQ = 0x99;
+    private static final int JSR = 0xa8;
+    private static final int TABLESWITCH = 0xaa;
+    private static final int LOOKUPSWITCH = 0xab;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int WIDE = 0xc4;
+    private static final int IFNULL = 0xc6;
+    private static final int IFNONNULL = 0xc7;
+    private static final int GOTO_W = 0xc8;
+    private static final int JSR_W = 0xc9;
+    private static final int IINC = 0x84;
+    private static final int CHECK_LENGTH = 3;
+
+    /**
+     * Length of each instruction, 0 for the switches and wide, whose length depends on their operands or offset
+     */
+    private static final int[] LENGTHS = new int[256];
+
+    static {
+        for (int opcode = 0; opcode <= JSR_W; opcode++) {
+            LENGTHS[opcode] = 1;
+        }
+        setLength(2, 0x10, 0x10);
+        setLength(3, 0x11, 0x11);
+        setLength(2, 0x12, 0x12);
+        setLength(3, 0x13, 0x14);
+        setLength(2, 0x15, 0x19);
+        setLength(2, 0x36, 0x3a);
+        setLength(3, IINC, IINC);
+        setLength(3, IFEQ, JSR);
+        setLength(2, 0xa9, 0xa9);
+        setLength(0, TABLESWITCH, LOOKUPSWITCH);
+        setLength(3, 0xb2, INVOKESTATIC);
+        setLength(5, 0xb9, 0xba);
+        setLength(3, 0xbb, 0xbb);
+        setLength(2, 0xbc, 0xbc);
+        setLength(3, 0xbd, 0xbd);
+        setLength(3, 0xc0, 0xc1);
+        setLength(0, WIDE, WIDE);
+        setLength(4, 0xc5, 0xc5);
+        setLength(3, IFNULL, IFNONNULL);
+        setLength(5, GOTO_W, JSR_W);
+    }
+
+    private static void setLength(int length, int firstOpcode, int lastOpcode) {
+        for (int opcode = firstOpcode; opcode <= lastOpcode; opcode++) {
+            LENGTHS[opcode] = length;
+        }
+    }
+
+    private final Map<Integer, String> utf8 = new HashMap<>();
+    private int checkMethodRef;
+    private boolean changed = false;
+
+    private LoopCancellation() {
+    }
+
+    /**
+     * @return the rewritten class file, or the same array if it has no loops or cannot be rewritten
+     */
+    static byte[] apply(byte[] classFile) {
+        try {
+            var rewritten = new LoopCancellation().rewrite(classFile);
+            return rewritten == null ? classFile : rewritten;
+        } catch (IOException | RuntimeException e) {
+            // Left for the class loader to report
+            return classFile;
+        }
+    }
+
+    /**
+     * @return the rewritten class file, or null if it is left as it is
+     */
+    private byte[] rewrite(byte[] classFile) throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(classFile));
+        int magic = in.readInt();
+        int version = in.readInt();
+
+        // The constant pool is copied as is, and the Methodref of checkCancelled is added at its end
+        int count = in.readUnsignedShort();
+        var pool = new ByteArrayOutputStream();
+        copyConstantPool(in, new DataOutputStream(pool), count);
+        if (count + ADDED_CONSTANTS > 0xffff) {
+            return null;
+        }
+        checkMethodRef = count + ADDED_CONSTANTS - 1;
+
+        var body = new ByteArrayOutputStream(classFile.length + classFile.length / 8);
+        var out = new DataOutputStream(body);
+        // access flags, this and super class
+        out.writeShort(in.readUnsignedShort());
+        out.writeShort(in.readUnsignedShort());
+        out.writeShort(in.readUnsignedShort());
+        int interfaces = in.readUnsignedShort();
+        out.writeShort(interfaces);
+        for (int i = 0; i < interfaces; i++) {
+            out.writeShort(in.readUnsignedShort());
+        }
+
+        copyMembers(in, out, false);
+        if (!copyMembers(in, out, true)) {
+            return null;
+        }
+        // Class attributes
+        in.transferTo(out);
+
+        if (!changed) {
+            return null;
+        }
+
+        var bytes = new ByteArrayOutputStream(pool.size() + body.size() + 64);
+        var result = new DataOutputStream(bytes);
+        result.writeInt(magic);
+        result.writeInt(version);
+        result.writeShort(count + ADDED_CONSTANTS);
+        pool.writeTo(result);
+        result.writeByte(CONSTANT_UTF8);
+        result.writeUTF(SystemRedirect.REPLACEMENT);
+        result.writeByte(CONSTANT_CLASS);
+        result.writeShort(count);
+        result.writeByte(CONSTANT_UTF8);
+        result.writeUTF("checkCancelled");
+        result.writeByte(CONSTANT_UTF8);
+        result.writeUTF("()V");
+        result.writeByte(CONSTANT_NAME_AND_TYPE);
+        result.writeShort(count + 2);
+        result.writeShort(count + 3);
+        result.writeByte(CONSTANT_METHODREF);
+        result.writeShort(count + 1);
+        result.writeShort(count + 4);
+        body.writeTo(result);
+        return bytes.toByteArray();
+    }
+
+    private void copyConstantPool(DataInputStream in, DataOutputStream out, int count) throws IOException {
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            out.writeByte(tag);
+            switch (tag) {
+                case CONSTANT_UTF8 -> {
+                    var value = in.readUTF();
+                    utf8.put(i, value);
+                    out.writeUTF(value);
+                }
+                case CONSTANT_CLASS, CONSTANT_STRING, CONSTANT_METHOD_TYPE, CONSTANT_MODULE, CONSTANT_PACKAGE ->
+                        out.writeShort(in.readUnsignedShort());
+                case CONSTANT_METHOD_HANDLE -> {
+                    out.writeByte(in.readUnsignedByte());
+                    out.writeShort(in.readUnsignedShort());
+                }
+                case CONSTANT_INTEGER, CONSTANT_FLOAT, CONSTANT_FIELDREF, CONSTANT_METHODREF,
+                        CONSTANT_INTERFACE_METHODREF, CONSTANT_NAME_AND_TYPE, CONSTANT_DYNAMIC,
+                        CONSTANT_INVOKE_DYNAMIC -> out.writeInt(in.readInt());
+                case CONSTANT_LONG, CONSTANT_DOUBLE -> {
+                    out.writeLong(in.readLong());
+                    // These take two entries of the pool
+                    i++;
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+    }
+
+    /**
+     * Copies the fields or the methods, rewriting the code of the methods.
+     *
+     * @return false if a method has a StackMapTable, so the class must be left as it is
+     */
+    private boolean copyMembers(DataInputStream in, DataOutputStream out, boolean methods) throws IOException {
+        int members = in.readUnsignedShort();
+        out.writeShort(members);
+        for (int i = 0; i < members; i++) {
+            // access flags, name and descriptor
+            out.writeShort(in.readUnsignedShort());
+            out.writeShort(in.readUnsignedShort());
+            out.writeShort(in.readUnsignedShort());
+
+            int attributes = in.readUnsignedShort();
+            out.writeShort(attributes);
+            for (int j = 0; j < attributes; j++) {
+                int name = in.readUnsignedShort();
+                var info = in.readNBytes(in.readInt());
+                if (methods && CODE.equals(utf8.get(name))) {
+                    info = rewriteCode(info);
+                    if (info == null) {
+                        return false;
+                    }
+                }
+                out.writeShort(name);
+                out.writeInt(info.length);
+                out.write(info);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the new Code attribute, the same one if it has no loops, or null if it has a StackMapTable
+     */
+    private byte[] rewriteCode(byte[] attribute) throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(attribute));
+        int maxStack = in.readUnsignedShort();
+        int maxLocals = in.readUnsignedShort();
+        var code = in.readNBytes(in.readInt());
+        var handlers = new int[in.readUnsignedShort() * 4];
+        for (int i = 0; i < handlers.length; i++) {
+            handlers[i] = in.readUnsignedShort();
+        }
+        int attributeCount = in.readUnsignedShort();
+        var names = new int[attributeCount];
+        var infos = new byte[attributeCount][];
+        for (int i = 0; i < attributeCount; i++) {
+            names[i] = in.readUnsignedShort();
+            infos[i] = in.readNBytes(in.readInt());
+            if (STACK_MAP_TABLE.equals(utf8.get(names[i]))) {
+                return null;
+            }
+        }
+
+        var offsets = new int[code.length + 1];
+        var newCode = rewriteInstructions(code, offsets);
+        if (newCode == null) {
+            return attribute;
+        }
+
+        var bytes = new ByteArrayOutputStream(attribute.length + newCode.length - code.length);
+        var out = new DataOutputStream(bytes);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(newCode.length);
+        out.write(newCode);
+        out.writeShort(handlers.length / 4);
+        for (int i = 0; i < handlers.length; i += 4) {
+            // start, end, handler and catch type
+            out.writeShort(offsets[handlers[i]]);
+            out.writeShort(offsets[handlers[i + 1]]);
+            out.writeShort(offsets[handlers[i + 2]]);
+            out.writeShort(handlers[i + 3]);
+        }
+
+        out.writeShort(attributeCount);
+        for (int i = 0; i < attributeCount; i++) {
+            var info = switch (utf8.getOrDefault(names[i], "")) {
+                case LINE_NUMBER_TABLE -> rewriteLineNumbers(infos[i], offsets);
+                case LOCAL_VARIABLE_TABLE, LOCAL_VARIABLE_TYPE_TABLE -> rewriteLocalVariables(infos[i], offsets);
+                default -> infos[i];
+            };
+            out.writeShort(names[i]);
+            out.writeInt(info.length);
+            out.write(info);
+        }
+
+        changed = true;
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param offsets receives the new offset of each instruction, and of the end of the code, by their old offset;
+     *                the new offset of an instruction with a check before it is the one of the check, so branches to
+     *                it also run the check
+     * @return the new code, or null if it has no loops or the new offsets do not fit
+     */
+    private byte[] rewriteInstructions(byte[] code, int[] offsets) {
+        var buffer = ByteBuffer.wrap(code);
+
+        // Old offsets of the instructions, and whether each one jumps backwards
+        var starts = new int[code.length];
+        var checked = new boolean[code.length];
+        int instructions = 0;
+        boolean anyChecked = false;
+        for (int offset = 0; offset < code.length; offset += length(buffer, offset, offset)) {
+            starts[instructions] = offset;
+            checked[instructions] = jumpsBackwards(buffer, offset);
+            anyChecked |= checked[instructions];
+            instructions++;
+        }
+        if (!anyChecked) {
+            return null;
+        }
+
+        // New offsets, instructions in order, since the padding of a switch depends on where it ends up
+        var newStarts = new int[instructions];
+        int position = 0;
+        for (int i = 0; i < instructions; i++) {
+            offsets[starts[i]] = position;
+            if (checked[i]) {
+                position += CHECK_LENGTH;
+            }
+            newStarts[i] = position;
+            position += length(buffer, starts[i], position);
+        }
+        offsets[code.length] = position;
+        if (position > 0xffff) {
+            return null;
+        }
+
+        var newCode = ByteBuffer.allocate(position);
+        for (int i = 0; i < instructions; i++) {
+            if (checked[i]) {
+                newCode.put((byte) INVOKESTATIC);
+                newCode.putShort((short) checkMethodRef);
+            }
+            if (!copyInstruction(buffer, starts[i], newCode, newStarts[i], offsets)) {
+                return null;
+            }
+        }
+        return newCode.array();
+    }
+
+    /**
+     * @param position where the instruction is, which changes the padding of the switches
+     */
+    private static int length(ByteBuffer code, int offset, int position) {
+        int opcode = code.get(offset) & 0xff;
+        if (LENGTHS[opcode] != 0) {
+            return LENGTHS[opcode];
+        }
+
+        return switch (opcode) {
+            case WIDE -> (code.get(offset + 1) & 0xff) == IINC ? 6 : 4;
+            case TABLESWITCH -> {
+                int operands = switchOperands(offset);
+                int cases = code.getInt(operands + 8) - code.getInt(operands + 4) + 1;
+                yield 1 + padding(position) + 12 + 4 * cases;
+            }
+            case LOOKUPSWITCH -> 1 + padding(position) + 8 + 8 * code.getInt(switchOperands(offset) + 4);
+            default -> throw new IllegalArgumentException("Unknown opcode " + opcode);
+        };
+    }
+
+    private static int padding(int position) {
+        return (4 - (position + 1) % 4) % 4;
+    }
+
+    private static int switchOperands(int offset) {
+        return offset + 1 + padding(offset);
+    }
+
+    private static boolean isBranch(int opcode) {
+        return (opcode >= IFEQ && opcode <= JSR) || opcode == IFNULL || opcode == IFNONNULL;
+    }
+
+    private static boolean jumpsBackwards(ByteBuffer code, int offset) {
+        int opcode = code.get(offset) & 0xff;
+        // Subroutines return to where they were called, they are not loops
+        if (opcode == JSR || opcode == JSR_W) {
+            return false;
+        }
+        if (isBranch(opcode)) {
+            return code.getShort(offset + 1) <= 0;
+        }
+        if (opcode == GOTO_W) {
+            return code.getInt(offset + 1) <= 0;
+        }
+
+        if (opcode == TABLESWITCH || opcode == LOOKUPSWITCH) {
+            int operands = switchOperands(offset);
+            boolean backwards = code.getInt(operands) <= 0;
+            int targets = opcode == TABLESWITCH
+                    ? code.getInt(operands + 8) - code.getInt(operands + 4) + 1
+                    : code.getInt(operands + 4);
+            // The jumps of a tableswitch follow each other, the ones of a lookupswitch follow each match
+            int step = opcode == TABLESWITCH ? 4 : 8;
+            for (int i = 0; i < targets; i++) {
+                backwards |= code.getInt(operands + 12 + i * step) <= 0;
+            }
+            return backwards;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return false if a branch no longer fits in its offset
+     */
+    private static boolean copyInstruction(ByteBuffer code, int offset, ByteBuffer newCode, int newOffset,
+            int[] offsets) {
+        int opcode = code.get(offset) & 0xff;
+
+        if (isBranch(opcode)) {
+            int jump = offsets[offset + code.getShort(offset + 1)] - newOffset;
+            if (jump < Short.MIN_VALUE || jump > Short.MAX_VALUE) {
+                return false;
+            }
+            newCode.put((byte) opcode);
+            newCode.putShort((short) jump);
+            return true;
+        }
+
+        if (opcode == GOTO_W || opcode == JSR_W) {
+            newCode.put((byte) opcode);
+            newCode.putInt(offsets[offset + code.getInt(offset + 1)] - newOffset);
+            return true;
+        }
+
+        if (opcode == TABLESWITCH || opcode == LOOKUPSWITCH) {
+            int operands = switchOperands(offset);
+            newCode.put((byte) opcode);
+            for (int i = 0; i < padding(newOffset); i++) {
+                newCode.put((byte) 0);
+            }
+            newCode.putInt(offsets[offset + code.getInt(operands)] - newOffset);
+            if (opcode == TABLESWITCH) {
+                int low = code.getInt(operands + 4);
+                int high = code.getInt(operands + 8);
+                newCode.putInt(low);
+                newCode.putInt(high);
+                for (int i = 0; i < high - low + 1; i++) {
+                    newCode.putInt(offsets[offset + code.getInt(operands + 12 + i * 4)] - newOffset);
+                }
+            } else {
+                int pairs = code.getInt(operands + 4);
+                newCode.putInt(pairs);
+                for (int i = 0; i < pairs; i++) {
+                    newCode.putInt(code.getInt(operands + 8 + i * 8));
+                    newCode.putInt(offsets[offset + code.getInt(operands + 12 + i * 8)] - newOffset);
+                }
+            }
+            return true;
+        }
+
+        newCode.put(code.array(), offset, length(code, offset, offset));
+        return true;
+    }
+
+    private static byte[] rewriteLineNumbers(byte[] info, int[] offsets) {
+        var table = ByteBuffer.wrap(info.clone());
+        int lines = table.getShort(0) & 0xffff;
+        for (int i = 0; i < lines; i++) {
+            // start and line number
+            int entry = 2 + i * 4;
+            table.putShort(entry, (short) offsets[table.getShort(entry) & 0xffff]);
+        }
+        return table.array();
+    }
+
+    private static byte[] rewriteLocalVariables(byte[] info, int[] offsets) {
+        var table = ByteBuffer.wrap(info.clone());
+        int variables = table.getShort(0) & 0xffff;
+        for (int i = 0; i < variables; i++) {
+            // start, length, name, descriptor and index
+            int entry = 2 + i * 10;
+            int start = table.getShort(entry) & 0xffff;
+            int end = start + (table.getShort(entry + 2) & 0xffff);
+            table.putShort(entry, (short) offsets[start]);
+            table.putShort(entry + 2, (short) (offsets[end] - offsets[start]));
+        }
+        return table.array();
+    }
+}
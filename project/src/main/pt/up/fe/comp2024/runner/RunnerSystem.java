@@ -0,0 +1,97 @@
+package pt.up.fe.comp2024.runner;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+
+/**
+ * Replaces java.lang.System in the programs run by the {@link InProcessRunner}.
+ * <p>
+ * Each run defines its own copy of this class in its {@link IsolatedClassLoader}, so the streams and the exit status
+ * below belong to that run only. The runner sets the streams before calling main.
+ */
+public final class RunnerSystem {
+
+    public static PrintStream out;
+    public static PrintStream err;
+    public static InputStream in;
+
+    private static volatile boolean exited;
+    private static volatile int exitStatus;
+    private static volatile boolean cancelled;
+
+    private RunnerSystem() {
+    }
+
+    /**
+     * Ends the program by unwinding its thread, instead of stopping the whole JVM.
+     */
+    public static void exit(int status) {
+        exitStatus = status;
+        exited = true;
+        throw new Exit();
+    }
+
+    /**
+     * Makes the next {@link #checkCancelled()} stop the program, called by the runner when the timeout expires.
+     */
+    public static void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Called before every backward jump of the generated classes, see {@link LoopCancellation}.
+     */
+    public static void checkCancelled() {
+        if (cancelled) {
+            throw new Cancelled();
+        }
+    }
+
+    public static boolean hasExited() {
+        return exited;
+    }
+
+    public static int getExitStatus() {
+        return exitStatus;
+    }
+
+    public static long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    public static long nanoTime() {
+        return System.nanoTime();
+    }
+
+    public static void arraycopy(Object src, int srcPos, Object dest, int destPos, int length) {
+        System.arraycopy(src, srcPos, dest, destPos, length);
+    }
+
+    public static int identityHashCode(Object object) {
+        return System.identityHashCode(object);
+    }
+
+    public static String lineSeparator() {
+        return System.lineSeparator();
+    }
+
+    public static String getProperty(String key) {
+        return System.getProperty(key);
+    }
+
+    public static String getenv(String name) {
+        return System.getenv(name);
+    }
+
+    static final class Exit extends Error {
+        Exit() {
+            super(null, null, false, false);
+        }
+    }
+
+    static final class Cancelled extends Error {
+        Cancelled() {
+            super("Program stopped after the timeout", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package pt.up.fe.comp2024.runner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Makes a class file use {@link RunnerSystem} instead of java.lang.System.
+ * <p>
+ * Only the constant pool is rewritten: the UTF-8 constant with the internal name of System is replaced by the one of
+ * RunnerSystem, which has members with the same names and descriptors. The rest of the class file is copied as is.
+ */
+class SystemRedirect {
+
+    private static final String SYSTEM = "java/lang/System";
+    static final String REPLACEMENT = RunnerSystem.class.getName().replace('.', '/');
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private SystemRedirect() {
+    }
+
+    /**
+     * @return the rewritten class file, or the same array if it does not use System
+     */
+    static byte[] apply(byte[] classFile) {
+        try {
+            var in = new DataInputStream(new ByteArrayInputStream(classFile));
+            var bytes = new ByteArrayOutputStream(classFile.length + REPLACEMENT.length());
+            var out = new DataOutputStream(bytes);
+
+            // magic, minor and major version
+            out.writeInt(in.readInt());
+            out.writeInt(in.readInt());
+
+            int count = in.readUnsignedShort();
+            out.writeShort(count);
+
+            boolean changed = false;
+            for (int i = 1; i < count; i++) {
+                int tag = in.readUnsignedByte();
+                out.writeByte(tag);
+                switch (tag) {
+                    case CONSTANT_UTF8 -> {
+                        var value = in.readUTF();
+                        if (value.equals(SYSTEM)) {
+                            value = REPLACEMENT;
+                            changed = true;
+                        }
+                        out.writeUTF(value);
+                    }
+                    case CONSTANT_CLASS, CONSTANT_STRING, CONSTANT_METHOD_TYPE, CONSTANT_MODULE, CONSTANT_PACKAGE ->
+                            out.writeShort(in.readUnsignedShort());
+                    case CONSTANT_METHOD_HANDLE -> {
+                        out.writeByte(in.readUnsignedByte());
+                        out.writeShort(in.readUnsignedShort());
+                    }
+                    case CONSTANT_INTEGER, CONSTANT_FLOAT, CONSTANT_FIELDREF, CONSTANT_METHODREF,
+                            CONSTANT_INTERFACE_METHODREF, CONSTANT_NAME_AND_TYPE, CONSTANT_DYNAMIC,
+                            CONSTANT_INVOKE_DYNAMIC -> out.writeInt(in.readInt());
+                    case CONSTANT_LONG, CONSTANT_DOUBLE -> {
+                        out.writeLong(in.readLong());
+                        // These take two entries of the pool
+                        i++;
+                    }
+                    default -> throw new RuntimeException("Unknown constant pool tag " + tag);
+                }
+            }
+
+            if (!changed) {
+                return classFile;
+            }
+
+            // The remaining of the class file does not depend on the size of the constant pool
+            in.transferTo(out);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid class file", e);
+        }
+    }
+}
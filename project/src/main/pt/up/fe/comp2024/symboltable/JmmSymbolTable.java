@@ -18,6 +18,7 @@ public class JmmSymbolTable implements SymbolTable {
 
     private final List<Symbol> fields;
     private final String superClass;
+    private final SymbolIndex index;
 
     public JmmSymbolTable(
             List<String> imports,
@@ -36,6 +37,7 @@ public class JmmSymbolTable implements SymbolTable {
         this.params = params;
         this.locals = locals;
         this.fields = fields;
+        this.index = new SymbolIndex(this);
     }
 
     @Override
@@ -81,4 +83,11 @@ public class JmmSymbolTable implements SymbolTable {
         return Collections.unmodifiableList(locals.get(methodSignature));
     }
 
+    /**
+     * @return the index used to resolve variable names, built with the table
+     */
+    public SymbolIndex getIndex() {
+        return index;
+    }
+
 }
@@ -0,0 +1,19 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+/**
+ * A variable name resolved in the scope of a method.
+ *
+ * @param symbol the declaration the name refers to
+ * @param kind   where it is declared
+ * @param slot   position of the variable among the parameters and then the locals of the method, not counting 'this',
+ *               or -1 for fields
+ */
+public record ResolvedSymbol(Symbol symbol, SymbolKind kind, int slot) {
+
+    public Type type() {
+        return symbol.getType();
+    }
+}
@@ -0,0 +1,124 @@
+package pt.up.fe.comp2024.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves variable names by hashing instead of scanning the locals, parameters and fields of the symbol table.
+ * <p>
+ * Each method gets a map with its locals and parameters, and the fields are in a map of their own that all methods
+ * share. When a name is declared more than once in the same scope, the first declaration wins, as it did with the
+ * scans. Imported classes are resolved the same way, from their simple name.
+ */
+public class SymbolIndex {
+
+    /**
+     * Indexes of the symbol tables that are not a {@link JmmSymbolTable}, by identity, dropped after their table.
+     */
+    private static final Map<TableKey, SymbolIndex> OTHER_INDEXES = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<SymbolTable> COLLECTED_TABLES = new ReferenceQueue<>();
+
+    /**
+     * Weak reference compared by the identity of the table, like an IdentityHashMap key.
+     */
+    private static class TableKey extends WeakReference<SymbolTable> {
+        private final int hash;
+
+        private TableKey(SymbolTable table) {
+            super(table, COLLECTED_TABLES);
+            this.hash = System.identityHashCode(table);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            var table = get();
+            return table != null && other instanceof TableKey key && key.get() == table;
+        }
+    }
+
+    private final Map<String, Map<String, ResolvedSymbol>> methods = new HashMap<>();
+    private final Map<String, ResolvedSymbol> fields = new HashMap<>();
+    private final Map<String, String> imports = new HashMap<>();
+
+    public SymbolIndex(SymbolTable table) {
+        for (var importName : table.getImports()) {
+            imports.putIfAbsent(importName.substring(importName.lastIndexOf('.') + 1), importName);
+        }
+
+        for (var field : table.getFields()) {
+            fields.putIfAbsent(field.getName(), new ResolvedSymbol(field, SymbolKind.FIELD, -1));
+        }
+
+        for (var method : table.getMethods()) {
+            var params = table.getParameters(method);
+            var locals = table.getLocalVariables(method);
+
+            Map<String, ResolvedSymbol> scope = new HashMap<>();
+            addAll(scope, locals, SymbolKind.LOCAL, params.size());
+            addAll(scope, params, SymbolKind.PARAM, 0);
+            methods.put(method, scope);
+        }
+    }
+
+    /**
+     * @return the index of the table, which is built once per table: by a {@link JmmSymbolTable} itself, or here for
+     * other tables, which are looked up by identity
+     */
+    public static SymbolIndex of(SymbolTable table) {
+        if (table instanceof JmmSymbolTable jmmTable) {
+            return jmmTable.getIndex();
+        }
+
+        for (Reference<?> collected; (collected = COLLECTED_TABLES.poll()) != null; ) {
+            OTHER_INDEXES.remove(collected);
+        }
+        // The index holds the symbols of the table but not the table, so the table can still be collected
+        return OTHER_INDEXES.computeIfAbsent(new TableKey(table), key -> new SymbolIndex(table));
+    }
+
+    private static void addAll(Map<String, ResolvedSymbol> scope, List<Symbol> symbols, SymbolKind kind,
+            int firstSlot) {
+        for (int i = 0; i < symbols.size(); i++) {
+            var symbol = symbols.get(i);
+            scope.putIfAbsent(symbol.getName(), new ResolvedSymbol(symbol, kind, firstSlot + i));
+        }
+    }
+
+    /**
+     * @return the local, parameter or field the name refers to inside the method, or only the field if the method is
+     * not known
+     */
+    public Optional<ResolvedSymbol> resolve(String method, String name) {
+        var scope = methods.get(method);
+        var symbol = scope == null ? null : scope.get(name);
+        return Optional.ofNullable(symbol != null ? symbol : fields.get(name));
+    }
+
+    public Optional<ResolvedSymbol> resolveField(String name) {
+        return Optional.ofNullable(fields.get(name));
+    }
+
+    /**
+     * @return the full name of the imported class with the given simple name, e.g. 'foo.bar.A' for 'A'
+     */
+    public Optional<String> resolveImport(String simpleName) {
+        return Optional.ofNullable(imports.get(simpleName));
+    }
+}
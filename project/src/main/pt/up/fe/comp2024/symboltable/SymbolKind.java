@@ -0,0 +1,10 @@
+package pt.up.fe.comp2024.symboltable;
+
+/**
+ * Where a variable is declared, in the order names are resolved: locals hide parameters, which hide fields.
+ */
+public enum SymbolKind {
+    LOCAL,
+    PARAM,
+    FIELD
+}
@@ -0,0 +1,163 @@
+package pt.up.fe.comp.cpf;
+
+import org.junit.Test;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.specs.util.SpecsIo;
+import utils.ProjectTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Programs that the optimizations once compiled wrongly, or whose corner cases they must keep handling. Each one is
+ * compiled with the flags that exercise the problem, and its output is compared with the one it has when compiled by
+ * javac. Some also check the code and the counters of the optimizations.
+ */
+public class Cpf5_OptimizationsRegression {
+
+    static JasminResult getJasminResult(String filename, boolean optimize, int numReg) {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", String.valueOf(optimize));
+        config.put("registerAllocation", String.valueOf(numReg));
+        return TestUtils.backend(SpecsIo.getResource("pt/up/fe/comp/cpf/5_optimizations/" + filename), config);
+    }
+
+    /**
+     * Compiles with '-o -r=0' using the given context, whose metrics then have the counters of the optimizations
+     */
+    static JasminResult getOptimizedResult(String filename, CompilerContext context) {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "true");
+        config.put("registerAllocation", "0");
+        var semanticsResult = TestUtils.analyse(SpecsIo.getResource("pt/up/fe/comp/cpf/5_optimizations/" + filename),
+                config);
+
+        var optimization = new JmmOptimizationImpl(context);
+        var ollirResult = optimization.optimize(optimization.toOllir(optimization.optimize(semanticsResult)));
+        TestUtils.noErrors(ollirResult.getReports());
+        return TestUtils.backend(ollirResult);
+    }
+
+    static long getCounter(CompilerContext context, String stage, String counter) {
+        return context.getMetrics().getStages().stream()
+                .filter(stageMetrics -> stageMetrics.getName().equals(stage))
+                .findFirst()
+                .orElseThrow()
+                .getCounters()
+                .getOrDefault(counter, 0L);
+    }
+
+    /**
+     * Test that 'a = 1 - a' is not generated as an iinc of a
+     */
+    @Test
+    public void section1_InstSelection_iincReversedSub() {
+        var result = getJasminResult("inst_selection/InstSelection_iinc_reversed.jmm", false, -1);
+        ProjectTestUtils.runJasmin(result, "-4");
+    }
+
+    /**
+     * Test that variables only used by calls, as their receiver or arguments, by putfield or as array indexes do not
+     * share a register with the variables assigned while they are live
+     */
+    @Test
+    public void section2_RegAlloc_CallFieldAndIndexUses() {
+        var result = getJasminResult("reg_alloc/RegAllocUses.jmm", false, 0);
+        ProjectTestUtils.runJasmin(result, "2\n3\n3\n5\n13");
+    }
+
+    /**
+     * Test that removing the parentheses of '(a + b) * 4' keeps the operands of the sum
+     */
+    @Test
+    public void section3_ConstFold_Parenthesized() {
+        var result = getJasminResult("const_fold/FoldParenthesized.jmm", true, -1);
+        ProjectTestUtils.runJasmin(result, "20");
+    }
+
+    /**
+     * Test that the constants assigned before an 'if (false)' are still known after it, with the values of the else
+     */
+    @Test
+    public void section4_ConstProp_AfterIfFalse() {
+        var context = new CompilerContext();
+        var result = getOptimizedResult("const_prop/PropAfterIfFalse.jmm", context);
+        ProjectTestUtils.runJasmin(result, "15");
+
+        CpUtils.matches(CpUtils.getJasminMethod(result, "foo"), "(bipush|sipush|ldc) 15\\s+ireturn");
+        assertTrue(getCounter(context, "optimization", "removedNodes") > 0);
+    }
+
+    /**
+     * Test that a 'while (false)' that is a statement of the method itself is removed
+     */
+    @Test
+    public void section5_DeadCode_WhileFalseTopLevel() {
+        var context = new CompilerContext();
+        var result = getOptimizedResult("dead_code/WhileFalseTopLevel.jmm", context);
+        ProjectTestUtils.runJasmin(result, "3");
+
+        assertEquals(result.getJasminCode(), 0, CpUtils.countOccurrencesRegex(result, CpUtils.GOTO_REGEX));
+        // The loop, its condition and its block, and the four nodes of each statement in it
+        assertEquals(11, getCounter(context, "optimization", "removedNodes"));
+    }
+
+    /**
+     * Test that statements after an if whose branches both return, and after a 'while (true)', are removed, and that
+     * the unreachable final return of an int or boolean method is kept returning 0 or false
+     */
+    @Test
+    public void section6_DeadCode_AfterReturnAndInfiniteLoop() {
+        var context = new CompilerContext();
+        var result = getOptimizedResult("dead_code/AfterReturn.jmm", context);
+        ProjectTestUtils.runJasmin(result, "5\n6\n1");
+
+        for (var method : new String[]{"first", "loop", "found"}) {
+            var code = CpUtils.getJasminMethod(result, method);
+            assertFalse(code, code.contains("println"));
+            assertFalse(code, code.contains("imul"));
+            CpUtils.matches(code, "(iconst_0|ldc 0)\\s+ireturn");
+        }
+        assertTrue(getCounter(context, "optimization", "removedNodes") > 0);
+    }
+
+    /**
+     * Test that the temporaries of an expression assigned to a dead variable are removed with it, which takes one
+     * round of the liveness for each link of the chain
+     */
+    @Test
+    public void section7_DeadStore_Chain() {
+        var context = new CompilerContext();
+        var result = getOptimizedResult("dead_store/DeadStoreChain.jmm", context);
+        ProjectTestUtils.runJasmin(result, "6");
+
+        var foo = CpUtils.getJasminMethod(result, "foo");
+        assertFalse(foo, foo.matches("(?s).*(istore|imul|iadd|isub).*"));
+        // a, b, the two temporaries of c and c
+        assertEquals(5, getCounter(context, "deadStores", "removed"));
+    }
+
+    /**
+     * Test that the dead stores of calls, array stores, putfield and divisions by a variable are kept
+     */
+    @Test
+    public void section8_DeadStore_KeepsEffects() {
+        var context = new CompilerContext();
+        var result = getOptimizedResult("dead_store/DeadStoreKept.jmm", context);
+        ProjectTestUtils.runJasmin(result, "2\n7\n3");
+
+        var foo = CpUtils.getJasminMethod(result, "foo");
+        for (var instruction : new String[]{"invokevirtual", "iastore", "putfield", "idiv"}) {
+            assertTrue(foo, foo.contains(instruction));
+        }
+        assertEquals(0, getCounter(context, "deadStores", "removed"));
+    }
+}
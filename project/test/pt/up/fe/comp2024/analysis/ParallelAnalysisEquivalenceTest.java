@@ -0,0 +1,89 @@
+package pt.up.fe.comp2024.analysis;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Analyses every cpf program with and without '-l', and checks that the reports are the same and in the same order,
+ * and that the programs without errors generate the same OLLIR. The corpus has no program with errors in more than one
+ * method, so one is added.
+ */
+@RunWith(Parameterized.class)
+public class ParallelAnalysisEquivalenceTest {
+
+    private static final Path CORPUS = Path.of("test/pt/up/fe/comp/cpf");
+
+    private static final String ERRORS_IN_SEVERAL_METHODS = """
+            class Errors {
+                int field;
+                public int first(int a) {
+                    return a + true;
+                }
+                public boolean second(boolean b) {
+                    int c;
+                    c = b;
+                    return undeclared;
+                }
+                public int third() {
+                    return field;
+                }
+                public int[] fourth(int[] values) {
+                    return values[false];
+                }
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> programs() throws IOException {
+        List<Object[]> programs = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(CORPUS)) {
+            for (var file : walk.filter(path -> path.toString().endsWith(".jmm")).sorted().toList()) {
+                programs.add(new Object[]{file.toString().replace('\\', '/'), Files.readString(file)});
+            }
+        }
+        programs.add(new Object[]{"errors in several methods", ERRORS_IN_SEVERAL_METHODS});
+        return programs;
+    }
+
+    private final String code;
+
+    public ParallelAnalysisEquivalenceTest(String name, String code) {
+        this.code = code;
+    }
+
+    @Test
+    public void sameReportsAndOllir() {
+        var sequential = TestUtils.analyse(code, Map.of());
+        var parallel = TestUtils.analyse(code, Map.of("parallelAnalysis", "true"));
+        assertEquals("Reports with '-l'", toStrings(sequential.getReports()), toStrings(parallel.getReports()));
+
+        if (TestUtils.getNumErrors(sequential.getReports()) > 0) {
+            return;
+        }
+
+        var expected = TestUtils.optimize(sequential).getOllirCode();
+        var actual = TestUtils.optimize(parallel).getOllirCode();
+        assertEquals("OLLIR with '-l'", expected, actual);
+    }
+
+    private static List<String> toStrings(List<Report> reports) {
+        return reports.stream().map(Report::toString).toList();
+    }
+}
@@ -0,0 +1,171 @@
+package pt.up.fe.comp2024.analysis;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2024.CompilerContext;
+import pt.up.fe.comp2024.backend.JasminAssembler;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import utils.ProjectTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class SemanticCacheTest {
+
+    private static final String CALLER = """
+            class Caller {
+                public int bar(int a) {
+                    return a + 1;
+                }
+
+                public int foo() {
+                    int b;
+                    b = this.bar(1);
+                    return b;
+                }
+            }
+            """;
+
+    private static final String WRONG_ASSIGN = """
+            class WrongAssign {
+                public int foo() {
+                    return 1;
+                }
+
+                public int bar() {
+                    int a;
+                    a = true;
+                    return a;
+                }
+            }
+            """;
+
+    private static final String LIBRARY = """
+            class Library {
+                public int get() {
+                    return 1;
+                }
+
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    private static final String LIBRARY_USER = """
+            import Library;
+
+            class LibraryUser {
+                public int foo() {
+                    Library library;
+                    int a;
+                    library = new Library();
+                    a = library.get();
+                    return a;
+                }
+            }
+            """;
+
+    private static List<String> analyse(SemanticCache cache, String code) {
+        return analyse(cache, code, Map.of());
+    }
+
+    /**
+     * @return the errors of the analysis, as line and message
+     */
+    private static List<String> analyse(SemanticCache cache, String code, Map<String, String> config) {
+        var parserResult = new JmmParserImpl().parse(code, config);
+        assertNotNull(parserResult.getReports().toString(), parserResult.getRootNode());
+
+        var result = new JmmAnalysisImpl(new CompilerContext(), cache, code).semanticAnalysis(parserResult);
+        return result.getReports().stream()
+                .filter(report -> report.getType() == ReportType.ERROR)
+                .map(SemanticCacheTest::describe)
+                .toList();
+    }
+
+    private static String describe(Report report) {
+        return report.getLine() + ": " + report.getMessage();
+    }
+
+    private static int lineOf(String error) {
+        return Integer.parseInt(error.substring(0, error.indexOf(':')));
+    }
+
+    @Test
+    public void unchangedMethodsAreHits() {
+        var cache = new SemanticCache();
+
+        var first = analyse(cache, WRONG_ASSIGN);
+        assertEquals(1, first.size());
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        // Only 'foo' changes
+        var second = analyse(cache, WRONG_ASSIGN.replace("return 1;", "return 2;"));
+        assertEquals(first, second);
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void calleeSignatureInvalidatesCaller() {
+        var cache = new SemanticCache();
+        assertEquals(List.of(), analyse(cache, CALLER));
+
+        // The text of 'foo' is the same, but the call no longer matches the parameter of 'bar'
+        var code = CALLER.replace("public int bar(int a) {\n        return a + 1;",
+                "public int bar(boolean a) {\n        return 1;");
+        var errors = analyse(cache, code);
+        assertEquals(0, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertEquals(1, errors.size());
+        assertEquals(8, lineOf(errors.get(0)));
+
+        // Back to the first version, whose entries are still in the cache
+        assertEquals(List.of(), analyse(cache, CALLER));
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void movedMethodKeepsReportsAtNewLine() {
+        var cache = new SemanticCache();
+        var first = analyse(cache, WRONG_ASSIGN);
+        assertEquals(1, first.size());
+        assertEquals(8, lineOf(first.get(0)));
+
+        // Three lines more before 'bar', which is not checked again
+        var code = WRONG_ASSIGN.replace("return 1;", "int c;\n        c = 1;\n\n        return c;");
+        var second = analyse(cache, code);
+        assertEquals(1, cache.getHits());
+        assertEquals(List.of(first.get(0).replaceFirst("^8:", "11:")), second);
+    }
+
+    @Test
+    public void classpathChangeInvalidatesCaller() throws IOException {
+        var classpath = ProjectTestUtils.getRandomFolder().getAbsoluteFile();
+        var classFile = new File(classpath, "Library.class").toPath();
+        var config = Map.of("classpath", classpath.toString());
+        var cache = new SemanticCache();
+
+        Files.write(classFile, JasminAssembler.toClassFile(TestUtils.backend(LIBRARY)));
+        assertEquals(List.of(), analyse(cache, LIBRARY_USER, config));
+        assertEquals(List.of(), analyse(cache, LIBRARY_USER, config));
+        assertEquals(1, cache.getHits());
+
+        // The library is compiled again, and 'get' now returns a boolean that 'a' cannot hold
+        Files.write(classFile, JasminAssembler.toClassFile(TestUtils.backend(
+                LIBRARY.replace("public int get() {\n        return 1;", "public boolean get() {\n        return true;"))));
+        var errors = analyse(cache, LIBRARY_USER, config);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, errors.size());
+        assertEquals(8, lineOf(errors.get(0)));
+    }
+}
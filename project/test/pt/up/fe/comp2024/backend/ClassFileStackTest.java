@@ -0,0 +1,91 @@
+package pt.up.fe.comp2024.backend;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import utils.ProjectTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.spi.ToolProvider;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the max_stack of the methods generated by the class file backend, as read by javap.
+ */
+public class ClassFileStackTest {
+
+    private static final String CODE = """
+            class Stack {
+                public boolean compare(int a, int b) {
+                    boolean c;
+                    boolean d;
+                    boolean e;
+                    c = a < b;
+                    d = b < a;
+                    e = a < 1;
+                    return e;
+                }
+                public int[] allocate() {
+                    int[] a;
+                    int[] b;
+                    int[] c;
+                    a = new int[5];
+                    b = new int[5];
+                    c = new int[5];
+                    return c;
+                }
+                public int sum(int a, int b) {
+                    int c;
+                    c = a + b * 2;
+                    return c;
+                }
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    private static final Pattern METHOD_STACK = Pattern.compile(" (\\w+)\\([^)]*\\);[\\s\\S]*?stack=(\\d+)");
+
+    /**
+     * @return the max_stack of each method of the class file
+     */
+    private static Map<String, Integer> maxStacks(byte[] classFile) throws IOException {
+        var file = new File(ProjectTestUtils.getRandomFolder(), "Stack.class");
+        Files.write(file.toPath(), classFile);
+
+        var output = new StringWriter();
+        var javap = ToolProvider.findFirst("javap").orElseThrow();
+        int exitCode = javap.run(new PrintWriter(output), new PrintWriter(output), "-v", "-p", file.getPath());
+        assertEquals(output.toString(), 0, exitCode);
+
+        var maxStacks = new HashMap<String, Integer>();
+        var matcher = METHOD_STACK.matcher(output.toString());
+        while (matcher.find()) {
+            maxStacks.put(matcher.group(1), Integer.parseInt(matcher.group(2)));
+        }
+        return maxStacks;
+    }
+
+    @Test
+    public void exactMaxStack() throws IOException {
+        var result = new ClassFileBackendImpl().toJasmin(TestUtils.optimize(CODE));
+        TestUtils.noErrors(result.getReports());
+
+        var maxStacks = maxStacks(((ClassFileResult) result).getClassFile());
+
+        // Both operands of a comparison, then its result
+        assertEquals(Integer.valueOf(2), maxStacks.get("compare"));
+        // The length, replaced by the array
+        assertEquals(Integer.valueOf(1), maxStacks.get("allocate"));
+        // The product goes to a temporary first
+        assertEquals(Integer.valueOf(2), maxStacks.get("sum"));
+        assertEquals(Integer.valueOf(0), maxStacks.get("main"));
+    }
+}
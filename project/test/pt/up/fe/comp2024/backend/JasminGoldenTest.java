@@ -0,0 +1,59 @@
+package pt.up.fe.comp2024.backend;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the Jasmin code of the cpf jasmin programs with the one in the 'golden' folder, which was written by the
+ * generator before it streamed its output. Only comments and indentation may differ.
+ */
+@RunWith(Parameterized.class)
+public class JasminGoldenTest {
+
+    private static final Path GOLDEN = Path.of("test/pt/up/fe/comp2024/backend/golden");
+    private static final String PROGRAMS = "pt/up/fe/comp/cpf/4_jasmin/";
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> programs() throws IOException {
+        try (Stream<Path> walk = Files.walk(GOLDEN)) {
+            return walk.filter(path -> path.toString().endsWith(".j"))
+                    .map(path -> GOLDEN.relativize(path).toString().replace('\\', '/'))
+                    .sorted()
+                    .map(name -> new Object[]{name.substring(0, name.length() - ".j".length())})
+                    .toList();
+        }
+    }
+
+    private final String program;
+
+    public JasminGoldenTest(String program) {
+        this.program = program;
+    }
+
+    @Test
+    public void sameAsGolden() throws IOException {
+        var expected = Files.readString(GOLDEN.resolve(program + ".j"));
+        var actual = TestUtils.backend(SpecsIo.getResource(PROGRAMS + program + ".jmm")).getJasminCode();
+
+        assertEquals(normalize(expected), normalize(actual));
+    }
+
+    private static String normalize(String jasminCode) {
+        return jasminCode.lines()
+                .map(line -> line.replaceAll(";.*", "").strip())
+                .collect(Collectors.joining("\n"));
+    }
+}
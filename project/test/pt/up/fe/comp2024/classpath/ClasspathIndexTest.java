@@ -0,0 +1,88 @@
+package pt.up.fe.comp2024.classpath;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.CompilerContext;
+import utils.ProjectTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ClasspathIndexTest {
+
+    private static void copyClass(Class<?> aClass, File folder) throws IOException {
+        var name = aClass.getSimpleName() + ".class";
+        try (var in = aClass.getResourceAsStream(name)) {
+            Files.write(folder.toPath().resolve(name), in.readAllBytes());
+        }
+    }
+
+    private static void rebuiltWhenClassesChange(Path indexFile) throws IOException {
+        var folder = ProjectTestUtils.getRandomFolder().getAbsoluteFile();
+        var classpath = List.of(folder);
+        copyClass(ClassInfo.class, folder);
+
+        var index = ClasspathIndex.forClasspath(classpath, indexFile);
+        assertTrue(index.getClassInfo(ClassInfo.class.getName()).isPresent());
+        assertFalse(index.getClassInfo(MemberInfo.class.getName()).isPresent());
+        assertSame(index, ClasspathIndex.forClasspath(classpath, indexFile));
+
+        // E.g. a library compiled while a daemon is running
+        copyClass(MemberInfo.class, folder);
+
+        var newIndex = ClasspathIndex.forClasspath(classpath, indexFile);
+        assertNotEquals(index.getFingerprint(), newIndex.getFingerprint());
+        assertTrue(newIndex.getClassInfo(ClassInfo.class.getName()).isPresent());
+        assertTrue(newIndex.getClassInfo(MemberInfo.class.getName()).isPresent());
+    }
+
+    @Test
+    public void rebuiltWhenClassesChangeInMemory() throws IOException {
+        rebuiltWhenClassesChange(null);
+    }
+
+    @Test
+    public void rebuiltWhenClassesChangeWithFile() throws IOException {
+        var indexFile = new File(ProjectTestUtils.getRandomFolder(), "classpath.idx").toPath();
+        rebuiltWhenClassesChange(indexFile);
+    }
+
+    @Test
+    public void checkedOncePerCompilation() throws IOException {
+        var folder = ProjectTestUtils.getRandomFolder().getAbsoluteFile();
+        copyClass(ClassInfo.class, folder);
+        var config = Map.of("classpath", folder.toString());
+
+        var context = new CompilerContext();
+        context.useClasspath(config);
+        var fingerprint = context.getClasspathFingerprint();
+
+        // The class files of a compilation do not change while it runs
+        copyClass(MemberInfo.class, folder);
+        context.useClasspath(config);
+        assertEquals(fingerprint, context.getClasspathFingerprint());
+        assertFalse(context.getClasspath().orElseThrow().getClassInfo(MemberInfo.class.getName()).isPresent());
+
+        var nextContext = new CompilerContext();
+        nextContext.useClasspath(config);
+        assertNotEquals(fingerprint, nextContext.getClasspathFingerprint());
+        assertTrue(nextContext.getClasspath().orElseThrow().getClassInfo(MemberInfo.class.getName()).isPresent());
+    }
+
+    @Test
+    public void noClasspath() {
+        var context = new CompilerContext();
+        context.useClasspath(Map.of("classpath", "does-not-exist"));
+        assertFalse(context.getClasspath().isPresent());
+        assertEquals("none", context.getClasspathFingerprint());
+    }
+}
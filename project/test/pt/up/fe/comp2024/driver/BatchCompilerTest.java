@@ -0,0 +1,126 @@
+package pt.up.fe.comp2024.driver;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.specs.util.SpecsIo;
+import utils.ProjectTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BatchCompilerTest {
+
+    private static String program(String className) {
+        return """
+                class %s {
+                    public int twice(int a) {
+                        return a * 2;
+                    }
+                    public static void main(String[] args) {
+                    }
+                }
+                """.formatted(className);
+    }
+
+    private static final String INVALID = """
+            class Invalid {
+                public int get() {
+                    return undeclared;
+                }
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    // Two valid programs, one of them in a sub-folder, and one with a semantic error
+    private static File createInputs() {
+        var folder = ProjectTestUtils.getRandomFolder();
+        SpecsIo.write(new File(folder, "First.jmm"), program("First"));
+        SpecsIo.write(new File(folder, "sub/Second.jmm"), program("Second"));
+        SpecsIo.write(new File(folder, "Invalid.jmm"), INVALID);
+        SpecsIo.write(new File(folder, "notes.txt"), "not a program");
+        return folder;
+    }
+
+    private static Map<String, String> config(File batchInput) {
+        var config = new HashMap<>(CompilerConfig.getDefault());
+        config.put("batch", batchInput.getAbsolutePath());
+        config.put("threads", "2");
+        return config;
+    }
+
+    private static String run(Map<String, String> config, int expectedFailures) {
+        var output = new ByteArrayOutputStream();
+        int failed = new BatchCompiler(config, new PrintStream(output, true, StandardCharsets.UTF_8)).run();
+        assertEquals(expectedFailures, failed);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void collectsFolderRecursively() {
+        var folder = createInputs();
+
+        var files = BatchCompiler.collectInputs(folder);
+
+        assertEquals(List.of(new File(folder, "First.jmm"), new File(folder, "Invalid.jmm"),
+                new File(folder, "sub/Second.jmm")), files);
+    }
+
+    @Test
+    public void collectsFileList() {
+        var folder = createInputs();
+        var absolute = new File(folder, "First.jmm").getAbsoluteFile();
+        var list = new File(folder, "inputs.txt");
+        SpecsIo.write(list, "# comment\n\n  sub/Second.jmm  \n" + absolute + "\n");
+
+        var files = BatchCompiler.collectInputs(list);
+
+        assertEquals(List.of(new File(folder.getAbsoluteFile(), "sub/Second.jmm"), absolute), files);
+    }
+
+    @Test
+    public void compilesEveryFile() {
+        var folder = createInputs();
+        var outputDir = ProjectTestUtils.getRandomFolder();
+        var config = config(folder);
+        config.put("outputDir", outputDir.getAbsolutePath());
+
+        var output = run(config, 1);
+
+        // Results are printed in input order
+        var lines = output.lines().toList();
+        assertTrue(output, lines.get(0).startsWith("[OK] ") && lines.get(0).contains("First.jmm"));
+        assertTrue(output, lines.get(1).startsWith("[FAIL] ") && lines.get(1).contains("Invalid.jmm"));
+        assertTrue(output, lines.get(2).contains("variable not declared"));
+        assertTrue(output, lines.get(3).startsWith("[OK] ") && lines.get(3).contains("Second.jmm"));
+        assertTrue(output, output.contains("Compiled 3 files (2 ok, 1 failed) with 2 threads"));
+
+        assertTrue(new File(outputDir, "First.j").isFile());
+        assertTrue(new File(outputDir, "Second.j").isFile());
+        assertFalse(new File(outputDir, "Invalid.j").exists());
+    }
+
+    @Test
+    public void secondRunIsCached() {
+        var folder = createInputs();
+        var config = config(folder);
+        config.put("cache", ProjectTestUtils.getRandomFolder().getAbsolutePath());
+
+        var first = run(config, 1);
+        assertTrue(first, first.contains("Cache: 0 hits, 3 misses"));
+
+        // Failed compilations are not stored
+        var second = run(config, 1);
+        assertTrue(second, second.contains("Cache: 2 hits, 1 misses"));
+        assertEquals(2, second.lines().filter(line -> line.endsWith(", cached)")).count());
+    }
+}
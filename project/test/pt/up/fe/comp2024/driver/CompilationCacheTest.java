@@ -0,0 +1,73 @@
+package pt.up.fe.comp2024.driver;
+
+import org.junit.Test;
+import pt.up.fe.comp2024.backend.InProcessJasminResult;
+import pt.up.fe.specs.util.SpecsIo;
+import utils.ProjectTestUtils;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompilationCacheTest {
+
+    private static InProcessJasminResult result(String code) {
+        return new InProcessJasminResult("Simple", code, List.of(), Map.of());
+    }
+
+    private static File[] list(File folder, String extension) {
+        return folder.listFiles((dir, name) -> name.endsWith(extension));
+    }
+
+    @Test
+    public void putThatCannotWriteIsIgnored() {
+        var folder = ProjectTestUtils.getRandomFolder();
+        var cache = new CompilationCache(folder, 1024 * 1024);
+
+        // A non-empty folder where the entry should go makes the move fail after the temporary file is written
+        var entryFolder = new File(folder, "abc.entry");
+        SpecsIo.write(new File(entryFolder, "blocker"), "");
+
+        cache.put("abc", result(".class public Simple"));
+
+        assertEquals(0, list(folder, ".tmp").length);
+        assertTrue(cache.get("abc", Map.of()).isEmpty());
+    }
+
+    @Test
+    public void putWithoutFolderIsIgnored() {
+        var folder = ProjectTestUtils.getRandomFolder();
+        var cache = new CompilationCache(folder, 1024 * 1024);
+        SpecsIo.deleteFolder(folder);
+
+        cache.put("abc", result(".class public Simple"));
+
+        assertFalse(folder.exists());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws InterruptedException {
+        var folder = ProjectTestUtils.getRandomFolder();
+        long maxBytes = 2000;
+        var cache = new CompilationCache(folder, maxBytes);
+        var code = "x".repeat(300);
+
+        for (int i = 0; i < 20; i++) {
+            cache.put("key" + i, result(code + i));
+            // Modification times are only as precise as the file system
+            Thread.sleep(10);
+        }
+
+        var entries = list(folder, ".entry");
+        long total = Arrays.stream(entries).mapToLong(File::length).sum();
+        assertTrue("Cache folder has " + total + " bytes", total <= maxBytes);
+        assertTrue(entries.length > 1);
+        assertTrue(cache.get("key19", Map.of()).isPresent());
+        assertTrue(cache.get("key0", Map.of()).isEmpty());
+    }
+}
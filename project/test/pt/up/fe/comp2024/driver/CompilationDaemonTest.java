@@ -0,0 +1,113 @@
+package pt.up.fe.comp2024.driver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pt.up.fe.comp2024.CompilerConfig;
+import utils.ProjectTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompilationDaemonTest {
+
+    private static final String CODE = """
+            import io;
+            class Simple {
+                public int twice(int a) {
+                    return a * 2;
+                }
+                public static void main(String[] args) {
+                    Simple simple;
+                    simple = new Simple();
+                    io.println(simple.twice(21));
+                }
+            }
+            """;
+
+    private ServerSocket server;
+
+    // Starts a daemon with a compilation cache on an ephemeral port, without warming it up
+    @Before
+    public void startDaemon() throws IOException {
+        var config = Map.of("cache", ProjectTestUtils.getRandomFolder().getAbsolutePath(), "threads", "2");
+        var daemon = new CompilationDaemon(config, new PrintStream(OutputStream.nullOutputStream()));
+
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        var thread = new Thread(() -> {
+            try {
+                daemon.listen(server);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, "jmm-daemon-test");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @After
+    public void stopDaemon() throws IOException {
+        server.close();
+    }
+
+    private DaemonProtocol.Response send(Map<String, String> config) throws IOException {
+        return DaemonClient.send(new DaemonProtocol.Request(CODE, config), server.getLocalPort());
+    }
+
+    @Test
+    public void secondCompilationIsCached() throws IOException {
+        var config = CompilerConfig.withAbsolutePaths(CompilerConfig.getDefault());
+
+        var first = send(config);
+        assertTrue(first.reports.toString(), first.success);
+        assertFalse(first.cached);
+        assertEquals("Simple", first.className);
+
+        var second = send(config);
+        assertTrue(second.success);
+        assertTrue(second.cached);
+        assertEquals(1, second.cacheHits);
+        assertEquals(1, second.cacheMisses);
+        assertEquals(first.jasminCode, second.jasminCode);
+    }
+
+    @Test
+    public void relativeClasspathIsRejected() throws IOException {
+        var config = new HashMap<>(CompilerConfig.getDefault());
+        config.put("classpath", "libs-jmm/compiled");
+
+        var response = send(config);
+
+        assertFalse(response.success);
+        assertEquals(1, response.reports.size());
+        assertTrue(response.reports.get(0).message, response.reports.get(0).message.contains("'-k'"));
+    }
+
+    @Test
+    public void clientSendsAbsolutePaths() {
+        var config = new HashMap<>(CompilerConfig.getDefault());
+        config.put("cache", "cache");
+        config.put("classpath", "libs-jmm/compiled" + File.pathSeparator + "other.jar");
+
+        var absolute = CompilerConfig.withAbsolutePaths(config);
+
+        assertEquals(new File("cache").getAbsolutePath(), absolute.get("cache"));
+        assertEquals(new File("libs-jmm/compiled").getAbsolutePath() + File.pathSeparator
+                + new File("other.jar").getAbsolutePath(), absolute.get("classpath"));
+        // The default classpath is resolved too
+        assertEquals(new File("libs-jmm/compiled").getAbsolutePath(),
+                CompilerConfig.withAbsolutePaths(CompilerConfig.getDefault()).get("classpath"));
+        CompilerConfig.checkAbsolutePaths(absolute);
+    }
+}
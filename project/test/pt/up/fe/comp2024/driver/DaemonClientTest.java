@@ -0,0 +1,66 @@
+package pt.up.fe.comp2024.driver;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.specs.util.SpecsIo;
+import utils.ProjectTestUtils;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DaemonClientTest {
+
+    private static DaemonProtocol.Response response() {
+        var response = new DaemonProtocol.Response();
+        response.success = true;
+        response.reports = List.of(DaemonProtocol.ReportMessage.fromReport(
+                Report.newWarn(Stage.SEMANTIC, 3, 4, "Unused variable 'a'", null)));
+        response.className = "Simple";
+        response.jasminCode = ".class public Simple";
+        return response;
+    }
+
+    @Test
+    public void printsToOutputFile() {
+        var outputFile = new File(ProjectTestUtils.getRandomFolder(), "output.txt");
+
+        DaemonClient.printResponse(response(), Map.of("outputFile", outputFile.getPath()));
+
+        var output = SpecsIo.read(outputFile);
+        assertTrue(output, output.contains("Unused variable 'a'"));
+        assertTrue(output, output.contains("====JASMIN====\n.class public Simple"));
+    }
+
+    @Test
+    public void printsOnlySelectedArtifacts() {
+        var outputFile = new File(ProjectTestUtils.getRandomFolder(), "output.txt");
+
+        DaemonClient.printResponse(response(),
+                Map.of("outputFile", outputFile.getPath(), "verbosity", "quiet", "artifacts", "reports"));
+
+        var output = SpecsIo.read(outputFile);
+        assertTrue(output, output.contains("Unused variable 'a'"));
+        assertFalse(output, output.contains("JASMIN"));
+    }
+
+    @Test
+    public void failedCompilationPrintsReports() {
+        var outputFile = new File(ProjectTestUtils.getRandomFolder(), "output.txt");
+        var response = response();
+        response.success = false;
+        response.reports = List.of(DaemonProtocol.ReportMessage.fromReport(
+                new Report(ReportType.ERROR, Stage.SEMANTIC, 5, 1, "Undeclared variable 'b'")));
+
+        assertFalse(DaemonClient.printResponse(response, Map.of("outputFile", outputFile.getPath())));
+
+        var output = SpecsIo.read(outputFile);
+        assertTrue(output, output.contains("Undeclared variable 'b'"));
+        assertFalse(output, output.contains("JASMIN"));
+    }
+}
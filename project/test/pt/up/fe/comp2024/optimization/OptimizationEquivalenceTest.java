@@ -0,0 +1,82 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the cpf jasmin and optimization programs compiled without flags and compiled with optimizations, and checks
+ * that they print the same and exit the same way.
+ */
+@RunWith(Parameterized.class)
+public class OptimizationEquivalenceTest {
+
+    private static final List<Path> FOLDERS = List.of(
+            Path.of("test/pt/up/fe/comp/cpf/4_jasmin"),
+            Path.of("test/pt/up/fe/comp/cpf/5_optimizations"));
+
+    private static final Map<String, Map<String, String>> CONFIGS = Map.of(
+            "-o", Map.of("optimize", "true"),
+            "-o -r=0", Map.of("optimize", "true", "registerAllocation", "0"));
+
+    @Parameters(name = "{0} {1}")
+    public static Collection<Object[]> programs() throws IOException {
+        List<Object[]> programs = new ArrayList<>();
+        for (var folder : FOLDERS) {
+            try (Stream<Path> walk = Files.walk(folder)) {
+                for (var file : walk.filter(path -> path.toString().endsWith(".jmm")).sorted().toList()) {
+                    for (var config : CONFIGS.keySet().stream().sorted().toList()) {
+                        programs.add(new Object[]{file.toString().replace('\\', '/'), config});
+                    }
+                }
+            }
+        }
+        return programs;
+    }
+
+    private final Path program;
+    private final Map<String, String> config;
+
+    public OptimizationEquivalenceTest(String program, String config) {
+        this.program = Path.of(program);
+        this.config = CONFIGS.get(config);
+    }
+
+    @Test
+    public void sameBehaviour() throws IOException {
+        var code = Files.readString(program);
+
+        var plain = TestUtils.backend(code, Map.of());
+        var optimized = TestUtils.backend(code, config);
+        TestUtils.noErrors(plain.getReports());
+        TestUtils.noErrors(optimized.getReports());
+
+        var expected = run(plain);
+        var actual = run(optimized);
+        assertEquals("Output of the optimized program", expected.get(0), actual.get(0));
+        assertEquals("Exit code of the optimized program", expected.get(1), actual.get(1));
+    }
+
+    /**
+     * @return the standard output and the exit code
+     */
+    private static List<String> run(JasminResult result) {
+        var output = result.runWithFullOutput(List.of(), Arrays.asList(TestUtils.getLibsClasspath()), null);
+        return List.of(output.getStdOut(), String.valueOf(output.getReturnValue()));
+    }
+}
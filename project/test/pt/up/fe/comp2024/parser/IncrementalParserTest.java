@@ -0,0 +1,149 @@
+package pt.up.fe.comp2024.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalParserTest {
+
+    private static final List<Path> FOLDERS = List.of(
+            Path.of("test/pt/up/fe/comp/cpf/3_ollir"),
+            Path.of("test/pt/up/fe/comp/cpf/4_jasmin"),
+            Path.of("test/pt/up/fe/comp/cpf/5_optimizations"));
+
+    private static final String[] SNIPPETS = {
+            " ", "\n", "x", "1", "+ 1", "a = 1;\n", "\n        io.println(2);\n", "}", "{", "(", "/*c*/", ";", "  \n\n"};
+
+    private static final int EDITS_PER_FILE = 20;
+
+    private static final String TWO_METHODS = """
+            class TwoMethods {
+                public int foo(int a) {
+                    int b;
+                    b = a + 1;
+                    return b;
+                }
+
+                public int bar(int a) {
+                    return a * 2;
+                }
+            }
+            """;
+
+    /**
+     * The tree with its attributes, which include the positions, one node per line.
+     */
+    private static String dump(JmmParserResult result) {
+        var root = result.getRootNode();
+        if (root == null) {
+            return "null";
+        }
+        var builder = new StringBuilder();
+        dump(root, builder, "");
+        return builder.toString();
+    }
+
+    private static void dump(JmmNode node, StringBuilder builder, String indent) {
+        builder.append(indent).append(node.getKind());
+        for (var attribute : new TreeSet<>(node.getAttributes())) {
+            builder.append(' ').append(attribute).append('=').append(node.getObject(attribute));
+        }
+        builder.append('\n');
+        for (var child : node.getChildren()) {
+            dump(child, builder, indent + "  ");
+        }
+    }
+
+    private static String fullParse(String code) {
+        return dump(new JmmParserImpl().parse(code, Map.of()));
+    }
+
+    private static List<Path> programs() throws IOException {
+        List<Path> programs = new ArrayList<>();
+        for (var folder : FOLDERS) {
+            try (Stream<Path> walk = Files.walk(folder)) {
+                programs.addAll(walk.filter(path -> path.toString().endsWith(".jmm")).sorted().toList());
+            }
+        }
+        return programs;
+    }
+
+    @Test
+    public void randomEditsMatchFullParse() throws IOException {
+        var random = new Random(7);
+        int methodParses = 0;
+
+        for (var program : programs()) {
+            var code = Files.readString(program);
+            var parser = new IncrementalParser(Map.of());
+            parser.parse(code);
+
+            for (int i = 0; i < EDITS_PER_FILE; i++) {
+                int start = random.nextInt(code.length());
+                int end = Math.min(code.length(), start + random.nextInt(4));
+                var replacement = random.nextInt(4) == 0 ? "" : SNIPPETS[random.nextInt(SNIPPETS.length)];
+                var newCode = code.substring(0, start) + replacement + code.substring(end);
+
+                // Both ways of giving a new version
+                var result = i % 2 == 0 ? parser.parse(newCode) : parser.edit(start, end, replacement);
+                var message = program + ", edit " + i + " replacing [" + start + ", " + end + ") with '"
+                        + replacement + "'";
+                assertEquals(message, newCode, parser.getCode());
+                assertEquals(message, fullParse(newCode), dump(result));
+
+                code = newCode;
+            }
+            methodParses += parser.getMethodParses();
+        }
+
+        // Otherwise the comparison above only checks full parses
+        assertTrue(methodParses > 0);
+    }
+
+    @Test
+    public void editInsideMethodReparsesOnlyIt() {
+        var parser = new IncrementalParser(Map.of());
+        parser.parse(TWO_METHODS);
+        assertEquals(1, parser.getFullParses());
+        assertEquals(0, parser.getMethodParses());
+
+        // Adds a line to 'foo', which moves 'bar' down
+        var code = TWO_METHODS.replace("b = a + 1;", "b = a + 1;\n        b = b * 3;");
+        var result = parser.parse(code);
+        assertEquals(1, parser.getFullParses());
+        assertEquals(1, parser.getMethodParses());
+        assertEquals(fullParse(code), dump(result));
+
+        // Moves the columns of the rest of the line in 'bar'
+        code = code.replace("a * 2", "(a + a) * 2");
+        result = parser.parse(code);
+        assertEquals(1, parser.getFullParses());
+        assertEquals(2, parser.getMethodParses());
+        assertEquals(fullParse(code), dump(result));
+    }
+
+    @Test
+    public void editOutsideMethodsParsesFile() {
+        var parser = new IncrementalParser(Map.of());
+        parser.parse(TWO_METHODS);
+
+        var code = TWO_METHODS.replace("class TwoMethods {", "class TwoMethods {\n    int total;");
+        var result = parser.parse(code);
+        assertEquals(2, parser.getFullParses());
+        assertEquals(0, parser.getMethodParses());
+        assertEquals(fullParse(code), dump(result));
+    }
+}
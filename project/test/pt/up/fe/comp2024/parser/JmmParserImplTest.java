@@ -0,0 +1,63 @@
+package pt.up.fe.comp2024.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.specs.util.SpecsIo;
+import utils.ProjectTestUtils;
+
+import java.io.File;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JmmParserImplTest {
+
+    // The SLL stage bails out at the ';' on line 9, and the LL stage must read the file again from the start
+    private static final String SYNTAX_ERROR = """
+            import io;
+
+            class SyntaxError {
+                public int foo() {
+                    int a;
+                    a = 1;
+                    a = a + 2;
+                    a = a * 3;
+                    a = a + ;
+                    return a;
+                }
+            }
+            """;
+
+    private static Report firstError(JmmParserResult result) {
+        assertNull(result.getRootNode());
+        return result.getReports().stream()
+                .filter(report -> report.getType() == ReportType.ERROR)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static void assertSyntaxError(Report error) {
+        assertEquals(9, error.getLine());
+        assertEquals(16, error.getColumn());
+        assertTrue(error.getMessage(), error.getMessage().contains("input ';'"));
+    }
+
+    @Test
+    public void syntaxErrorPositionFromString() {
+        var result = new JmmParserImpl().parse(SYNTAX_ERROR, Map.of());
+        assertSyntaxError(firstError(result));
+    }
+
+    @Test
+    public void syntaxErrorPositionFromFile() {
+        var file = new File(ProjectTestUtils.getRandomFolder(), "SyntaxError.jmm");
+        SpecsIo.write(file, SYNTAX_ERROR);
+
+        var result = new JmmParserImpl().parse(file.toPath(), Map.of());
+        assertSyntaxError(firstError(result));
+    }
+}
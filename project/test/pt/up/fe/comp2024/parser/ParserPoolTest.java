@@ -0,0 +1,107 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.junit.Test;
+import pt.up.fe.comp2024.grammar.JavammLexer;
+import pt.up.fe.comp2024.grammar.JavammParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParserPoolTest {
+
+    private static final List<Path> FOLDERS = List.of(
+            Path.of("test/pt/up/fe/comp/cpf/1_parser_and_tree"),
+            Path.of("test/pt/up/fe/comp/cpf/4_jasmin"),
+            Path.of("test/pt/up/fe/comp/cpf/5_optimizations"));
+
+    private static List<String> programs() throws IOException {
+        List<String> programs = new ArrayList<>();
+        for (var folder : FOLDERS) {
+            try (Stream<Path> walk = Files.walk(folder)) {
+                for (var file : walk.filter(path -> path.toString().endsWith(".jmm")).sorted().toList()) {
+                    programs.add(Files.readString(file));
+                }
+            }
+        }
+        return programs;
+    }
+
+    /**
+     * @return the states of the DFA shared by every lexer and parser, counted apart from ParserPool
+     */
+    private static long countDfaStates() {
+        var lexer = new JavammLexer(new ANTLRInputStream(""));
+        var parser = new JavammParser(new CommonTokenStream(lexer));
+        long states = 0;
+        for (var decisionToDFA : List.of(lexer.getInterpreter().decisionToDFA, parser.getInterpreter().decisionToDFA)) {
+            for (DFA dfa : decisionToDFA) {
+                states += dfa.states.size();
+            }
+        }
+        return states;
+    }
+
+    private static Map<String, String> withLimit(long maxCacheSize) {
+        return Map.of("parserCacheSize", String.valueOf(maxCacheSize));
+    }
+
+    /**
+     * @return how many times the DFA was cleared while parsing the programs
+     */
+    private static long parseAll(List<String> programs, Map<String, String> config) {
+        long clears = ParserPool.getClearCount();
+        for (var program : programs) {
+            new JmmParserImpl().parse(program, config);
+        }
+        return ParserPool.getClearCount() - clears;
+    }
+
+    @Test
+    public void warmDfaIsNotCleared() throws IOException {
+        var programs = programs();
+        ParserPool.clearCaches();
+        parseAll(programs, Map.of());
+
+        long states = countDfaStates();
+        long contexts = ParserPool.getContextCacheSize();
+        assertEquals(states, ParserPool.getCacheSize());
+        assertTrue(contexts > 0);
+
+        // The DFA fits, but not with the contexts, which cannot be cleared
+        var config = withLimit(states + contexts / 2);
+        assertEquals(0, parseAll(programs, config));
+        assertEquals(states, countDfaStates());
+    }
+
+    @Test
+    public void dfaIsBounded() throws IOException {
+        var programs = programs();
+        ParserPool.clearCaches();
+        parseAll(programs, Map.of());
+        // Smaller than the DFA of the whole corpus, but large enough for what several programs add to it
+        long maxCacheSize = countDfaStates() * 3 / 4;
+        ParserPool.clearCaches();
+
+        var config = withLimit(maxCacheSize);
+        long clears = 0;
+        for (int round = 0; round < 3; round++) {
+            clears += parseAll(programs, config);
+            assertTrue(countDfaStates() <= maxCacheSize);
+        }
+
+        assertTrue(clears > 0);
+        assertTrue("Cleared " + clears + " times in " + 3 * programs.size() + " parses",
+                clears < programs.size());
+    }
+}
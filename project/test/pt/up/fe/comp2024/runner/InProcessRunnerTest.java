@@ -0,0 +1,62 @@
+package pt.up.fe.comp2024.runner;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp2024.backend.ClassFileBackendImpl;
+import pt.up.fe.comp2024.backend.JasminAssembler;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class InProcessRunnerTest {
+
+    private static final String SILENT_LOOP = """
+            class SilentLoop {
+                public static void main(String[] args) {
+                    int i;
+                    i = 0;
+                    while (true) {
+                        i = i + 1;
+                    }
+                }
+            }
+            """;
+
+    private static final long TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private static void assertStopped(JasminResult result) throws InterruptedException {
+        var runner = InProcessRunner.forClasspath(Arrays.asList(TestUtils.getLibsClasspath()));
+
+        var classes = Map.of(result.getClassName(), JasminAssembler.toClassFile(result));
+        var output = runner.run(result.getClassName(), classes, List.of(), null, TIMEOUT_NANOS);
+        assertEquals(-1, output.getReturnValue());
+
+        // The thread of the run must end, instead of spinning after the run returned
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (isRunning() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse("The program kept running after the timeout", isRunning());
+    }
+
+    private static boolean isRunning() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getContextClassLoader() instanceof IsolatedClassLoader);
+    }
+
+    @Test
+    public void stopsSilentLoopJasmin() throws InterruptedException {
+        assertStopped(TestUtils.backend(SILENT_LOOP));
+    }
+
+    @Test
+    public void stopsSilentLoopClassFile() throws InterruptedException {
+        assertStopped(new ClassFileBackendImpl().toJasmin(TestUtils.optimize(SILENT_LOOP)));
+    }
+}
@@ -0,0 +1,100 @@
+package pt.up.fe.comp2024.symboltable;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SymbolIndexTest {
+
+    private static final String CODE = """
+            class Slots {
+                int total;
+                boolean b;
+
+                public int foo(int a, boolean b) {
+                    int c;
+                    int[] a;
+                    return c;
+                }
+            }
+            """;
+
+    /**
+     * A symbol table that is not a {@link JmmSymbolTable}, e.g. one built by other tools.
+     */
+    private record OtherTable(SymbolTable table) implements SymbolTable {
+        public List<String> getImports() {
+            return table.getImports();
+        }
+
+        public String getClassName() {
+            return table.getClassName();
+        }
+
+        public String getSuper() {
+            return table.getSuper();
+        }
+
+        public List<Symbol> getFields() {
+            return table.getFields();
+        }
+
+        public List<String> getMethods() {
+            return table.getMethods();
+        }
+
+        public Type getReturnType(String methodSignature) {
+            return table.getReturnType(methodSignature);
+        }
+
+        public List<Symbol> getParameters(String methodSignature) {
+            return table.getParameters(methodSignature);
+        }
+
+        public List<Symbol> getLocalVariables(String methodSignature) {
+            return table.getLocalVariables(methodSignature);
+        }
+    }
+
+    private static SymbolTable table() {
+        return TestUtils.analyse(CODE).getSymbolTable();
+    }
+
+    private static void assertResolved(SymbolIndex index, String name, SymbolKind kind, int slot, String type) {
+        var symbol = index.resolve("foo", name).orElseThrow();
+        assertEquals(kind, symbol.kind());
+        assertEquals(slot, symbol.slot());
+        assertEquals(type, symbol.type().print());
+    }
+
+    @Test
+    public void kindsAndSlots() {
+        var index = SymbolIndex.of(table());
+
+        // Parameters come first, then the locals, which hide parameters and fields of the same name
+        assertResolved(index, "a", SymbolKind.LOCAL, 3, "int[]");
+        assertResolved(index, "b", SymbolKind.PARAM, 1, "boolean");
+        assertResolved(index, "c", SymbolKind.LOCAL, 2, "int");
+        assertResolved(index, "total", SymbolKind.FIELD, -1, "int");
+    }
+
+    @Test
+    public void otherTablesAreIndexedOnce() {
+        var table = new OtherTable(table());
+
+        var index = SymbolIndex.of(table);
+        assertSame(index, SymbolIndex.of(table));
+        assertResolved(index, "c", SymbolKind.LOCAL, 2, "int");
+
+        // By identity, even if the tables are equal
+        assertNotSame(index, SymbolIndex.of(new OtherTable(table.table())));
+    }
+}
@@ -243,6 +243,8 @@ public class ProjectTestUtils {
         command.add(mainClass);
         command.addAll(args);
 
+        // This runs the compiler itself in the given working directory, which a run inside this JVM cannot change, so
+        // it is still a process instead of going through the InProcessRunner
         return SpecsSystem.runProcess(command, workingDir, true, true);
         // java -cp
         // "%~dp0comp2021-1e.jar;%~dp0libs/utils.jar;%~dp0libs/gson-2.8.2.jar;%~dp0libs/ollir.jar;%~dp0libs/jasmin.jar"